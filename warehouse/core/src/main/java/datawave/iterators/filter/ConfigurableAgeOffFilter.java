@@ -7,6 +7,7 @@ import com.google.common.collect.Lists;
 import datawave.ingest.util.cache.ReloadableCacheBuilder;
 import datawave.ingest.util.cache.watch.FileRuleWatcher;
 import datawave.iterators.filter.ageoff.AgeOffPeriod;
+import datawave.iterators.filter.ageoff.AgeOffRulePlan;
 import datawave.iterators.filter.ageoff.AppliedRule;
 import datawave.iterators.filter.ageoff.FilterRule;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
@@ -28,7 +29,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -119,6 +119,10 @@ public class ConfigurableAgeOffFilter extends Filter implements OptionDescriber
     
     protected Collection<AppliedRule> filterList;
     
+    // the filter list compiled into a single decision structure, and the filter list it was compiled from
+    private AgeOffRulePlan rulePlan;
+    private Collection<AppliedRule> rulePlanRules;
+    
     protected long cutOffDateMillis;
     protected long scanStart;
     
@@ -168,25 +172,23 @@ public class ConfigurableAgeOffFilter extends Filter implements OptionDescriber
         if (timeStamp > this.shortCircuitDateMillis)
             return true;
         
-        boolean acceptFlag = false;
-        boolean filterRuleApplied = false;
-        
-        Iterator<AppliedRule> iter = this.filterList.iterator();
-        
-        while ((!filterRuleApplied) && iter.hasNext()) {
-            AppliedRule filter = iter.next();
-            acceptFlag = filter.accept(k, v);
-            filterRuleApplied = filter.isFilterRuleApplied();
-        }
+        // The first applied filter rule decides, and if none
+        // were applied then the default TTL is used
+        return getRulePlan().accept(k, v, this.cutOffDateMillis);
         
-        // We went through all of the defined filter rules
-        // and none were used, let's apply the default TTL
-        if (!filterRuleApplied) {
-            acceptFlag = timeStamp > this.cutOffDateMillis;
+    }
+    
+    /**
+     * Get the filter list compiled into a single decision structure, compiling it if the filter list has been replaced.
+     *
+     * @return the compiled rule plan
+     */
+    protected AgeOffRulePlan getRulePlan() {
+        if (rulePlan == null || rulePlanRules != this.filterList) {
+            rulePlan = AgeOffRulePlan.compile(this.filterList);
+            rulePlanRules = this.filterList;
         }
-        
-        return acceptFlag;
-        
+        return rulePlan;
     }
     
     @Override
@@ -205,6 +207,12 @@ public class ConfigurableAgeOffFilter extends Filter implements OptionDescriber
         
         this.filterList = Lists.newArrayList(other.filterList);
         
+        // the copied filter list holds the same rules, so the compiled plan can be shared
+        if (other.rulePlan != null && other.rulePlanRules == other.filterList) {
+            this.rulePlan = other.rulePlan;
+            this.rulePlanRules = this.filterList;
+        }
+        
         this.scanStart = other.scanStart;
         
         this.cutOffDateMillis = other.cutOffDateMillis;
@@ -0,0 +1,524 @@
+package datawave.iterators.filter.ageoff;
+
+import datawave.iterators.filter.ColumnVisibilityOrFilter;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The age off rules for a table compiled into a single decision structure. The rules are evaluated in their configured order with the first applied rule
+ * deciding the fate of a key, exactly as if each rule was run in turn. However consecutive {@link DataTypeAgeOffFilter} rules, and consecutive
+ * {@link FieldAgeOffFilter} rules with the same visibility patterns, are merged into a single stage backed by a {@link CutoffTrie}. The data type or field of a
+ * key is parsed once and shared by all stages, so adding another data type or field rule adds entries to a trie rather than another pass over the key. Rules
+ * following a data type rule with a default ttl can never be applied and are dropped. Any other rule is evaluated as is.
+ */
+public final class AgeOffRulePlan {
+    
+    private static final Logger log = Logger.getLogger(AgeOffRulePlan.class);
+    
+    private static final int NOT_APPLIED = 0;
+    private static final int ACCEPT = 1;
+    private static final int REJECT = 2;
+    
+    private static final byte NULL = 0x00;
+    
+    /**
+     * Minimum shard length
+     */
+    private static final int SHARD_ID_LENGTH_MIN = 10;
+    
+    private final Stage[] stages;
+    
+    private AgeOffRulePlan(Stage[] stages) {
+        this.stages = stages;
+    }
+    
+    /**
+     * Compile an ordered collection of rules
+     *
+     * @param rules
+     *            the rules in the order they are to be applied, may be null
+     * @return the compiled plan
+     */
+    public static AgeOffRulePlan compile(Collection<AppliedRule> rules) {
+        List<Stage> stages = new ArrayList<>();
+        if (rules != null) {
+            StageBuilder pending = null;
+            int compiled = 0;
+            for (AppliedRule rule : rules) {
+                compiled++;
+                if (pending == null || !pending.merge(rule)) {
+                    if (pending != null) {
+                        stages.add(pending.build());
+                    }
+                    pending = newStageBuilder(rule);
+                    if (pending == null) {
+                        stages.add(new RuleStage(rule));
+                    } else {
+                        pending.merge(rule);
+                    }
+                }
+                if (pending != null && pending.isTerminal()) {
+                    break;
+                }
+            }
+            if (pending != null) {
+                stages.add(pending.build());
+            }
+            if (compiled < rules.size()) {
+                log.debug("Dropping " + (rules.size() - compiled) + " age off rules that follow a data type rule with a default ttl");
+            }
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Compiled " + (rules == null ? 0 : rules.size()) + " age off rules into " + stages);
+        }
+        return new AgeOffRulePlan(stages.toArray(new Stage[stages.size()]));
+    }
+    
+    private static StageBuilder newStageBuilder(AppliedRule rule) {
+        // subclasses may change how the rule is applied, so only the rules themselves are compiled
+        if (rule.getClass() == DataTypeAgeOffFilter.class && ((DataTypeAgeOffFilter) rule).dataTypeTimes != null) {
+            return new DataTypeStageBuilder(((DataTypeAgeOffFilter) rule).isIndextable);
+        }
+        if (rule.getClass() == FieldAgeOffFilter.class && ((FieldAgeOffFilter) rule).fieldTimes != null) {
+            FieldAgeOffFilter fieldRule = (FieldAgeOffFilter) rule;
+            return new FieldStageBuilder(fieldRule.isIndextable, fieldRule.getVisibilityFilter());
+        }
+        return null;
+    }
+    
+    /**
+     * @return the number of stages a key passes through at most
+     */
+    public int getStageCount() {
+        return stages.length;
+    }
+    
+    /**
+     * Apply the rules to a key
+     *
+     * @param k
+     *            the key
+     * @param v
+     *            the value
+     * @param defaultCutoff
+     *            the cutoff applied when none of the rules apply
+     * @return true if the key should be kept
+     */
+    public boolean accept(Key k, Value v, long defaultCutoff) {
+        if (stages.length > 0) {
+            ParsedKey key = new ParsedKey(k);
+            for (Stage stage : stages) {
+                int result = stage.apply(key, v);
+                if (result != NOT_APPLIED) {
+                    return result == ACCEPT;
+                }
+            }
+        }
+        return k.getTimestamp() > defaultCutoff;
+    }
+    
+    private static int verdict(Key k, long cutoff) {
+        return k.getTimestamp() > cutoff ? ACCEPT : REJECT;
+    }
+    
+    @Override
+    public String toString() {
+        return Arrays.toString(stages);
+    }
+    
+    /**
+     * A key along with its data type and field, each parsed at most once no matter how many stages need them. The parsing follows that of
+     * {@link DataTypeAgeOffFilter} and {@link FieldAgeOffFilter}.
+     */
+    private static final class ParsedKey {
+        private static final int UNPARSED = 0;
+        private static final int INDEX = 1;
+        private static final int SHARD = 2;
+        
+        // the kind of shard table column a field was parsed from
+        private static final int OTHER_COLUMN = 0;
+        private static final int EVENT_COLUMN = 1;
+        private static final int DOCUMENT_COLUMN = 2;
+        
+        private final Key key;
+        private byte[] cf;
+        private byte[] cq;
+        
+        private int dataTypeParsed = UNPARSED;
+        private byte[] dataTypeBytes;
+        private int dataTypeOffset;
+        private int dataTypeLength;
+        
+        private int fieldParsed = UNPARSED;
+        private byte[] fieldBytes;
+        private int fieldOffset;
+        private int fieldLength;
+        private int fieldColumn;
+        
+        private ParsedKey(Key key) {
+            this.key = key;
+        }
+        
+        // ASSUMES THAT THE KEY STARTS WITH CORRECTLY SIZED BYTE ARRAYS
+        private byte[] cf() {
+            if (cf == null) {
+                cf = key.getColumnFamilyData().getBackingArray();
+            }
+            return cf;
+        }
+        
+        private byte[] cq() {
+            if (cq == null) {
+                cq = key.getColumnQualifierData().getBackingArray();
+            }
+            return cq;
+        }
+        
+        private static boolean isFi(byte[] cf) {
+            return cf.length >= 3 && cf[0] == 'f' && cf[1] == 'i' && cf[2] == NULL;
+        }
+        
+        private static boolean isTf(byte[] cf) {
+            // no need to check second character as we cannot have a datatype of 't' with an empty UID
+            return cf.length == 2 && cf[0] == 't';
+        }
+        
+        private static boolean isDocument(byte[] cf) {
+            return cf.length == 1 && cf[0] == 'd';
+        }
+        
+        private int findDataType(boolean indexTable, CutoffTrie trie) {
+            int parsed = indexTable ? INDEX : SHARD;
+            if (dataTypeParsed != parsed) {
+                dataTypeParsed = parsed;
+                dataTypeBytes = null;
+                if (indexTable) {
+                    parseIndexDataType();
+                } else {
+                    parseShardDataType();
+                }
+            }
+            return dataTypeBytes == null ? CutoffTrie.NOT_FOUND : trie.find(dataTypeBytes, dataTypeOffset, dataTypeLength);
+        }
+        
+        private void parseIndexDataType() {
+            byte[] cq = cq();
+            for (int i = SHARD_ID_LENGTH_MIN; i < cq.length; i++) {
+                if (cq[i] == NULL) {
+                    setDataType(cq, i + 1, cq.length - (i + 1));
+                    return;
+                }
+            }
+        }
+        
+        private void parseShardDataType() {
+            byte[] cf = cf();
+            byte[] cq = cq();
+            if (isFi(cf)) {
+                int uidIndex = -1;
+                int nullIndex = -1;
+                for (int i = cq.length - 1; i >= 0; i--) {
+                    if (cq[i] == NULL) {
+                        if (uidIndex == -1)
+                            uidIndex = i;
+                        else
+                            nullIndex = i + 1;
+                        if (uidIndex > 0 && nullIndex > 0)
+                            break;
+                    }
+                }
+                if (uidIndex > 0 && nullIndex > 0) {
+                    setDataType(cq, nullIndex, uidIndex - nullIndex);
+                }
+            } else if (isTf(cf) || isDocument(cf)) {
+                // the data type is the first part of the column qualifier, we expect more than one null if formatted correctly
+                for (int i = 0; i < cq.length - 1; i++) {
+                    if (cq[i] == NULL) {
+                        if (i > 0) {
+                            setDataType(cq, 0, i);
+                        }
+                        return;
+                    }
+                }
+            } else {
+                // data column
+                for (int i = 0; i < cf.length; i++) {
+                    if (cf[i] == NULL) {
+                        if (i > 0) {
+                            setDataType(cf, 0, i);
+                        }
+                        return;
+                    }
+                }
+            }
+        }
+        
+        private void setDataType(byte[] bytes, int offset, int length) {
+            dataTypeBytes = bytes;
+            dataTypeOffset = offset;
+            dataTypeLength = length;
+        }
+        
+        private void parseField(boolean indexTable) {
+            int parsed = indexTable ? INDEX : SHARD;
+            if (fieldParsed == parsed) {
+                return;
+            }
+            fieldParsed = parsed;
+            fieldBytes = null;
+            fieldColumn = OTHER_COLUMN;
+            
+            if (indexTable) {
+                ByteSequence field = key.getColumnFamilyData();
+                setField(field.getBackingArray(), field.offset(), field.length());
+                return;
+            }
+            
+            byte[] cf = cf();
+            byte[] cq = cq();
+            if (isFi(cf)) {
+                // the field is the rest of the column family after fi\0
+                setField(cf, 3, cf.length - 3);
+            } else if (isTf(cf)) {
+                // the field is from the last null of the column qualifier to its end
+                for (int i = cq.length - 1; i >= 0; i--) {
+                    if (cq[i] == NULL) {
+                        if (i > 0) {
+                            setField(cq, i + 1, cq.length - (i + 1));
+                        }
+                        break;
+                    }
+                }
+            } else if (isDocument(cf)) {
+                fieldColumn = DOCUMENT_COLUMN;
+            } else {
+                // event fields may have instance notations using periods, so the field ends at either the first null or dot
+                fieldColumn = EVENT_COLUMN;
+                for (int i = 0; i < cq.length; i++) {
+                    if (cq[i] == '.' || cq[i] == NULL) {
+                        if (i > 0) {
+                            setField(cq, 0, i);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        
+        private void setField(byte[] bytes, int offset, int length) {
+            fieldBytes = bytes;
+            fieldOffset = offset;
+            fieldLength = length;
+        }
+        
+        private int findField(CutoffTrie trie) {
+            return fieldBytes == null ? CutoffTrie.NOT_FOUND : trie.find(fieldBytes, fieldOffset, fieldLength);
+        }
+    }
+    
+    private abstract static class Stage {
+        /**
+         * @return {@link #ACCEPT} or {@link #REJECT} if the stage applies to the key, otherwise {@link #NOT_APPLIED}
+         */
+        abstract int apply(ParsedKey key, Value v);
+    }
+    
+    private abstract static class StageBuilder {
+        /**
+         * @return true if the rule was merged into this stage
+         */
+        abstract boolean merge(AppliedRule rule);
+        
+        /**
+         * @return true if this stage applies to every key, in which case no later rule can ever be applied
+         */
+        abstract boolean isTerminal();
+        
+        abstract Stage build();
+    }
+    
+    /**
+     * A rule that is not compiled
+     */
+    private static final class RuleStage extends Stage {
+        private final AppliedRule rule;
+        
+        private RuleStage(AppliedRule rule) {
+            this.rule = rule;
+        }
+        
+        @Override
+        int apply(ParsedKey key, Value v) {
+            boolean accept = rule.accept(key.key, v);
+            if (!rule.isFilterRuleApplied()) {
+                return NOT_APPLIED;
+            }
+            return accept ? ACCEPT : REJECT;
+        }
+        
+        @Override
+        public String toString() {
+            return String.valueOf(rule);
+        }
+    }
+    
+    /**
+     * Consecutive data type rules. A data type rule with a default ttl applies to every key, so it is always the last rule of the stage.
+     */
+    private static final class DataTypeStage extends Stage {
+        private final boolean indexTable;
+        private final CutoffTrie dataTypes;
+        private final boolean hasDefault;
+        private final long defaultCutoff;
+        
+        private DataTypeStage(boolean indexTable, CutoffTrie dataTypes, boolean hasDefault, long defaultCutoff) {
+            this.indexTable = indexTable;
+            this.dataTypes = dataTypes;
+            this.hasDefault = hasDefault;
+            this.defaultCutoff = defaultCutoff;
+        }
+        
+        @Override
+        int apply(ParsedKey key, Value v) {
+            int state = key.findDataType(indexTable, dataTypes);
+            if (state != CutoffTrie.NOT_FOUND) {
+                return verdict(key.key, dataTypes.getCutoff(state));
+            }
+            return hasDefault ? verdict(key.key, defaultCutoff) : NOT_APPLIED;
+        }
+        
+        @Override
+        public String toString() {
+            return "DataTypeStage[indexTable=" + indexTable + ", dataTypes=" + dataTypes.size() + ", hasDefault=" + hasDefault + "]";
+        }
+    }
+    
+    private static final class DataTypeStageBuilder extends StageBuilder {
+        private final boolean indexTable;
+        private final CutoffTrie.Builder dataTypes = new CutoffTrie.Builder();
+        private boolean hasDefault = false;
+        private long defaultCutoff;
+        
+        private DataTypeStageBuilder(boolean indexTable) {
+            this.indexTable = indexTable;
+        }
+        
+        @Override
+        boolean merge(AppliedRule rule) {
+            if (hasDefault || rule.getClass() != DataTypeAgeOffFilter.class) {
+                return false;
+            }
+            DataTypeAgeOffFilter dataTypeRule = (DataTypeAgeOffFilter) rule;
+            if (dataTypeRule.dataTypeTimes == null || dataTypeRule.isIndextable != indexTable) {
+                return false;
+            }
+            for (Map.Entry<ByteSequence,Long> entry : dataTypeRule.dataTypeTimes.entrySet()) {
+                dataTypes.add(entry.getKey().toArray(), entry.getValue());
+            }
+            AgeOffPeriod period = dataTypeRule.getPeriod();
+            if (period.getTtl() >= 0) {
+                hasDefault = true;
+                defaultCutoff = period.getCutOffMilliseconds();
+            }
+            return true;
+        }
+        
+        @Override
+        boolean isTerminal() {
+            return hasDefault;
+        }
+        
+        @Override
+        Stage build() {
+            return new DataTypeStage(indexTable, dataTypes.build(), hasDefault, defaultCutoff);
+        }
+    }
+    
+    /**
+     * Consecutive field rules sharing the same visibility patterns. Event fields are looked up in a separate trie which omits the fields of rules that exclude
+     * event data.
+     */
+    private static final class FieldStage extends Stage {
+        private final boolean indexTable;
+        private final ColumnVisibilityOrFilter visibilityFilter;
+        private final CutoffTrie fields;
+        private final CutoffTrie eventFields;
+        
+        private FieldStage(boolean indexTable, ColumnVisibilityOrFilter visibilityFilter, CutoffTrie fields, CutoffTrie eventFields) {
+            this.indexTable = indexTable;
+            this.visibilityFilter = visibilityFilter;
+            this.fields = fields;
+            this.eventFields = eventFields;
+        }
+        
+        @Override
+        int apply(ParsedKey key, Value v) {
+            if (!visibilityFilter.hasToken(key.key, v, visibilityFilter.getPatternBytes())) {
+                return NOT_APPLIED;
+            }
+            key.parseField(indexTable);
+            if (key.fieldColumn == ParsedKey.DOCUMENT_COLUMN) {
+                return NOT_APPLIED;
+            }
+            CutoffTrie trie = (key.fieldColumn == ParsedKey.EVENT_COLUMN) ? eventFields : fields;
+            int state = key.findField(trie);
+            return state == CutoffTrie.NOT_FOUND ? NOT_APPLIED : verdict(key.key, trie.getCutoff(state));
+        }
+        
+        @Override
+        public String toString() {
+            return "FieldStage[indexTable=" + indexTable + ", fields=" + fields.size() + ", eventFields=" + eventFields.size() + "]";
+        }
+    }
+    
+    private static final class FieldStageBuilder extends StageBuilder {
+        private final boolean indexTable;
+        private final ColumnVisibilityOrFilter visibilityFilter;
+        private final CutoffTrie.Builder fields = new CutoffTrie.Builder();
+        private final CutoffTrie.Builder eventFields = new CutoffTrie.Builder();
+        
+        private FieldStageBuilder(boolean indexTable, ColumnVisibilityOrFilter visibilityFilter) {
+            this.indexTable = indexTable;
+            this.visibilityFilter = visibilityFilter;
+        }
+        
+        @Override
+        boolean merge(AppliedRule rule) {
+            if (rule.getClass() != FieldAgeOffFilter.class) {
+                return false;
+            }
+            FieldAgeOffFilter fieldRule = (FieldAgeOffFilter) rule;
+            if (fieldRule.fieldTimes == null || fieldRule.isIndextable != indexTable
+                            || !Arrays.deepEquals(fieldRule.getVisibilityFilter().getPatternBytes(), visibilityFilter.getPatternBytes())) {
+                return false;
+            }
+            boolean excludeEvents = fieldRule.fieldExcludeOptions.contains(FieldAgeOffFilter.FieldExclusionType.EVENT);
+            for (Map.Entry<ByteSequence,Long> entry : fieldRule.fieldTimes.entrySet()) {
+                byte[] field = entry.getKey().toArray();
+                fields.add(field, entry.getValue());
+                if (!excludeEvents) {
+                    eventFields.add(field, entry.getValue());
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        boolean isTerminal() {
+            return false;
+        }
+        
+        @Override
+        Stage build() {
+            return new FieldStage(indexTable, visibilityFilter, fields.build(), eventFields.build());
+        }
+    }
+}
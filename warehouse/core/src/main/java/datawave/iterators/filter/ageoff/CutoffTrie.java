@@ -0,0 +1,157 @@
+package datawave.iterators.filter.ageoff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable trie mapping exact byte tokens (data types, field names) to age off cutoff timestamps. Lookups walk the bytes of a token in place, so a key's
+ * column family or qualifier can be matched without copying it or wrapping it in a {@code ByteSequence}. As the trie is immutable it is inherently threadsafe.
+ */
+public final class CutoffTrie {
+    public static final int NOT_FOUND = -1;
+    
+    private static final short UNRECOGNIZED_CHAR_CLASS = -1;
+    
+    private final int charClassCount;
+    private final short[] charClasses;
+    private final int[] transitionTable;
+    private final boolean[] terminal;
+    private final long[] cutoffs;
+    private final int entryCount;
+    
+    private CutoffTrie(int charClassCount, short[] charClasses, int[] transitionTable, boolean[] terminal, long[] cutoffs, int entryCount) {
+        this.charClassCount = charClassCount;
+        this.charClasses = charClasses;
+        this.transitionTable = transitionTable;
+        this.terminal = terminal;
+        this.cutoffs = cutoffs;
+        this.entryCount = entryCount;
+    }
+    
+    /**
+     * @return the number of tokens in the trie
+     */
+    public int size() {
+        return entryCount;
+    }
+    
+    /**
+     * Find a token in the trie
+     *
+     * @param bytes
+     *            the array containing the token
+     * @param offset
+     *            the offset of the token in the array
+     * @param length
+     *            the length of the token
+     * @return the state of the token, to be passed to {@link #getCutoff(int)}, or {@link #NOT_FOUND}
+     */
+    public int find(byte[] bytes, int offset, int length) {
+        int state = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            short charClass = charClasses[0xff & bytes[i]];
+            if (charClass == UNRECOGNIZED_CHAR_CLASS) {
+                return NOT_FOUND;
+            }
+            state = transitionTable[state * charClassCount + charClass];
+            if (state == NOT_FOUND) {
+                return NOT_FOUND;
+            }
+        }
+        return terminal[state] ? state : NOT_FOUND;
+    }
+    
+    /**
+     * @param state
+     *            a state returned by {@link #find(byte[], int, int)}
+     * @return the cutoff timestamp of the token
+     */
+    public long getCutoff(int state) {
+        return cutoffs[state];
+    }
+    
+    /**
+     * Trie construction. When a token is added more than once the first cutoff is kept, matching the first rule wins semantics of the age off filter.
+     */
+    public static class Builder {
+        private int entryCount = 0;
+        private final List<Map<Byte,Integer>> transitionMaps = new ArrayList<>();
+        private final List<Long> cutoffList = new ArrayList<>();
+        
+        public Builder() {
+            transitionMaps.add(new HashMap<>());
+            cutoffList.add(null);
+        }
+        
+        public int size() {
+            return entryCount;
+        }
+        
+        /**
+         * Add a token unless it is already present
+         *
+         * @param token
+         *            the token
+         * @param cutoff
+         *            the cutoff timestamp for the token
+         * @return true if the token was added
+         */
+        public boolean add(byte[] token, long cutoff) {
+            int curState = 0;
+            for (byte b : token) {
+                Map<Byte,Integer> transMap = transitionMaps.get(curState);
+                Integer nextState = transMap.get(b);
+                if (nextState == null) {
+                    nextState = transitionMaps.size();
+                    transitionMaps.add(new HashMap<>());
+                    cutoffList.add(null);
+                    transMap.put(b, nextState);
+                }
+                curState = nextState;
+            }
+            if (cutoffList.get(curState) != null) {
+                return false;
+            }
+            cutoffList.set(curState, cutoff);
+            entryCount++;
+            return true;
+        }
+        
+        public CutoffTrie build() {
+            // only create transition table entries for bytes that actually appear in a token
+            short[] charClasses = new short[256];
+            for (int i = 0; i < 256; i++) {
+                charClasses[i] = UNRECOGNIZED_CHAR_CLASS;
+            }
+            List<Byte> classReps = new ArrayList<>();
+            for (Map<Byte,Integer> transMap : transitionMaps) {
+                for (Byte b : transMap.keySet()) {
+                    if (charClasses[0xff & b] == UNRECOGNIZED_CHAR_CLASS) {
+                        charClasses[0xff & b] = (short) classReps.size();
+                        classReps.add(b);
+                    }
+                }
+            }
+            int charClassCount = classReps.size();
+            
+            int stateCount = transitionMaps.size();
+            int[] transitionTable = new int[stateCount * charClassCount];
+            boolean[] terminal = new boolean[stateCount];
+            long[] cutoffs = new long[stateCount];
+            for (int state = 0; state < stateCount; state++) {
+                Long cutoff = cutoffList.get(state);
+                terminal[state] = (cutoff != null);
+                cutoffs[state] = (cutoff == null ? 0 : cutoff);
+                
+                Map<Byte,Integer> transMap = transitionMaps.get(state);
+                for (int charClass = 0; charClass < charClassCount; charClass++) {
+                    Integer nextState = transMap.get(classReps.get(charClass));
+                    transitionTable[state * charClassCount + charClass] = (nextState == null ? NOT_FOUND : nextState);
+                }
+            }
+            return new CutoffTrie(charClassCount, charClasses, transitionTable, terminal, cutoffs, entryCount);
+        }
+    }
+}
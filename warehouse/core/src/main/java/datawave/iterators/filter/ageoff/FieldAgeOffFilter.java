@@ -320,4 +320,11 @@ public class FieldAgeOffFilter extends AppliedRule {
     public boolean isFilterRuleApplied() {
         return ruleApplied;
     }
+    
+    /**
+     * @return the filter used to determine whether this rule applies to a key's visibility
+     */
+    ColumnVisibilityOrFilter getVisibilityFilter() {
+        return cvOrFilter;
+    }
 }
@@ -0,0 +1,163 @@
+package datawave.iterators.filter.ageoff;
+
+import datawave.iterators.filter.AgeOffConfigParams;
+import datawave.iterators.filter.AgeOffTtlUnits;
+import datawave.iterators.filter.ColumnFamilyRegexFilter;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public class AgeOffRulePlanTest {
+    private static final String VISIBILITY_PATTERN = "MY_VIS";
+    private static final long ONE_DAY = 24L * 60 * 60 * 1000;
+    private static final long SCAN_START = System.currentTimeMillis();
+    private static final Value VALUE = new Value();
+    
+    @Test
+    public void testMergesConsecutiveDataTypeRules() {
+        List<AppliedRule> rules = new ArrayList<>();
+        // no default ttl, so keys of other data types fall through to the next rule
+        rules.add(dataTypeRule(-1, "foo", "foo.ttl", "10"));
+        rules.add(dataTypeRule(30, "foo,bar", "foo.ttl", "1", "bar.ttl", "5"));
+        // can never be applied as the previous rule has a default ttl
+        rules.add(fieldRule(1, "FIELD_A"));
+        
+        AgeOffRulePlan plan = AgeOffRulePlan.compile(rules);
+        Assert.assertEquals(1, plan.getStageCount());
+        
+        // the first rule wins for foo
+        Assert.assertTrue(plan.accept(eventKey("foo", "FIELD_A", 5), VALUE, SCAN_START));
+        Assert.assertFalse(plan.accept(eventKey("foo", "FIELD_A", 11), VALUE, SCAN_START));
+        Assert.assertFalse(plan.accept(eventKey("bar", "FIELD_A", 6), VALUE, SCAN_START));
+        // the second rule's default applies to everything else
+        Assert.assertTrue(plan.accept(eventKey("baz", "FIELD_A", 20), VALUE, SCAN_START));
+        Assert.assertFalse(plan.accept(eventKey("baz", "FIELD_A", 40), VALUE, SCAN_START));
+    }
+    
+    @Test
+    public void testMergesConsecutiveFieldRules() {
+        List<AppliedRule> rules = new ArrayList<>();
+        rules.add(fieldRule(30, "FIELD_A", "FIELD_A.ttl", "2"));
+        rules.add(fieldRule(30, "FIELD_A,FIELD_B", "FIELD_A.ttl", "100", "FIELD_B.ttl", "3", AgeOffConfigParams.EXCLUDE_DATA, "event"));
+        rules.add(fieldRule(30, "FIELD_B", "FIELD_B.ttl", "200"));
+        
+        AgeOffRulePlan plan = AgeOffRulePlan.compile(rules);
+        Assert.assertEquals(1, plan.getStageCount());
+        
+        // no default ttl was given
+        long defaultCutoff = Long.MIN_VALUE;
+        Assert.assertFalse(plan.accept(eventKey("foo", "FIELD_A", 5), VALUE, defaultCutoff));
+        // the second rule excludes events, so the third rule applies
+        Assert.assertTrue(plan.accept(eventKey("foo", "FIELD_B", 5), VALUE, defaultCutoff));
+        Assert.assertFalse(plan.accept(fiKey("foo", "FIELD_B", 5), VALUE, defaultCutoff));
+        // the document column is never filtered by field
+        Assert.assertTrue(plan.accept(documentKey("foo", 500), VALUE, defaultCutoff));
+    }
+    
+    @Test
+    public void testMatchesSequentialEvaluation() {
+        List<AppliedRule> rules = new ArrayList<>();
+        rules.add(fieldRule(30, "FIELD_A", "FIELD_A.ttl", "2"));
+        rules.add(fieldRule(30, "FIELD_B,FIELD_C", "FIELD_B.ttl", "4", AgeOffConfigParams.EXCLUDE_DATA, "event"));
+        rules.add(regexRule(7, "^bar"));
+        rules.add(fieldRule(30, "FIELD_C", "FIELD_C.ttl", "8"));
+        rules.add(dataTypeRule(-1, "foo", "foo.ttl", "3"));
+        rules.add(dataTypeRule(60, "bar,baz", "baz.ttl", "9"));
+        
+        AgeOffRulePlan plan = AgeOffRulePlan.compile(rules);
+        Assert.assertEquals(4, plan.getStageCount());
+        
+        long defaultCutoff = SCAN_START - (20 * ONE_DAY);
+        for (String dataType : Arrays.asList("foo", "bar", "baz", "other")) {
+            for (String field : Arrays.asList("FIELD_A", "FIELD_B", "FIELD_C", "FIELD_D")) {
+                for (int daysAgo : new int[] {0, 1, 3, 5, 8, 10, 25, 90}) {
+                    for (Key key : Arrays.asList(eventKey(dataType, field, daysAgo), fiKey(dataType, field, daysAgo), tfKey(dataType, field, daysAgo),
+                                    documentKey(dataType, daysAgo))) {
+                        Assert.assertEquals(key.toString(), acceptSequentially(rules, key, defaultCutoff), plan.accept(key, VALUE, defaultCutoff));
+                    }
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testNoRules() {
+        AgeOffRulePlan plan = AgeOffRulePlan.compile(null);
+        Assert.assertEquals(0, plan.getStageCount());
+        Assert.assertTrue(plan.accept(eventKey("foo", "FIELD_A", 1), VALUE, SCAN_START - (2 * ONE_DAY)));
+        Assert.assertFalse(plan.accept(eventKey("foo", "FIELD_A", 3), VALUE, SCAN_START - (2 * ONE_DAY)));
+    }
+    
+    private static boolean acceptSequentially(Collection<AppliedRule> rules, Key key, long defaultCutoff) {
+        for (AppliedRule rule : rules) {
+            boolean accept = rule.accept(key, VALUE);
+            if (rule.isFilterRuleApplied()) {
+                return accept;
+            }
+        }
+        return key.getTimestamp() > defaultCutoff;
+    }
+    
+    private static AppliedRule dataTypeRule(long ttl, String dataTypes, String... options) {
+        FilterOptions filterOptions = filterOptions(ttl, options);
+        filterOptions.setOption("datatypes", dataTypes);
+        return copy(new DataTypeAgeOffFilter(), filterOptions);
+    }
+    
+    private static AppliedRule fieldRule(long ttl, String fields, String... options) {
+        FilterOptions filterOptions = filterOptions(ttl, options);
+        filterOptions.setOption(AgeOffConfigParams.MATCHPATTERN, VISIBILITY_PATTERN);
+        filterOptions.setOption("fields", fields);
+        return copy(new FieldAgeOffFilter(), filterOptions);
+    }
+    
+    private static AppliedRule regexRule(long ttl, String pattern) {
+        FilterOptions filterOptions = filterOptions(ttl);
+        filterOptions.setOption(AgeOffConfigParams.MATCHPATTERN, pattern);
+        return copy(new ColumnFamilyRegexFilter(), filterOptions);
+    }
+    
+    private static FilterOptions filterOptions(long ttl, String... options) {
+        FilterOptions filterOptions = new FilterOptions();
+        filterOptions.setTTL(ttl);
+        filterOptions.setTTLUnits(AgeOffTtlUnits.DAYS);
+        filterOptions.setOption(AgeOffConfigParams.IS_INDEX_TABLE, "false");
+        for (int i = 0; i < options.length; i += 2) {
+            filterOptions.setOption(options[i], options[i + 1]);
+        }
+        return filterOptions;
+    }
+    
+    private static AppliedRule copy(AppliedRule rule, FilterOptions filterOptions) {
+        rule.init(filterOptions);
+        // anchor the rule to the scan start as the ConfigurableAgeOffFilter does
+        return (AppliedRule) rule.deepCopy(SCAN_START);
+    }
+    
+    private static long daysAgo(int days) {
+        // an hour younger than the number of days so that the cutoffs are not hit exactly
+        return SCAN_START - (days * ONE_DAY) + (60 * 60 * 1000);
+    }
+    
+    private static Key eventKey(String dataType, String field, int days) {
+        return new Key("20190101_1", dataType + "\u0000uid", field + "\u0000value", VISIBILITY_PATTERN, daysAgo(days));
+    }
+    
+    private static Key fiKey(String dataType, String field, int days) {
+        return new Key("20190101_1", "fi\u0000" + field, "value\u0000" + dataType + "\u0000uid", VISIBILITY_PATTERN, daysAgo(days));
+    }
+    
+    private static Key tfKey(String dataType, String field, int days) {
+        return new Key("20190101_1", "tf", dataType + "\u0000uid\u0000value\u0000" + field, VISIBILITY_PATTERN, daysAgo(days));
+    }
+    
+    private static Key documentKey(String dataType, int days) {
+        return new Key("20190101_1", "d", dataType + "\u0000uid\u0000view", VISIBILITY_PATTERN, daysAgo(days));
+    }
+}
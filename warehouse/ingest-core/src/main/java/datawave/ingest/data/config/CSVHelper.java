@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * Helper for CSV data
@@ -121,6 +122,12 @@ public class CSVHelper extends DataTypeHelperImpl {
     /** Pattern used to prevent matching escaped multivalue field separators when splitting multivalued fields */
     public static final String BACKSLASH_ESCAPE_LOOKBEHIND_PATTERN = "(?<!\\\\)";
     
+    /**
+     * Parameter to enable the offset based {@link CSVLineTokenizer} instead of a StrTokenizer when parsing records. With this enabled, strings are only created
+     * for the columns that are actually used.
+     */
+    public static final String FAST_PARSE = ".data.fast.parse";
+    
     public enum ThresholdAction {
         FAIL, DROP, REPLACE, TRUNCATE
     }
@@ -133,6 +140,7 @@ public class CSVHelper extends DataTypeHelperImpl {
     private Map<String,String> multiValuedFieldsBlacklist = new HashMap<>();
     private boolean hasMultiValuedFieldsBlacklist = false;
     private String multiValueSeparator = null;
+    private Pattern multiValueSeparatorPattern = null;
     private int fieldSizeThreshold = Integer.MAX_VALUE;
     private int multiFieldSizeThreshold = Integer.MAX_VALUE;
     private ThresholdAction thresholdAction = ThresholdAction.FAIL;
@@ -145,6 +153,7 @@ public class CSVHelper extends DataTypeHelperImpl {
     private String multiValuedDropField = "DROPPED_MULTI_VALUED_FIELD";
     private Set<String> fieldBlacklist = null;
     private Set<String> fieldWhitelist = null;
+    private boolean fastParse = false;
     
     /** The Set of field names that a record must have to be valid. */
     private Set<String> _requiredFields = null;
@@ -222,6 +231,9 @@ public class CSVHelper extends DataTypeHelperImpl {
         }
         
         this.multiValueSeparator = config.get(this.getType().typeName() + MULTI_VALUED_SEPARATOR, ";");
+        this.multiValueSeparatorPattern = Pattern.compile(getEscapeSafeMultiValueSeparatorPattern());
+        
+        this.fastParse = config.getBoolean(this.getType().typeName() + FAST_PARSE, false);
         
         this.fieldSizeThreshold = config.getInt(this.getType().typeName() + FIELD_SIZE_THRESHOLD, this.fieldSizeThreshold);
         this.thresholdAction = ThresholdAction.valueOf(config.get(this.getType().typeName() + THRESHOLD_ACTION, this.thresholdAction.name()).toUpperCase());
@@ -301,6 +313,25 @@ public class CSVHelper extends DataTypeHelperImpl {
         return BACKSLASH_ESCAPE_LOOKBEHIND_PATTERN + getMultiValueSeparator();
     }
     
+    /**
+     *
+     * @return the compiled form of {@link #getEscapeSafeMultiValueSeparatorPattern()}, which avoids recompiling the pattern for every multivalued field split
+     */
+    public Pattern getEscapeSafeMultiValueSeparatorCompiledPattern() {
+        if (multiValueSeparatorPattern == null) {
+            multiValueSeparatorPattern = Pattern.compile(getEscapeSafeMultiValueSeparatorPattern());
+        }
+        return multiValueSeparatorPattern;
+    }
+    
+    /**
+     *
+     * @return whether records should be parsed with a {@link CSVLineTokenizer}
+     */
+    public boolean useFastParse() {
+        return fastParse;
+    }
+    
     public int getMultiFieldSizeThreshold() {
         return multiFieldSizeThreshold;
     }
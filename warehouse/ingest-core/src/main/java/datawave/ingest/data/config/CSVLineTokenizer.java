@@ -0,0 +1,321 @@
+package datawave.ingest.data.config;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang.StringEscapeUtils;
+
+/**
+ * A reusable, allocation-light tokenizer for a single line of "Comma"-Separated-Value data. This follows the same quoting, trimming and empty token rules as
+ * the {@link org.apache.commons.lang.text.StrTokenizer} instances created for a {@link CSVHelper} separator (CSV, TSV or a plain delimiter string), but instead
+ * of creating a String for every column it records the token boundaries as offsets over an internal {@code char[]} which is reused from line to line. Strings
+ * are only materialized by {@link #getToken(int)} for the columns that the caller actually needs.
+ * <p>
+ * This class is not thread safe; one instance should be used per record reader or ingest helper.
+ */
+public class CSVLineTokenizer {
+    
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int DEFAULT_TOKENS = 64;
+    
+    /** The delimiter characters */
+    private final char[] delimiter;
+    
+    /** The quote character, or -1 if quoting is not supported */
+    private final int quote;
+    
+    /** Whether leading and trailing whitespace (outside of quotes) is trimmed from tokens */
+    private final boolean trim;
+    
+    /** The unescaped token characters for the current line */
+    private char[] buffer = new char[DEFAULT_CAPACITY];
+    
+    /** The raw characters of the current line */
+    private char[] line = new char[DEFAULT_CAPACITY];
+    
+    /** Token start offsets into the buffer */
+    private int[] starts = new int[DEFAULT_TOKENS];
+    
+    /** Token end offsets (exclusive) into the buffer, -1 denotes a null (empty) token */
+    private int[] ends = new int[DEFAULT_TOKENS];
+    
+    private int tokenCount = 0;
+    
+    /** The next free position in the buffer */
+    private int bufferPos = 0;
+    
+    /**
+     * @param delimiter
+     *            the delimiter string
+     * @param quote
+     *            the quote character, or -1 to disable quote handling
+     * @param trim
+     *            whether to trim whitespace outside of quotes
+     */
+    public CSVLineTokenizer(String delimiter, int quote, boolean trim) {
+        if (delimiter == null || delimiter.isEmpty()) {
+            throw new IllegalArgumentException("A non-empty delimiter is required");
+        }
+        this.delimiter = delimiter.toCharArray();
+        this.quote = quote;
+        this.trim = trim;
+    }
+    
+    /**
+     * Create a tokenizer equivalent to the StrTokenizer used for the configured separator of the supplied helper.
+     *
+     * @param helper
+     *            the csv helper
+     * @return a new tokenizer
+     */
+    public static CSVLineTokenizer create(CSVHelper helper) {
+        return create(helper.getSeparator());
+    }
+    
+    /**
+     * Create a tokenizer equivalent to the StrTokenizer used for the supplied separator: "," uses the CSV rules, "\t" uses the TSV rules, and anything else is
+     * treated as a plain delimiter string with no quoting or trimming.
+     *
+     * @param separator
+     *            the configured separator
+     * @return a new tokenizer
+     */
+    public static CSVLineTokenizer create(String separator) {
+        if (separator.equals(",")) {
+            return new CSVLineTokenizer(",", '"', true);
+        } else if (separator.equals("\\t")) {
+            return new CSVLineTokenizer("\t", '"', true);
+        } else {
+            return new CSVLineTokenizer(separator, -1, false);
+        }
+    }
+    
+    /**
+     * Tokenize a new line, replacing the tokens of the previous line.
+     *
+     * @param value
+     *            the line to tokenize
+     * @return the number of tokens found
+     */
+    public int reset(String value) {
+        int len = value.length();
+        ensureLineCapacity(len);
+        value.getChars(0, len, line, 0);
+        return tokenize(len);
+    }
+    
+    /**
+     * @return the number of tokens in the current line
+     */
+    public int size() {
+        return tokenCount;
+    }
+    
+    /**
+     * @param index
+     *            the token index
+     * @return true if the token is empty, which the StrTokenizer configuration used by the csv readers reports as null
+     */
+    public boolean isNull(int index) {
+        checkIndex(index);
+        return ends[index] < 0;
+    }
+    
+    /**
+     * @param index
+     *            the token index
+     * @return the length of the token, 0 for a null token
+     */
+    public int length(int index) {
+        checkIndex(index);
+        return ends[index] < 0 ? 0 : ends[index] - starts[index];
+    }
+    
+    /**
+     * Materialize a token.
+     *
+     * @param index
+     *            the token index
+     * @return the token, or null if empty
+     */
+    public String getToken(int index) {
+        checkIndex(index);
+        if (ends[index] < 0) {
+            return null;
+        }
+        return new String(buffer, starts[index], ends[index] - starts[index]);
+    }
+    
+    /**
+     * Materialize a token and apply {@link StringEscapeUtils#unescapeCsv(String)}, avoiding the call when the token cannot be a quoted csv value.
+     *
+     * @param index
+     *            the token index
+     * @return the unescaped token, or null if empty
+     */
+    public String getUnescapedToken(int index) {
+        checkIndex(index);
+        int start = starts[index];
+        int end = ends[index];
+        if (end < 0) {
+            return null;
+        }
+        String token = new String(buffer, start, end - start);
+        if (end - start >= 2 && buffer[start] == '"' && buffer[end - 1] == '"') {
+            return StringEscapeUtils.unescapeCsv(token);
+        }
+        return token;
+    }
+    
+    /**
+     * Materialize all tokens of the current line. This produces the same array as {@code StrTokenizer.getTokenArray()} and is intended for callers that need
+     * every column.
+     *
+     * @return the tokens
+     */
+    public String[] getTokenArray() {
+        String[] tokens = new String[tokenCount];
+        for (int i = 0; i < tokenCount; i++) {
+            tokens[i] = getToken(i);
+        }
+        return tokens;
+    }
+    
+    private int tokenize(int len) {
+        tokenCount = 0;
+        bufferPos = 0;
+        if (len == 0) {
+            return 0;
+        }
+        ensureBufferCapacity(len);
+        
+        int pos = 0;
+        while (pos >= 0 && pos < len) {
+            pos = readNextToken(pos, len);
+            if (pos >= len) {
+                // a trailing delimiter produces a trailing empty token
+                addToken(bufferPos, bufferPos);
+            }
+        }
+        return tokenCount;
+    }
+    
+    /**
+     * Read the next token starting at pos.
+     *
+     * @return the position after the delimiter ending this token, or -1 if the end of the line was reached
+     */
+    private int readNextToken(int pos, int len) {
+        // skip leading whitespace, stopping at a delimiter or a quote
+        while (pos < len && trim && isTrimmable(line[pos]) && !isDelimiter(pos, len) && !isQuote(pos)) {
+            pos++;
+        }
+        if (pos >= len) {
+            addToken(bufferPos, bufferPos);
+            return -1;
+        }
+        if (isDelimiter(pos, len)) {
+            addToken(bufferPos, bufferPos);
+            return pos + delimiter.length;
+        }
+        if (isQuote(pos)) {
+            return readToken(pos + 1, len, true);
+        }
+        return readToken(pos, len, false);
+    }
+    
+    /**
+     * Read a token starting at pos, writing its unescaped characters into the buffer.
+     *
+     * @return the position after the delimiter ending this token, or -1 if the end of the line was reached
+     */
+    private int readToken(int pos, int len, boolean quoted) {
+        boolean quoting = quoted;
+        int start = bufferPos;
+        int trimEnd = bufferPos;
+        while (pos < len) {
+            char c = line[pos];
+            if (quoting) {
+                if (isQuote(pos)) {
+                    if (pos + 1 < len && isQuote(pos + 1)) {
+                        // an escaped quote
+                        buffer[bufferPos++] = c;
+                        pos += 2;
+                        trimEnd = bufferPos;
+                        continue;
+                    }
+                    quoting = false;
+                    pos++;
+                    continue;
+                }
+                buffer[bufferPos++] = c;
+                pos++;
+                trimEnd = bufferPos;
+            } else {
+                if (isDelimiter(pos, len)) {
+                    addToken(start, trimEnd);
+                    return pos + delimiter.length;
+                }
+                if (quoted && isQuote(pos)) {
+                    quoting = true;
+                    pos++;
+                    continue;
+                }
+                buffer[bufferPos++] = c;
+                pos++;
+                if (!(trim && isTrimmable(c))) {
+                    trimEnd = bufferPos;
+                }
+            }
+        }
+        addToken(start, trimEnd);
+        return -1;
+    }
+    
+    private void addToken(int start, int end) {
+        if (tokenCount == starts.length) {
+            starts = Arrays.copyOf(starts, tokenCount * 2);
+            ends = Arrays.copyOf(ends, tokenCount * 2);
+        }
+        starts[tokenCount] = start;
+        ends[tokenCount] = (end > start) ? end : -1;
+        tokenCount++;
+    }
+    
+    private boolean isDelimiter(int pos, int len) {
+        if (pos + delimiter.length > len) {
+            return false;
+        }
+        for (int i = 0; i < delimiter.length; i++) {
+            if (line[pos + i] != delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean isQuote(int pos) {
+        return quote >= 0 && line[pos] == quote;
+    }
+    
+    private static boolean isTrimmable(char c) {
+        return c <= ' ';
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= tokenCount) {
+            throw new IndexOutOfBoundsException("Token " + index + " requested but only " + tokenCount + " tokens available");
+        }
+    }
+    
+    private void ensureLineCapacity(int len) {
+        if (line.length < len) {
+            line = new char[Math.max(len, line.length * 2)];
+        }
+    }
+    
+    private void ensureBufferCapacity(int len) {
+        if (buffer.length < len) {
+            buffer = new char[Math.max(len, buffer.length * 2)];
+        }
+    }
+}
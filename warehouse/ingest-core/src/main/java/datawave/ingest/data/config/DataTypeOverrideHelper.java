@@ -131,6 +131,10 @@ public class DataTypeOverrideHelper extends DataTypeHelperImpl {
         
     }
     
+    public String getEventDataTypeFieldName() {
+        return eventDataTypeFieldName;
+    }
+    
     /**
      * Create a UID which contains hashes based on the base id and appended attachment info
      *
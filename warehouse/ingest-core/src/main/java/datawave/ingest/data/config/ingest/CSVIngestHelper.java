@@ -6,6 +6,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.config.CSVHelper;
+import datawave.ingest.data.config.CSVLineTokenizer;
 import datawave.ingest.data.config.NormalizedContentInterface;
 import datawave.util.StringUtils;
 import org.apache.commons.lang.StringEscapeUtils;
@@ -17,6 +18,7 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
     
     private static final Logger log = Logger.getLogger(CSVIngestHelper.class);
     protected CSVHelper helper = null;
+    private CSVLineTokenizer lineTokenizer = null;
     
     @Override
     public void setup(Configuration config) {
@@ -55,7 +57,8 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
     }
     
     /**
-     * This method uses the header and the csv string in raw bytes of the Event to create key value pairs.
+     * This method uses the header and the csv string in raw bytes of the Event to create key value pairs. When the fast parse option is enabled, the record is
+     * split with a reusable {@link CSVLineTokenizer} instead of a StrTokenizer (and {@link #configureTokenizer(StrTokenizer)} is not used).
      */
     @Override
     public Multimap<String,NormalizedContentInterface> getEventFields(RawRecordContainer event) {
@@ -63,6 +66,17 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
         
         String data = preProcessRawData(event.getRawData());
         
+        if (helper.useFastParse()) {
+            if (lineTokenizer == null) {
+                lineTokenizer = CSVLineTokenizer.create(helper);
+            }
+            lineTokenizer.reset(data);
+            processFields(fields, lineTokenizer);
+            
+            // and return the normalized fields
+            return normalize(fields);
+        }
+        
         StrTokenizer tokenizer;
         if (helper.getSeparator().equals(","))
             tokenizer = StrTokenizer.getCSVInstance();
@@ -114,6 +128,39 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
         }
     }
     
+    /**
+     * Process the tokens of a record, only creating Strings for the fields that are kept.
+     * 
+     * @param fields
+     * @param tokenizer
+     *            a tokenizer which has been reset to the current record
+     */
+    protected void processFields(HashMultimap<String,String> fields, CSVLineTokenizer tokenizer) {
+        final String[] header = helper.getHeader();
+        for (int i = 0; i < tokenizer.size(); i++) {
+            
+            if (i < header.length) {
+                String fieldName = header[i];
+                
+                if (!tokenizer.isNull(i) && keepField(fieldName)) {
+                    String fieldValue = helper.clean(fieldName, tokenizer.getUnescapedToken(i));
+                    if (fieldValue != null) {
+                        processPreSplitField(fields, fieldName, fieldValue);
+                    }
+                }
+            } else if (helper.processExtraFields()) {
+                // We have gone beyond the length of the header. In some cases,
+                // this will contain optional fields in the form of a map.
+                String fieldValue = tokenizer.getUnescapedToken(i);
+                if (fieldValue != null) {
+                    processExtraField(fields, fieldValue);
+                }
+            } else {
+                break;
+            }
+        }
+    }
+    
     /**
      * Used to process extra fields. The PROCESS_EXTRA_FIELDS configuration parameter must be set to enable this processing.
      * 
@@ -0,0 +1,57 @@
+package datawave.ingest.mapreduce.handler.edge;
+
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinition;
+import org.apache.commons.jexl2.Script;
+
+/**
+ * An edge definition with everything that does not depend on the event resolved at setup: the groups of the source and sink fields and the compiled
+ * jexl precondition.
+ */
+public class CompiledEdgeDefinition {
+    
+    private final EdgeDefinition definition;
+    private final String sourceGroup;
+    private final String sinkGroup;
+    private final boolean sameGroup;
+    private final Script precondition;
+    
+    /**
+     * @param definition
+     *            the edge definition
+     * @param sourceGroup
+     *            the group of the source field
+     * @param sinkGroup
+     *            the group of the sink field
+     * @param sameGroup
+     *            true if the source and sink are in the same (non-empty) group, in which case edges are only created within common sub groups
+     * @param precondition
+     *            the compiled precondition, or null if there is none or preconditions are not evaluated
+     */
+    public CompiledEdgeDefinition(EdgeDefinition definition, String sourceGroup, String sinkGroup, boolean sameGroup, Script precondition) {
+        this.definition = definition;
+        this.sourceGroup = sourceGroup;
+        this.sinkGroup = sinkGroup;
+        this.sameGroup = sameGroup;
+        this.precondition = precondition;
+    }
+    
+    public EdgeDefinition getDefinition() {
+        return definition;
+    }
+    
+    public String getSourceGroup() {
+        return sourceGroup;
+    }
+    
+    public String getSinkGroup() {
+        return sinkGroup;
+    }
+    
+    public boolean isSameGroup() {
+        return sameGroup;
+    }
+    
+    public Script getPrecondition() {
+        return precondition;
+    }
+}
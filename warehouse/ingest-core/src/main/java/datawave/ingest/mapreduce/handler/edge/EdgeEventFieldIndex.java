@@ -0,0 +1,116 @@
+package datawave.ingest.mapreduce.handler.edge;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import datawave.ingest.data.config.NormalizedContentInterface;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields of a single event indexed once by grouped field name (e.g. FIELD.GROUP) and by sub group. The index is built once per event and shared by all of
+ * the edge definitions for the event's data type, none of which may modify it.
+ */
+public class EdgeEventFieldIndex {
+    
+    // grouped field name to values
+    private final Multimap<String,NormalizedContentInterface> normalizedFields = HashMultimap.create();
+    
+    // grouped field name to sub group to values
+    private final Map<String,Multimap<String,NormalizedContentInterface>> depthFirstList = new HashMap<>();
+    
+    /**
+     * Add a field value to the index
+     *
+     * @param groupedFieldName
+     *            the field name including the group, if any
+     * @param subGroup
+     *            the sub group, or null if the field is not grouped
+     * @param value
+     *            the field value
+     */
+    public void add(String groupedFieldName, String subGroup, NormalizedContentInterface value) {
+        Multimap<String,NormalizedContentInterface> subGroups = depthFirstList.get(groupedFieldName);
+        if (subGroups == null) {
+            subGroups = HashMultimap.create();
+            depthFirstList.put(groupedFieldName, subGroups);
+        }
+        subGroups.put(subGroup, value);
+        normalizedFields.put(groupedFieldName, value);
+    }
+    
+    /**
+     * @param groupedFieldName
+     * @return true if the event contains at least one value for the field
+     */
+    public boolean contains(String groupedFieldName) {
+        return depthFirstList.containsKey(groupedFieldName);
+    }
+    
+    /**
+     * @param groupedFieldName
+     * @return the values of the field by sub group, or null if the event does not contain the field
+     */
+    public Multimap<String,NormalizedContentInterface> getSubGroups(String groupedFieldName) {
+        return depthFirstList.get(groupedFieldName);
+    }
+    
+    /**
+     * @param groupedFieldName
+     * @return the first value of the field, or null if the event does not contain the field
+     */
+    public NormalizedContentInterface getFirst(String groupedFieldName) {
+        if (groupedFieldName == null) {
+            return null;
+        }
+        Collection<NormalizedContentInterface> values = normalizedFields.get(groupedFieldName);
+        return values.isEmpty() ? null : values.iterator().next();
+    }
+    
+    /**
+     * Find the sub groups that two fields have in common. Unlike retaining the key set of one field against the other, this does not modify the index.
+     *
+     * @param source
+     *            the values of the first field by sub group
+     * @param sink
+     *            the values of the second field by sub group
+     * @return the sub groups in common
+     */
+    public static List<String> getCommonSubGroups(Multimap<String,NormalizedContentInterface> source, Multimap<String,NormalizedContentInterface> sink) {
+        Set<String> smaller = source.keySet();
+        Set<String> larger = sink.keySet();
+        if (smaller.size() > larger.size()) {
+            smaller = sink.keySet();
+            larger = source.keySet();
+        }
+        if (smaller.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> common = new ArrayList<>(smaller.size());
+        for (String subGroup : smaller) {
+            if (larger.contains(subGroup)) {
+                common.add(subGroup);
+            }
+        }
+        return common;
+    }
+    
+    /**
+     * @return the values by grouped field name
+     */
+    public Multimap<String,NormalizedContentInterface> getNormalizedFields() {
+        return normalizedFields;
+    }
+    
+    /**
+     * @return the values by grouped field name and sub group
+     */
+    public Map<String,Multimap<String,NormalizedContentInterface>> getDepthFirstList() {
+        return depthFirstList;
+    }
+}
@@ -1,7 +1,6 @@
 package datawave.ingest.mapreduce.handler.edge;
 
 import com.google.common.base.Charsets;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnel;
@@ -63,6 +62,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -129,6 +129,12 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     private EdgePreconditionCacheHelper edgePreconditionCacheHelper;
     private Map<String,Script> scriptCache;
     
+    // the edge definitions by data type with their groups resolved and preconditions compiled
+    private Map<String,List<CompiledEdgeDefinition>> compiledEdges = new HashMap<>();
+    
+    // the precondition results for the current event, so that a precondition shared by several edge definitions is only evaluated once
+    private Map<Script,Boolean> preconditionResults = new IdentityHashMap<>();
+    
     protected String edgeTableName = null;
     protected String metadataTableName = null;
     protected boolean enableMetadata = false;
@@ -339,6 +345,8 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
             log.info("Blacklisting of edges is disabled.");
         }
         
+        compileEdgeDefinitions();
+        
         log.info("Found edge definitions for " + edges.keySet().size() + " data types.");
         
         StringBuffer sb = new StringBuffer();
@@ -363,6 +371,44 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
             // Else remove edges with a precondition
             removeEdgesWithPreconditions();
         }
+        compileEdgeDefinitions();
+    }
+    
+    /**
+     * Resolve the groups and compile the preconditions of the edge definitions for all data types. This must be called again if the edge definitions are
+     * modified after setup.
+     */
+    public void compileEdgeDefinitions() {
+        compiledEdges = new HashMap<>();
+        if (edges != null) {
+            for (String typeName : edges.keySet()) {
+                compiledEdges.put(typeName, compileEdgeDefinitions(edges.get(typeName).getEdges()));
+            }
+        }
+    }
+    
+    protected List<CompiledEdgeDefinition> compileEdgeDefinitions(List<EdgeDefinition> edgeDefs) {
+        List<CompiledEdgeDefinition> compiled = new ArrayList<>(edgeDefs.size());
+        for (EdgeDefinition edgeDef : edgeDefs) {
+            String sourceGroup = getGroup(edgeDef.getSourceFieldName());
+            String sinkGroup = getGroup(edgeDef.getSinkFieldName());
+            boolean sameGroup = sourceGroup.equals(sinkGroup) && !sourceGroup.equals(NO_GROUP);
+            Script precondition = null;
+            if (evaluatePreconditions && edgeDef.hasJexlPrecondition()) {
+                if (scriptCache == null) {
+                    // the edge definitions are being compiled before the preconditions were set up
+                    edgePreconditionCacheHelper = new EdgePreconditionCacheHelper();
+                    scriptCache = new HashMap<>();
+                }
+                precondition = scriptCache.get(edgeDef.getJexlPrecondition());
+                if (precondition == null) {
+                    precondition = edgePreconditionCacheHelper.createScriptFromString(edgeDef.getJexlPrecondition());
+                    scriptCache.put(edgeDef.getJexlPrecondition(), precondition);
+                }
+            }
+            compiled.add(new CompiledEdgeDefinition(edgeDef, sourceGroup, sinkGroup, sameGroup, precondition));
+        }
+        return compiled;
     }
     
     /**
@@ -417,6 +463,8 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     
     public void setEdges(Map<String,EdgeDefinitionConfigurationHelper> edges) {
         this.edges = edges;
+        // compiled by setUpPreconditions, which may yet remove some of these edges, or otherwise as each data type is first processed
+        compiledEdges = new HashMap<>();
     }
     
     public Map<String,Set<String>> getBlacklistFieldLookup() {
@@ -473,32 +521,21 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         // get edge definitions for this event type
         Type dataType = event.getDataType();
         String typeName = dataType.typeName();
-        List<EdgeDefinition> edgeDefs = null;
-        EdgeDefinitionConfigurationHelper edgeDefConfigs = null;
-        if (!edges.containsKey(typeName)) {
+        EdgeDefinitionConfigurationHelper edgeDefConfigs = edges.get(typeName);
+        if (edgeDefConfigs == null) {
             return edgesCreated; // short circuit, no edges defined for this type
         }
-        edgeDefConfigs = edges.get(typeName);
-        edgeDefs = edgeDefConfigs.getEdges();
-        
-        /**
-         * If enabled, set the filtered context from the NormalizedContentInterface and create the script cache
-         */
-        if (evaluatePreconditions) {
-            long start = System.currentTimeMillis();
-            edgePreconditionContext.setFilteredContextForNormalizedContentInterface(fields);
-            edgePreconditionEvaluation.setJexlContext(edgePreconditionContext);
-            if (log.isTraceEnabled()) {
-                long time = System.currentTimeMillis() - start;
-                // only worth logging those that took some time....
-                if (time > 1) {
-                    if (log.isTraceEnabled()) {
-                        log.trace("Time to set terms on the filtered context & EdgePreconditionJexlEvaluations: " + time + "ms.");
-                    }
-                }
-            }
+        List<CompiledEdgeDefinition> edgeDefs = compiledEdges.get(typeName);
+        if (edgeDefs == null || edgeDefs.size() != edgeDefConfigs.getEdges().size()) {
+            // the edge definitions were modified after setup
+            edgeDefs = compileEdgeDefinitions(edgeDefConfigs.getEdges());
+            compiledEdges.put(typeName, edgeDefs);
         }
         
+        // the precondition context is only populated once an edge definition with a precondition has a source and sink in this event
+        boolean preconditionContextSet = false;
+        preconditionResults.clear();
+        
         // Get the load date of the event from the fields map
         Collection<NormalizedContentInterface> loadDates = fields.get(EventMapper.LOAD_DATE_FIELDNAME);
         if (!loadDates.isEmpty()) {
@@ -511,41 +548,28 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         }
         
         /*
-         * normalize field names with groups
+         * normalize field names with groups, indexing the event once for all of the edge definitions
          */
-        Multimap<String,NormalizedContentInterface> normalizedFields = HashMultimap.create();
-        Map<String,Multimap<String,NormalizedContentInterface>> depthFirstList = new HashMap<>();
-        Multimap<String,NormalizedContentInterface> tmp = null;
-        for (Entry<String,NormalizedContentInterface> e : fields.entries()) {
-            NormalizedContentInterface value = e.getValue();
-            String subGroup = null;
-            if (value instanceof GroupedNormalizedContentInterface) {
-                subGroup = ((GroupedNormalizedContentInterface) value).getSubGroup();
-            }
-            String fieldName = getGroupedFieldName(value);
-            tmp = depthFirstList.get(fieldName);
-            if (tmp == null) {
-                tmp = HashMultimap.create();
-            }
-            tmp.put(subGroup, value);
-            depthFirstList.put(fieldName, tmp);
-            
-            normalizedFields.put(fieldName, value);
-        }
+        EdgeEventFieldIndex fieldIndex = indexFields(fields);
+        Multimap<String,NormalizedContentInterface> normalizedFields = fieldIndex.getNormalizedFields();
+        Map<String,Multimap<String,NormalizedContentInterface>> depthFirstList = fieldIndex.getDepthFirstList();
         
         // get the edgeAttribute2 from the event fields map
-        if (normalizedFields.containsKey(edgeDefConfigs.getEdgeAttribute2())) {
-            edgeAttribute2 = normalizedFields.get(edgeDefConfigs.getEdgeAttribute2()).iterator().next().getIndexedFieldValue();
+        NormalizedContentInterface attributeNci = fieldIndex.getFirst(edgeDefConfigs.getEdgeAttribute2());
+        if (attributeNci != null) {
+            edgeAttribute2 = attributeNci.getIndexedFieldValue();
         }
         
         // get the edgeAttribute3 from the event fields map
-        if (normalizedFields.containsKey(edgeDefConfigs.getEdgeAttribute3())) {
-            edgeAttribute3 = normalizedFields.get(edgeDefConfigs.getEdgeAttribute3()).iterator().next().getIndexedFieldValue();
+        attributeNci = fieldIndex.getFirst(edgeDefConfigs.getEdgeAttribute3());
+        if (attributeNci != null) {
+            edgeAttribute3 = attributeNci.getIndexedFieldValue();
         }
         
         // get the activity date from the event fields map
-        if (normalizedFields.containsKey(edgeDefConfigs.getActivityDateField())) {
-            String actDate = normalizedFields.get(edgeDefConfigs.getActivityDateField()).iterator().next().getEventFieldValue();
+        NormalizedContentInterface activityDateNci = fieldIndex.getFirst(edgeDefConfigs.getActivityDateField());
+        if (activityDateNci != null) {
+            String actDate = activityDateNci.getEventFieldValue();
             try {
                 activityDate = DateNormalizer.parseDate(actDate, DateNormalizer.FORMAT_STRINGS).getTime();
                 validActivityDate = validateActivityDate(activityDate, event.getDate());
@@ -574,70 +598,47 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         /*
          * Create Edge Values from Edge Definitions
          */
-        for (EdgeDefinition edgeDef : edgeDefs) {
+        for (CompiledEdgeDefinition compiledEdgeDef : edgeDefs) {
+            EdgeDefinition edgeDef = compiledEdgeDef.getDefinition();
+            
+            // bail if the event doesn't contain any values for the source or sink field
+            Multimap<String,NormalizedContentInterface> mSource = fieldIndex.getSubGroups(edgeDef.getSourceFieldName());
+            if (null == mSource || mSource.isEmpty()) {
+                continue;
+            }
+            Multimap<String,NormalizedContentInterface> mSink = fieldIndex.getSubGroups(edgeDef.getSinkFieldName());
+            if (null == mSink || mSink.isEmpty()) {
+                continue;
+            }
             
             String jexlPreconditions = null;
             
             /**
-             * Fail fast for setting up precondition evaluations
+             * Evaluate the precondition only for edge definitions that could otherwise create an edge
              */
-            if (evaluatePreconditions) {
-                
-                if (edgeDef.hasJexlPrecondition()) {
-                    jexlPreconditions = edgeDef.getJexlPrecondition();
-                    long start = System.currentTimeMillis();
-                    if (!edgePreconditionEvaluation.apply(scriptCache.get(jexlPreconditions))) {
-                        
-                        if (log.isTraceEnabled()) {
-                            log.trace("Time to evaluate event(-): " + (System.currentTimeMillis() - start) + "ms.");
-                        }
-                        continue;
-                        
-                    } else {
-                        
-                        if (log.isTraceEnabled()) {
-                            log.trace("Time to evaluate event(+): " + (System.currentTimeMillis() - start) + "ms.");
-                        }
-                        
-                    }
+            if (compiledEdgeDef.getPrecondition() != null) {
+                if (!preconditionContextSet) {
+                    setPreconditionContext(fields);
+                    preconditionContextSet = true;
+                }
+                jexlPreconditions = edgeDef.getJexlPrecondition();
+                if (!evaluatePrecondition(compiledEdgeDef.getPrecondition())) {
+                    continue;
                 }
             }
             
             if (null != edgeDef.getEnrichmentField()) {
-                if (normalizedFields.containsKey(edgeDef.getEnrichmentField()) && !(normalizedFields.get(edgeDef.getEnrichmentField()).isEmpty())) {
-                    edgeDef.setEnrichmentEdge(true);
-                } else {
-                    edgeDef.setEnrichmentEdge(false);
-                }
+                edgeDef.setEnrichmentEdge(fieldIndex.contains(edgeDef.getEnrichmentField()));
             }
             
             String enrichmentFieldName = getEnrichmentFieldName(edgeDef);
             
-            Multimap<String,NormalizedContentInterface> mSource = null;
-            Multimap<String,NormalizedContentInterface> mSink = null;
-            
-            String sourceGroup = getGroup(edgeDef.getSourceFieldName());
-            String sinkGroup = getGroup(edgeDef.getSinkFieldName());
-            
-            if (depthFirstList.containsKey(edgeDef.getSourceFieldName()) && depthFirstList.containsKey(edgeDef.getSinkFieldName())) {
-                mSource = depthFirstList.get(edgeDef.getSourceFieldName());
-                mSink = depthFirstList.get(edgeDef.getSinkFieldName());
-            } else {
-                continue;
-            }
-            
-            // bail if the event doesn't contain any values for the source or sink field
-            if (null == mSource || null == mSink) {
-                continue;
-            }
-            if (mSource.isEmpty() || mSink.isEmpty()) {
-                continue;
-            }
+            String sourceGroup = compiledEdgeDef.getSourceGroup();
+            String sinkGroup = compiledEdgeDef.getSinkGroup();
             
             // If within the same group, then within each subgroup that are in common for both the sink and source
-            if (sourceGroup.equals(sinkGroup) && (sourceGroup != NO_GROUP)) {
-                Set<String> commonKeys = mSource.keySet();
-                commonKeys.retainAll(mSink.keySet());
+            if (compiledEdgeDef.isSameGroup()) {
+                List<String> commonKeys = EdgeEventFieldIndex.getCommonSubGroups(mSource, mSink);
                 /**
                  *
                  * We are using the intersection of 2 sets here to make sure we only loop over edges that we will create. Previously we would loop over all the
@@ -698,6 +699,58 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         return edgesCreated;
     }
     
+    /**
+     * Index the fields of an event by grouped field name and sub group.
+     *
+     * @param fields
+     *            the event fields
+     * @return the field index shared by all of the edge definitions for the event
+     */
+    protected EdgeEventFieldIndex indexFields(Multimap<String,NormalizedContentInterface> fields) {
+        EdgeEventFieldIndex fieldIndex = new EdgeEventFieldIndex();
+        for (NormalizedContentInterface value : fields.values()) {
+            String subGroup = null;
+            if (value instanceof GroupedNormalizedContentInterface) {
+                subGroup = ((GroupedNormalizedContentInterface) value).getSubGroup();
+            }
+            fieldIndex.add(getGroupedFieldName(value), subGroup, value);
+        }
+        return fieldIndex;
+    }
+    
+    /**
+     * Set the filtered context from the NormalizedContentInterface for the precondition evaluations of the current event
+     */
+    private void setPreconditionContext(Multimap<String,NormalizedContentInterface> fields) {
+        long start = System.currentTimeMillis();
+        edgePreconditionContext.setFilteredContextForNormalizedContentInterface(fields);
+        edgePreconditionEvaluation.setJexlContext(edgePreconditionContext);
+        if (log.isTraceEnabled()) {
+            long time = System.currentTimeMillis() - start;
+            // only worth logging those that took some time....
+            if (time > 1) {
+                log.trace("Time to set terms on the filtered context & EdgePreconditionJexlEvaluations: " + time + "ms.");
+            }
+        }
+    }
+    
+    /**
+     * Evaluate a compiled precondition against the current event, reusing the result if another edge definition with the same precondition has already been
+     * evaluated
+     */
+    private boolean evaluatePrecondition(Script precondition) {
+        Boolean result = preconditionResults.get(precondition);
+        if (result == null) {
+            long start = System.currentTimeMillis();
+            result = edgePreconditionEvaluation.apply(precondition);
+            preconditionResults.put(precondition, result);
+            if (log.isTraceEnabled()) {
+                log.trace("Time to evaluate event(" + (result ? "+" : "-") + "): " + (System.currentTimeMillis() - start) + "ms.");
+            }
+        }
+        return result;
+    }
+    
     protected void postProcessEdges(RawRecordContainer event, TaskInputOutputContext<KEYIN,? extends RawRecordContainer,KEYOUT,VALUEOUT> context,
                     ContextWriter<KEYOUT,VALUEOUT> contextWriter, long edgesCreated, String loadDateStr) throws IOException, InterruptedException {}
     
@@ -13,6 +13,7 @@ import org.apache.log4j.Logger;
 
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
@@ -25,6 +26,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Extracted from IngestJob Creates a splits file with all the requested tables, omitting the sharded ones Adds it to the specified work dir and sets the confi
@@ -34,6 +36,9 @@ public class NonShardedSplitsFile {
     public static final String SPLITS_FILE_NAME_PROPERTY_KEY = "datawave.ingest.bulk.NonShardedSplitsFile.cutFile";
     private static final String SPLITS_FILE_NAME_PROPERTY_VALUE = "splits.txt";
     
+    // The split indexes loaded in this JVM by cache file, shared by all partitioner instances and threads
+    private static final Map<String,SharedSplits> sharedSplits = new ConcurrentHashMap<>();
+    
     public static class Writer {
         private URI uri;
         private final int reduceTasks;
@@ -151,6 +156,54 @@ public class NonShardedSplitsFile {
         return cacheFile.getName().endsWith(cutFileName);
     }
     
+    /**
+     * Get the split indexes by table from the splits file in the local cache files. The file is only read once per JVM (or again if the local file changes),
+     * and the resulting immutable indexes are shared by all callers.
+     *
+     * @param conf
+     *            hadoop job configuration
+     * @param filesToCheck
+     *            the local cache files
+     * @param isTrimmed
+     *            whether to use the trimmed splits file
+     * @return an unmodifiable map of table name to split index
+     * @throws IOException
+     */
+    public static Map<String,SplitIndex> getSplitIndexesByTable(Configuration conf, Path[] filesToCheck, boolean isTrimmed) throws IOException {
+        Path cacheFile = findSplitsFile(conf, filesToCheck, isTrimmed);
+        if (null == cacheFile) {
+            throw new RuntimeException("Could not find cut point file");
+        }
+        File localFile = new File(cacheFile.toString());
+        String version = localFile.lastModified() + ":" + localFile.length();
+        
+        SharedSplits shared = sharedSplits.get(cacheFile.toString());
+        if (shared == null || !shared.version.equals(version)) {
+            synchronized (sharedSplits) {
+                shared = sharedSplits.get(cacheFile.toString());
+                if (shared == null || !shared.version.equals(version)) {
+                    Map<String,SplitIndex> indexes = new HashMap<>();
+                    for (Map.Entry<String,Text[]> entry : new Reader(conf, filesToCheck, isTrimmed).getSplitsByTable().entrySet()) {
+                        indexes.put(entry.getKey(), new SplitIndex(entry.getValue()));
+                    }
+                    shared = new SharedSplits(version, Collections.unmodifiableMap(indexes));
+                    sharedSplits.put(cacheFile.toString(), shared);
+                }
+            }
+        }
+        return shared.indexes;
+    }
+    
+    private static class SharedSplits {
+        private final String version;
+        private final Map<String,SplitIndex> indexes;
+        
+        private SharedSplits(String version, Map<String,SplitIndex> indexes) {
+            this.version = version;
+            this.indexes = indexes;
+        }
+    }
+    
     public static class Reader {
         private Map<String,Text[]> splits;
         
@@ -0,0 +1,148 @@
+package datawave.ingest.mapreduce.job;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * A compact, immutable index over the split points of a table. The split points are held as sorted byte arrays along with a lookup table of where each
+ * leading byte value starts, so that a lookup only binary searches the splits sharing the row's first byte. Lookups never copy the row and never lock, so a
+ * single instance can be shared by all partitioners and threads in a JVM.
+ */
+public final class SplitIndex {
+    
+    private static final int PREFIXES = 256;
+    
+    private final byte[][] splits;
+    
+    // prefixStarts[b] is the index of the first split whose first byte (unsigned) is at least b, prefixStarts[256] is the number of splits
+    private final int[] prefixStarts = new int[PREFIXES + 1];
+    
+    // the number of empty splits, which sort before all others
+    private final int emptySplits;
+    
+    /**
+     * @param splitPoints
+     *            the split points, in any order
+     */
+    public SplitIndex(Collection<Text> splitPoints) {
+        this(splitPoints.toArray(new Text[splitPoints.size()]));
+    }
+    
+    /**
+     * @param splitPoints
+     *            the split points, in any order
+     */
+    public SplitIndex(Text[] splitPoints) {
+        splits = new byte[splitPoints.length][];
+        for (int i = 0; i < splitPoints.length; i++) {
+            splits[i] = splitPoints[i].copyBytes();
+        }
+        Arrays.sort(splits, SplitIndex::compareBytes);
+        
+        int empty = 0;
+        while (empty < splits.length && splits[empty].length == 0) {
+            empty++;
+        }
+        emptySplits = empty;
+        
+        int index = empty;
+        for (int prefix = 0; prefix < PREFIXES; prefix++) {
+            while (index < splits.length && (splits[index][0] & 0xff) < prefix) {
+                index++;
+            }
+            prefixStarts[prefix] = index;
+        }
+        prefixStarts[PREFIXES] = splits.length;
+    }
+    
+    private static int compareBytes(byte[] a, byte[] b) {
+        return WritableComparator.compareBytes(a, 0, a.length, b, 0, b.length);
+    }
+    
+    /**
+     * @return the number of split points
+     */
+    public int size() {
+        return splits.length;
+    }
+    
+    /**
+     * @return true if there are no split points
+     */
+    public boolean isEmpty() {
+        return splits.length == 0;
+    }
+    
+    /**
+     * @param index
+     * @return a copy of the split point at the index
+     */
+    public Text getSplit(int index) {
+        return new Text(splits[index]);
+    }
+    
+    /**
+     * Search for a row with the same result as {@link Arrays#binarySearch(Object[], Object)} over the sorted split points.
+     *
+     * @param row
+     *            the row
+     * @return the index of the split point equal to the row, otherwise {@code (-(insertion point) - 1)}
+     */
+    public int binarySearch(ByteSequence row) {
+        if (row.isBackedByArray()) {
+            return binarySearch(row.getBackingArray(), row.offset(), row.length());
+        }
+        byte[] bytes = row.toArray();
+        return binarySearch(bytes, 0, bytes.length);
+    }
+    
+    /**
+     * @param row
+     *            the row
+     * @return the index of the split point equal to the row, otherwise {@code (-(insertion point) - 1)}
+     * @see #binarySearch(ByteSequence)
+     */
+    public int binarySearch(Text row) {
+        return binarySearch(row.getBytes(), 0, row.getLength());
+    }
+    
+    /**
+     * @param bytes
+     *            the array containing the row
+     * @param offset
+     *            the offset of the row in the array
+     * @param length
+     *            the length of the row
+     * @return the index of the split point equal to the row, otherwise {@code (-(insertion point) - 1)}
+     * @see #binarySearch(ByteSequence)
+     */
+    public int binarySearch(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            // an empty row equals an empty split, or sorts before everything
+            return emptySplits > 0 ? 0 : -1;
+        }
+        
+        // only the splits with the same first byte need to be searched
+        int prefix = bytes[offset] & 0xff;
+        int low = prefixStarts[prefix];
+        int high = prefixStarts[prefix + 1] - 1;
+        
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            byte[] split = splits[mid];
+            int cmp = WritableComparator.compareBytes(split, 0, split.length, bytes, offset, length);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,290 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Multimap;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.reduce.AggregatingReducer;
+import datawave.ingest.table.aggregator.PropogatingCombiner;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Combiner;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+/**
+ * This is an in-mapper combining context writer. Entries for tables that have combiners configured (e.g. the GlobalIndexUidAggregator on the shardIndex and
+ * shardReverseIndex tables, or the CountMetadataCombiner on the metadata table) are held in a bounded hash table across events and are combined with the same
+ * combiners that the reducer would apply. This keeps the many identical index keys produced by low cardinality fields from ever being written to the shuffle.
+ * <p>
+ * The cache is split into a number of hash partitions. When a partition exceeds its share of the configured entry or byte limit only that partition is
+ * combined and flushed to the chained context writer, so that frequently repeated keys in the other partitions continue to aggregate. Everything is flushed
+ * on cleanup. Entries for other tables, for tables that are deduped by timestamp, and for keys without a matching combiner are passed straight through.
+ * <p>
+ * As the combined values are partial aggregates, the combiners must still be applied in the reducer.
+ */
+public class CombiningCacheContextWriter<OK,OV> extends AbstractContextWriter<OK,OV> implements ChainedContextWriter<OK,OV> {
+    
+    // The property used to configure the next writer in the chain
+    public static final String CONTEXT_WRITER_CLASS = "ingest.combining.cache.context.writer.class";
+    
+    // The property used to determine whether we are outputting mutations or keys such that a default chained context writer can be configured
+    public static final String MAPRED_OUTPUT_VALUE_CLASS = "mapreduce.job.output.value.class";
+    
+    // The tables to combine. If not specified, then all tables that have combiners configured will be combined
+    public static final String TABLES = "ingest.combining.cache.tables";
+    
+    // The maximum number of distinct keys held across all partitions
+    public static final String MAX_ENTRIES = "ingest.combining.cache.max.entries";
+    
+    // The maximum number of key and value bytes held across all partitions
+    public static final String MAX_BYTES = "ingest.combining.cache.max.bytes";
+    
+    // The number of hash partitions
+    public static final String PARTITIONS = "ingest.combining.cache.partitions";
+    
+    // The number of values held for a single key before they are combined in place
+    public static final String MAX_VALUES_PER_KEY = "ingest.combining.cache.max.values.per.key";
+    
+    // counters
+    public static final String COUNTER_GROUP = "COMBINING_CACHE";
+    public static final String CACHED_VALUES = "CACHED_VALUES";
+    public static final String FLUSHED_ENTRIES = "FLUSHED_ENTRIES";
+    public static final String PARTITION_FLUSHES = "PARTITION_FLUSHES";
+    
+    private Set<Text> tables = null;
+    private int maxEntriesPerPartition = 100000 / 16;
+    private long maxBytesPerPartition = (64L * 1024L * 1024L) / 16;
+    private int maxValuesPerKey = 100;
+    
+    private Partition[] partitions;
+    
+    private long cachedValues = 0;
+    private long flushedEntries = 0;
+    private long partitionFlushes = 0;
+    
+    // Used to find and apply the combiners configured for each table
+    private final CombinerLookup combinerLookup = new CombinerLookup();
+    
+    // The chained context writer
+    private ContextWriter<OK,OV> contextWriter;
+    
+    @Override
+    public void configureChainedContextWriter(Configuration conf, Class<? extends ContextWriter<OK,OV>> contextWriterClass) {
+        conf.setClass(CONTEXT_WRITER_CLASS, contextWriterClass, ContextWriter.class);
+    }
+    
+    @Override
+    public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+        super.setup(conf, false);
+        
+        combinerLookup.setup(conf);
+        
+        String[] tableNames = conf.getStrings(TABLES);
+        if (tableNames != null && tableNames.length > 0) {
+            tables = new HashSet<>();
+            for (String table : tableNames) {
+                tables.add(new Text(table.trim()));
+            }
+        }
+        
+        int numPartitions = Math.max(1, conf.getInt(PARTITIONS, 16));
+        maxEntriesPerPartition = Math.max(1, conf.getInt(MAX_ENTRIES, 100000) / numPartitions);
+        maxBytesPerPartition = Math.max(1L, conf.getLong(MAX_BYTES, 64L * 1024L * 1024L) / numPartitions);
+        maxValuesPerKey = Math.max(2, conf.getInt(MAX_VALUES_PER_KEY, maxValuesPerKey));
+        partitions = new Partition[numPartitions];
+        for (int i = 0; i < numPartitions; i++) {
+            partitions[i] = new Partition();
+        }
+        
+        // create and setup the chained context writer
+        Class<ContextWriter<OK,OV>> contextWriterClass = null;
+        if (Mutation.class.equals(conf.getClass(MAPRED_OUTPUT_VALUE_CLASS, null))) {
+            contextWriterClass = (Class<ContextWriter<OK,OV>>) conf.getClass(CONTEXT_WRITER_CLASS, LiveContextWriter.class, ContextWriter.class);
+        } else {
+            contextWriterClass = (Class<ContextWriter<OK,OV>>) conf.getClass(CONTEXT_WRITER_CLASS, BulkContextWriter.class, ContextWriter.class);
+        }
+        try {
+            contextWriter = contextWriterClass.newInstance();
+            contextWriter.setup(conf, outputTableCounters);
+        } catch (Exception e) {
+            throw new IOException("Failed to initialized " + contextWriterClass + " from property " + CONTEXT_WRITER_CLASS, e);
+        }
+    }
+    
+    @Override
+    public void commit(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        super.commit(context);
+        contextWriter.commit(context);
+    }
+    
+    @Override
+    public void rollback() throws IOException, InterruptedException {
+        super.rollback();
+        contextWriter.rollback();
+    }
+    
+    @Override
+    public void cleanup(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        // move any pending entries into the cache, and then flush the entire cache
+        super.commit(context);
+        for (Partition partition : partitions) {
+            flushPartition(partition, context);
+        }
+        
+        getCounter(context, COUNTER_GROUP, CACHED_VALUES).increment(cachedValues);
+        getCounter(context, COUNTER_GROUP, FLUSHED_ENTRIES).increment(flushedEntries);
+        getCounter(context, COUNTER_GROUP, PARTITION_FLUSHES).increment(partitionFlushes);
+        
+        super.cleanup(context);
+        contextWriter.cleanup(context);
+    }
+    
+    @Override
+    protected void flush(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        Multimap<BulkIngestKey,Value> residual = ArrayListMultimap.create();
+        for (Map.Entry<BulkIngestKey,Collection<Value>> entry : entries.asMap().entrySet()) {
+            BulkIngestKey key = entry.getKey();
+            if (isCombinable(key)) {
+                cache(key, entry.getValue(), context);
+            } else {
+                residual.putAll(key, entry.getValue());
+            }
+        }
+        if (!residual.isEmpty()) {
+            contextWriter.write(residual, context);
+        }
+    }
+    
+    /**
+     * Determine whether a key will be held and combined by this context writer
+     *
+     * @param key
+     * @return true if the key's table is configured for combining and a combiner applies to the key
+     */
+    protected boolean isCombinable(BulkIngestKey key) {
+        if (tables != null && !tables.contains(key.getTableName())) {
+            return false;
+        }
+        return !combinerLookup.getCombiners(key).isEmpty();
+    }
+    
+    private void cache(BulkIngestKey key, Collection<Value> values, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        Partition partition = partitions[(key.hashCode() & Integer.MAX_VALUE) % partitions.length];
+        
+        List<Value> cached = partition.entries.get(key);
+        if (cached == null) {
+            cached = new ArrayList<>(Math.max(4, values.size()));
+            partition.entries.put(key, cached);
+            partition.bytes += estimateSize(key);
+        }
+        for (Value value : values) {
+            cached.add(value);
+            partition.bytes += value.getSize();
+        }
+        cachedValues += values.size();
+        
+        // combine the values in place to bound the memory used by frequently repeated keys
+        if (cached.size() >= maxValuesPerKey) {
+            for (Value value : cached) {
+                partition.bytes -= value.getSize();
+            }
+            Value reduced = combinerLookup.reduce(key, cached);
+            cached.clear();
+            cached.add(reduced);
+            partition.bytes += reduced.getSize();
+        }
+        
+        if (partition.entries.size() >= maxEntriesPerPartition || partition.bytes >= maxBytesPerPartition) {
+            partitionFlushes++;
+            flushPartition(partition, context);
+        }
+    }
+    
+    private void flushPartition(Partition partition, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        if (partition.entries.isEmpty()) {
+            return;
+        }
+        Multimap<BulkIngestKey,Value> reducedEntries = ArrayListMultimap.create(partition.entries.size(), 1);
+        for (Map.Entry<BulkIngestKey,List<Value>> entry : partition.entries.entrySet()) {
+            List<Value> values = entry.getValue();
+            if (values.size() == 1) {
+                reducedEntries.put(entry.getKey(), values.get(0));
+            } else {
+                reducedEntries.put(entry.getKey(), combinerLookup.reduce(entry.getKey(), values));
+            }
+            context.progress();
+        }
+        flushedEntries += reducedEntries.size();
+        contextWriter.write(reducedEntries, context);
+        partition.clear();
+    }
+    
+    private static long estimateSize(BulkIngestKey key) {
+        return key.getKey().getSize() + key.getTableName().getLength();
+    }
+    
+    /**
+     * A hash partition of the cache
+     */
+    private static class Partition {
+        private Map<BulkIngestKey,List<Value>> entries = new HashMap<>();
+        private long bytes = 0;
+        
+        private void clear() {
+            // clearing a large map can be fairly expensive, so let's let garbage collection do that
+            entries = new HashMap<>();
+            bytes = 0;
+        }
+    }
+    
+    /**
+     * Uses the combiner configuration of the aggregating reducer to find and apply the combiners for a key. Tables that are deduped by timestamp are not
+     * combined as that deduping must see all of the values for a key.
+     */
+    private static class CombinerLookup extends AggregatingReducer<BulkIngestKey,Value,BulkIngestKey,Value> {
+        
+        private final Map<Text,Boolean> combinableTables = new HashMap<>();
+        
+        private boolean isCombinableTable(Text table) {
+            Boolean combinable = combinableTables.get(table);
+            if (combinable == null) {
+                combinable = useAggregators(table) && combiners.containsKey(table) && (!TSDedupTables.contains(table) || noTSDedupTables.contains(table));
+                combinableTables.put(table, combinable);
+            }
+            return combinable;
+        }
+        
+        public List<Combiner> getCombiners(BulkIngestKey key) {
+            if (!isCombinableTable(key.getTableName())) {
+                return Collections.emptyList();
+            }
+            return getAggregators(key.getTableName(), key.getKey());
+        }
+        
+        public Value reduce(BulkIngestKey key, Collection<Value> values) {
+            Iterator<Value> valueItr = values.iterator();
+            Value reducedValue = null;
+            for (Combiner agg : getCombiners(key)) {
+                reducedValue = agg.reduce(key.getKey(), valueItr);
+                valueItr = Iterators.singletonIterator(reducedValue);
+                if (agg instanceof PropogatingCombiner) {
+                    ((PropogatingCombiner) agg).reset();
+                }
+            }
+            return reducedValue;
+        }
+    }
+}
@@ -15,12 +15,13 @@ import org.apache.hadoop.mapreduce.Partitioner;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The BalancedShardPartitioner takes advantage of the way that shards are balanced. See ShardedTableTabletBalancer. * The partitioner is designed to have no
@@ -36,9 +37,11 @@ public class BalancedShardPartitioner extends Partitioner<BulkIngestKey,Value> i
     private static final long now = System.currentTimeMillis();
     private static final String today = formatDay(0);
     private Configuration conf;
-    private Map<String,Map<Text,Integer>> shardPartitionsByTable;
+    // immutable assignments by table, so that partitions may be looked up concurrently without locking
+    private final Map<String,ShardAssignments> shardPartitionsByTable = new ConcurrentHashMap<>();
     private Map<String,TreeMap<Text,String>> shardIdToLocations = Maps.newHashMap();
     private Map<Text,Integer> offsetsFactorByTable;
+    private volatile boolean numShardsInitialized = false;
     int missingShardIdCount = 0;
     
     public static final String MISSING_SHARD_STRATEGY_PROP = "datawave.ingest.mapreduce.partition.BalancedShardPartitioner.missing.shard.strategy";
@@ -46,13 +49,13 @@ public class BalancedShardPartitioner extends Partitioner<BulkIngestKey,Value> i
     private ShardIdFactory shardIdFactory = null;
     
     @Override
-    public synchronized int getPartition(BulkIngestKey key, Value value, int numReduceTasks) {
+    public int getPartition(BulkIngestKey key, Value value, int numReduceTasks) {
         try {
             // partition will be balanced for a given day, more so for recent days
             int partition = getAssignedPartition(key.getTableName().toString(), key.getKey().getRow());
             
             // the offsets should help send today's shard data to a different set of reducers than today's error shard data
-            int offsetForTable = shardIdFactory.getNumShards(key.getKey().getTimestamp()) * offsetsFactorByTable.get(key.getTableName());
+            int offsetForTable = getNumShards(key.getKey().getTimestamp()) * offsetsFactorByTable.get(key.getTableName());
             
             return (partition + offsetForTable) % numReduceTasks;
         } catch (IOException e) {
@@ -60,10 +63,25 @@ public class BalancedShardPartitioner extends Partitioner<BulkIngestKey,Value> i
         }
     }
     
+    /**
+     * The number of shards configuration is lazily loaded and is not thread safe, so ensure the first call is made by a single thread
+     */
+    private int getNumShards(long timestamp) {
+        if (!numShardsInitialized) {
+            synchronized (this) {
+                int numShards = shardIdFactory.getNumShards(timestamp);
+                numShardsInitialized = true;
+                return numShards;
+            }
+        }
+        return shardIdFactory.getNumShards(timestamp);
+    }
+    
     /**
      */
     private int getAssignedPartition(String tableName, Text shardId) throws IOException {
-        Map<Text,Integer> assignments = lazilyCreateAssignments(tableName);
+        ShardAssignments shardAssignments = lazilyCreateAssignments(tableName);
+        Map<Text,Integer> assignments = shardAssignments.partitionsByShardId;
         
         Integer partitionId = assignments.get(shardId);
         if (partitionId != null) {
@@ -77,21 +95,21 @@ public class BalancedShardPartitioner extends Partitioner<BulkIngestKey,Value> i
             case "hash":
                 // only warn a few times per partitioner to avoid flooding the logs
                 if (missingShardIdCount < 10) {
+                    // not synchronized, so this may rarely warn a few extra times
                     log.warn("shardId didn't have a partition assigned to it: " + shardId);
                     missingShardIdCount++;
                 }
                 return (shardId.hashCode() & Integer.MAX_VALUE);
             case "collapse":
-                ArrayList<Text> keys = new ArrayList<>(assignments.keySet());
-                Collections.sort(keys);
-                int closestAssignment = Collections.binarySearch(keys, shardId);
+                Text[] keys = shardAssignments.sortedShardIds;
+                int closestAssignment = Arrays.binarySearch(keys, shardId);
                 if (closestAssignment >= 0) {
                     // Should have found it earlier, but just in case go ahead and return it
                     log.warn("Something is screwy, found " + shardId + " on the second try");
                     return assignments.get(shardId);
                 }
                 // <tt>(-(<i>insertion point</i>) - 1)</tt> // insertion point in the index of the key greater
-                Text shardString = keys.get(Math.abs(closestAssignment + 1));
+                Text shardString = keys[Math.abs(closestAssignment + 1)];
                 return assignments.get(shardString);
             default:
                 throw new RuntimeException("Unsupported missing shard strategy " + MISSING_SHARD_STRATEGY_PROP + "=" + missingShardStrategy);
@@ -101,14 +119,33 @@ public class BalancedShardPartitioner extends Partitioner<BulkIngestKey,Value> i
     /**
      * For a given tablename, provides the mapping from {@code shard id -> partition}
      */
-    private Map<Text,Integer> lazilyCreateAssignments(String tableName) throws IOException {
-        if (this.shardPartitionsByTable == null) {
-            this.shardPartitionsByTable = new HashMap<>();
+    private ShardAssignments lazilyCreateAssignments(String tableName) throws IOException {
+        ShardAssignments assignments = this.shardPartitionsByTable.get(tableName);
+        if (null == assignments) {
+            // only loading the assignments is synchronized, lookups are lock free
+            synchronized (this) {
+                assignments = this.shardPartitionsByTable.get(tableName);
+                if (null == assignments) {
+                    assignments = new ShardAssignments(getPartitionsByShardId(tableName));
+                    this.shardPartitionsByTable.put(tableName, assignments);
+                }
+            }
         }
-        if (null == this.shardPartitionsByTable.get(tableName)) {
-            this.shardPartitionsByTable.put(tableName, getPartitionsByShardId(tableName));
+        return assignments;
+    }
+    
+    /**
+     * The immutable {@code shard id -> partition} assignments for a table, along with the sorted shard ids used by the collapse strategy
+     */
+    private static class ShardAssignments {
+        private final Map<Text,Integer> partitionsByShardId;
+        private final Text[] sortedShardIds;
+        
+        private ShardAssignments(Map<Text,Integer> partitionsByShardId) {
+            this.partitionsByShardId = Collections.unmodifiableMap(partitionsByShardId);
+            this.sortedShardIds = partitionsByShardId.keySet().toArray(new Text[partitionsByShardId.size()]);
+            Arrays.sort(this.sortedShardIds);
         }
-        return this.shardPartitionsByTable.get(tableName);
     }
     
     /**
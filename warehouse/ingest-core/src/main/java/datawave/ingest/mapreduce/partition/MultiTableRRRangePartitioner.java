@@ -4,11 +4,12 @@ import org.apache.log4j.Logger;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MultiTableRRRangePartitioner extends MultiTableRangePartitioner {
     
     private static final Logger LOG = Logger.getLogger(MultiTableRRRangePartitioner.class);
-    private final Map<String,Map<Integer,Integer>> SPLIT_TO_REDUCER_MAP = new HashMap();
+    private final Map<String,Map<Integer,Integer>> SPLIT_TO_REDUCER_MAP = new ConcurrentHashMap<>();
     
     @Override
     protected int calculateIndex(int index, int numPartitions, String tableName, int cutPointArrayLength) {
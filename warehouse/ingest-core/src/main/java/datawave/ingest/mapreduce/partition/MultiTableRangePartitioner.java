@@ -2,13 +2,13 @@ package datawave.ingest.mapreduce.partition;
 
 import datawave.ingest.mapreduce.job.BulkIngestKey;
 import datawave.ingest.mapreduce.job.NonShardedSplitsFile;
+import datawave.ingest.mapreduce.job.SplitIndex;
 import org.apache.accumulo.core.client.TableExistsException;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Partitioner;
 import org.apache.hadoop.mapreduce.TaskInputOutputContext;
@@ -34,21 +34,22 @@ public class MultiTableRangePartitioner extends Partitioner<BulkIngestKey,Value>
     private static boolean collectStats = false;
     
     private volatile boolean cacheFilesRead = false;
-    private Text holder = new Text();
-    private ThreadLocal<Map<String,Text[]>> splitsByTable = new ThreadLocal<>();
+    // immutable and shared with the other partitioners in this JVM, so lookups require no locking
+    private volatile Map<String,SplitIndex> splitsByTable = null;
     private DecimalFormat formatter = new DecimalFormat("000");
     private Configuration conf;
     private PartitionLimiter partitionLimiter;
     private Object semaphore = new Object();
     
-    private void readCacheFilesIfNecessary() {
-        if (splitsByTable.get() != null) {
-            return;
+    private Map<String,SplitIndex> readCacheFilesIfNecessary() {
+        Map<String,SplitIndex> splits = splitsByTable;
+        if (splits != null) {
+            return splits;
         }
         
         synchronized (semaphore) {
-            if (splitsByTable.get() != null) {
-                return;
+            if (splitsByTable != null) {
+                return splitsByTable;
             }
             
             Path[] localCacheFiles;
@@ -64,9 +65,8 @@ public class MultiTableRangePartitioner extends Partitioner<BulkIngestKey,Value>
             }
             
             try {
-                NonShardedSplitsFile.Reader reader = new NonShardedSplitsFile.Reader(context.getConfiguration(), localCacheFiles, isTrimmed());
-                splitsByTable.set(reader.getSplitsByTable());
-                if (splitsByTable.get().isEmpty()) {
+                splits = NonShardedSplitsFile.getSplitIndexesByTable(context.getConfiguration(), localCacheFiles, isTrimmed());
+                if (splits.isEmpty()) {
                     log.error("Non-sharded splits by table cannot be empty.  If this is a development system, please create at least one split in one of the non-sharded tables (see bin/ingest/seed_index_splits.sh).");
                     throw new IOException("splits by table cannot be empty");
                 }
@@ -75,22 +75,23 @@ public class MultiTableRangePartitioner extends Partitioner<BulkIngestKey,Value>
                 throw new RuntimeException("Failed to read splits in MultiTableRangePartitioner, fatal error. cache files: " + Arrays.toString(localCacheFiles));
                 
             }
+            splitsByTable = splits;
             cacheFilesRead = true;
+            return splits;
         }
     }
     
     @Override
     public int getPartition(BulkIngestKey key, Value value, int numPartitions) {
-        readCacheFilesIfNecessary();
+        Map<String,SplitIndex> splits = readCacheFilesIfNecessary();
         
         String tableName = key.getTableName().toString();
-        Text[] cutPointArray = splitsByTable.get().get(tableName);
+        SplitIndex cutPoints = splits.get(tableName);
         
-        if (null == cutPointArray)
+        if (null == cutPoints)
             return (tableName.hashCode() & Integer.MAX_VALUE) % numPartitions;
-        key.getKey().getRow(holder);
-        int index = Arrays.binarySearch(cutPointArray, holder);
-        index = calculateIndex(index, numPartitions, tableName, cutPointArray.length);
+        int index = cutPoints.binarySearch(key.getKey().getRowData());
+        index = calculateIndex(index, numPartitions, tableName, cutPoints.size());
         
         index = partitionLimiter.limit(numPartitions, index);
         
@@ -0,0 +1,86 @@
+package datawave.ingest.data.config;
+
+import java.util.Random;
+
+import org.apache.commons.lang.text.StrTokenizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CSVLineTokenizerTest {
+    
+    @Test
+    public void testCsv() {
+        CSVLineTokenizer tokenizer = CSVLineTokenizer.create(",");
+        Assert.assertEquals(5, tokenizer.reset("a, b ,\"c,d\",,\"e \"\"f\"\"\""));
+        Assert.assertArrayEquals(new String[] {"a", "b", "c,d", null, "e \"f\""}, tokenizer.getTokenArray());
+        Assert.assertTrue(tokenizer.isNull(3));
+        Assert.assertEquals(3, tokenizer.length(2));
+        Assert.assertEquals("c,d", tokenizer.getUnescapedToken(2));
+    }
+    
+    @Test
+    public void testTrailingSeparator() {
+        CSVLineTokenizer tokenizer = CSVLineTokenizer.create(",");
+        Assert.assertEquals(3, tokenizer.reset("a,b,"));
+        Assert.assertNull(tokenizer.getToken(2));
+        
+        Assert.assertEquals(0, tokenizer.reset(""));
+    }
+    
+    @Test
+    public void testTsv() {
+        CSVLineTokenizer tokenizer = CSVLineTokenizer.create("\\t");
+        Assert.assertEquals(3, tokenizer.reset("a\t\"b\tc\"\t d"));
+        Assert.assertArrayEquals(new String[] {"a", "b\tc", "d"}, tokenizer.getTokenArray());
+    }
+    
+    @Test
+    public void testDelimiterString() {
+        CSVLineTokenizer tokenizer = CSVLineTokenizer.create("||");
+        Assert.assertEquals(4, tokenizer.reset("a|| \"b\" ||||c|d"));
+        Assert.assertArrayEquals(new String[] {"a", " \"b\" ", null, "c|d"}, tokenizer.getTokenArray());
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBadIndex() {
+        CSVLineTokenizer tokenizer = CSVLineTokenizer.create(",");
+        tokenizer.reset("a,b");
+        tokenizer.getToken(2);
+    }
+    
+    @Test
+    public void testMatchesStrTokenizer() {
+        char[] alphabet = {'a', 'b', ',', '"', ' ', '\t', '|'};
+        Random random = new Random(1234);
+        for (String separator : new String[] {",", "\\t", "|"}) {
+            CSVLineTokenizer tokenizer = CSVLineTokenizer.create(separator);
+            for (int i = 0; i < 10000; i++) {
+                StringBuilder line = new StringBuilder();
+                int length = random.nextInt(16);
+                for (int j = 0; j < length; j++) {
+                    line.append(alphabet[random.nextInt(alphabet.length)]);
+                }
+                
+                StrTokenizer expected = createStrTokenizer(separator);
+                expected.reset(line.toString());
+                tokenizer.reset(line.toString());
+                Assert.assertArrayEquals("Tokens differ for '" + line + "'", expected.getTokenArray(), tokenizer.getTokenArray());
+            }
+        }
+    }
+    
+    private static StrTokenizer createStrTokenizer(String separator) {
+        StrTokenizer tokenizer;
+        if (separator.equals(",")) {
+            tokenizer = StrTokenizer.getCSVInstance();
+        } else if (separator.equals("\\t")) {
+            tokenizer = StrTokenizer.getTSVInstance();
+        } else {
+            tokenizer = new StrTokenizer();
+            tokenizer.setDelimiterString(separator);
+        }
+        tokenizer.setIgnoreEmptyTokens(false);
+        tokenizer.setEmptyTokenAsNull(true);
+        return tokenizer;
+    }
+}
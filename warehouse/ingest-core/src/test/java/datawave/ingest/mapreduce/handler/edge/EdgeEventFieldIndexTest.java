@@ -0,0 +1,48 @@
+package datawave.ingest.mapreduce.handler.edge;
+
+import com.google.common.collect.Multimap;
+import datawave.ingest.data.config.NormalizedContentInterface;
+import datawave.ingest.data.config.NormalizedFieldAndValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class EdgeEventFieldIndexTest {
+    
+    @Test
+    public void testCommonSubGroupsDoNotModifyIndex() {
+        EdgeEventFieldIndex index = new EdgeEventFieldIndex();
+        index.add("SOURCE.GROUP", "0", new NormalizedFieldAndValue("SOURCE", "a", "GROUP", "0"));
+        index.add("SOURCE.GROUP", "1", new NormalizedFieldAndValue("SOURCE", "b", "GROUP", "1"));
+        index.add("SOURCE.GROUP", "2", new NormalizedFieldAndValue("SOURCE", "c", "GROUP", "2"));
+        index.add("SINK.GROUP", "1", new NormalizedFieldAndValue("SINK", "d", "GROUP", "1"));
+        index.add("OTHER.GROUP", "2", new NormalizedFieldAndValue("OTHER", "e", "GROUP", "2"));
+        
+        Multimap<String,NormalizedContentInterface> source = index.getSubGroups("SOURCE.GROUP");
+        List<String> common = EdgeEventFieldIndex.getCommonSubGroups(source, index.getSubGroups("SINK.GROUP"));
+        Assert.assertEquals(1, common.size());
+        Assert.assertEquals("1", common.get(0));
+        
+        // a later edge definition sharing the source field must still see all of its sub groups
+        Assert.assertEquals(3, source.keySet().size());
+        common = EdgeEventFieldIndex.getCommonSubGroups(source, index.getSubGroups("OTHER.GROUP"));
+        Assert.assertEquals(Collections.singletonList("2"), common);
+    }
+    
+    @Test
+    public void testLookups() {
+        EdgeEventFieldIndex index = new EdgeEventFieldIndex();
+        index.add("FIELD", null, new NormalizedFieldAndValue("FIELD", "value"));
+        
+        Assert.assertTrue(index.contains("FIELD"));
+        Assert.assertFalse(index.contains("MISSING"));
+        Assert.assertEquals("value", index.getFirst("FIELD").getEventFieldValue());
+        Assert.assertNull(index.getFirst("MISSING"));
+        Assert.assertNull(index.getFirst(null));
+        Assert.assertNull(index.getSubGroups("MISSING"));
+        Assert.assertEquals(1, index.getNormalizedFields().size());
+        Assert.assertEquals(1, index.getDepthFirstList().get("FIELD").get(null).size());
+    }
+}
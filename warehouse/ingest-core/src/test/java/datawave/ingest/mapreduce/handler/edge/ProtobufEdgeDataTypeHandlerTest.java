@@ -0,0 +1,93 @@
+package datawave.ingest.mapreduce.handler.edge;
+
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinition;
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinitionConfigurationHelper;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class ProtobufEdgeDataTypeHandlerTest {
+    
+    @Test
+    public void testSetEdgesBeforePreconditions() {
+        CountingHandler handler = new CountingHandler();
+        Whitebox.setInternalState(handler, "evaluatePreconditions", true);
+        
+        // the edges are compiled once the preconditions are set up, not before
+        handler.setEdges(Collections.singletonMap("datatype", edges()));
+        Assert.assertEquals(0, handler.compiled);
+        handler.setUpPreconditions();
+        Assert.assertEquals(1, handler.compiled);
+        
+        List<CompiledEdgeDefinition> compiled = compiledEdges(handler).get("datatype");
+        Assert.assertEquals(2, compiled.size());
+        Assert.assertNull(compiled.get(0).getPrecondition());
+        Assert.assertNotNull(compiled.get(1).getPrecondition());
+    }
+    
+    @Test
+    public void testCompileBeforePreconditions() {
+        CountingHandler handler = new CountingHandler();
+        Whitebox.setInternalState(handler, "evaluatePreconditions", true);
+        
+        // compiling the preconditions does not depend on them having been set up
+        handler.setEdges(Collections.singletonMap("datatype", edges()));
+        handler.compileEdgeDefinitions();
+        Assert.assertEquals(1, handler.compiled);
+        Assert.assertNotNull(compiledEdges(handler).get("datatype").get(1).getPrecondition());
+    }
+    
+    @Test
+    public void testPreconditionEdgesRemoved() {
+        CountingHandler handler = new CountingHandler();
+        
+        handler.setEdges(Collections.singletonMap("datatype", edges()));
+        handler.setUpPreconditions();
+        Assert.assertEquals(1, handler.compiled);
+        
+        List<CompiledEdgeDefinition> compiled = compiledEdges(handler).get("datatype");
+        Assert.assertEquals(1, compiled.size());
+        Assert.assertFalse(compiled.get(0).getDefinition().hasJexlPrecondition());
+    }
+    
+    private static Map<String,List<CompiledEdgeDefinition>> compiledEdges(ProtobufEdgeDataTypeHandler<?,?,?> handler) {
+        return Whitebox.getInternalState(handler, "compiledEdges");
+    }
+    
+    private static EdgeDefinitionConfigurationHelper edges() {
+        EdgeDefinition unconditional = new EdgeDefinition();
+        unconditional.setSourceFieldName("SOURCE.GROUP");
+        unconditional.setSinkFieldName("SINK.GROUP");
+        
+        EdgeDefinition conditional = new EdgeDefinition();
+        conditional.setSourceFieldName("SOURCE");
+        conditional.setSinkFieldName("SINK");
+        conditional.setJexlPrecondition("TYPE == 'link'");
+        
+        EdgeDefinitionConfigurationHelper helper = new EdgeDefinitionConfigurationHelper();
+        helper.setEdges(new ArrayList<>(Arrays.asList(unconditional, conditional)));
+        return helper;
+    }
+    
+    /**
+     * Counts the data types whose edge definitions are compiled
+     */
+    private static class CountingHandler extends ProtobufEdgeDataTypeHandler<Text,BulkIngestKey,Value> {
+        private int compiled = 0;
+        
+        @Override
+        protected List<CompiledEdgeDefinition> compileEdgeDefinitions(List<EdgeDefinition> edgeDefs) {
+            compiled++;
+            return super.compileEdgeDefinitions(edgeDefs);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package datawave.ingest.mapreduce.job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SplitIndexTest {
+    
+    @Test
+    public void testLookups() {
+        SplitIndex index = new SplitIndex(Arrays.asList(new Text("m"), new Text("c"), new Text("x"), new Text("cc")));
+        Assert.assertEquals(4, index.size());
+        Assert.assertEquals(new Text("c"), index.getSplit(0));
+        Assert.assertEquals(0, index.binarySearch(new Text("c")));
+        Assert.assertEquals(-2, index.binarySearch(new Text("ca")));
+        Assert.assertEquals(-3, index.binarySearch(new Text("d")));
+        Assert.assertEquals(-1, index.binarySearch(new Text("a")));
+        Assert.assertEquals(-5, index.binarySearch(new Text("z")));
+        Assert.assertEquals(-1, index.binarySearch(new Text("")));
+        Assert.assertEquals(2, index.binarySearch(new ArrayByteSequence("__m__".getBytes(), 2, 1)));
+    }
+    
+    @Test
+    public void testEmpty() {
+        SplitIndex index = new SplitIndex(new Text[0]);
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertEquals(-1, index.binarySearch(new Text("a")));
+    }
+    
+    @Test
+    public void testMatchesArraysBinarySearch() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Text> splits = new ArrayList<>();
+            int numSplits = random.nextInt(200);
+            for (int i = 0; i < numSplits; i++) {
+                splits.add(randomRow(random));
+            }
+            // duplicate split points would make the index of a match ambiguous
+            Text[] sorted = splits.stream().distinct().sorted().toArray(Text[]::new);
+            SplitIndex index = new SplitIndex(Arrays.asList(sorted));
+            
+            for (int i = 0; i < 1000; i++) {
+                Text row = randomRow(random);
+                Assert.assertEquals("Lookup differs for " + row, Arrays.binarySearch(sorted, row), index.binarySearch(row));
+            }
+        }
+    }
+    
+    private static Text randomRow(Random random) {
+        byte[] bytes = new byte[random.nextInt(4)];
+        for (int i = 0; i < bytes.length; i++) {
+            // include bytes with the high bit set to exercise the unsigned ordering
+            bytes[i] = (byte) (random.nextBoolean() ? 'a' + random.nextInt(3) : 0xfe + random.nextInt(2));
+        }
+        return new Text(bytes);
+    }
+}
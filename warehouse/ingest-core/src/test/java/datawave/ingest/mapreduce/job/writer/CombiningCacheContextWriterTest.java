@@ -0,0 +1,134 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.util.Collection;
+
+import datawave.ingest.data.Type;
+import datawave.ingest.data.TypeRegistry;
+import datawave.ingest.mapreduce.SimpleDataTypeHandler;
+import datawave.ingest.mapreduce.StandaloneStatusReporter;
+import datawave.ingest.mapreduce.StandaloneTaskAttemptContext;
+import datawave.ingest.mapreduce.TestContextWriter;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CombiningCacheContextWriterTest {
+    
+    private static final Text COMBINED_TABLE = new Text("combinedTable");
+    private static final Text OTHER_TABLE = new Text("otherTable");
+    
+    private Configuration conf;
+    private StandaloneTaskAttemptContext<?,?,BulkIngestKey,Value> context;
+    
+    /**
+     * A handler that registers the tables used by this test
+     */
+    public static class TableHandler extends SimpleDataTypeHandler<Object> {
+        @Override
+        public String[] getTableNames(Configuration conf) {
+            return new String[] {COMBINED_TABLE.toString(), OTHER_TABLE.toString()};
+        }
+    }
+    
+    @Before
+    public void setup() {
+        conf = new Configuration();
+        conf.setClass(CombiningCacheContextWriter.CONTEXT_WRITER_CLASS, TestContextWriter.class, ContextWriter.class);
+        conf.set("combiner." + COMBINED_TABLE + ".10.iterClazz", SummingCombiner.class.getName());
+        conf.set("combiner." + COMBINED_TABLE + ".10.type", "STRING");
+        
+        TypeRegistry.reset();
+        TypeRegistry registry = TypeRegistry.getInstance(conf);
+        Type type = new Type("test", null, null, new String[] {TableHandler.class.getName()}, 10, null);
+        registry.put(type.typeName(), type);
+        
+        context = new StandaloneTaskAttemptContext<>(conf, new StandaloneStatusReporter());
+    }
+    
+    @After
+    public void tearDown() {
+        TypeRegistry.reset();
+    }
+    
+    @Test
+    public void testCombinesAcrossCommits() throws Exception {
+        CombiningCacheContextWriter<BulkIngestKey,Value> writer = new CombiningCacheContextWriter<>();
+        writer.setup(conf, false);
+        
+        BulkIngestKey key = new BulkIngestKey(COMBINED_TABLE, new Key("row", "cf", "cq", 1L));
+        for (int i = 0; i < 5; i++) {
+            writer.write(key, new Value("1".getBytes()), context);
+            writer.commit(context);
+        }
+        
+        // nothing has been written to the chained writer yet
+        Assert.assertTrue(TestContextWriter.getWritten().isEmpty());
+        
+        writer.cleanup(context);
+        
+        Collection<Value> values = TestContextWriter.getWritten().get(key);
+        Assert.assertEquals(1, values.size());
+        Assert.assertEquals("5", values.iterator().next().toString());
+        Assert.assertEquals(5, context.getCounter(CombiningCacheContextWriter.COUNTER_GROUP, CombiningCacheContextWriter.CACHED_VALUES).getValue());
+        Assert.assertEquals(1, context.getCounter(CombiningCacheContextWriter.COUNTER_GROUP, CombiningCacheContextWriter.FLUSHED_ENTRIES).getValue());
+    }
+    
+    @Test
+    public void testPassesThroughOtherTables() throws Exception {
+        CombiningCacheContextWriter<BulkIngestKey,Value> writer = new CombiningCacheContextWriter<>();
+        writer.setup(conf, false);
+        
+        BulkIngestKey key = new BulkIngestKey(OTHER_TABLE, new Key("row", "cf", "cq", 1L));
+        writer.write(key, new Value("1".getBytes()), context);
+        writer.commit(context);
+        
+        Assert.assertEquals(1, TestContextWriter.getWritten().get(key).size());
+        writer.cleanup(context);
+    }
+    
+    @Test
+    public void testRollback() throws Exception {
+        CombiningCacheContextWriter<BulkIngestKey,Value> writer = new CombiningCacheContextWriter<>();
+        writer.setup(conf, false);
+        
+        BulkIngestKey key = new BulkIngestKey(COMBINED_TABLE, new Key("row", "cf", "cq", 1L));
+        writer.write(key, new Value("1".getBytes()), context);
+        writer.commit(context);
+        writer.write(key, new Value("1".getBytes()), context);
+        writer.rollback();
+        writer.cleanup(context);
+        
+        Collection<Value> values = TestContextWriter.getWritten().get(key);
+        Assert.assertEquals(1, values.size());
+        Assert.assertEquals("1", values.iterator().next().toString());
+    }
+    
+    @Test
+    public void testFlushesFullPartition() throws Exception {
+        conf.setInt(CombiningCacheContextWriter.PARTITIONS, 1);
+        conf.setInt(CombiningCacheContextWriter.MAX_ENTRIES, 2);
+        CombiningCacheContextWriter<BulkIngestKey,Value> writer = new CombiningCacheContextWriter<>();
+        writer.setup(conf, false);
+        
+        BulkIngestKey key1 = new BulkIngestKey(COMBINED_TABLE, new Key("row1", "cf", "cq", 1L));
+        BulkIngestKey key2 = new BulkIngestKey(COMBINED_TABLE, new Key("row2", "cf", "cq", 1L));
+        writer.write(key1, new Value("1".getBytes()), context);
+        writer.write(key1, new Value("1".getBytes()), context);
+        writer.commit(context);
+        Assert.assertTrue(TestContextWriter.getWritten().isEmpty());
+        
+        writer.write(key2, new Value("1".getBytes()), context);
+        writer.commit(context);
+        Assert.assertEquals("2", TestContextWriter.getWritten().get(key1).iterator().next().toString());
+        Assert.assertEquals("1", TestContextWriter.getWritten().get(key2).iterator().next().toString());
+        
+        writer.cleanup(context);
+    }
+}
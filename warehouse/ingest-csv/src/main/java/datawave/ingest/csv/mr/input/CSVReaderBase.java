@@ -2,6 +2,7 @@ package datawave.ingest.csv.mr.input;
 
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.config.CSVHelper;
+import datawave.ingest.data.config.CSVLineTokenizer;
 import datawave.data.hash.UID;
 import datawave.ingest.input.reader.EventRecordReader;
 import datawave.ingest.input.reader.LongLineEventRecordReader;
@@ -45,6 +46,12 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     /** Splits raw input records Strings according to the configured separator. */
     private StrTokenizer _tokenizer;
     
+    /** Splits raw input records into reusable offsets when the fast parse option is enabled. */
+    private CSVLineTokenizer _lineTokenizer;
+    
+    /** Flags per header column denoting whether the column is used by this reader, lazily computed for the fast parse option. */
+    private boolean[] _readerFields;
+    
     /** Super class returns the position in bytes in the file as the key. This returns the record number. */
     @Override
     public LongWritable getCurrentKey() {
@@ -100,6 +107,8 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     
     public void initializeTokenizer() {
         _tokenizer = createTokenizer();
+        _lineTokenizer = csvHelper.useFastParse() ? CSVLineTokenizer.create(csvHelper) : null;
+        _readerFields = null;
     }
     
     /** Creates a CVSHelper for the RecordReader. */
@@ -120,15 +129,60 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         processedSize += value.getLength();
         
         final String rawEventRecordStr = value.toString();
-        _tokenizer.reset(rawEventRecordStr);
-        
-        final String[] rawEventFields = _tokenizer.getTokenArray();
         final String[] header = csvHelper.getHeader();
         
         // If the event date field name is not specified in the configuration, then set the event date to the file modification time.
         if (StringUtils.isEmpty(eventDateFieldName))
             event.setDate(fileModificationTime);
         
+        final int rawFieldCount;
+        if (_lineTokenizer != null) {
+            rawFieldCount = processFieldsFast(rawEventRecordStr, header);
+        } else {
+            rawFieldCount = processFields(rawEventRecordStr, header);
+        }
+        
+        // decorate with additional data (used by overriding classes)
+        decorateEvent();
+        
+        event.setRawData(rawEventRecordStr.getBytes());
+        
+        // Check to see if we need to override the UID. The use case for this is that some of the hashes are "enrichment" and the same
+        // values will be loaded over and over again. By default, the UID is calculated on the raw byte[]
+        final UID newUID = uidOverride(event);
+        if (newUID != null) {
+            event.setId(newUID);
+        } else {
+            event.generateId(null);
+        }
+        
+        enforcePolicy(event);
+        
+        if (header.length > rawFieldCount) {
+            event.addError(RawDataErrorNames.NOT_ENOUGH_FIELDS);
+            log.error("More fields in header than in data. Header fields: {}, data fields: {}", header.length, rawFieldCount);
+        } else if ((!csvHelper.processExtraFields()) && (header.length < rawFieldCount)) {
+            event.addError(RawDataErrorNames.TOO_MANY_FIELDS);
+            log.error("More fields in data than in header. Header fields: {}, data fields: {}", header.length, rawFieldCount);
+        }
+        
+        return event;
+    }
+    
+    /**
+     * Tokenize the record with the StrTokenizer and process every field.
+     *
+     * @param rawEventRecordStr
+     *            the raw record
+     * @param header
+     *            the configured header
+     * @return the number of fields found in the record
+     */
+    protected int processFields(final String rawEventRecordStr, final String[] header) {
+        _tokenizer.reset(rawEventRecordStr);
+        
+        final String[] rawEventFields = _tokenizer.getTokenArray();
+        
         // We still try to process the event record.
         final int fields = Math.min(rawEventFields.length, header.length);
         String field, fieldName;
@@ -151,31 +205,76 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
             }
         }
         
-        // decorate with additional data (used by overriding classes)
-        decorateEvent();
+        return rawEventFields.length;
+    }
+    
+    /**
+     * Tokenize the record with the {@link CSVLineTokenizer} and only create Strings for the header fields that this reader uses (see
+     * {@link #isReaderField(String)}) and for any extra fields. The event fields themselves are parsed from the raw data later by the ingest helper.
+     *
+     * @param rawEventRecordStr
+     *            the raw record
+     * @param header
+     *            the configured header
+     * @return the number of fields found in the record
+     */
+    protected int processFieldsFast(final String rawEventRecordStr, final String[] header) {
+        final int rawFieldCount = _lineTokenizer.reset(rawEventRecordStr);
+        final boolean[] readerFields = getReaderFields(header);
         
-        event.setRawData(rawEventRecordStr.getBytes());
+        // We still try to process the event record.
+        final int fields = Math.min(rawFieldCount, header.length);
+        String field, fieldName;
+        int i;
         
-        // Check to see if we need to override the UID. The use case for this is that some of the hashes are "enrichment" and the same
-        // values will be loaded over and over again. By default, the UID is calculated on the raw byte[]
-        final UID newUID = uidOverride(event);
-        if (newUID != null) {
-            event.setId(newUID);
-        } else {
-            event.generateId(null);
+        for (i = 0; i < fields; i++) {
+            if (readerFields[i] && !_lineTokenizer.isNull(i)) {
+                fieldName = header[i];
+                field = csvHelper.clean(fieldName, _lineTokenizer.getUnescapedToken(i));
+                if (field != null)
+                    processPreSplitField(fieldName, field);
+            }
         }
         
-        enforcePolicy(event);
-        
-        if (header.length > rawEventFields.length) {
-            event.addError(RawDataErrorNames.NOT_ENOUGH_FIELDS);
-            log.error("More fields in header than in data. Header fields: {}, data fields: {}", header.length, rawEventFields.length);
-        } else if ((!csvHelper.processExtraFields()) && (header.length < rawEventFields.length)) {
-            event.addError(RawDataErrorNames.TOO_MANY_FIELDS);
-            log.error("More fields in data than in header. Header fields: {}, data fields: {}", header.length, rawEventFields.length);
+        // Check to see if we have data beyond the header specification that should be processed. This is the case for the CSV logs
+        if (csvHelper.processExtraFields() && rawFieldCount > header.length) {
+            while (i < rawFieldCount) {
+                processExtraField(_lineTokenizer.getToken(i));
+                i++;
+            }
         }
         
-        return event;
+        return rawFieldCount;
+    }
+    
+    private boolean[] getReaderFields(final String[] header) {
+        if (_readerFields == null || _readerFields.length != header.length) {
+            final boolean[] readerFields = new boolean[header.length];
+            for (int i = 0; i < header.length; i++) {
+                final String fieldName = header[i];
+                readerFields[i] = isReaderField(fieldName);
+                // multivalued fields are checked under their single valued name
+                if (!readerFields[i] && csvHelper.isMultiValuedField(fieldName) && !csvHelper.usingMultiValuedFieldsBlacklist()) {
+                    readerFields[i] = isReaderField(csvHelper.getMultiValuedFields().get(fieldName));
+                }
+            }
+            _readerFields = readerFields;
+        }
+        return _readerFields;
+    }
+    
+    /**
+     * Determine whether the named field is used by this reader when the fast parse option is enabled. Header fields for which this returns false are not
+     * materialized and are not passed to {@link #processPreSplitField(String, String)}. Subclasses that examine additional fields in
+     * {@link #processPreSplitField(String, String)} or {@link #checkField(String, String)} must override this method.
+     *
+     * @param fieldName
+     *            the field name
+     * @return true if the field is required to build the event
+     */
+    protected boolean isReaderField(final String fieldName) {
+        return fieldName.equals(eventDateFieldName) || uidOverrideFields.containsKey(fieldName) || (uuidFields != null && uuidFields.contains(fieldName))
+                        || csvHelper.isFieldRequired(fieldName);
     }
     
     /** Decorate the event with additional info post field processing but prior to event validation */
@@ -249,7 +348,7 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     protected void processPreSplitField(String fieldName, final String fieldValue) {
         if (csvHelper.isMultiValuedField(fieldName)) {
             // Value can be multiple parts, need to break on semi-colon
-            final String[] values = fieldValue.split(csvHelper.getEscapeSafeMultiValueSeparatorPattern());
+            final String[] values = csvHelper.getEscapeSafeMultiValueSeparatorCompiledPattern().split(fieldValue);
             
             // Can be renamed if specified in multivalued fields, but not if using blacklist
             if (!csvHelper.usingMultiValuedFieldsBlacklist()) {
@@ -279,6 +378,10 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         return Math.min(1f, (float) processedSize / (float) totalSize);
     }
     
+    public CSVLineTokenizer getLineTokenizer() {
+        return _lineTokenizer;
+    }
+    
     public StrTokenizer getTokenizer() {
         return _tokenizer;
     }
@@ -157,6 +157,20 @@ public class CSVRecordReader extends CSVReaderBase implements EventFixer {
         return false;
     }
     
+    @Override
+    protected boolean isReaderField(String fieldName) {
+        if (super.isReaderField(fieldName) || this.csvHelper.getSecurityMarkingFieldDomainMap().containsKey(fieldName)
+                        || fieldName.equals(this.csvHelper.getEventIdFieldName()) || fieldName.equals(this.dataTypeHelper.getEventDataTypeFieldName())) {
+            return true;
+        }
+        for (EventValidator validator : this.csvHelper.getValidators()) {
+            if (validator.validated(fieldName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     @Override
     protected void processPreSplitField(String fieldName, String fieldValue) {
         if (requiredForValidation(fieldName)) {
@@ -243,6 +243,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     // as possible.
     @SuppressWarnings("unchecked")
     protected static final Collection<ByteSequence> EMPTY_CFS = Collections.EMPTY_LIST;
+    // the number of non matching keys to next over before seeking to the key returned by getNextSeekKey
+    protected static final int VALUE_SEEK_THRESHOLD = 10;
     
     // These are the ranges to scan in the field index
     private final List<Range> boundingFiRanges = new ArrayList<>();
@@ -312,6 +314,12 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     private HdfsBackedSortedSet<Key> set = null;
     // a thread safe wrapper around the sorted set used by the scan threads
     private SortedSet<Key> threadSafeSet = null;
+    // the bytes held by the buffer of the sorted set, reserved against the ivarator memory budget of the tserver (guarded by the threadSafeSet)
+    private volatile long bufferedBytes = 0;
+    // identifies the reservation of this iterator against the ivarator memory budget
+    private final Object memoryLease = new Object();
+    // the bytes persisted from the buffer of the sorted set since last reported
+    private final AtomicLong persistedBytes = new AtomicLong(0);
     // the iterator (merge sort) of key values once the sorted set has been filled
     private CachingIterator<Key> keys = null;
     // the current row covered by the hdfs set
@@ -564,6 +572,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         
         this.lastRangeSeeked = r;
         QuerySpan querySpan = null;
+        touchBufferedMemory();
         
         try {
             this.fiRow = null;
@@ -652,6 +661,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     public void next() throws IOException {
         log.trace("next() called");
         
+        touchBufferedMemory();
         findTop();
         
         if (topKey != null && log.isTraceEnabled()) {
@@ -736,6 +746,16 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
      * sorted order. We are using an Hdfs backed sorted set to this end.
      */
     protected void findTop() throws IOException {
+        try {
+            findTopKey();
+        } catch (IOException | RuntimeException e) {
+            // the iterator is being torn down, so give back any memory held against the ivarator budget now
+            clearRowBasedHdfsBackedSet();
+            throw e;
+        }
+    }
+    
+    private void findTopKey() throws IOException {
         
         this.topKey = null;
         
@@ -1058,7 +1078,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                     if (log.isTraceEnabled()) {
                         log.trace("Adding result: " + topEventKey);
                     }
-                    DatawaveFieldIndexCachingIteratorJexl.this.threadSafeSet.add(topEventKey);
+                    addToSet(topEventKey);
                     return true;
                 }
             }
@@ -1066,6 +1086,67 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         return false;
     }
     
+    /**
+     * Add a key to the set. The memory held by the key in the buffer of the sorted set is reserved against the ivarator memory budget of the tserver, and if
+     * the budget is exceeded while this set holds at least its share of it, then the buffer is persisted early.
+     * 
+     * @param key
+     *            the key
+     * @throws IOException
+     */
+    private void addToSet(Key key) throws IOException {
+        if (this.set == null) {
+            this.threadSafeSet.add(key);
+            return;
+        }
+        
+        synchronized (this.threadSafeSet) {
+            if (this.threadSafeSet.add(key)) {
+                if (this.set.getBufferSize() == 0) {
+                    // the buffer reached its persist threshold and was persisted
+                    releaseBufferedMemory(true);
+                } else {
+                    long bytes = key.getSize();
+                    boolean withinBudget = IteratorThreadPoolManager.reserveIvaratorMemory(this.memoryLease, bytes, this.initEnv);
+                    this.bufferedBytes += bytes;
+                    if (!withinBudget) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Persisting " + this.bufferedBytes + " buffered bytes early to stay within the ivarator memory budget: " + this);
+                        }
+                        this.set.persist();
+                        releaseBufferedMemory(true);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Release the memory held by the buffer of the sorted set once it has been persisted or cleared. The caller must hold the lock on the threadSafeSet.
+     * 
+     * @param persisted
+     *            true if the buffer was persisted
+     */
+    private void releaseBufferedMemory(boolean persisted) {
+        if (this.bufferedBytes > 0) {
+            IteratorThreadPoolManager.releaseIvaratorMemory(this.memoryLease, this.initEnv);
+            if (persisted) {
+                this.persistedBytes.addAndGet(this.bufferedBytes);
+            }
+            this.bufferedBytes = 0;
+        }
+    }
+    
+    /**
+     * Keep the reservation of this iterator against the ivarator memory budget from expiring while the iterator is in use. An iterator that is abandoned by
+     * its scan session stops renewing its reservation, which is released once it expires.
+     */
+    private void touchBufferedMemory() {
+        if (this.bufferedBytes > 0) {
+            IteratorThreadPoolManager.touchIvaratorMemory(this.memoryLease, this.initEnv);
+        }
+    }
+    
     /**
      * This method will asynchronously fill the set with matches from within the specified bounding FI range.
      * 
@@ -1076,9 +1157,11 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         
         // this will block until an ivarator source becomes available
         final SortedKeyValueIterator<Key,Value> source = takePoolSource();
+        final long submitted = System.currentTimeMillis();
         
         // create runnable
         Runnable runnable = () -> {
+            final long started = System.currentTimeMillis();
             if (log.isDebugEnabled()) {
                 log.debug("Starting fillSet(" + boundingFiRange + ')');
             }
@@ -1087,6 +1170,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             QuerySpan querySpan = null;
             Key nextSeekKey = null;
             int nextCount = 0;
+            Key valueSeekKey = null;
+            int valueNextCount = 0;
             try {
                 if (collectTimingDetails && source instanceof SourceTrackingIterator) {
                     querySpan = ((SourceTrackingIterator) source).getQuerySpan();
@@ -1170,11 +1255,37 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                         break;
                     }
                     
+                    // keys preceding the valueSeekKey are known not to match
+                    if (valueSeekKey != null && top.compareTo(valueSeekKey) < 0) {
+                        if (valueNextCount >= VALUE_SEEK_THRESHOLD) {
+                            source.seek(new Range(valueSeekKey, true, boundingFiRange.getEndKey(), boundingFiRange.isEndKeyInclusive()), EMPTY_CFS, false);
+                            valueSeekKey = null;
+                            valueNextCount = 0;
+                        } else {
+                            valueNextCount++;
+                            source.next();
+                        }
+                        scanned++;
+                        DatawaveFieldIndexCachingIteratorJexl.this.scannedKeys.incrementAndGet();
+                        continue;
+                    }
+                    
                     if (addKey(top, source.getTopValue())) {
                         matched++;
                         if (!totalResults.increment()) {
                             throw new DatawaveIvaratorMaxResultsException("Exceeded the maximum set size");
                         }
+                    } else if (!negated) {
+                        valueSeekKey = getNextSeekKey(top);
+                        valueNextCount = 0;
+                        if (valueSeekKey != null) {
+                            if (boundingFiRange.afterEndKey(valueSeekKey)) {
+                                // nothing else in this range can match
+                                break;
+                            } else if (valueSeekKey.compareTo(top) <= 0) {
+                                valueSeekKey = null;
+                            }
+                        }
                     }
                     
                     source.next();
@@ -1195,12 +1306,20 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                     log.debug(builder.toString());
                 }
                 if (collectTimingDetails && querySpanCollector != null && querySpan != null) {
+                    querySpan.addStageTimer(QuerySpan.Stage.IvaratorQueueWait, started - submitted);
+                    querySpan.addStageTimer(QuerySpan.Stage.IvaratorFill, System.currentTimeMillis() - started);
+                    long persisted = persistedBytes.getAndSet(0);
+                    if (persisted > 0) {
+                        querySpan.addStageCount(QuerySpan.Stage.IvaratorPersistedBytes, persisted);
+                    }
                     querySpanCollector.addQuerySpan(querySpan);
                 }
             }
         };
         
-        return IteratorThreadPoolManager.executeIvarator(runnable, DatawaveFieldIndexCachingIteratorJexl.this + " in " + boundingFiRange, this.initEnv);
+        // the scheduler shares the ivarator threads fairly between the queries
+        return IteratorThreadPoolManager.executeIvarator(runnable, DatawaveFieldIndexCachingIteratorJexl.this + " in " + boundingFiRange, this.queryId,
+                        this.initEnv);
         
     }
     
@@ -1221,6 +1340,11 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
      * @throws IOException
      */
     protected void clearRowBasedHdfsBackedSet() throws IOException {
+        if (this.threadSafeSet != null) {
+            synchronized (this.threadSafeSet) {
+                releaseBufferedMemory(false);
+            }
+        }
         this.keys = null;
         this.currentRow = null;
         this.set = null;
@@ -1389,6 +1513,18 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
      */
     protected abstract boolean matches(Key k) throws IOException;
     
+    /**
+     * Find the next field index key which could match, given a key which did not. This allows the fill threads to seek past the keys which cannot match
+     * rather than scanning them. Only called when not negated. NOTE: This method must be thread safe
+     * 
+     * @param k
+     *            a field index key which was not added to the set
+     * @return a key after k such that no key between them can match, or null if the next key could match
+     */
+    protected Key getNextSeekKey(Key k) {
+        return null;
+    }
+    
     /**
      * A protected method to force persistence of the set. This can be used by test cases to verify tear down and rebuilding with reuse of the previous results.
      * 
@@ -1396,7 +1532,10 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
      */
     protected void forcePersistence() throws IOException {
         if (this.set != null && !this.set.isPersisted()) {
-            this.set.persist();
+            synchronized (this.threadSafeSet) {
+                this.set.persist();
+                releaseBufferedMemory(true);
+            }
             // declare the persisted set complete
             this.setControl.setCompleteAndPersisted(this.currentRow);
         }
@@ -4,8 +4,11 @@ import datawave.data.ColumnFamilyConstants;
 import datawave.query.Constants;
 import datawave.query.parser.JavaRegexAnalyzer;
 import datawave.query.parser.JavaRegexAnalyzer.JavaRegexParseException;
+import datawave.query.util.regex.ByteRegex;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Column;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
@@ -20,7 +23,8 @@ import java.util.regex.Pattern;
  * 
  * An iterator for the Datawave shard table, it searches FieldIndex keys and returns Event keys (its topKey must be an Event key).
  *
- * This version takes a regex and will return sorted UIDs that match the supplied regex
+ * This version takes a regex and will return sorted UIDs that match the supplied regex. Where possible the regex is compiled to a {@link ByteRegex} which
+ * matches the field values without decoding them, and allows the fill threads to seek past the field values which cannot match.
  * 
  * FieldIndex keys: fi\0{fieldName}:{fieldValue}\0datatype\0uid
  * 
@@ -44,6 +48,7 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     protected DatawaveFieldIndexRegexIteratorJexl(Builder builder) {
         super(builder);
         this.regex = builder.fieldValue.toString();
+        this.byteRegex = ByteRegex.compile(regex);
         try {
             // now fix the fValue to be the part we use for ranges
             JavaRegexAnalyzer analyzer = new JavaRegexAnalyzer(this.regex);
@@ -58,7 +63,11 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
         
     }
     
+    private static final byte[] EMPTY_BYTES = new byte[0];
+    
     private String regex = null;
+    // null if the regex could not be compiled, in which case the pattern is used
+    private ByteRegex byteRegex = null;
     private ThreadLocal<Pattern> pattern = ThreadLocal.withInitial(() -> Pattern.compile(regex));
     
     // -------------------------------------------------------------------------
@@ -70,6 +79,7 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     public DatawaveFieldIndexRegexIteratorJexl(DatawaveFieldIndexRegexIteratorJexl other, IteratorEnvironment env) {
         super(other, env);
         this.regex = other.regex;
+        this.byteRegex = other.byteRegex;
     }
     
     // -------------------------------------------------------------------------
@@ -124,6 +134,12 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     @Override
     protected boolean matches(Key k) throws IOException {
         boolean matches = false;
+        
+        if (byteRegex != null) {
+            ByteSequence colq = k.getColumnQualifierData();
+            return byteRegex.matches(colq.subSequence(0, getValueLength(colq)));
+        }
+        
         String colq = k.getColumnQualifier().toString();
         
         // search backwards for the null bytes to expose the value in value\0datatype\0UID
@@ -134,4 +150,43 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
         return matches;
     }
     
+    /**
+     * Uses the compiled regex to find the next field value which could match. NOTE: This method must be thread safe
+     *
+     * @param k
+     *            a field index key which was not added to the set
+     * @return the key of the next field value which could match, or the following column family if no value after k can match
+     */
+    @Override
+    protected Key getNextSeekKey(Key k) {
+        if (byteRegex == null) {
+            return null;
+        }
+        ByteSequence colq = k.getColumnQualifierData();
+        byte[] nextValue = byteRegex.nextPossibleMatch(colq.subSequence(0, getValueLength(colq)));
+        if (nextValue == null) {
+            return k.followingKey(PartialKey.ROW_COLFAM);
+        }
+        return new Key(k.getRowData().toArray(), k.getColumnFamilyData().toArray(), nextValue, EMPTY_BYTES, Long.MAX_VALUE);
+    }
+    
+    /**
+     * Search backwards for the null bytes to expose the value in value\0datatype\0UID
+     *
+     * @param colq
+     *            the field index column qualifier
+     * @return the length of the value
+     */
+    private static int getValueLength(ByteSequence colq) {
+        int index = colq.length() - 1;
+        while (colq.byteAt(index) != 0) {
+            index--;
+        }
+        index--;
+        while (colq.byteAt(index) != 0) {
+            index--;
+        }
+        return index;
+    }
+    
 }
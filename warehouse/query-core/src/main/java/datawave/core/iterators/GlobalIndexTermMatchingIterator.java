@@ -14,6 +14,7 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.OptionDescriber;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
 public class GlobalIndexTermMatchingIterator extends GlobalIndexTermMatchingFilter implements SortedKeyValueIterator<Key,Value>, OptionDescriber {
@@ -21,6 +22,9 @@ public class GlobalIndexTermMatchingIterator extends GlobalIndexTermMatchingFilt
     public static final String UNIQUE_TERMS_IN_FIELD = "term.unique";
     private static final Logger log = Logger.getLogger(GlobalIndexTermMatchingIterator.class);
     
+    // the number of non matching keys to next over before seeking to the next term which could match
+    private static final int SEEK_THRESHOLD = 10;
+    
     private SortedKeyValueIterator<Key,Value> source;
     
     private boolean foundMatch = false;
@@ -105,18 +109,47 @@ public class GlobalIndexTermMatchingIterator extends GlobalIndexTermMatchingFilt
         foundMatch = false;
         if (log.isTraceEnabled())
             log.trace("has top ? " + getSource().hasTop());
+        int nextCount = 0;
         while (!foundMatch && getSource().hasTop()) {
             Key top = getSource().getTopKey();
             if (log.isTraceEnabled())
                 log.trace("top key is " + top);
             if (accept(top, getSource().getTopValue())) {
                 foundMatch = true;
+            } else if (nextCount >= SEEK_THRESHOLD && canSeek()) {
+                seekToNextPossibleTerm(top);
+                nextCount = 0;
             } else {
                 getSource().next();
+                nextCount++;
             }
         }
     }
     
+    /**
+     * Seeks past the rows which cannot match any of the literals or patterns
+     * 
+     * @param top
+     *            current key that we see, which did not match
+     * @throws IOException
+     */
+    protected void seekToNextPossibleTerm(final Key top) throws IOException {
+        byte[] nextTerm = nextPossibleTerm(top.getRowData());
+        Key endKey = scanRange.getEndKey();
+        Key next = (nextTerm == null ? null : new Key(new Text(nextTerm)));
+        // nothing left in the range can match
+        if (null != endKey && (null == next || next.compareTo(endKey) > 0)) {
+            next = endKey;
+        }
+        if (null != next && top.compareTo(next) < 0) {
+            if (log.isTraceEnabled())
+                log.trace("seeking to " + next + " top key is " + top);
+            getSource().seek(new Range(next, true, scanRange.getEndKey(), scanRange.isEndKeyInclusive()), scanCFs, scanInclusive);
+        } else {
+            getSource().next();
+        }
+    }
+    
     /**
      * Advances to the next top key
      * 
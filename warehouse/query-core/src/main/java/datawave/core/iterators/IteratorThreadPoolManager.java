@@ -23,11 +23,16 @@ public class IteratorThreadPoolManager {
     private static final Logger log = Logger.getLogger(IteratorThreadPoolManager.class);
     private static final String IVARATOR_THREAD_PROP = "tserver.datawave.ivarator.threads";
     private static final String IVARATOR_THREAD_NAME = "DATAWAVE Ivarator";
+    private static final String IVARATOR_MEMORY_PROP = "tserver.datawave.ivarator.memory";
+    private static final String IVARATOR_MEMORY_LEASE_PROP = "tserver.datawave.ivarator.memory.lease";
     private static final String EVALUATOR_THREAD_PROP = "tserver.datawave.evaluation.threads";
     private static final String EVALUATOR_THREAD_NAME = "DATAWAVE Evaluation";
     private static final int DEFAULT_THREAD_POOL_SIZE = 100;
+    private static final long DEFAULT_IVARATOR_MEMORY = 512L * 1024 * 1024;
+    private static final long DEFAULT_IVARATOR_MEMORY_LEASE = 5L * 60 * 1000;
     
     private Map<String,ExecutorService> threadPools = new TreeMap<>();
+    private IvaratorScheduler ivaratorScheduler;
     
     private static final Object instanceSemaphore = new Object();
     private static final String instanceId = Integer.toHexString(instanceSemaphore.hashCode());
@@ -35,17 +40,45 @@ public class IteratorThreadPoolManager {
     
     private IteratorThreadPoolManager(IteratorEnvironment env) {
         // create the thread pools
-        createExecutorService(IVARATOR_THREAD_PROP, IVARATOR_THREAD_NAME, env);
+        ThreadPoolExecutor ivaratorService = createExecutorService(IVARATOR_THREAD_PROP, IVARATOR_THREAD_NAME, env);
         createExecutorService(EVALUATOR_THREAD_PROP, EVALUATOR_THREAD_NAME, env);
+        
+        // the ivarator tasks are scheduled fairly between the queries
+        createIvaratorScheduler(ivaratorService, env);
     }
     
-    private ThreadPoolExecutor createExecutorService(final String prop, final String name, IteratorEnvironment env) {
-        final AccumuloConfiguration accumuloConfiguration;
+    private void createIvaratorScheduler(ThreadPoolExecutor service, IteratorEnvironment env) {
+        final AccumuloConfiguration accumuloConfiguration = getConfiguration(env);
+        final IvaratorScheduler scheduler = new IvaratorScheduler(service, getMaxMemory(IVARATOR_MEMORY_PROP, DEFAULT_IVARATOR_MEMORY, accumuloConfiguration));
+        ivaratorScheduler = scheduler;
+        SimpleTimer.getInstance(accumuloConfiguration).schedule(() -> {
+            try {
+                long max = getMaxMemory(IVARATOR_MEMORY_PROP, DEFAULT_IVARATOR_MEMORY, accumuloConfiguration);
+                if (scheduler.getMaxBufferedBytes() != max) {
+                    log.info("Changing " + IVARATOR_MEMORY_PROP + " to " + max);
+                    scheduler.setMaxBufferedBytes(max);
+                }
+                // release the memory of ivarators abandoned by their scan sessions
+                int expired = scheduler.expireLeases(getMaxMemory(IVARATOR_MEMORY_LEASE_PROP, DEFAULT_IVARATOR_MEMORY_LEASE, accumuloConfiguration));
+                if (expired > 0) {
+                    log.info("Released the ivarator memory of " + expired + " idle sorted sets");
+                }
+            } catch (Throwable t) {
+                log.error(t, t);
+            }
+        }, 1000, 10 * 1000);
+    }
+    
+    private AccumuloConfiguration getConfiguration(IteratorEnvironment env) {
         if (env != null) {
-            accumuloConfiguration = env.getConfig();
+            return env.getConfig();
         } else {
-            accumuloConfiguration = DefaultConfiguration.getInstance();
+            return DefaultConfiguration.getInstance();
         }
+    }
+    
+    private ThreadPoolExecutor createExecutorService(final String prop, final String name, IteratorEnvironment env) {
+        final AccumuloConfiguration accumuloConfiguration = getConfiguration(env);
         final ThreadPoolExecutor service = createExecutorService(getMaxThreads(prop, accumuloConfiguration), name + " (" + instanceId + ')');
         threadPools.put(name, service);
         SimpleTimer.getInstance(accumuloConfiguration).schedule(() -> {
@@ -82,6 +115,17 @@ public class IteratorThreadPoolManager {
         return DEFAULT_THREAD_POOL_SIZE;
     }
     
+    private long getMaxMemory(final String prop, final long defaultValue, AccumuloConfiguration conf) {
+        if (conf != null) {
+            Map<String,String> properties = new TreeMap<>();
+            conf.getProperties(properties, k -> Objects.equals(k, prop));
+            if (properties.containsKey(prop)) {
+                return Long.parseLong(properties.get(prop));
+            }
+        }
+        return defaultValue;
+    }
+    
     private static IteratorThreadPoolManager instance(IteratorEnvironment env) {
         if (instance == null) {
             synchronized (instanceSemaphore) {
@@ -94,7 +138,11 @@ public class IteratorThreadPoolManager {
     }
     
     private Future<?> execute(String name, final Runnable task, final String taskName) {
-        return threadPools.get(name).submit(() -> {
+        return threadPools.get(name).submit(rename(task, taskName));
+    }
+    
+    private static Runnable rename(final Runnable task, final String taskName) {
+        return () -> {
             String oldName = Thread.currentThread().getName();
             Thread.currentThread().setName(oldName + " -> " + taskName);
             try {
@@ -102,11 +150,68 @@ public class IteratorThreadPoolManager {
             } finally {
                 Thread.currentThread().setName(oldName);
             }
-        });
+        };
     }
     
     public static Future<?> executeIvarator(Runnable task, String taskName, IteratorEnvironment env) {
-        return instance(env).execute(IVARATOR_THREAD_NAME, task, taskName);
+        return executeIvarator(task, taskName, null, env);
+    }
+    
+    /**
+     * Queue an ivarator task behind the other ivarator tasks of its query. The queries share the ivarator threads fairly (see {@link IvaratorScheduler}).
+     * 
+     * @param task
+     *            the task
+     * @param taskName
+     *            the name given to the thread while it runs the task
+     * @param queryId
+     *            the id of the query
+     * @param env
+     *            the iterator environment
+     * @return the future of the task
+     */
+    public static Future<?> executeIvarator(Runnable task, String taskName, String queryId, IteratorEnvironment env) {
+        return instance(env).ivaratorScheduler.submit(rename(task, taskName), queryId);
+    }
+    
+    /**
+     * Reserve memory for a key buffered by an ivarator sorted set
+     * 
+     * @param lease
+     *            identifies the set's reservation
+     * @param bytes
+     *            the bytes to reserve
+     * @param env
+     *            the iterator environment
+     * @return false if the set should persist its buffer now to keep the tablet server within its ivarator memory budget
+     * @see IvaratorScheduler#reserve(Object, long)
+     */
+    public static boolean reserveIvaratorMemory(Object lease, long bytes, IteratorEnvironment env) {
+        return instance(env).ivaratorScheduler.reserve(lease, bytes);
+    }
+    
+    /**
+     * Keep the reservation of an ivarator sorted set from expiring (tserver.datawave.ivarator.memory.lease, in milliseconds, default 5 minutes)
+     * 
+     * @param lease
+     *            identifies the set's reservation
+     * @param env
+     *            the iterator environment
+     */
+    public static void touchIvaratorMemory(Object lease, IteratorEnvironment env) {
+        instance(env).ivaratorScheduler.touch(lease);
+    }
+    
+    /**
+     * Release the memory held by the buffer of an ivarator sorted set
+     * 
+     * @param lease
+     *            identifies the set's reservation
+     * @param env
+     *            the iterator environment
+     */
+    public static void releaseIvaratorMemory(Object lease, IteratorEnvironment env) {
+        instance(env).ivaratorScheduler.release(lease);
     }
     
     public static Future<?> executeEvaluation(Runnable task, String taskName, IteratorEnvironment env) {
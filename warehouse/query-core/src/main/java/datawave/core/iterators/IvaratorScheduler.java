@@ -0,0 +1,227 @@
+package datawave.core.iterators;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Schedules the ivarator tasks of all of the queries running on a tablet server onto a shared thread pool.
+ * <p>
+ * The tasks are queued per query, and whenever a thread becomes free it is given to the next task of the query with the fewest tasks running (the query that
+ * has waited the longest wins any tie). A query with thousands of ranges to fill therefore gets no more than its share of the threads while other queries are
+ * waiting, instead of holding all of them until its queue drains.
+ * <p>
+ * The scheduler also keeps a budget of the memory held by the buffers of the ivarator sorted sets. The memory is reserved as keys are buffered, and a set that
+ * holds at least its share of the budget while the budget is exceeded is asked to persist its buffer early (see {@link #reserve(Object, long)}). Each set's
+ * reservation is a lease that is renewed while the set is in use, so that the memory of a set abandoned without being cleared is given back once its lease
+ * expires (see {@link #expireLeases(long)}).
+ */
+public class IvaratorScheduler {
+    private static final Logger log = Logger.getLogger(IvaratorScheduler.class);
+    
+    private static final String UNKNOWN_QUERY = "(unknown)";
+    
+    private final ThreadPoolExecutor executor;
+    
+    // the queued tasks of each query, in the order in which the queries will be served
+    private final LinkedHashMap<String,Deque<FutureTask<?>>> queued = new LinkedHashMap<>();
+    // the number of running tasks of each query
+    private final Map<String,Integer> running = new HashMap<>();
+    private int runningTotal = 0;
+    
+    // the memory budget for the buffers of the sorted sets, and the memory held by each set
+    private volatile long maxBufferedBytes;
+    private long bufferedBytes = 0;
+    private final Map<Object,Lease> leases = new HashMap<>();
+    
+    private static class Lease {
+        private long bytes = 0;
+        private long lastUsed;
+    }
+    
+    /**
+     * @param executor
+     *            the pool used to run the tasks, which are handed to it no faster than it has threads to run them
+     * @param maxBufferedBytes
+     *            the memory budget for the buffers of the sorted sets, or 0 for no budget
+     */
+    public IvaratorScheduler(ThreadPoolExecutor executor, long maxBufferedBytes) {
+        this.executor = executor;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+    
+    /**
+     * Queue a task behind the other tasks of its query
+     *
+     * @param task
+     *            the task
+     * @param queryId
+     *            the id of the query the task belongs to
+     * @return the future of the task
+     */
+    public synchronized Future<?> submit(Runnable task, String queryId) {
+        FutureTask<?> future = new FutureTask<>(task, null);
+        queued.computeIfAbsent(queryId == null ? UNKNOWN_QUERY : queryId, k -> new ArrayDeque<>()).add(future);
+        dispatch();
+        return future;
+    }
+    
+    /**
+     * Hand queued tasks to the executor while it has free threads
+     */
+    private synchronized void dispatch() {
+        while (runningTotal < executor.getMaximumPoolSize() && !queued.isEmpty()) {
+            // pick the query with the fewest running tasks
+            String queryId = null;
+            int fewest = Integer.MAX_VALUE;
+            for (String candidate : queued.keySet()) {
+                int count = running.getOrDefault(candidate, 0);
+                if (count < fewest) {
+                    queryId = candidate;
+                    fewest = count;
+                }
+            }
+            
+            // take its next task, and move it to the back of the line
+            Deque<FutureTask<?>> tasks = queued.remove(queryId);
+            FutureTask<?> task = tasks.poll();
+            if (!tasks.isEmpty()) {
+                queued.put(queryId, tasks);
+            }
+            
+            // tasks cancelled while queued are simply dropped
+            if (task.isCancelled()) {
+                continue;
+            }
+            
+            running.merge(queryId, 1, Integer::sum);
+            runningTotal++;
+            final String taskQueryId = queryId;
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        finished(taskQueryId);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.error("Unable to run ivarator task for " + taskQueryId, e);
+                task.cancel(false);
+                removeRunning(taskQueryId);
+            }
+        }
+    }
+    
+    private synchronized void finished(String queryId) {
+        removeRunning(queryId);
+        dispatch();
+    }
+    
+    private void removeRunning(String queryId) {
+        runningTotal--;
+        if (running.merge(queryId, -1, Integer::sum) <= 0) {
+            running.remove(queryId);
+        }
+    }
+    
+    /**
+     * Reserve memory for a key added to the buffer of a sorted set, and renew the set's lease
+     *
+     * @param lease
+     *            identifies the set's reservation
+     * @param bytes
+     *            the bytes to reserve
+     * @return false if the budget is exceeded and the set holds at least its share of it, in which case the set should persist its buffer and release the
+     *         memory it holds
+     */
+    public synchronized boolean reserve(Object lease, long bytes) {
+        Lease held = leases.computeIfAbsent(lease, k -> new Lease());
+        held.bytes += bytes;
+        held.lastUsed = System.currentTimeMillis();
+        bufferedBytes += bytes;
+        long max = maxBufferedBytes;
+        return max <= 0 || bufferedBytes <= max || held.bytes < (max / leases.size());
+    }
+    
+    /**
+     * Renew the lease of a sorted set that is still in use
+     *
+     * @param lease
+     *            identifies the set's reservation
+     */
+    public synchronized void touch(Object lease) {
+        Lease held = leases.get(lease);
+        if (held != null) {
+            held.lastUsed = System.currentTimeMillis();
+        }
+    }
+    
+    /**
+     * Release the memory held by the buffer of a sorted set, once it has been persisted or cleared
+     *
+     * @param lease
+     *            identifies the set's reservation
+     */
+    public synchronized void release(Object lease) {
+        Lease held = leases.remove(lease);
+        if (held != null) {
+            bufferedBytes -= held.bytes;
+        }
+    }
+    
+    /**
+     * Release the memory of the sorted sets whose leases have not been renewed within the idle time
+     *
+     * @param idleMillis
+     *            the time after which an unused lease expires
+     * @return the number of leases expired
+     */
+    public synchronized int expireLeases(long idleMillis) {
+        long expiry = System.currentTimeMillis() - idleMillis;
+        int expired = 0;
+        for (Iterator<Lease> it = leases.values().iterator(); it.hasNext();) {
+            Lease held = it.next();
+            if (held.lastUsed < expiry) {
+                bufferedBytes -= held.bytes;
+                it.remove();
+                expired++;
+            }
+        }
+        return expired;
+    }
+    
+    public void setMaxBufferedBytes(long maxBufferedBytes) {
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+    
+    public long getMaxBufferedBytes() {
+        return maxBufferedBytes;
+    }
+    
+    public synchronized long getBufferedBytes() {
+        return bufferedBytes;
+    }
+    
+    public synchronized int getLeaseCount() {
+        return leases.size();
+    }
+    
+    public synchronized int getQueuedCount(String queryId) {
+        Deque<FutureTask<?>> tasks = queued.get(queryId == null ? UNKNOWN_QUERY : queryId);
+        return (tasks == null ? 0 : tasks.size());
+    }
+    
+    public synchronized int getRunningCount(String queryId) {
+        return running.getOrDefault(queryId == null ? UNKNOWN_QUERY : queryId, 0);
+    }
+}
@@ -1,24 +1,31 @@
 package datawave.core.iterators.filter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 import datawave.ingest.protobuf.Uid;
+import datawave.query.util.regex.ByteRegex;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.Filter;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.WritableComparator;
 import org.apache.log4j.Logger;
 
 /**
  * The iterator skips entries in the global index for entries not matching one of a set of matching patterns
- * 
+ * <p>
+ * Literals and patterns are matched against the bytes of the row. Patterns are compiled to a {@link ByteRegex} where possible, and only the patterns that
+ * cannot be (see {@link ByteRegex#compile(String, boolean)}) require the row to be decoded and matched with a {@link Pattern}. When every pattern has been
+ * compiled, {@link #nextPossibleTerm(ByteSequence)} gives the next row which could match, allowing a scan to seek past the rows that cannot.
  */
 public class GlobalIndexTermMatchingFilter extends Filter {
     
@@ -26,8 +33,11 @@ public class GlobalIndexTermMatchingFilter extends Filter {
     public static final String LITERAL = "term.literal.";
     public static final String PATTERN = "term.pattern.";
     public static final String REVERSE_INDEX = "reverse.index";
+    // the patterns which could not be compiled to a byte regex
     private Map<String,Pattern> patterns = new HashMap<>();
-    private Set<String> literals = new HashSet<>();
+    private Map<String,ByteRegex> byteRegexes = new HashMap<>();
+    // the literals as they appear in the row (i.e. reversed for a reverse index) mapped to the configured literal
+    private TreeMap<ByteSequence,String> literals = new TreeMap<>();
     private boolean reverseIndex = false;
     private String matchedValue = null;
     
@@ -39,24 +49,33 @@ public class GlobalIndexTermMatchingFilter extends Filter {
     }
     
     protected void readOptions(Map<String,String> options) {
+        if (options.containsKey(REVERSE_INDEX)) {
+            reverseIndex = Boolean.parseBoolean(options.get(REVERSE_INDEX));
+        }
         int i = 1;
         while (options.containsKey(PATTERN + i)) {
-            patterns.put(options.get(PATTERN + i), getPattern(options.get(PATTERN + i)));
+            String pattern = options.get(PATTERN + i);
+            ByteRegex byteRegex = ByteRegex.compile(pattern, reverseIndex);
+            if (byteRegex != null) {
+                byteRegexes.put(pattern, byteRegex);
+            } else {
+                patterns.put(pattern, getPattern(pattern));
+            }
             i++;
         }
         i = 1;
         while (options.containsKey(LITERAL + i)) {
-            literals.add(options.get(LITERAL + i));
+            String literal = options.get(LITERAL + i);
+            String term = (reverseIndex ? new StringBuilder(literal).reverse().toString() : literal);
+            literals.put(new ArrayByteSequence(term.getBytes(StandardCharsets.UTF_8)), literal);
             i++;
         }
-        if (patterns.isEmpty() && literals.isEmpty()) {
+        if (patterns.isEmpty() && byteRegexes.isEmpty() && literals.isEmpty()) {
             throw new IllegalArgumentException("Missing configured patterns for the GlobalIndexTermMatchingFilter: " + options);
         }
-        if (options.containsKey(REVERSE_INDEX)) {
-            reverseIndex = Boolean.parseBoolean(options.get(REVERSE_INDEX));
-        }
         if (log.isDebugEnabled()) {
-            log.debug("Set the literals to " + literals);
+            log.debug("Set the literals to " + literals.values());
+            log.debug("Set the byte regexes to " + byteRegexes);
             log.debug("Set the patterns to " + patterns);
             log.debug("Set the reverseIndex flag to " + reverseIndex);
         }
@@ -65,7 +84,52 @@ public class GlobalIndexTermMatchingFilter extends Filter {
     @Override
     public boolean accept(Key k, Value v) {
         // The row is the term
-        return matches(k.getRow().toString());
+        matchedValue = null;
+        ByteSequence row = k.getRowData();
+        
+        String literal = literals.get(row);
+        if (literal != null) {
+            matchedValue = literal;
+            return true;
+        }
+        
+        for (Map.Entry<String,ByteRegex> entry : byteRegexes.entrySet()) {
+            if (entry.getValue().matches(row)) {
+                matchedValue = entry.getKey();
+                return true;
+            }
+        }
+        
+        return !patterns.isEmpty() && matches(k.getRow().toString());
+    }
+    
+    /**
+     * @return true if every pattern has been compiled to a byte regex, in which case {@link #nextPossibleTerm(ByteSequence)} may be used
+     */
+    public boolean canSeek() {
+        return patterns.isEmpty();
+    }
+    
+    /**
+     * Find a lower bound for the rows at or after a row that could match. Only valid when {@link #canSeek()}.
+     * 
+     * @param row
+     *            the row
+     * @return the smallest row at or after the given row which could match, or null if no row at or after the row can match
+     */
+    public byte[] nextPossibleTerm(ByteSequence row) {
+        byte[] next = null;
+        ByteSequence literal = literals.ceilingKey(row);
+        if (literal != null) {
+            next = literal.toArray();
+        }
+        for (ByteRegex byteRegex : byteRegexes.values()) {
+            byte[] target = byteRegex.nextPossibleMatch(row);
+            if (target != null && (next == null || WritableComparator.compareBytes(target, 0, target.length, next, 0, next.length) < 0)) {
+                next = target;
+            }
+        }
+        return next;
     }
     
     /**
@@ -93,8 +157,6 @@ public class GlobalIndexTermMatchingFilter extends Filter {
     }
     
     private boolean matches(String term) {
-        matchedValue = null;
-        
         log.trace(term + " -- term");
         if (reverseIndex) {
             StringBuilder buf = new StringBuilder(term);
@@ -102,11 +164,6 @@ public class GlobalIndexTermMatchingFilter extends Filter {
             
         }
         
-        if (literals.contains(term)) {
-            matchedValue = term;
-            return true;
-        }
-        
         for (Map.Entry<String,Pattern> entry : patterns.entrySet()) {
             if (entry.getValue().matcher(term).matches()) {
                 matchedValue = entry.getKey();
@@ -5,10 +5,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 import datawave.query.function.deserializer.DocumentDeserializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
@@ -40,9 +41,32 @@ public class DocumentSerialization {
     
     public static final byte NONE = 0;
     public static final byte GZIP = 1;
+    public static final byte DICTIONARY = 2;
     
     public static final int ZLIB_NUMBER = 2;
     
+    /**
+     * The preset dictionary for {@link #DICTIONARY} compression. Every serialized field carries the class name of its attribute, and usually of its type, so
+     * priming the compressor with them lets even small documents compress well. The most common names are last, as they are cheapest to refer to. The
+     * dictionary must never change once documents have been written with it, so it is built from literals rather than from the classes, which may be renamed
+     * or moved. Add a new compression scheme for a new dictionary.
+     */
+    // @formatter:off
+    private static final byte[] PRESET_DICTIONARY = ("datawave.query.attributes.DateContent"
+                    + "datawave.data.type.GeometryType"
+                    + "datawave.data.type.IpAddressType"
+                    + "datawave.data.type.DateType"
+                    + "datawave.data.type.LcType"
+                    + "datawave.query.attributes.PreNormalizedAttribute"
+                    + "datawave.query.attributes.Numeric"
+                    + "datawave.data.type.NumberType"
+                    + "datawave.data.type.NoOpType"
+                    + "datawave.query.attributes.Attributes"
+                    + "datawave.query.attributes.Content"
+                    + "datawave.data.type.LcNoDiacriticsType"
+                    + "datawave.query.attributes.TypeAttribute").getBytes(StandardCharsets.UTF_8);
+    // @formatter:on
+    
     /**
      * If a user-supplied ReturnType is specified, use it; otherwise, use the default ReturnType of {@link #DEFAULT_RETURN_TYPE}
      *
@@ -102,11 +126,16 @@ public class DocumentSerialization {
     public static byte[] writeBody(byte[] data, int compression) throws InvalidDocumentHeader {
         if (NONE == compression) {
             return data;
-        } else if (GZIP == compression) {
+        } else if (GZIP == compression || DICTIONARY == compression) {
             ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length);
             
+            // the deflater holds native memory, which is released as soon as the document is written rather than whenever it is collected
+            Deflater deflater = new Deflater(ZLIB_NUMBER);
             try {
-                Deflater deflater = new Deflater(ZLIB_NUMBER);
+                if (DICTIONARY == compression) {
+                    deflater.setDictionary(PRESET_DICTIONARY);
+                }
+                // closing the stream finishes the deflater without ending it, as it was not created by the stream
                 DeflaterOutputStream deflate = new DeflaterOutputStream(bytes, deflater, 1024);
                 deflate.write(data);
                 deflate.close();
@@ -114,6 +143,8 @@ public class DocumentSerialization {
             } catch (IOException e) {
                 QueryException qe = new QueryException(DatawaveErrorCode.GZIP_STREAM_WRITE_ERROR, e);
                 throw new InvalidDocumentHeader(qe);
+            } finally {
+                deflater.end();
             }
         } else {
             BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.UNKNOWN_COMPRESSION_SCHEME, MessageFormat.format("{0}", compression));
@@ -140,15 +171,45 @@ public class DocumentSerialization {
         
         if (NONE == compression) {
             return new ByteArrayInputStream(data, 3, data.length - 3);
-        } else if (GZIP == compression) {
-            ByteArrayInputStream bytes = new ByteArrayInputStream(data, 3, data.length - 3);
-            return new InflaterInputStream(bytes, new Inflater(), 1024);
+        } else if (GZIP == compression || DICTIONARY == compression) {
+            return new ByteArrayInputStream(inflate(data, 3, data.length - 3));
         } else {
             BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.UNKNOWN_COMPRESSION_SCHEME, MessageFormat.format("{0}", compression));
             throw new InvalidDocumentHeader(qe);
         }
     }
     
+    /*
+     * Inflates the body of a document in one pass, supplying the preset dictionary if it was compressed with one.
+     */
+    private static byte[] inflate(byte[] data, int offset, int length) throws InvalidDocumentHeader {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data, offset, length);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(length * 2);
+        byte[] buffer = new byte[4096];
+        try {
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(PRESET_DICTIONARY);
+                    } else if (inflater.needsInput()) {
+                        QueryException qe = new QueryException(DatawaveErrorCode.DATA_INVALID_ERROR, "Truncated compressed document");
+                        throw new InvalidDocumentHeader(qe);
+                    }
+                }
+                bytes.write(buffer, 0, read);
+            }
+        } catch (DataFormatException e) {
+            QueryException qe = new QueryException(DatawaveErrorCode.BUFFER_READ_ERROR, e);
+            throw new InvalidDocumentHeader(qe);
+        } finally {
+            inflater.end();
+        }
+        return bytes.toByteArray();
+    }
+    
     /*
      * Reads unsigned short in Intel byte order.
      */
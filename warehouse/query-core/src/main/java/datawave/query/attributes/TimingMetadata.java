@@ -13,6 +13,7 @@ public class TimingMetadata extends Metadata {
     private static final String SEEK_COUNT = "SEEK_COUNT";
     private static final String YIELD_COUNT = "YIELD_COUNT";
     private static final String STAGE_TIMERS = "STAGE_TIMERS";
+    private static final String STAGE_COUNTS = "STAGE_COUNTS";
     private static final String HOST = "HOST";
     
     public long getNextCount() {
@@ -93,6 +94,31 @@ public class TimingMetadata extends Metadata {
         return stageTimers;
     }
     
+    public void addStageCount(String stageName, Numeric count) {
+        Metadata stageCounts = (Metadata) get(STAGE_COUNTS);
+        if (stageCounts == null) {
+            stageCounts = new Metadata();
+            put(STAGE_COUNTS, stageCounts);
+        }
+        stageCounts.put(stageName, count);
+        put(STAGE_COUNTS, stageCounts);
+    }
+    
+    public Map<String,Long> getStageCounts() {
+        Map<String,Long> stageCounts = new LinkedHashMap<>();
+        Attribute stageCountsAttribute = get(STAGE_COUNTS);
+        if (stageCountsAttribute instanceof Metadata) {
+            Metadata stageCountsMetadata = (Metadata) stageCountsAttribute;
+            for (Map.Entry<String,Attribute<? extends Comparable<?>>> entry : stageCountsMetadata.entrySet()) {
+                if (entry.getValue() instanceof Numeric) {
+                    Number value = (Number) entry.getValue().getData();
+                    stageCounts.put(entry.getKey(), value.longValue());
+                }
+            }
+        }
+        return stageCounts;
+    }
+    
     public String getHost() {
         Attribute hostAttribute = get(HOST);
         if (hostAttribute instanceof Content) {
@@ -262,6 +262,15 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
      * By default don't use speculative scanning.
      */
     private boolean speculativeScanning = false;
+    /**
+     * Maximum number of scans in flight against a single tablet server for a query. A non-positive value submits the scans in the order they are planned
+     * regardless of where they are hosted.
+     */
+    private int maxConcurrentScansPerServer = -1;
+    /**
+     * Maximum number of scans in flight for a query when limiting scans per tablet server. A non-positive value uses the limit derived from the query threads.
+     */
+    private int maxConcurrentScansPerQuery = -1;
     private boolean disableEvaluation = false;
     private boolean containsIndexOnlyTerms = false;
     private boolean containsCompositeTerms = false;
@@ -273,6 +282,19 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
      * By default enable using term frequency instead of field index when possible for value lookup
      */
     private boolean allowTermFrequencyLookup = true;
+    /**
+     * Use the heap based AndIterator and OrIterator, which compare field index keys on their shard and uid prefix, for sources that do not require context
+     */
+    private boolean useHeapLogicIterators = false;
+    /**
+     * Order the children of each conjunction in a shard range plan by the counts of their terms in that shard, as read from the global index
+     */
+    private boolean orderByIndexCounts = false;
+    /**
+     * When ordering by index counts, delay a term whose count in a shard is at least this many times the count of the rarest term in its conjunction. A
+     * non-positive value disables delaying.
+     */
+    private double delayCommonTermsRatio = -1.0;
     /**
      * By default we will expand unfielded expressions in a negation. May want to disable if there are non-indexed fields.
      */
@@ -320,6 +342,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private boolean shouldLimitTermExpansionToModel = false;
     private Query query = null;
     private boolean compressServerSideResults = false;
+    private boolean dictionaryCompressServerSideResults = false;
     private boolean indexOnlyFilterFunctionsEnabled = false;
     private boolean compositeFilterFunctionsEnabled = false;
     
@@ -470,11 +493,16 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setReducedResponse(other.isReducedResponse());
         this.setAllowShortcutEvaluation(other.getAllowShortcutEvaluation());
         this.setSpeculativeScanning(other.getSpeculativeScanning());
+        this.setMaxConcurrentScansPerServer(other.getMaxConcurrentScansPerServer());
+        this.setMaxConcurrentScansPerQuery(other.getMaxConcurrentScansPerQuery());
         this.setDisableEvaluation(other.isDisableEvaluation());
         this.setContainsIndexOnlyTerms(other.isContainsIndexOnlyTerms());
         this.setContainsCompositeTerms(other.isContainsCompositeTerms());
         this.setAllowFieldIndexEvaluation(other.isAllowFieldIndexEvaluation());
         this.setAllowTermFrequencyLookup(other.isAllowTermFrequencyLookup());
+        this.setUseHeapLogicIterators(other.isUseHeapLogicIterators());
+        this.setOrderByIndexCounts(other.isOrderByIndexCounts());
+        this.setDelayCommonTermsRatio(other.getDelayCommonTermsRatio());
         this.setExpandUnfieldedNegations(other.isExpandUnfieldedNegations());
         this.setReturnType(other.getReturnType());
         this.setEventPerDayThreshold(other.getEventPerDayThreshold());
@@ -515,6 +543,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setLimitTermExpansionToModel(other.isExpansionLimitedToModelContents());
         this.setQuery(null == other.getQuery() ? null : other.getQuery().duplicate(other.getQuery().getQueryName()));
         this.setCompressServerSideResults(other.isCompressServerSideResults());
+        this.setDictionaryCompressServerSideResults(other.isDictionaryCompressServerSideResults());
         this.setIndexOnlyFilterFunctionsEnabled(other.isIndexOnlyFilterFunctionsEnabled());
         this.setCompositeFilterFunctionsEnabled(other.isCompositeFilterFunctionsEnabled());
         this.setGroupFieldsBatchSize(other.getGroupFieldsBatchSize());
@@ -1706,6 +1735,30 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.allowTermFrequencyLookup = allowTermFrequencyLookup;
     }
     
+    public boolean isUseHeapLogicIterators() {
+        return useHeapLogicIterators;
+    }
+    
+    public void setUseHeapLogicIterators(boolean useHeapLogicIterators) {
+        this.useHeapLogicIterators = useHeapLogicIterators;
+    }
+    
+    public boolean isOrderByIndexCounts() {
+        return orderByIndexCounts;
+    }
+    
+    public void setOrderByIndexCounts(boolean orderByIndexCounts) {
+        this.orderByIndexCounts = orderByIndexCounts;
+    }
+    
+    public double getDelayCommonTermsRatio() {
+        return delayCommonTermsRatio;
+    }
+    
+    public void setDelayCommonTermsRatio(double delayCommonTermsRatio) {
+        this.delayCommonTermsRatio = delayCommonTermsRatio;
+    }
+    
     public boolean isExpandUnfieldedNegations() {
         return expandUnfieldedNegations;
     }
@@ -1774,6 +1827,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.compressServerSideResults = compressServerSideResults;
     }
     
+    public boolean isDictionaryCompressServerSideResults() {
+        return dictionaryCompressServerSideResults;
+    }
+    
+    public void setDictionaryCompressServerSideResults(boolean dictionaryCompressServerSideResults) {
+        this.dictionaryCompressServerSideResults = dictionaryCompressServerSideResults;
+    }
+    
     /**
      * Returns a value indicating whether index-only filter functions (e.g., #INCLUDE, #EXCLUDE) should be enabled. If true, the use of such filters can
      * potentially consume a LOT of memory.
@@ -2025,6 +2086,22 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.speculativeScanning = speculativeScanning;
     }
     
+    public int getMaxConcurrentScansPerServer() {
+        return maxConcurrentScansPerServer;
+    }
+    
+    public void setMaxConcurrentScansPerServer(int maxConcurrentScansPerServer) {
+        this.maxConcurrentScansPerServer = maxConcurrentScansPerServer;
+    }
+    
+    public int getMaxConcurrentScansPerQuery() {
+        return maxConcurrentScansPerQuery;
+    }
+    
+    public void setMaxConcurrentScansPerQuery(int maxConcurrentScansPerQuery) {
+        this.maxConcurrentScansPerQuery = maxConcurrentScansPerQuery;
+    }
+    
     public boolean getSerializeQueryIterator() {
         return serializeQueryIterator;
     }
@@ -66,6 +66,9 @@ public class LogTiming implements Function<Entry<Key,Document>,Entry<Key,Documen
                         timingMetadata.addStageTimer(e.getKey(), new Numeric(e.getValue(), document.getMetadata(), document.isToKeep()));
                     }
                 }
+                for (Entry<String,Long> e : querySpan.getStageCounts().entrySet()) {
+                    timingMetadata.addStageCount(e.getKey(), new Numeric(e.getValue(), document.getMetadata(), document.isToKeep()));
+                }
                 querySpan.reset();
             }
             document.put(TIMING_METADATA, timingMetadata);
@@ -12,30 +12,37 @@ import com.esotericsoftware.kryo.io.Input;
 
 /**
  * Transform Kryo-serialized bytes back into a Document. Ordering of Attributes is <b>not</b> guaranteed across serialization.
- *
- * 
- *
+ * <p>
+ * The Kryo instance and input buffer are kept by the deserializer and reused for every document, so a deserializer is not thread safe. They are created on
+ * first use, so that they are also available after Java serialization.
  */
 public class KryoDocumentDeserializer extends DocumentDeserializer implements Serializable {
     private static final long serialVersionUID = 1L;
     
-    final transient Kryo kryo = new Kryo();
-    
-    public KryoDocumentDeserializer() {
-        kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(true));
-    }
+    private transient Kryo kryo = null;
+    private transient Input input = null;
     
     @Override
     public Document deserialize(InputStream data) {
-        Input input = new Input(data);
-        Document document = kryo.readObject(input, Document.class);
+        if (null == kryo) {
+            kryo = new Kryo();
+            kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(true));
+            input = new Input(4096);
+        }
+        
+        input.setInputStream(data);
+        Document document;
+        try {
+            document = kryo.readObject(input, Document.class);
+        } finally {
+            // don't hold on to the stream of this document
+            input.setInputStream(null);
+        }
         
         if (null == document) {
             throw new RuntimeException("Deserialized null Document");
         }
         
-        input.close();
-        
         return document;
     }
     
@@ -22,13 +22,29 @@ public abstract class DocumentSerializer implements Function<Entry<Key,Document>
     
     public static final int DEFAULT_MIN_COMPRESS_SIZE = 1024 * 10;
     
+    // Dictionary compression is primed with a preset dictionary, which makes it worthwhile for fairly small documents
+    public static final int DICTIONARY_MIN_COMPRESS_SIZE = 512;
+    
     public DocumentSerializer(boolean reducedResponse, boolean allowCompression) {
         this(reducedResponse, allowCompression, DEFAULT_MIN_COMPRESS_SIZE);
     }
     
     public DocumentSerializer(boolean reducedResponse, boolean allowCompression, int minCompressionSize) {
+        this(reducedResponse, allowCompression ? DocumentSerialization.GZIP : DocumentSerialization.NONE, minCompressionSize);
+    }
+    
+    /**
+     * @param reducedResponse
+     *            whether to serialize a reduced response
+     * @param compression
+     *            the compression scheme of {@link DocumentSerialization}. {@link DocumentSerialization#DICTIONARY} can only be read by webservers which know
+     *            the scheme, so it must only be used once they are all upgraded.
+     * @param minCompressionSize
+     *            documents no larger than this, in bytes, are not compressed
+     */
+    public DocumentSerializer(boolean reducedResponse, int compression, int minCompressionSize) {
         this.reducedResponse = reducedResponse;
-        this.compression = allowCompression ? DocumentSerialization.GZIP : DocumentSerialization.NONE;
+        this.compression = compression;
         this.minCompressionSize = minCompressionSize;
         this.concreteName = this.getClass().getSimpleName();
     }
@@ -66,13 +82,18 @@ public abstract class DocumentSerializer implements Function<Entry<Key,Document>
         byte[] header;
         byte[] dataToWrite;
         
-        // Only compress the data if it's greater than minCompressionSize in size (bytes)
+        // Only compress the data if it's greater than minCompressionSize in size (bytes), and keep it only if it is smaller
+        byte[] compressed = null;
         if (DocumentSerialization.NONE != this.compression && document.length > minCompressionSize) {
-            header = DocumentSerialization.getHeader(compression);
-            dataToWrite = DocumentSerialization.writeBody(document, this.compression);
+            compressed = DocumentSerialization.writeBody(document, this.compression);
             if (span.getSpan() != null) {
-                span.getSpan().addKVAnnotation("Compressed size", Integer.toString(dataToWrite.length));
+                span.getSpan().addKVAnnotation("Compressed size", Integer.toString(compressed.length));
             }
+        }
+        
+        if (null != compressed && compressed.length < document.length) {
+            header = DocumentSerialization.getHeader(compression);
+            dataToWrite = compressed;
         } else {
             header = DocumentSerialization.getHeader();
             dataToWrite = document;
@@ -1,7 +1,6 @@
 package datawave.query.function.serializer;
 
-import java.io.ByteArrayOutputStream;
-
+import datawave.query.DocumentSerialization;
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Document;
 import datawave.query.function.KryoCVAwareSerializableSerializer;
@@ -13,14 +12,18 @@ import com.esotericsoftware.kryo.io.Output;
 
 /**
  * Transform the Document into a Kryo-serialized version. Ordering of Attributes is <b>not</b> guaranteed across serialization.
- *
- * 
- *
+ * <p>
+ * The Kryo instance and output buffer are expensive to create, so they are kept by the serializer and reused for every document. Like them, a serializer is
+ * not thread safe.
  */
 public class KryoDocumentSerializer extends DocumentSerializer {
     private static final Logger log = Logger.getLogger(KryoDocumentSerializer.class);
-    final Kryo kryo = new Kryo();
-    final ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+    
+    // output buffers larger than this are not kept, so that one large document does not pin its buffer to the serializer
+    private static final int MAX_KEPT_BUFFER_SIZE = 1024 * 1024;
+    
+    private final Kryo kryo;
+    private Output output = null;
     
     public KryoDocumentSerializer() {
         this(false, false);
@@ -31,21 +34,46 @@ public class KryoDocumentSerializer extends DocumentSerializer {
     }
     
     public KryoDocumentSerializer(boolean reducedResponse, boolean compress) {
-        super(reducedResponse, compress);
-        kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(reducedResponse));
+        this(reducedResponse, compress, false);
+    }
+    
+    /**
+     * @param reducedResponse
+     *            whether to serialize a reduced response
+     * @param compress
+     *            whether to compress documents
+     * @param dictionaryCompression
+     *            compress with {@link DocumentSerialization#DICTIONARY} rather than {@link DocumentSerialization#GZIP}, which also compresses smaller documents
+     */
+    public KryoDocumentSerializer(boolean reducedResponse, boolean compress, boolean dictionaryCompression) {
+        super(reducedResponse, getCompression(compress, dictionaryCompression), dictionaryCompression ? DICTIONARY_MIN_COMPRESS_SIZE
+                        : DEFAULT_MIN_COMPRESS_SIZE);
+        this.kryo = new Kryo();
+        this.kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(reducedResponse));
+    }
+    
+    private static int getCompression(boolean compress, boolean dictionaryCompression) {
+        if (!compress) {
+            return DocumentSerialization.NONE;
+        }
+        return dictionaryCompression ? DocumentSerialization.DICTIONARY : DocumentSerialization.GZIP;
     }
     
     @Override
     public byte[] serialize(Document doc) {
-        baos.reset();
-        
-        Output output = new Output(baos);
+        if (null == output) {
+            output = new Output(4096, -1);
+        } else {
+            output.clear();
+        }
         
         kryo.writeObject(output, doc);
         
-        output.close();
-        
-        return baos.toByteArray();
+        byte[] bytes = output.toBytes();
+        if (output.getBuffer().length > MAX_KEPT_BUFFER_SIZE) {
+            output = null;
+        }
+        return bytes;
     }
     
 }
@@ -106,6 +106,9 @@ public class EntryParser implements Function<Entry<Key,Value>,Tuple2<String,Inde
             }
             info.applyNode(currNode);
         }
+        if (info.count() >= 0) {
+            info.setTermCount(fieldName, literal);
+        }
         return Tuples.tuple(entry.getKey().getColumnQualifier().toString(), info);
     }
     
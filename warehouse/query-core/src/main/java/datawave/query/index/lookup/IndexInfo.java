@@ -4,7 +4,10 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import datawave.query.language.parser.jexl.JexlNodeSet;
@@ -47,6 +50,9 @@ public class IndexInfo implements Writable, UidIntersector {
     protected long count;
     protected ImmutableSortedSet<IndexMatch> uids;
     
+    // the counts of the terms under myNode for this shard or day, as read from the index. These are used to plan the query, and are not serialized
+    protected Map<String,Long> termCounts = Collections.emptyMap();
+    
     public IndexInfo() {
         this.count = 0;
         this.uids = ImmutableSortedSet.of();
@@ -102,6 +108,45 @@ public class IndexInfo implements Writable, UidIntersector {
         return myNode;
     }
     
+    /**
+     * Record the count of this object as the count of a term. This should only be called on an object read from the index for that term.
+     * 
+     * @param fieldName
+     *            the field of the term
+     * @param literal
+     *            the value of the term
+     */
+    public void setTermCount(String fieldName, String literal) {
+        termCounts = Collections.singletonMap(termKey(fieldName, literal), count);
+    }
+    
+    /**
+     * @return the counts of the terms under the node of this object, keyed by {@link #termKey(String, String)}
+     */
+    public Map<String,Long> getTermCounts() {
+        return termCounts;
+    }
+    
+    public static String termKey(String fieldName, String literal) {
+        return fieldName + "\u0000" + literal;
+    }
+    
+    /**
+     * Merge the term counts of two objects. A term found in both (which is possible when a term is repeated in a query) is given the larger of its counts.
+     */
+    protected static Map<String,Long> mergeTermCounts(IndexInfo first, IndexInfo second) {
+        if (first.termCounts.isEmpty()) {
+            return second.termCounts;
+        } else if (second.termCounts.isEmpty()) {
+            return first.termCounts;
+        }
+        Map<String,Long> merged = new HashMap<>(first.termCounts);
+        for (Map.Entry<String,Long> entry : second.termCounts.entrySet()) {
+            merged.merge(entry.getKey(), entry.getValue(), Math::max);
+        }
+        return merged;
+    }
+    
     @Override
     public void readFields(DataInput in) throws IOException {
         VLongWritable count = new VLongWritable();
@@ -176,6 +221,7 @@ public class IndexInfo implements Writable, UidIntersector {
         } else {
             merged.myNode = JexlNodeFactory.createUnwrappedOrNode(nodeSet.getNodes());
         }
+        merged.termCounts = mergeTermCounts(first, o);
         
         return merged;
     }
@@ -306,6 +352,7 @@ public class IndexInfo implements Writable, UidIntersector {
         } else {
             merged.myNode = TreeFlatteningRebuildingVisitor.flatten(JexlNodeFactory.createUnwrappedOrNode(nodeSet.getNodes()));
         }
+        merged.termCounts = mergeTermCounts(this, o);
         return merged;
     }
     
@@ -460,15 +507,21 @@ public class IndexInfo implements Writable, UidIntersector {
             /*
              * A) we are intersecting UNKNOWN AND small
              */
-            if (o.onlyEvents())
-                return intersect(Math.max(count, o.count), o.uids(), o.getNode(), Lists.newArrayList(getNode()), delayedNodes);
+            if (o.onlyEvents()) {
+                IndexInfo merged = intersect(Math.max(count, o.count), o.uids(), o.getNode(), Lists.newArrayList(getNode()), delayedNodes);
+                merged.termCounts = mergeTermCounts(this, o);
+                return merged;
+            }
             
         } else if (o.isInfinite() && !this.isInfinite()) {
             /*
              * B) We are intersecting small and unknown.
              */
-            if (onlyEvents())
-                return intersect(Math.max(count, o.count), uids, getNode(), Lists.newArrayList(o.getNode()), delayedNodes);
+            if (onlyEvents()) {
+                IndexInfo merged = intersect(Math.max(count, o.count), uids, getNode(), Lists.newArrayList(o.getNode()), delayedNodes);
+                merged.termCounts = mergeTermCounts(this, o);
+                return merged;
+            }
         }
         
         IndexInfo merged = new IndexInfo();
@@ -545,6 +598,7 @@ public class IndexInfo implements Writable, UidIntersector {
             nodeSet.add(o.myNode);
         nodeSet.addAll(delayedNodes);
         merged.myNode = TreeFlatteningRebuildingVisitor.flatten(JexlNodeFactory.createAndNode(nodeSet.getNodes()));
+        merged.termCounts = mergeTermCounts(this, o);
         return merged;
     }
     
@@ -3,8 +3,10 @@ package datawave.query.index.lookup;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.visitors.IndexCountOrderingVisitor;
 import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
 import datawave.query.planner.QueryPlan;
 import datawave.query.ranges.RangeFactory;
@@ -16,6 +18,7 @@ import org.apache.log4j.Logger;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 /**
  * Transforms information from the index into ranges used to search the shard table.
@@ -27,6 +30,7 @@ public class TupleToRange implements Function<Tuple2<String,IndexInfo>,Iterator<
     protected JexlNode currentScript;
     protected JexlNode tree = null;
     protected ShardQueryConfiguration config;
+    protected Set<String> indexOnlyFields = Collections.emptySet();
     
     /**
      * @param currentNode
@@ -37,6 +41,17 @@ public class TupleToRange implements Function<Tuple2<String,IndexInfo>,Iterator<
         this.config = config;
     }
     
+    /**
+     * @param currentNode
+     * @param config
+     * @param indexOnlyFields
+     *            fields which cannot be delayed when ordering by index counts
+     */
+    public TupleToRange(JexlNode currentNode, ShardQueryConfiguration config, Set<String> indexOnlyFields) {
+        this(currentNode, config);
+        this.indexOnlyFields = indexOnlyFields;
+    }
+    
     /**
      * Transform the index information into a QueryPlan by building ranges.
      *
@@ -58,6 +73,9 @@ public class TupleToRange implements Function<Tuple2<String,IndexInfo>,Iterator<
             
         } else if (isShardRange(shard)) {
             
+            if (config.isOrderByIndexCounts()) {
+                orderByIndexCounts(indexInfo);
+            }
             return createShardRange(queryNode, shard, indexInfo);
             
         } else {
@@ -66,6 +84,24 @@ public class TupleToRange implements Function<Tuple2<String,IndexInfo>,Iterator<
         }
     }
     
+    /**
+     * Order the node of a shard by the counts of its terms in that shard, so that the rarest term drives the scan and, if configured, common terms are delayed.
+     *
+     * @param indexInfo
+     *            - object built from the counts in the index for a shard
+     */
+    protected void orderByIndexCounts(IndexInfo indexInfo) {
+        if (null == indexInfo.getNode() || indexInfo.getTermCounts().isEmpty()) {
+            return;
+        }
+        Set<String> nonDelayableFields = indexOnlyFields;
+        if (null != config.getCompositeToFieldMap() && !config.getCompositeToFieldMap().isEmpty()) {
+            nonDelayableFields = Sets.union(indexOnlyFields, config.getCompositeToFieldMap().keySet());
+        }
+        indexInfo.setNode(IndexCountOrderingVisitor.order(indexInfo.getNode(), indexInfo.getTermCounts(), config.getDelayCommonTermsRatio(),
+                        nonDelayableFields));
+    }
+    
     /**
      * Building document ranges is only possible if the IndexInfo object contains document ids.
      *
@@ -514,7 +514,8 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             
             if (this.getReturnType() == ReturnType.kryo) {
                 // Serialize the Document using Kryo
-                this.serializedDocuments = Iterators.transform(pipelineDocuments, new KryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+                this.serializedDocuments = Iterators.transform(pipelineDocuments,
+                                new KryoDocumentSerializer(isReducedResponse(), isCompressResults(), isDictionaryCompressResults()));
             } else if (this.getReturnType() == ReturnType.writable) {
                 // Use the Writable interface to serialize the Document
                 this.serializedDocuments = Iterators.transform(pipelineDocuments, new WritableDocumentSerializer(isReducedResponse()));
@@ -547,7 +548,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 // if there is no document to return, then add an empty document
                 // to store the timing metadata
                 this.serializedDocuments = new FinalDocumentTrackingIterator(querySpanCollector, trackingSpan, originalRange, this.serializedDocuments,
-                                this.getReturnType(), this.isReducedResponse(), this.isCompressResults(), this.yield);
+                                this.getReturnType(), this.isReducedResponse(), this.isCompressResults(), this.isDictionaryCompressResults(), this.yield);
             }
             if (log.isTraceEnabled()) {
                 KryoDocumentDeserializer dser = new KryoDocumentDeserializer();
@@ -1468,6 +1469,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 .setQuerySpanCollector(this.querySpanCollector)
                 .setIndexOnlyFields(this.getAllIndexOnlyFields())
                 .setAllowTermFrequencyLookup(this.allowTermFrequencyLookup)
+                .setUseHeapLogicIterators(this.useHeapLogicIterators)
                 .setCompositeMetadata(compositeMetadata)
                 .setExceededOrEvaluationCache(exceededOrEvaluationCache);
         // @formatter:on
@@ -190,6 +190,8 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String ALLOW_TERM_FREQUENCY_LOOKUP = "allow.term.frequency.lookup";
     
+    public static final String USE_HEAP_LOGIC_ITERATORS = "use.heap.logic.iterators";
+    
     public static final String HDFS_SITE_CONFIG_URLS = "hdfs.site.config.urls";
     
     public static final String HDFS_FILE_COMPRESSION_CODEC = "hdfs.file.compression.codec";
@@ -222,6 +224,8 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String COMPRESS_SERVER_SIDE_RESULTS = "compress.server.side.results";
     
+    public static final String DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS = "dictionary.compress.server.side.results";
+    
     public static final String MAX_EVALUATION_PIPELINES = "max.evaluation.pipelines";
     
     public static final String SERIAL_EVALUATION_PIPELINE = "serial.evaluation.pipeline";
@@ -318,6 +322,8 @@ public class QueryOptions implements OptionDescriber {
     
     protected boolean allowTermFrequencyLookup = true;
     
+    protected boolean useHeapLogicIterators = false;
+    
     protected String hdfsSiteConfigURLs = null;
     protected String hdfsFileCompressionCodec = null;
     protected FileSystemCache fsCache = null;
@@ -353,6 +359,8 @@ public class QueryOptions implements OptionDescriber {
     
     protected boolean compressResults = false;
     
+    protected boolean dictionaryCompressResults = false;
+    
     protected Boolean compressedMappings = false;
     protected boolean limitOverride = false;
     
@@ -461,6 +469,7 @@ public class QueryOptions implements OptionDescriber {
         this.yieldThresholdMs = other.yieldThresholdMs;
         
         this.compressResults = other.compressResults;
+        this.dictionaryCompressResults = other.dictionaryCompressResults;
         this.limitFieldsMap = other.limitFieldsMap;
         this.limitFieldsPreQueryEvaluation = other.limitFieldsPreQueryEvaluation;
         this.limitFieldsField = other.limitFieldsField;
@@ -769,6 +778,14 @@ public class QueryOptions implements OptionDescriber {
         this.allowTermFrequencyLookup = allowTermFrequencyLookup;
     }
     
+    public boolean isUseHeapLogicIterators() {
+        return useHeapLogicIterators;
+    }
+    
+    public void setUseHeapLogicIterators(boolean useHeapLogicIterators) {
+        this.useHeapLogicIterators = useHeapLogicIterators;
+    }
+    
     public String getHdfsSiteConfigURLs() {
         return hdfsSiteConfigURLs;
     }
@@ -894,6 +911,14 @@ public class QueryOptions implements OptionDescriber {
         this.compressResults = compressResults;
     }
     
+    public boolean isDictionaryCompressResults() {
+        return dictionaryCompressResults;
+    }
+    
+    public void setDictionaryCompressResults(boolean dictionaryCompressResults) {
+        this.dictionaryCompressResults = dictionaryCompressResults;
+    }
+    
     public Map<String,Integer> getLimitFieldsMap() {
         return limitFieldsMap;
     }
@@ -1031,6 +1056,7 @@ public class QueryOptions implements OptionDescriber {
         options.put(ALLOW_FIELD_INDEX_EVALUATION,
                         "Allow the evaluation to occur purely on values pulled from the field index for queries only accessing indexed fields (default is true)");
         options.put(ALLOW_TERM_FREQUENCY_LOOKUP, "Allow the evaluation to use the term frequencies in lieu of the field index when appropriate");
+        options.put(USE_HEAP_LOGIC_ITERATORS, "Use the heap based AndIterator and OrIterator for field index sources that do not require context");
         options.put(TERM_FREQUENCIES_REQUIRED, "Does the query require gathering term frequencies");
         options.put(TERM_FREQUENCY_FIELDS, "comma-delimited list of fields that contain term frequencies");
         options.put(CONTENT_EXPANSION_FIELDS, "comma-delimited list of fields used for content function expansions");
@@ -1053,6 +1079,8 @@ public class QueryOptions implements OptionDescriber {
         options.put(YIELD_THRESHOLD_MS,
                         "The threshold in milliseconds that the query iterator will evaluate consecutive documents to false before yielding the scan.");
         options.put(COMPRESS_SERVER_SIDE_RESULTS, "GZIP compress the serialized Documents before returning to the webserver");
+        options.put(DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS,
+                        "Compress the serialized Documents with a preset dictionary rather than GZIP. The webservers must be able to read it");
         options.put(MAX_EVALUATION_PIPELINES, "The max number of evaluation pipelines");
         options.put(SERIAL_EVALUATION_PIPELINE, "Forces us to use the serial pipeline. Allows us to still have a single thread for evaluation");
         options.put(MAX_PIPELINE_CACHED_RESULTS, "The max number of non-null evaluated results to cache beyond the evaluation pipelines in queue");
@@ -1396,6 +1424,10 @@ public class QueryOptions implements OptionDescriber {
             this.setAllowTermFrequencyLookup(Boolean.parseBoolean(options.get(ALLOW_TERM_FREQUENCY_LOOKUP)));
         }
         
+        if (options.containsKey(USE_HEAP_LOGIC_ITERATORS)) {
+            this.setUseHeapLogicIterators(Boolean.parseBoolean(options.get(USE_HEAP_LOGIC_ITERATORS)));
+        }
+        
         if (options.containsKey(HDFS_SITE_CONFIG_URLS)) {
             this.setHdfsSiteConfigURLs(options.get(HDFS_SITE_CONFIG_URLS));
         }
@@ -1468,6 +1500,10 @@ public class QueryOptions implements OptionDescriber {
             this.setCompressResults(Boolean.parseBoolean(options.get(COMPRESS_SERVER_SIDE_RESULTS)));
         }
         
+        if (options.containsKey(DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS)) {
+            this.setDictionaryCompressResults(Boolean.parseBoolean(options.get(DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS)));
+        }
+        
         if (options.containsKey(MAX_EVALUATION_PIPELINES)) {
             this.setMaxEvaluationPipelines(Integer.parseInt(options.get(MAX_EVALUATION_PIPELINES)));
         }
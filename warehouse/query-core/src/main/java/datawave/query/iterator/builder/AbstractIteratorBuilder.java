@@ -25,6 +25,8 @@ public abstract class AbstractIteratorBuilder implements IteratorBuilder {
     
     protected boolean sortedUIDs;
     
+    protected boolean useHeapLogicIterators;
+    
     protected JexlNode node;
     
     protected String queryId;
@@ -37,6 +39,28 @@ public abstract class AbstractIteratorBuilder implements IteratorBuilder {
         this.sortedUIDs = sortedUIDs;
     }
     
+    public boolean isUseHeapLogicIterators() {
+        return useHeapLogicIterators;
+    }
+    
+    public void setUseHeapLogicIterators(boolean useHeapLogicIterators) {
+        this.useHeapLogicIterators = useHeapLogicIterators;
+    }
+    
+    /**
+     * @param iterators
+     *            the iterators
+     * @return true if any of the iterators require context for evaluation
+     */
+    protected static boolean isContextRequired(Iterable<NestedIterator> iterators) {
+        for (NestedIterator iterator : iterators) {
+            if (iterator.isContextRequired()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     public boolean isInANot() {
         return inANot;
     }
@@ -2,6 +2,7 @@ package datawave.query.iterator.builder;
 
 import datawave.query.iterator.NestedIterator;
 import datawave.query.iterator.logic.AndIterator;
+import datawave.query.iterator.logic.HeapAndIterator;
 import org.apache.commons.jexl2.parser.JexlNode;
 
 import java.util.HashSet;
@@ -28,6 +29,10 @@ public class AndIteratorBuilder extends AbstractIteratorBuilder {
         if (includes.isEmpty()) {
             throw new IllegalStateException("AndIterator has no inclusive sources!");
         }
+        // the heap based iterator only handles sources that can be evaluated without context
+        if (useHeapLogicIterators && !isContextRequired(includes) && !isContextRequired(excludes)) {
+            return new HeapAndIterator(includes, excludes);
+        }
         return new AndIterator(includes, excludes);
     }
 }
@@ -1,6 +1,7 @@
 package datawave.query.iterator.builder;
 
 import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.logic.HeapOrIterator;
 import datawave.query.iterator.logic.OrIterator;
 
 public class OrIteratorBuilder extends AbstractIteratorBuilder {
@@ -8,6 +9,10 @@ public class OrIteratorBuilder extends AbstractIteratorBuilder {
     @SuppressWarnings({"rawtypes", "unchecked"})
     @Override
     public <T> NestedIterator<T> build() {
+        // the heap based iterator only handles sources that can be evaluated without context
+        if (useHeapLogicIterators && excludes.isEmpty() && !isContextRequired(includes)) {
+            return new HeapOrIterator(includes);
+        }
         return new OrIterator(includes, excludes);
     }
     
@@ -0,0 +1,490 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.SeekableIterator;
+import datawave.query.iterator.Util;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Performs a merge join of the child iterators, like the {@link AndIterator}, for sources of field index keys that do not require context.
+ * <p>
+ * The sources are compared on a reusable copy of the (shard, datatype\0uid) prefix of their heads instead of on transformed keys kept in sorted multimaps. The
+ * includes are intersected leapfrog style: they are kept in a circular array ordered by head, and the lowest source is moved straight to the highest head until
+ * all of the heads agree. The excludes are kept in an array backed heap, so that only the excludes behind a candidate are moved to test it. No keys or map
+ * entries are created as the sources are advanced, which is where most of the time goes when many common terms are intersected.
+ */
+public class HeapAndIterator implements NestedIterator<Key>, SeekableIterator {
+    private static final Logger log = Logger.getLogger(HeapAndIterator.class);
+    
+    private final List<NestedIterator<Key>> includes, excludes;
+    
+    // the includes, their current heads, and the prefixes of their heads, by slot
+    private NestedIterator<Key>[] sources;
+    private Key[] heads;
+    private KeyPrefix[] prefixes;
+    // the slots of the includes ordered by head, starting at the lowest
+    private int[] order, sorted;
+    private int lowest;
+    private boolean exhausted;
+    
+    // the excludes, their current heads, and the prefixes of their heads, by slot
+    private NestedIterator<Key>[] filters;
+    private KeyPrefix[] filterPrefixes;
+    private KeyPrefixHeap filterHeap;
+    private int[] filterMoves;
+    
+    private final KeyPrefix target = new KeyPrefix();
+    
+    private Key prev;
+    private Key next;
+    
+    private Document prevDocument, document;
+    private Key evaluationContext;
+    private final KeyPrefix contextPrefix = new KeyPrefix();
+    
+    public HeapAndIterator(Iterable<NestedIterator<Key>> sources) {
+        this(sources, null);
+    }
+    
+    public HeapAndIterator(Iterable<NestedIterator<Key>> sources, Iterable<NestedIterator<Key>> filters) {
+        includes = new LinkedList<>();
+        for (NestedIterator<Key> src : sources) {
+            if (src.isContextRequired()) {
+                throw new IllegalArgumentException("HeapAndIterator does not support sources which require context: " + src);
+            }
+            includes.add(src);
+        }
+        
+        if (filters == null) {
+            excludes = Collections.emptyList();
+        } else {
+            excludes = new LinkedList<>();
+            for (NestedIterator<Key> filter : filters) {
+                if (filter.isContextRequired()) {
+                    throw new IllegalArgumentException("HeapAndIterator does not support filters which require context: " + filter);
+                }
+                excludes.add(filter);
+            }
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    public void initialize() {
+        int size = includes.size();
+        sources = includes.toArray(new NestedIterator[size]);
+        heads = new Key[size];
+        prefixes = new KeyPrefix[size];
+        order = new int[size];
+        sorted = new int[size];
+        lowest = 0;
+        exhausted = (size == 0);
+        for (int slot = 0; slot < size && !exhausted; slot++) {
+            prefixes[slot] = new KeyPrefix();
+            order[slot] = slot;
+            NestedIterator<Key> source = sources[slot];
+            source.initialize();
+            if (source.hasNext()) {
+                setHead(slot, source.next());
+            } else {
+                // If a source has no valid records, it shouldn't throw an exception. It should just return no results.
+                // For an And, once one source is exhausted, the entire tree is exhausted
+                exhausted = true;
+            }
+        }
+        if (!exhausted) {
+            sortOrder();
+        }
+        
+        int filterSize = excludes.size();
+        filters = excludes.toArray(new NestedIterator[filterSize]);
+        filterPrefixes = new KeyPrefix[filterSize];
+        filterMoves = new int[filterSize];
+        for (int slot = 0; slot < filterSize; slot++) {
+            filterPrefixes[slot] = new KeyPrefix();
+        }
+        filterHeap = new KeyPrefixHeap(filterPrefixes);
+        for (int slot = 0; slot < filterSize; slot++) {
+            NestedIterator<Key> filter = filters[slot];
+            filter.initialize();
+            if (filter.hasNext()) {
+                filterPrefixes[slot].set(filter.next());
+                filterHeap.add(slot);
+            }
+        }
+        
+        next();
+    }
+    
+    public boolean isInitialized() {
+        return sources != null;
+    }
+    
+    /**
+     * return the previously found next and set its document. If the includes are not exhausted, leapfrog the lowest include to the highest head until all of
+     * the heads match a value that is not filtered, advancing all includes past the match and set next/document for the next call
+     *
+     * @return the previously found next
+     */
+    public Key next() {
+        if (!isInitialized()) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        
+        prev = next;
+        prevDocument = document;
+        next = null;
+        
+        // advance anything less than the evaluation context to the evaluation context
+        if (evaluationContext != null && !exhausted) {
+            contextPrefix.set(evaluationContext);
+            moveHeads(contextPrefix, evaluationContext);
+        }
+        
+        while (!exhausted) {
+            int size = sources.length;
+            int lowestSlot = order[lowest];
+            int highestSlot = order[lowest == 0 ? size - 1 : lowest - 1];
+            
+            // if any value is beyond the evaluationContext it's not possible to intersect
+            if (evaluationContext != null && prefixes[highestSlot].compareTo(contextPrefix) > 0) {
+                break;
+            }
+            
+            if (prefixes[lowestSlot].compareTo(prefixes[highestSlot]) == 0) {
+                // the heads are ordered, so the lowest and highest being equal means all of them are. Make sure this value isn't filtered
+                boolean filtered = isFiltered(prefixes[lowestSlot]);
+                if (!filtered) {
+                    // found a match, set next/document and advance
+                    next = heads[lowestSlot];
+                    document = Util.buildNewDocument(includes);
+                }
+                advanceHeads();
+                if (!filtered) {
+                    break;
+                }
+            } else {
+                // haven't converged yet, move the lowest head to the highest, which makes it the highest
+                Key head = sources[lowestSlot].move(prefixes[highestSlot].toKey());
+                if (head == null) {
+                    exhausted = true;
+                } else {
+                    setHead(lowestSlot, head);
+                    lowest = (lowest + 1) % size;
+                }
+            }
+        }
+        
+        return prev;
+    }
+    
+    /**
+     * Checks a candidate against the excludes, advancing the excludes that are behind it up to the candidate
+     *
+     * @param candidate
+     *            the candidate
+     * @return true if any of the excludes match the candidate
+     */
+    private boolean isFiltered(KeyPrefix candidate) {
+        if (filterHeap.isEmpty()) {
+            return false;
+        }
+        
+        int count = 0;
+        while (filterHeap.peekLessThan(candidate)) {
+            filterMoves[count++] = filterHeap.poll();
+        }
+        if (count > 0) {
+            Key to = candidate.toKey();
+            for (int i = 0; i < count; i++) {
+                int slot = filterMoves[i];
+                Key head = filters[slot].move(to);
+                if (head != null) {
+                    filterPrefixes[slot].set(head);
+                    filterHeap.add(slot);
+                }
+            }
+        }
+        
+        return filterHeap.peekEquals(candidate);
+    }
+    
+    /**
+     * Advances all includes past the current match. If an include fails, it is dropped as long as there are other includes left.
+     */
+    private void advanceHeads() {
+        for (int slot = 0; slot < sources.length && !exhausted; slot++) {
+            NestedIterator<Key> source = sources[slot];
+            try {
+                if (source.hasNext()) {
+                    Key head = source.next();
+                    if (head == null) {
+                        exhausted = true;
+                    } else {
+                        setHead(slot, head);
+                    }
+                } else {
+                    exhausted = true;
+                }
+            } catch (Exception e) {
+                // only need to actually fail if we have nothing left in the AND clause
+                if (sources.length == 1) {
+                    throw e;
+                } else {
+                    log.warn("Failed include lookup, but dropping in lieu of other terms", e);
+                    dropInclude(slot--);
+                }
+            }
+        }
+        if (!exhausted) {
+            sortOrder();
+        }
+    }
+    
+    /**
+     * Move every include with a head less than the target prefix to the target, and reorder the includes
+     *
+     * @param prefix
+     *            the prefix of the target
+     * @param to
+     *            the target
+     */
+    private void moveHeads(KeyPrefix prefix, Key to) {
+        for (int slot = 0; slot < sources.length && !exhausted; slot++) {
+            if (prefixes[slot].compareTo(prefix) < 0) {
+                Key head = sources[slot].move(to);
+                if (head == null) {
+                    exhausted = true;
+                } else {
+                    setHead(slot, head);
+                }
+            }
+        }
+        if (!exhausted) {
+            sortOrder();
+        }
+    }
+    
+    private void setHead(int slot, Key head) {
+        heads[slot] = head;
+        prefixes[slot].set(head);
+    }
+    
+    /**
+     * Insertion sort of the include slots by head, which are already mostly in order
+     */
+    private void sortOrder() {
+        int size = order.length;
+        for (int i = 0; i < size; i++) {
+            sorted[i] = order[(lowest + i) % size];
+        }
+        for (int i = 1; i < size; i++) {
+            int slot = sorted[i];
+            int j = i - 1;
+            while (j >= 0 && prefixes[sorted[j]].compareTo(prefixes[slot]) > 0) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = slot;
+        }
+        System.arraycopy(sorted, 0, order, 0, size);
+        lowest = 0;
+    }
+    
+    /**
+     * Drop a failed include from the intersection
+     *
+     * @param slot
+     *            the slot of the include
+     */
+    @SuppressWarnings("unchecked")
+    private void dropInclude(int slot) {
+        includes.remove(sources[slot]);
+        int size = sources.length - 1;
+        NestedIterator<Key>[] newSources = new NestedIterator[size];
+        Key[] newHeads = new Key[size];
+        KeyPrefix[] newPrefixes = new KeyPrefix[size];
+        for (int i = 0, j = 0; i <= size; i++) {
+            if (i != slot) {
+                newSources[j] = sources[i];
+                newHeads[j] = heads[i];
+                newPrefixes[j] = prefixes[i];
+                j++;
+            }
+        }
+        sources = newSources;
+        heads = newHeads;
+        prefixes = newPrefixes;
+        order = new int[size];
+        sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        lowest = 0;
+    }
+    
+    public void remove() {
+        throw new UnsupportedOperationException("This iterator does not support remove.");
+    }
+    
+    public boolean hasNext() {
+        if (!isInitialized()) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        
+        return next != null;
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        // seek all of the iterators. Drop those that fail, as long as we have at least one include left
+        for (NestedIterator<Key> child : new ArrayList<>(includes)) {
+            try {
+                for (NestedIterator<Key> itr : child.leaves()) {
+                    if (itr instanceof SeekableIterator) {
+                        ((SeekableIterator) itr).seek(range, columnFamilies, inclusive);
+                    }
+                }
+            } catch (Exception e) {
+                if (includes.size() == 1) {
+                    throw e;
+                } else {
+                    log.warn("Failed include lookup, but dropping in lieu of other terms", e);
+                    if (isInitialized()) {
+                        dropInclude(indexOf(child));
+                    } else {
+                        includes.remove(child);
+                    }
+                }
+            }
+        }
+        for (NestedIterator<Key> child : excludes) {
+            for (NestedIterator<Key> itr : child.leaves()) {
+                if (itr instanceof SeekableIterator) {
+                    ((SeekableIterator) itr).seek(range, columnFamilies, inclusive);
+                }
+            }
+        }
+        
+        if (isInitialized()) {
+            // advance throwing next away and re-populating next with what should be
+            if (!exhausted) {
+                sortOrder();
+            }
+            next();
+        }
+    }
+    
+    private int indexOf(NestedIterator<Key> source) {
+        for (int slot = 0; slot < sources.length; slot++) {
+            if (sources[slot] == source) {
+                return slot;
+            }
+        }
+        throw new IllegalStateException("Unknown include " + source);
+    }
+    
+    /**
+     * Test all layers of cache for the minimum, then if necessary advance heads
+     *
+     * @param minimum
+     *            the minimum to return
+     * @return the first greater than or equal to minimum or null if none exists
+     * @throws IllegalStateException
+     *             if prev is greater than or equal to minimum
+     */
+    public Key move(Key minimum) {
+        if (!isInitialized()) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        
+        if (prev != null && prev.compareTo(minimum) >= 0) {
+            throw new IllegalStateException("Tried to call move when already at or beyond move point: topkey=" + prev + ", movekey=" + minimum);
+        }
+        
+        // test if the cached next is already beyond the minimum
+        if (next != null && next.compareTo(minimum) >= 0) {
+            // simply advance to next
+            return next();
+        }
+        
+        if (!exhausted) {
+            target.set(minimum);
+            moveHeads(target, minimum);
+        }
+        
+        // next < minimum, so advance throwing next away and re-populating next with what should be >= minimum
+        next();
+        
+        // now as long as the newly computed next exists return it and advance
+        if (hasNext()) {
+            return next();
+        } else {
+            exhausted = true;
+            return null;
+        }
+    }
+    
+    public Collection<NestedIterator<Key>> leaves() {
+        LinkedList<NestedIterator<Key>> leaves = new LinkedList<>();
+        // treat this node as a leaf to allow us to pass through the seek method and appropriately drop branches if possible.
+        leaves.add(this);
+        return leaves;
+    }
+    
+    @Override
+    public Collection<NestedIterator<Key>> children() {
+        ArrayList<NestedIterator<Key>> children = new ArrayList<>(includes.size() + excludes.size());
+        
+        children.addAll(includes);
+        children.addAll(excludes);
+        
+        return children;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("HeapAndIterator: ");
+        
+        sb.append("Includes: ");
+        sb.append(includes);
+        sb.append(", Excludes: ");
+        sb.append(excludes);
+        
+        return sb.toString();
+    }
+    
+    public Document document() {
+        return prevDocument;
+    }
+    
+    /**
+     * As long as there is at least one sourced included no context is required
+     *
+     * @return true if there are no includes, false otherwise
+     */
+    @Override
+    public boolean isContextRequired() {
+        return includes.isEmpty();
+    }
+    
+    /**
+     * This context will be used as an anchor point for the heads during next calls
+     *
+     * @param context
+     */
+    @Override
+    public void setContext(Key context) {
+        this.evaluationContext = context;
+    }
+}
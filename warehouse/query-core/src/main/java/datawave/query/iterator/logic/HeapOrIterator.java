@@ -0,0 +1,230 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.Util;
+import org.apache.accumulo.core.data.Key;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Performs a deduping merge of iterators, like the {@link OrIterator}, for sources of field index keys that do not require context.
+ * <p>
+ * Instead of a sorted multimap of transformed keys to sources, the heads of the sources are kept in an array backed heap, ordered by a reusable copy of the
+ * (shard, datatype\0uid) prefix of each head. No keys or map entries are created as the sources are advanced, which is where most of the time goes when a
+ * union of common terms is merged.
+ */
+public class HeapOrIterator implements NestedIterator<Key> {
+    private final List<NestedIterator<Key>> includes;
+    
+    // the sources, their current heads, and the prefixes of their heads, by slot
+    private NestedIterator<Key>[] sources;
+    private Key[] heads;
+    private KeyPrefix[] prefixes;
+    private KeyPrefixHeap heap;
+    
+    // the slots (and sources) matching the lowest head, reused across calls to next
+    private int[] matched;
+    private final List<NestedIterator<Key>> matchedSources = new ArrayList<>();
+    private final KeyPrefix target = new KeyPrefix();
+    
+    private Key prev;
+    private Key next;
+    
+    private Document prevDocument, document;
+    
+    public HeapOrIterator(Iterable<NestedIterator<Key>> sources) {
+        includes = new LinkedList<>();
+        for (NestedIterator<Key> src : sources) {
+            if (src.isContextRequired()) {
+                throw new IllegalArgumentException("HeapOrIterator does not support sources which require context: " + src);
+            }
+            includes.add(src);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    public void initialize() {
+        int size = includes.size();
+        sources = includes.toArray(new NestedIterator[size]);
+        heads = new Key[size];
+        prefixes = new KeyPrefix[size];
+        matched = new int[size];
+        for (int slot = 0; slot < size; slot++) {
+            prefixes[slot] = new KeyPrefix();
+        }
+        heap = new KeyPrefixHeap(prefixes);
+        
+        for (int slot = 0; slot < size; slot++) {
+            sources[slot].initialize();
+            advance(slot);
+        }
+        
+        next();
+    }
+    
+    public boolean hasNext() {
+        if (null == heap) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        
+        return next != null;
+    }
+    
+    /**
+     * return the previously found next and set its document. If there are more heads, take the lowest, advancing all sources tied to the lowest and set
+     * next/document for the next call
+     *
+     * @return the previously found next
+     */
+    public Key next() {
+        prev = next;
+        prevDocument = document;
+        
+        if (heap.isEmpty()) {
+            next = null;
+            return prev;
+        }
+        
+        // take the lowest head, and every other head with the same prefix
+        int count = 0;
+        int lowest = heap.poll();
+        matched[count++] = lowest;
+        while (heap.peekEquals(prefixes[lowest])) {
+            matched[count++] = heap.poll();
+        }
+        
+        next = heads[lowest];
+        matchedSources.clear();
+        for (int i = 0; i < count; i++) {
+            matchedSources.add(sources[matched[i]]);
+        }
+        document = Util.buildNewDocument(matchedSources);
+        
+        for (int i = 0; i < count; i++) {
+            advance(matched[i]);
+        }
+        
+        return prev;
+    }
+    
+    /**
+     * Test all layers of cache for the minimum, then if necessary advance heads
+     *
+     * @param minimum
+     *            the minimum to return
+     * @return the first greater than or equal to minimum or null if none exists
+     * @throws IllegalStateException
+     *             if prev is greater than or equal to minimum
+     */
+    public Key move(Key minimum) {
+        if (null == heap) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        
+        // test preconditions
+        if (prev != null && prev.compareTo(minimum) >= 0) {
+            throw new IllegalStateException("Tried to call move when already at or beyond move point: topkey=" + prev + ", movekey=" + minimum);
+        }
+        
+        // test if the cached next is already beyond the minimum
+        if (next != null && next.compareTo(minimum) >= 0) {
+            // simply advance to next
+            return next();
+        }
+        
+        // move each source that is under the minimum into the target range before recalculating the next
+        target.set(minimum);
+        int count = 0;
+        while (heap.peekLessThan(target)) {
+            matched[count++] = heap.poll();
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = matched[i];
+            Key head = sources[slot].move(minimum);
+            if (head != null) {
+                heads[slot] = head;
+                prefixes[slot].set(head);
+                heap.add(slot);
+            } else {
+                heads[slot] = null;
+            }
+        }
+        
+        // next < minimum, so advance throwing next away and re-populating next with what should be >= minimum
+        next();
+        
+        // now as long as the newly computed next exists return it and advance
+        if (hasNext()) {
+            return next();
+        } else {
+            heap.clear();
+            return null;
+        }
+    }
+    
+    /**
+     * Advance a source which is not in the heap, and add it back to the heap unless it has been exhausted
+     *
+     * @param slot
+     *            the slot of the source
+     */
+    private void advance(int slot) {
+        NestedIterator<Key> source = sources[slot];
+        if (source.hasNext()) {
+            Key head = source.next();
+            heads[slot] = head;
+            prefixes[slot].set(head);
+            heap.add(slot);
+        } else {
+            heads[slot] = null;
+        }
+    }
+    
+    public Collection<NestedIterator<Key>> leaves() {
+        LinkedList<NestedIterator<Key>> leaves = new LinkedList<>();
+        for (NestedIterator<Key> itr : includes) {
+            leaves.addAll(itr.leaves());
+        }
+        return leaves;
+    }
+    
+    public void remove() {
+        throw new UnsupportedOperationException("This iterator does not support remove.");
+    }
+    
+    public Document document() {
+        return prevDocument;
+    }
+    
+    @Override
+    public Collection<NestedIterator<Key>> children() {
+        return new ArrayList<>(includes);
+    }
+    
+    @Override
+    public String toString() {
+        return "HeapOrIterator: Includes: " + includes;
+    }
+    
+    /**
+     * None of the sources require context
+     *
+     * @return false
+     */
+    @Override
+    public boolean isContextRequired() {
+        return false;
+    }
+    
+    /**
+     * Context is only considered by an {@link OrIterator} when evaluating sources which require context, which this iterator does not have
+     *
+     * @param context
+     */
+    @Override
+    public void setContext(Key context) {}
+}
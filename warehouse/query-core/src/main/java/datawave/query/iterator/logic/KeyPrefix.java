@@ -0,0 +1,60 @@
+package datawave.query.iterator.logic;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * A reusable copy of the row and column family of a key, which for the keys passed through the logic iterators is the shard and the datatype\0uid of a
+ * document. The prefix is compared on its bytes alone, so that the logic iterators can compare the heads of their sources without creating (and comparing) a
+ * transformed key for every value of every source.
+ */
+final class KeyPrefix {
+    private static final byte[] EMPTY = new byte[0];
+    
+    private byte[] bytes = new byte[64];
+    private int rowLength = 0;
+    private int length = 0;
+    
+    /**
+     * Copy the row and column family of a key into this prefix
+     *
+     * @param key
+     *            the key
+     */
+    void set(Key key) {
+        ByteSequence row = key.getRowData();
+        ByteSequence cf = key.getColumnFamilyData();
+        int newLength = row.length() + cf.length();
+        if (bytes.length < newLength) {
+            bytes = new byte[Math.max(newLength, bytes.length * 2)];
+        }
+        System.arraycopy(row.getBackingArray(), row.offset(), bytes, 0, row.length());
+        System.arraycopy(cf.getBackingArray(), cf.offset(), bytes, row.length(), cf.length());
+        rowLength = row.length();
+        length = newLength;
+    }
+    
+    /**
+     * Compare the rows, and then the column families, of two prefixes. This is equivalent to comparing the keys they were copied from on
+     * {@link org.apache.accumulo.core.data.PartialKey#ROW_COLFAM}.
+     *
+     * @param other
+     *            the other prefix
+     * @return a negative value, zero, or a positive value if this prefix is less than, equal to, or greater than the other
+     */
+    int compareTo(KeyPrefix other) {
+        int result = WritableComparator.compareBytes(bytes, 0, rowLength, other.bytes, 0, other.rowLength);
+        if (result == 0) {
+            result = WritableComparator.compareBytes(bytes, rowLength, length - rowLength, other.bytes, other.rowLength, other.length - other.rowLength);
+        }
+        return result;
+    }
+    
+    /**
+     * @return a key with the row and column family of this prefix, equivalent to the key produced by {@link datawave.query.iterator.Util#keyTransformer()}
+     */
+    Key toKey() {
+        return new Key(bytes, 0, rowLength, bytes, rowLength, length - rowLength, EMPTY, 0, 0, EMPTY, 0, 0, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,109 @@
+package datawave.query.iterator.logic;
+
+/**
+ * An array backed min-heap of the sources of a logic iterator, ordered by the prefixes of their current heads. The sources are referenced by their index (slot)
+ * in the prefix array, and sources with equal prefixes are ordered by slot so that the order is deterministic.
+ */
+final class KeyPrefixHeap {
+    private final KeyPrefix[] prefixes;
+    private final int[] heap;
+    private int size = 0;
+    
+    /**
+     * @param prefixes
+     *            the prefixes of the heads of the sources, which must not be changed while the source is in the heap
+     */
+    KeyPrefixHeap(KeyPrefix[] prefixes) {
+        this.prefixes = prefixes;
+        this.heap = new int[prefixes.length];
+    }
+    
+    void add(int slot) {
+        heap[size] = slot;
+        siftUp(size++);
+    }
+    
+    /**
+     * @return the slot of the source with the lowest prefix
+     */
+    int peek() {
+        return heap[0];
+    }
+    
+    /**
+     * @return the slot of the source with the lowest prefix, which is removed from the heap
+     */
+    int poll() {
+        int top = heap[0];
+        heap[0] = heap[--size];
+        if (size > 0) {
+            siftDown(0);
+        }
+        return top;
+    }
+    
+    /**
+     * @param prefix
+     *            a prefix
+     * @return true if the lowest prefix in the heap is less than the supplied prefix
+     */
+    boolean peekLessThan(KeyPrefix prefix) {
+        return size > 0 && prefixes[heap[0]].compareTo(prefix) < 0;
+    }
+    
+    /**
+     * @param prefix
+     *            a prefix
+     * @return true if the lowest prefix in the heap is equal to the supplied prefix
+     */
+    boolean peekEquals(KeyPrefix prefix) {
+        return size > 0 && prefixes[heap[0]].compareTo(prefix) == 0;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    void clear() {
+        size = 0;
+    }
+    
+    private void siftUp(int index) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(slot, heap[parent]) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+    
+    private void siftDown(int index) {
+        int slot = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            if (child + 1 < size && compare(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (compare(slot, heap[child]) <= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+    
+    private int compare(int slot1, int slot2) {
+        int result = prefixes[slot1].compareTo(prefixes[slot2]);
+        return (result == 0 ? Integer.compare(slot1, slot2) : result);
+    }
+}
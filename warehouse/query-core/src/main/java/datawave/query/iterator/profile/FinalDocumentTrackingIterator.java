@@ -37,17 +37,20 @@ public class FinalDocumentTrackingIterator implements Iterator<Map.Entry<Key,Val
     private DocumentSerialization.ReturnType returnType = null;
     private boolean isReducedResponse = false;
     private boolean isCompressResults = false;
+    private boolean isDictionaryCompressResults = false;
     private QuerySpanCollector querySpanCollector = null;
     private QuerySpan querySpan = null;
     private YieldCallback yield = null;
     
     public FinalDocumentTrackingIterator(QuerySpanCollector querySpanCollector, QuerySpan querySpan, Range seekRange, Iterator<Map.Entry<Key,Value>> itr,
-                    DocumentSerialization.ReturnType returnType, boolean isReducedResponse, boolean isCompressResults, YieldCallback<Key> yield) {
+                    DocumentSerialization.ReturnType returnType, boolean isReducedResponse, boolean isCompressResults, boolean isDictionaryCompressResults,
+                    YieldCallback<Key> yield) {
         this.itr = itr;
         this.seekRange = seekRange;
         this.returnType = returnType;
         this.isReducedResponse = isReducedResponse;
         this.isCompressResults = isCompressResults;
+        this.isDictionaryCompressResults = isDictionaryCompressResults;
         this.querySpanCollector = querySpanCollector;
         this.querySpan = querySpan;
         this.yield = yield;
@@ -95,7 +98,8 @@ public class FinalDocumentTrackingIterator implements Iterator<Map.Entry<Key,Val
         
         if (returnType == DocumentSerialization.ReturnType.kryo) {
             // Serialize the Document using Kryo
-            serializedDocuments = Iterators.transform(emptyDocumentIterator, new KryoDocumentSerializer(isReducedResponse, isCompressResults));
+            serializedDocuments = Iterators.transform(emptyDocumentIterator,
+                            new KryoDocumentSerializer(isReducedResponse, isCompressResults, isDictionaryCompressResults));
         } else if (returnType == DocumentSerialization.ReturnType.writable) {
             // Use the Writable interface to serialize the Document
             serializedDocuments = Iterators.transform(emptyDocumentIterator, new WritableDocumentSerializer(isReducedResponse));
@@ -77,6 +77,11 @@ public class MultiThreadedQuerySpan extends QuerySpan {
         getThreadSpecificQuerySpan().addStageTimer(stageName, elapsed);
     }
     
+    @Override
+    public void addStageCount(Stage stageName, long count) {
+        getThreadSpecificQuerySpan().addStageCount(stageName, count);
+    }
+    
     @Override
     public Long getStageTimer(String stageName) {
         return getThreadSpecificQuerySpan().getStageTimer(stageName);
@@ -92,6 +97,16 @@ public class MultiThreadedQuerySpan extends QuerySpan {
         return getThreadSpecificQuerySpan().getStageTimerTotal();
     }
     
+    @Override
+    public Long getStageCount(String stageName) {
+        return getThreadSpecificQuerySpan().getStageCount(stageName);
+    }
+    
+    @Override
+    public Map<String,Long> getStageCounts() {
+        return getThreadSpecificQuerySpan().getStageCounts();
+    }
+    
     @Override
     public void setSeek(long seek) {
         getThreadSpecificQuerySpan().setSeek(seek);
@@ -117,6 +132,11 @@ public class MultiThreadedQuerySpan extends QuerySpan {
         getThreadSpecificQuerySpan().setStageTimers(stageTimers);
     }
     
+    @Override
+    public void setStageCounts(Map<String,Long> stageCounts) {
+        getThreadSpecificQuerySpan().setStageCounts(stageCounts);
+    }
+    
     public String toString() {
         return getThreadSpecificQuerySpan().toString();
     }
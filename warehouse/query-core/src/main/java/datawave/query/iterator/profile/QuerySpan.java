@@ -34,6 +34,8 @@ public class QuerySpan {
     
     private long stageTimerTotal = 0;
     
+    private Map<String,Long> stageCounts = new LinkedHashMap<>();
+    
     public enum Stage {
         EmptyTree,
         DocumentSpecificTree,
@@ -50,7 +52,10 @@ public class QuerySpan {
         KeyAdjudicator,
         DocumentMetadata,
         LimitFields,
-        RemoveGroupingContext
+        RemoveGroupingContext,
+        IvaratorQueueWait,
+        IvaratorFill,
+        IvaratorPersistedBytes
     };
     
     public QuerySpan(QueryStatsDClient client) {
@@ -166,6 +171,7 @@ public class QuerySpan {
         yield = false;
         stageTimerTotal = 0;
         stageTimers.clear();
+        stageCounts.clear();
     }
     
     public void addStageTimer(QuerySpan.Stage stageName, long elapsed) {
@@ -176,8 +182,25 @@ public class QuerySpan {
         }
     }
     
+    /**
+     * Add to a count kept alongside the stage timers (for example the bytes persisted by the ivarators). Counts are kept apart from the stage timers and are
+     * not part of the stage timer total.
+     * 
+     * @param stageName
+     *            the stage
+     * @param count
+     *            the amount to add to the count
+     */
+    public void addStageCount(QuerySpan.Stage stageName, long count) {
+        stageCounts.merge(stageName.toString(), count, Long::sum);
+        if (client != null) {
+            client.count(stageName.toString(), count, 1.0);
+        }
+    }
+    
     public boolean hasEntries() {
-        if (this.getSeekCount() > 0 || this.getNextCount() > 0 || this.getYield() || this.getSourceCount() > 0 || !this.stageTimers.isEmpty()) {
+        if (this.getSeekCount() > 0 || this.getNextCount() > 0 || this.getYield() || this.getSourceCount() > 0 || !this.stageTimers.isEmpty()
+                        || !this.stageCounts.isEmpty()) {
             return true;
         } else {
             return false;
@@ -196,6 +219,14 @@ public class QuerySpan {
         return stageTimerTotal;
     }
     
+    public Long getStageCount(String stageName) {
+        return stageCounts.get(stageName);
+    }
+    
+    public Map<String,Long> getStageCounts() {
+        return stageCounts;
+    }
+    
     public void setSeek(long seek) {
         this.seek = seek;
     }
@@ -218,4 +249,11 @@ public class QuerySpan {
             addStageTimer(QuerySpan.Stage.valueOf(entry.getKey()), entry.getValue());
         }
     }
+    
+    public void setStageCounts(Map<String,Long> stageCounts) {
+        this.stageCounts.clear();
+        for (Map.Entry<String,Long> entry : stageCounts.entrySet()) {
+            addStageCount(QuerySpan.Stage.valueOf(entry.getKey()), entry.getValue());
+        }
+    }
 }
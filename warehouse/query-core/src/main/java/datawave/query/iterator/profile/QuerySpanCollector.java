@@ -13,6 +13,7 @@ public class QuerySpanCollector {
     private AtomicBoolean yield = new AtomicBoolean();
     private AtomicLong sourceCount = new AtomicLong();
     private Map<String,Long> stageTimers = new LinkedHashMap<>();
+    private Map<String,Long> stageCounts = new LinkedHashMap<>();
     private Logger log = Logger.getLogger(QuerySpan.class);
     
     public void addQuerySpan(QuerySpan querySpan) {
@@ -33,6 +34,9 @@ public class QuerySpanCollector {
                         stageTimers.put(k, entry.getValue());
                     }
                 }
+                for (Map.Entry<String,Long> entry : querySpan.getStageCounts().entrySet()) {
+                    stageCounts.merge(entry.getKey(), entry.getValue(), Long::sum);
+                }
             }
             if (log.isTraceEnabled()) {
                 log.trace("thread:" + Thread.currentThread().getId() + " collector: " + this + " added querySpan: " + querySpan);
@@ -53,6 +57,8 @@ public class QuerySpanCollector {
                 combinedQuerySpan.setSourceCount(this.sourceCount.getAndSet(0));
                 combinedQuerySpan.setStageTimers(this.stageTimers);
                 this.stageTimers.clear();
+                combinedQuerySpan.setStageCounts(this.stageCounts);
+                this.stageCounts.clear();
             }
         }
         return combinedQuerySpan;
@@ -60,7 +66,7 @@ public class QuerySpanCollector {
     
     public boolean hasEntries() {
         if (this.seekCount.intValue() > 0 || this.nextCount.intValue() > 0 || this.yield.get() || this.sourceCount.intValue() > 0
-                        || !this.stageTimers.isEmpty()) {
+                        || !this.stageTimers.isEmpty() || !this.stageCounts.isEmpty()) {
             return true;
         } else {
             return false;
@@ -122,4 +128,8 @@ public class QuerySpanCollector {
         return Collections.unmodifiableMap(stageTimers);
     }
     
+    public Map<String,Long> getStageCounts() {
+        return Collections.unmodifiableMap(stageCounts);
+    }
+    
 }
@@ -0,0 +1,300 @@
+package datawave.query.jexl.lookups;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import datawave.core.iterators.TimeoutExceptionIterator;
+import datawave.core.iterators.TimeoutIterator;
+import datawave.query.Constants;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.exceptions.DatawaveFatalQueryException;
+import datawave.query.tables.BatchResource;
+import datawave.query.tables.ScannerFactory;
+import datawave.query.tables.ScannerSession;
+import datawave.query.tables.SessionOptions;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * Looks up the terms for many fielded regex lookups at once. On its own, each {@link LookupTermsFromRegex} opens a scanner session for every one of its
+ * patterns. Here the ranges and patterns of all of the lookups are combined into a single scanner session against each of the forward and reverse indexes, and
+ * the terms found are handed back to each of the lookups with a field and pattern that the term matches.
+ * <p>
+ * The thresholds and the timeout are applied as they would be to the lookups on their own: a lookup which exceeds its threshold stops collecting terms (and the
+ * scan stops once all of them have), and if the scan fails or times out then the lookups which had not finished are marked as having exceeded their threshold.
+ */
+public class BatchedLookupTermsFromRegex {
+    private static final Logger log = Logger.getLogger(BatchedLookupTermsFromRegex.class);
+    
+    protected final List<LookupTermsFromRegex> lookups;
+    
+    public BatchedLookupTermsFromRegex(Collection<LookupTermsFromRegex> lookups) {
+        this.lookups = new ArrayList<>(lookups);
+    }
+    
+    /**
+     * Only fielded lookups can be batched, as an unfielded lookup has a single threshold across all of the fields it finds
+     *
+     * @param lookup
+     *            the lookup
+     * @return true if the lookup can be batched
+     */
+    public static boolean isBatchable(IndexLookup lookup) {
+        return lookup != null && lookup.getClass() == LookupTermsFromRegex.class && !((LookupTermsFromRegex) lookup).unfieldedLookup;
+    }
+    
+    /**
+     * Split the lookups to run into those to batch, and those which fall back to being looked up on their own: the lookups which cannot be batched, and a lone
+     * batchable lookup, which gains nothing from being batched
+     *
+     * @param todo
+     *            the lookups to run
+     * @param batchable
+     *            whether a lookup can be batched
+     * @param unbatched
+     *            receives the lookups to run on their own
+     * @return the lookups to batch, which is empty unless there are at least two
+     */
+    public static <T> List<T> partition(Collection<T> todo, Predicate<T> batchable, Collection<T> unbatched) {
+        List<T> batched = new ArrayList<>();
+        for (T lookup : todo) {
+            if (batchable.test(lookup)) {
+                batched.add(lookup);
+            } else {
+                unbatched.add(lookup);
+            }
+        }
+        if (batched.size() == 1) {
+            unbatched.addAll(batched);
+            batched.clear();
+        }
+        return batched;
+    }
+    
+    /**
+     * Lookup the terms for all of the lookups
+     *
+     * @param config
+     *            the query configuration
+     * @param scannerFactory
+     *            the scanner factory
+     * @param timeout
+     *            the maximum time for each of the scans in milliseconds
+     * @return the field names to terms found for each of the lookups
+     */
+    public Map<LookupTermsFromRegex,IndexLookupMap> lookup(ShardQueryConfiguration config, ScannerFactory scannerFactory, long timeout) {
+        Map<LookupTermsFromRegex,IndexLookupMap> results = new IdentityHashMap<>();
+        
+        List<Target> forwardTargets = new ArrayList<>(), reverseTargets = new ArrayList<>();
+        Set<Range> forwardRanges = new HashSet<>(), reverseRanges = new HashSet<>();
+        for (LookupTermsFromRegex lookup : lookups) {
+            IndexLookupMap fieldsToValues = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold());
+            fieldsToValues.setPatterns(lookup.patterns);
+            results.put(lookup, fieldsToValues);
+            
+            Multimap<String,Range> forwardMap = ArrayListMultimap.create(), reverseMap = ArrayListMultimap.create();
+            lookup.getPatternRanges(config, forwardMap, reverseMap);
+            
+            if (!lookup.fields.isEmpty() && !forwardMap.isEmpty()) {
+                forwardTargets.add(new Target(lookup.fields, forwardMap.keySet(), fieldsToValues));
+                forwardRanges.addAll(forwardMap.values());
+            }
+            if (!lookup.reverseFields.isEmpty() && !reverseMap.isEmpty()) {
+                reverseTargets.add(new Target(lookup.reverseFields, reverseMap.keySet(), fieldsToValues));
+                reverseRanges.addAll(reverseMap.values());
+            }
+        }
+        
+        scan(config, scannerFactory, config.getIndexTableName(), forwardTargets, forwardRanges, false, timeout);
+        scan(config, scannerFactory, config.getReverseIndexTableName(), reverseTargets, reverseRanges, true, timeout);
+        
+        return results;
+    }
+    
+    protected void scan(ShardQueryConfiguration config, ScannerFactory scannerFactory, String tableName, List<Target> targets, Set<Range> ranges,
+                    boolean isReverse, long timeout) {
+        if (targets.isEmpty()) {
+            return;
+        }
+        
+        Set<String> patterns = new HashSet<>();
+        Set<String> fields = new HashSet<>();
+        for (Target target : targets) {
+            patterns.addAll(target.patternStrings);
+            fields.addAll(target.fields);
+        }
+        
+        final ScannerSession bs;
+        try {
+            bs = ShardIndexQueryTableStaticMethods.configureLimitedDiscovery(config, scannerFactory, tableName, Range.mergeOverlapping(ranges),
+                            Collections.emptySet(), patterns, isReverse, true);
+            bs.setResourceClass(BatchResource.class);
+        } catch (Exception e) {
+            throw new DatawaveFatalQueryException(e);
+        }
+        
+        SessionOptions opts = bs.getOptions();
+        if (timeout > 0) {
+            // the fairness iterator solves the problem whereby we have runaway iterators as a result of an evaluation that never finds anything
+            IteratorSetting fairnessIterator = new IteratorSetting(1, TimeoutIterator.class);
+            fairnessIterator.addOption(TimeoutIterator.MAX_SESSION_TIME, Long.toString((long) (timeout * 1.25)));
+            opts.addScanIterator(fairnessIterator);
+            opts.addScanIterator(new IteratorSetting(config.getBaseIteratorPriority() + 100, TimeoutExceptionIterator.class));
+        }
+        for (String field : fields) {
+            opts.fetchColumnFamily(new Text(field));
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Looking up " + patterns.size() + " patterns for " + targets.size() + " lookups in " + tableName);
+        }
+        
+        Future<Boolean> future = IndexLookupService.submitScan(() -> distribute(bs, targets, config.getDatatypeFilter(), isReverse));
+        try {
+            IndexLookup.awaitScan(future, timeout);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.info("Timed out expanding " + patterns.size() + " regexes in " + tableName);
+            setThresholdExceeded(targets);
+        } finally {
+            future.cancel(true);
+            scannerFactory.close(bs);
+        }
+    }
+    
+    /**
+     * Hand each term found to the lookups with a field and pattern that it matches
+     *
+     * @return true if the scan completed, false if it failed
+     */
+    protected boolean distribute(ScannerSession bs, List<Target> targets, Set<String> datatypeFilter, boolean isReverse) {
+        Multimap<String,Target> targetsByField = ArrayListMultimap.create();
+        for (Target target : targets) {
+            for (String field : target.fields) {
+                targetsByField.put(field, target);
+            }
+        }
+        
+        int remaining = targets.size();
+        Text holder = new Text();
+        try {
+            while (bs.hasNext()) {
+                Entry<Key,Value> entry = bs.next();
+                
+                if (TimeoutExceptionIterator.exceededTimedValue(entry)) {
+                    throw new Exception("Exceeded fair threshold");
+                }
+                
+                // Get the column qualifier from the key. It contains the datatype and normalizer class
+                Key topKey = entry.getKey();
+                String colq = topKey.getColumnQualifier().toString();
+                int idx = colq.indexOf(Constants.NULL);
+                if (idx == -1) {
+                    continue;
+                }
+                
+                // If types are specified and this type is not in the list, skip it.
+                String type = colq.substring(idx + 1);
+                if (null != datatypeFilter && !datatypeFilter.isEmpty() && !datatypeFilter.contains(type)) {
+                    continue;
+                }
+                
+                topKey.getRow(holder);
+                String term = (isReverse ? new StringBuilder(holder.toString()).reverse().toString() : holder.toString());
+                topKey.getColumnFamily(holder);
+                String field = holder.toString();
+                
+                for (Target target : targetsByField.get(field)) {
+                    if (!target.done && target.matches(term)) {
+                        target.fieldsToValues.put(field, term);
+                        if (target.fieldsToValues.isKeyThresholdExceeded()
+                                        || (target.fields.size() == 1 && target.fieldsToValues.get(field).isThresholdExceeded())) {
+                            target.done = true;
+                            remaining--;
+                        }
+                    }
+                }
+                
+                if (remaining == 0) {
+                    if (log.isTraceEnabled()) {
+                        log.trace("All lookups have passed the term expansion threshold");
+                    }
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            log.info("Failed or Timed out expanding regexes: " + e.getMessage());
+            if (log.isDebugEnabled()) {
+                log.debug("Failed or Timed out " + e);
+            }
+            setThresholdExceeded(targets);
+            return false;
+        }
+        
+        return true;
+    }
+    
+    private void setThresholdExceeded(List<Target> targets) {
+        for (Target target : targets) {
+            if (!target.done) {
+                for (String field : target.fields) {
+                    target.fieldsToValues.put(field, "");
+                    target.fieldsToValues.get(field).setThresholdExceeded();
+                }
+            }
+        }
+    }
+    
+    /**
+     * The fields and patterns of a lookup against one of the indexes, and the terms found for it
+     */
+    protected static class Target {
+        protected final Set<String> fields;
+        protected final Set<String> patternStrings;
+        protected final List<Pattern> patterns = new ArrayList<>();
+        protected final IndexLookupMap fieldsToValues;
+        protected boolean done = false;
+        
+        protected Target(Set<String> fields, Set<String> patterns, IndexLookupMap fieldsToValues) {
+            this.fields = fields;
+            this.patternStrings = patterns;
+            for (String pattern : patterns) {
+                this.patterns.add(Pattern.compile(pattern));
+            }
+            this.fieldsToValues = fieldsToValues;
+        }
+        
+        protected boolean matches(String term) {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(term).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
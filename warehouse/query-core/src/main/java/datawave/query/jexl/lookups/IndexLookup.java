@@ -5,8 +5,6 @@ import java.util.Set;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -48,42 +46,11 @@ public abstract class IndexLookup {
     protected boolean timedScan(final Iterator<Entry<Key,Value>> iter, final IndexLookupMap fieldsToValues, final ShardQueryConfiguration config,
                     final boolean unfieldedLookup, final Set<String> fields, final boolean isReverse, final long timeout, final Logger log) {
         
-        long maxLookup = timeout;
-        
-        ExecutorService execService = Executors.newFixedThreadPool(1);
-        
-        Future<Boolean> future = execService.submit(createTimedCallable(iter, fieldsToValues, config, unfieldedLookup, fields, isReverse, timeout));
+        Future<Boolean> future = IndexLookupService.submitScan(createTimedCallable(iter, fieldsToValues, config, unfieldedLookup, fields, isReverse, timeout));
         
         boolean result = false;
         try {
-            
-            /**
-             * Deal with the case we we let ourselves get interrupted AND support timeout.
-             */
-            
-            boolean swallowTimeout = false;
-            if (maxLookup <= 0 || maxLookup == Long.MAX_VALUE) {
-                maxLookup = 1000;
-                swallowTimeout = true;
-            }
-            
-            /**
-             * Continue in perpetuity iff we swallow the timeout. our state machine has three states 1) timeout exception and continue ( no max lookup ) 2)
-             * timeout exception and except ( a max lookup specified ) 3) we receive a value under timeout and we break
-             * 
-             */
-            while (!execService.isShutdown() && !execService.isTerminated()) {
-                try {
-                    result = future.get(maxLookup, TimeUnit.MILLISECONDS);
-                } catch (TimeoutException e) {
-                    if (swallowTimeout)
-                        continue;
-                    else
-                        throw e;
-                }
-                break;
-            }
-            
+            result = awaitScan(future, timeout);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         } catch (ExecutionException e) {
@@ -106,12 +73,51 @@ public abstract class IndexLookup {
                 fieldsToValues.setKeyThresholdExceeded();
             
         } finally {
-            execService.shutdownNow();
+            future.cancel(true);
         }
         
         return result;
     }
     
+    /**
+     * Wait for a scan to complete. If there is no timeout, then wait for as long as it takes.
+     * 
+     * @param future
+     *            the future result of the scan
+     * @param timeout
+     *            the maximum time to wait in milliseconds, or a non-positive value or Long.MAX_VALUE for no timeout
+     * @return the result of the scan
+     * @throws TimeoutException
+     *             if the scan did not complete within the timeout
+     */
+    protected static <T> T awaitScan(Future<T> future, long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+        long maxLookup = timeout;
+        
+        /**
+         * Deal with the case we we let ourselves get interrupted AND support timeout.
+         */
+        
+        boolean swallowTimeout = false;
+        if (maxLookup <= 0 || maxLookup == Long.MAX_VALUE) {
+            maxLookup = 1000;
+            swallowTimeout = true;
+        }
+        
+        /**
+         * Continue in perpetuity iff we swallow the timeout. our state machine has three states 1) timeout exception and continue ( no max lookup ) 2) timeout
+         * exception and except ( a max lookup specified ) 3) we receive a value under timeout and we break
+         * 
+         */
+        while (true) {
+            try {
+                return future.get(maxLookup, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (!swallowTimeout)
+                    throw e;
+            }
+        }
+    }
+    
     protected Callable<Boolean> createTimedCallable(Iterator<Entry<Key,Value>> iter, IndexLookupMap fieldsToValues, ShardQueryConfiguration config,
                     boolean unfieldedLookup, Set<String> fields, boolean isReverse, long timeout) {
         throw new UnsupportedOperationException("This operation isn't supported by this index lookup");
@@ -0,0 +1,165 @@
+package datawave.query.jexl.lookups;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.exceptions.DatawaveFatalQueryException;
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the global index lookups of a query on thread pools shared by all queries, instead of pools created (and torn down) for every expansion pass and every
+ * scan of the index.
+ * <p>
+ * There are two shared pools. The lookup pool is bounded by the {@value #MAX_LOOKUP_THREADS_PROPERTY} system property, and runs the lookups submitted through
+ * an instance of this service. The scan pool runs the scans of the global index on behalf of the lookups (see {@link IndexLookup#timedScan}). Scans never wait
+ * on other tasks, so a lookup waiting on its scan can never deadlock the lookup pool.
+ * <p>
+ * The scan pool is bounded by the {@value #MAX_SCAN_THREADS_PROPERTY} system property, with at most {@value #MAX_QUEUED_SCANS_PROPERTY} scans waiting for a
+ * thread. Once both are full the thread submitting a scan runs it itself, which slows the lookups (and the synchronous callers of {@link IndexLookup#lookup})
+ * submitting new scans until the pool catches up. A scan run this way cannot be abandoned when its lookup times out, and is bounded only by any timeout
+ * iterators set on the scan.
+ * <p>
+ * An instance of this service is scoped to a single query, and allows at most {@link ShardQueryConfiguration#getNumIndexLookupThreads()} of the query's lookups
+ * in flight at once so that a query with many expansions cannot starve the other queries of the lookup pool.
+ */
+public class IndexLookupService {
+    private static final Logger log = Logger.getLogger(IndexLookupService.class);
+    
+    public static final String MAX_LOOKUP_THREADS_PROPERTY = "datawave.query.index.lookup.threads";
+    public static final int DEFAULT_MAX_LOOKUP_THREADS = 64;
+    
+    private static final ExecutorService lookupExecutor = Executors.newFixedThreadPool(Integer.getInteger(MAX_LOOKUP_THREADS_PROPERTY,
+                    DEFAULT_MAX_LOOKUP_THREADS), new ThreadFactoryBuilder().setNameFormat("Datawave Index Lookup -%d").setDaemon(true).build());
+    
+    public static final String MAX_SCAN_THREADS_PROPERTY = "datawave.query.index.scan.threads";
+    public static final int DEFAULT_MAX_SCAN_THREADS = 128;
+    
+    public static final String MAX_QUEUED_SCANS_PROPERTY = "datawave.query.index.scan.queue";
+    public static final int DEFAULT_MAX_QUEUED_SCANS = 256;
+    
+    private static final ExecutorService scanExecutor = createScanExecutor(Integer.getInteger(MAX_SCAN_THREADS_PROPERTY, DEFAULT_MAX_SCAN_THREADS),
+                    Integer.getInteger(MAX_QUEUED_SCANS_PROPERTY, DEFAULT_MAX_QUEUED_SCANS));
+    
+    private final Semaphore permits;
+    private final String threadName;
+    private final List<Future<?>> futures = new ArrayList<>();
+    
+    public IndexLookupService(ShardQueryConfiguration config) {
+        this(config, "Datawave Index Lookup");
+    }
+    
+    /**
+     * @param config
+     *            the query configuration
+     * @param threadName
+     *            the name given to the threads while they run the query's lookups
+     */
+    public IndexLookupService(ShardQueryConfiguration config, String threadName) {
+        this.permits = new Semaphore(Math.max(1, config.getNumIndexLookupThreads()));
+        if (config.getQuery() == null || config.getQuery().getId() == null) {
+            this.threadName = threadName + " Session (unknown)";
+        } else {
+            this.threadName = threadName + " Session " + config.getQuery().getId();
+        }
+    }
+    
+    /**
+     * Submit a lookup to the shared lookup pool, waiting first if the query already has its limit of lookups in flight
+     *
+     * @param lookup
+     *            the lookup
+     * @return the future result of the lookup
+     */
+    public synchronized <T> Future<T> submit(final Callable<T> lookup) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatawaveFatalQueryException("Interrupted while waiting to submit an index lookup", e);
+        }
+        
+        try {
+            Future<T> future = lookupExecutor.submit(() -> {
+                Thread thread = Thread.currentThread();
+                String name = thread.getName();
+                thread.setName(threadName);
+                try {
+                    return lookup.call();
+                } finally {
+                    thread.setName(name);
+                    permits.release();
+                }
+            });
+            futures.add(future);
+            return future;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Cancel any of the query's lookups which are still running, for example when another of its lookups has failed
+     */
+    public synchronized void cancel() {
+        int cancelled = 0;
+        for (Future<?> future : futures) {
+            if (future.cancel(true)) {
+                cancelled++;
+            }
+        }
+        futures.clear();
+        if (cancelled > 0 && log.isDebugEnabled()) {
+            log.debug("Cancelled " + cancelled + " index lookups");
+        }
+    }
+    
+    /**
+     * Submit a scan of the global index to the shared scan pool
+     *
+     * @param scan
+     *            the scan
+     * @return the future result of the scan
+     */
+    public static <T> Future<T> submitScan(Callable<T> scan) {
+        return scanExecutor.submit(scan);
+    }
+    
+    /**
+     * Create the scan pool, which runs a scan on the submitting thread once all of its threads are busy and its queue is full
+     *
+     * @param threads
+     *            the maximum number of threads, which are released when idle
+     * @param queued
+     *            the maximum number of scans waiting for a thread
+     * @return the scan pool
+     */
+    static ThreadPoolExecutor createScanExecutor(int threads, int queued) {
+        threads = Math.max(1, threads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(Math.max(1, queued)),
+                        new ThreadFactoryBuilder().setNameFormat("Datawave Index Scan -%d").setDaemon(true).build(), (scan, pool) -> {
+                            if (log.isDebugEnabled()) {
+                                log.debug("Index scan pool is saturated (" + pool.getActiveCount() + " scans running, " + pool.getQueue().size()
+                                                + " waiting); running the scan on the submitting thread");
+                            }
+                            if (pool.isShutdown()) {
+                                throw new RejectedExecutionException("The index scan pool is shut down");
+                            }
+                            scan.run();
+                        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
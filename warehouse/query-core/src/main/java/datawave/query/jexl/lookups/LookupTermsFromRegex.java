@@ -87,40 +87,7 @@ public class LookupTermsFromRegex extends RegexIndexLookup {
             fairnessIterator.addOption(TimeoutIterator.MAX_SESSION_TIME, Long.valueOf(maxTime).toString());
         }
         
-        for (String pattern : patterns) {
-            if (!isAcceptedPattern(pattern)) {
-                PreConditionFailedQueryException qe = new PreConditionFailedQueryException(DatawaveErrorCode.IGNORE_PATTERN_FOR_INDEX_LOOKUP,
-                                MessageFormat.format("Pattern: {0}", pattern));
-                log.debug(qe);
-                throw new DoNotPerformOptimizedQueryException(qe);
-            }
-            
-            ShardIndexQueryTableStaticMethods.RefactoredRangeDescription rangeDescription = null;
-            try {
-                rangeDescription = ShardIndexQueryTableStaticMethods.getRegexRange(null, pattern, config.getFullTableScanEnabled(), helperRef, config);
-            } catch (IllegalArgumentException e) {
-                log.debug("Ignoring pattern that was not capable of being looked up in the index: " + pattern, e);
-                continue;
-            } catch (JavaRegexParseException e) {
-                log.debug("Ignoring pattern that was not capable of being looked up in the index: " + pattern, e);
-                continue;
-            } catch (TableNotFoundException e) {
-                log.error(e);
-                throw new DatawaveFatalQueryException(e);
-            } catch (ExecutionException e) {
-                throw new DatawaveFatalQueryException(e);
-            }
-            if (log.isTraceEnabled()) {
-                log.trace("Adding pattern " + pattern);
-                log.trace("Adding pattern " + rangeDescription);
-            }
-            if (rangeDescription.isForReverseIndex) {
-                
-                reverseMap.put(pattern, rangeDescription.range);
-            } else {
-                forwardMap.put(pattern, rangeDescription.range);
-            }
-        }
+        getPatternRanges(config, forwardMap, reverseMap);
         
         if (!fields.isEmpty() && !forwardMap.isEmpty()) {
             for (String key : forwardMap.keySet()) {
@@ -205,6 +172,53 @@ public class LookupTermsFromRegex extends RegexIndexLookup {
         return fieldsToValues;
     }
     
+    /**
+     * Classify the patterns as forward or reverse index satisfiable, mapping each to the ranges to scan in that index
+     * 
+     * @param config
+     *            the query configuration
+     * @param forwardMap
+     *            the map to fill with the forward index satisfiable patterns
+     * @param reverseMap
+     *            the map to fill with the reverse index satisfiable patterns
+     */
+    protected void getPatternRanges(ShardQueryConfiguration config, Multimap<String,Range> forwardMap, Multimap<String,Range> reverseMap) {
+        for (String pattern : patterns) {
+            if (!isAcceptedPattern(pattern)) {
+                PreConditionFailedQueryException qe = new PreConditionFailedQueryException(DatawaveErrorCode.IGNORE_PATTERN_FOR_INDEX_LOOKUP,
+                                MessageFormat.format("Pattern: {0}", pattern));
+                log.debug(qe);
+                throw new DoNotPerformOptimizedQueryException(qe);
+            }
+            
+            ShardIndexQueryTableStaticMethods.RefactoredRangeDescription rangeDescription = null;
+            try {
+                rangeDescription = ShardIndexQueryTableStaticMethods.getRegexRange(null, pattern, config.getFullTableScanEnabled(), helperRef, config);
+            } catch (IllegalArgumentException e) {
+                log.debug("Ignoring pattern that was not capable of being looked up in the index: " + pattern, e);
+                continue;
+            } catch (JavaRegexParseException e) {
+                log.debug("Ignoring pattern that was not capable of being looked up in the index: " + pattern, e);
+                continue;
+            } catch (TableNotFoundException e) {
+                log.error(e);
+                throw new DatawaveFatalQueryException(e);
+            } catch (ExecutionException e) {
+                throw new DatawaveFatalQueryException(e);
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("Adding pattern " + pattern);
+                log.trace("Adding pattern " + rangeDescription);
+            }
+            if (rangeDescription.isForReverseIndex) {
+                
+                reverseMap.put(pattern, rangeDescription.range);
+            } else {
+                forwardMap.put(pattern, rangeDescription.range);
+            }
+        }
+    }
+    
     @Override
     protected Callable<Boolean> createTimedCallable(final Iterator<Entry<Key,Value>> iter, final IndexLookupMap fieldsToValues, ShardQueryConfiguration config,
                     final boolean unfieldedLookup, final Set<String> fields, final boolean isReverse, long timeout) {
@@ -17,6 +17,23 @@ public class FixNegativeNumbersVisitor extends RebuildingVisitor {
     
     @Override
     public Object visit(ASTUnaryMinusNode astumn, Object data) {
+        ASTNumberLiteral newNode = fixNegativeNumber(astumn);
+        if (newNode != null) {
+            return newNode;
+        } else {
+            return super.visit(astumn, data);
+        }
+        
+    }
+    
+    /**
+     * Fold a unary minus applied to a number literal into a negative number literal
+     *
+     * @param astumn
+     *            the unary minus node
+     * @return the negative number literal, or null if the unary minus is not applied to a number literal
+     */
+    public static ASTNumberLiteral fixNegativeNumber(ASTUnaryMinusNode astumn) {
         if (astumn.jjtGetNumChildren() == 1 && astumn.jjtGetChild(0) instanceof ASTNumberLiteral) {
             ASTNumberLiteral node = (ASTNumberLiteral) astumn.jjtGetChild(0);
             ASTNumberLiteral newNode = new ASTNumberLiteral(ParserTreeConstants.JJTNUMBERLITERAL);
@@ -32,10 +49,8 @@ public class FixNegativeNumbersVisitor extends RebuildingVisitor {
             }
             newNode.jjtSetValue(value);
             return newNode;
-        } else {
-            return super.visit(astumn, data);
         }
-        
+        return null;
     }
     
 }
@@ -145,10 +145,9 @@ public class FixUnfieldedTermsVisitor extends ParallelIndexExpansion {
             }
             concurrentExecution();
         } finally {
-            log.debug("Shutting down executor");
-            // no need for this anymore.
-            if (executor != null) {
-                executor.shutdownNow();
+            // cancel anything left running if a lookup failed
+            if (lookupService != null) {
+                lookupService.cancel();
             }
         }
         
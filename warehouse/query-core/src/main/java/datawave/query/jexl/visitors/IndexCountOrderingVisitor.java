@@ -0,0 +1,156 @@
+package datawave.query.jexl.visitors;
+
+import datawave.query.index.lookup.IndexInfo;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.JexlASTHelper.IdentifierOpLiteral;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Orders the children of each conjunction in a query by the counts of their terms in a shard, as read from the global index, so that the iterators built for
+ * the query seek on the rarest term first.
+ * <p>
+ * The cost of a term is its count in the shard, the cost of a disjunction is the sum of the costs of its children, and the cost of a conjunction is the cost
+ * of its cheapest child. Anything else, including delayed and marked nodes and terms without a count, is given the highest cost and keeps its relative order.
+ * <p>
+ * If a delay ratio is supplied, a term in a conjunction whose count is at least that many times the count of the cheapest child is delayed, so that it is
+ * evaluated against the documents found by the other terms rather than driving a scan of its field index. The cheapest child is never delayed, nor are terms
+ * on fields which cannot be evaluated against the event (e.g. index only fields).
+ */
+public class IndexCountOrderingVisitor extends BaseVisitor {
+    
+    private static final Logger log = Logger.getLogger(IndexCountOrderingVisitor.class);
+    
+    private final Map<String,Long> termCounts;
+    private final double delayRatio;
+    private final Set<String> nonDelayableFields;
+    
+    public IndexCountOrderingVisitor(Map<String,Long> termCounts, double delayRatio, Set<String> nonDelayableFields) {
+        this.termCounts = termCounts;
+        this.delayRatio = delayRatio;
+        this.nonDelayableFields = (null == nonDelayableFields ? Collections.emptySet() : nonDelayableFields);
+    }
+    
+    /**
+     * Order a copy of a query by term counts
+     *
+     * @param script
+     *            the query, which is not modified
+     * @param termCounts
+     *            the counts of the terms in the query, keyed by {@link IndexInfo#termKey(String, String)}
+     * @param delayRatio
+     *            the ratio of the count of a term to the count of the cheapest term in its conjunction at which it is delayed, or a non-positive value to
+     *            disable delaying
+     * @param nonDelayableFields
+     *            fields which must not be delayed
+     * @return the ordered copy
+     */
+    public static JexlNode order(JexlNode script, Map<String,Long> termCounts, double delayRatio, Set<String> nonDelayableFields) {
+        JexlNode copy = RebuildingVisitor.copy(script);
+        copy.jjtAccept(new IndexCountOrderingVisitor(termCounts, delayRatio, nonDelayableFields), null);
+        return copy;
+    }
+    
+    @Override
+    public Object visit(ASTReference node, Object data) {
+        return referenceCost(node);
+    }
+    
+    @Override
+    public Object visit(ASTReferenceExpression node, Object data) {
+        return referenceCost(node);
+    }
+    
+    private Long referenceCost(JexlNode node) {
+        // delayed and marked nodes do not drive the scan
+        if (QueryPropertyMarker.instanceOf(node, null) || node.jjtGetNumChildren() != 1) {
+            return Long.MAX_VALUE;
+        }
+        return cost(node.jjtGetChild(0));
+    }
+    
+    @Override
+    public Object visit(ASTEQNode node, Object data) {
+        Long count = termCounts.get(termKey(node));
+        return (null == count || count < 0 ? Long.MAX_VALUE : count);
+    }
+    
+    @Override
+    public Object visit(ASTOrNode node, Object data) {
+        long sum = 0;
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            long cost = cost(node.jjtGetChild(i));
+            sum = (cost == Long.MAX_VALUE || sum + cost < 0 ? Long.MAX_VALUE : sum + cost);
+        }
+        return sum;
+    }
+    
+    @Override
+    public Object visit(ASTAndNode node, Object data) {
+        int numChildren = node.jjtGetNumChildren();
+        if (numChildren == 0) {
+            return Long.MAX_VALUE;
+        }
+        List<JexlNode> children = new ArrayList<>(numChildren);
+        long[] costs = new long[numChildren];
+        List<Integer> order = new ArrayList<>(numChildren);
+        for (int i = 0; i < numChildren; i++) {
+            children.add(node.jjtGetChild(i));
+            costs[i] = cost(children.get(i));
+            order.add(i);
+        }
+        
+        // a stable sort, so children of equal cost keep their order
+        order.sort(Comparator.comparingLong(i -> costs[i]));
+        for (int i = 0; i < numChildren; i++) {
+            node.jjtAddChild(children.get(order.get(i)), i);
+        }
+        
+        long anchor = costs[order.get(0)];
+        if (delayRatio > 0 && anchor != Long.MAX_VALUE) {
+            for (int i = 1; i < numChildren; i++) {
+                int index = order.get(i);
+                JexlNode child = children.get(index);
+                if (child instanceof ASTEQNode && costs[index] != Long.MAX_VALUE && costs[index] >= anchor * delayRatio && isDelayable(child)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Delaying " + JexlStringBuildingVisitor.buildQuery(child) + " with a count of " + costs[index] + " against a count of " + anchor);
+                    }
+                    ASTDelayedPredicate.create(child);
+                }
+            }
+        }
+        
+        return anchor;
+    }
+    
+    private long cost(JexlNode node) {
+        Object cost = node.jjtAccept(this, null);
+        return (cost instanceof Long ? (Long) cost : Long.MAX_VALUE);
+    }
+    
+    private boolean isDelayable(JexlNode node) {
+        return !nonDelayableFields.contains(JexlASTHelper.deconstructIdentifier(JexlASTHelper.getIdentifier(node)));
+    }
+    
+    private String termKey(JexlNode node) {
+        IdentifierOpLiteral op = JexlASTHelper.getIdentifierOpLiteral(node);
+        if (null == op || null == op.getLiteralValue()) {
+            return null;
+        }
+        return IndexInfo.termKey(op.deconstructIdentifier(), op.getLiteralValue().toString());
+    }
+}
@@ -176,6 +176,9 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     // case the keys will be modified to include enough context to restart at the correct place.
     protected boolean sortedUIDs = true;
     
+    // should the heap based AndIterator and OrIterator be used where the sources do not require context
+    protected boolean useHeapLogicIterators = false;
+    
     protected boolean limitLookup;
     
     protected Class<? extends IteratorBuilder> iteratorBuilderClass = IndexIteratorBuilder.class;
@@ -348,6 +351,7 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         } else {
             // Create an AndIterator and recursively add the children
             AbstractIteratorBuilder andItr = new AndIteratorBuilder();
+            andItr.setUseHeapLogicIterators(useHeapLogicIterators);
             andItr.negateAsNeeded(data);
             and.childrenAccept(this, andItr);
             
@@ -503,6 +507,7 @@ public class IteratorBuildingVisitor extends BaseVisitor {
             // Create an OrIterator and recursively add the children
             AbstractIteratorBuilder orItr = new OrIteratorBuilder();
             orItr.setSortedUIDs(sortedUIDs);
+            orItr.setUseHeapLogicIterators(useHeapLogicIterators);
             orItr.negateAsNeeded(data);
             or.childrenAccept(this, orItr);
             
@@ -1675,6 +1680,11 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
     
+    public IteratorBuildingVisitor setUseHeapLogicIterators(boolean useHeapLogicIterators) {
+        this.useHeapLogicIterators = useHeapLogicIterators;
+        return this;
+    }
+    
     public IteratorBuildingVisitor setExceededOrEvaluationCache(Map<String,Object> exceededOrEvaluationCache) {
         this.exceededOrEvaluationCache = exceededOrEvaluationCache;
         return this;
@@ -13,8 +13,11 @@ import datawave.query.exceptions.EmptyUnfieldedTermExpansionException;
 import datawave.query.jexl.JexlASTHelper;
 import datawave.query.jexl.JexlNodeFactory;
 import datawave.query.jexl.JexlNodeFactory.ContainerType;
+import datawave.query.jexl.lookups.BatchedLookupTermsFromRegex;
 import datawave.query.jexl.lookups.IndexLookup;
 import datawave.query.jexl.lookups.IndexLookupMap;
+import datawave.query.jexl.lookups.IndexLookupService;
+import datawave.query.jexl.lookups.LookupTermsFromRegex;
 import datawave.query.jexl.lookups.ShardIndexQueryTableStaticMethods;
 import datawave.query.jexl.nodes.ExceededTermThresholdMarkerJexlNode;
 import datawave.query.jexl.nodes.ExceededValueThresholdMarkerJexlNode;
@@ -25,7 +28,6 @@ import datawave.query.planner.pushdown.Cost;
 import datawave.query.planner.pushdown.CostEstimator;
 import datawave.query.tables.ScannerFactory;
 import datawave.query.util.MetadataHelper;
-import datawave.webservice.query.Query;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.commons.jexl2.parser.ASTAndNode;
 import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
@@ -55,10 +57,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
 
 import static datawave.query.jexl.JexlASTHelper.isIndexed;
 import static datawave.query.jexl.JexlASTHelper.isLiteralEquality;
@@ -69,7 +68,7 @@ public class ParallelIndexExpansion extends RebuildingVisitor {
     
     protected ShardQueryConfiguration config;
     protected ScannerFactory scannerFactory;
-    protected ExecutorService executor;
+    protected IndexLookupService lookupService;
     protected Collection<IndexLookupCallable> todo;
     protected Set<Type<?>> allTypes;
     protected Collection<String> onlyUseThese;
@@ -127,37 +126,8 @@ public class ParallelIndexExpansion extends RebuildingVisitor {
         costAnalysis = new CostEstimator(config, scannerFactory, helper);
     }
     
-    protected class ParallelExpansionFactory implements ThreadFactory {
-        
-        private ThreadFactory dtf = Executors.defaultThreadFactory();
-        private int threadNum = 1;
-        private String threadIdentifier;
-        protected String name = "Datawave ParallelIndexExpansion";
-        
-        public ParallelExpansionFactory(Query query, String name) {
-            if (query == null || query.getId() == null) {
-                this.threadIdentifier = "(unknown)";
-            } else {
-                this.threadIdentifier = query.getId().toString();
-            }
-            this.name = name;
-        }
-        
-        public Thread newThread(Runnable r) {
-            Thread thread = dtf.newThread(r);
-            thread.setName(name + " Session " + threadIdentifier + " -" + threadNum++);
-            thread.setDaemon(true);
-            thread.setUncaughtExceptionHandler(config.getQuery().getUncaughtExceptionHandler());
-            return thread;
-        }
-        
-    }
-    
-    private static final int MIN_THREADS = 1;
-    
     protected void setupThreadResources() {
-        int threads = this.config.getNumIndexLookupThreads();
-        executor = Executors.newFixedThreadPool(Math.max(threads, MIN_THREADS), new ParallelExpansionFactory(this.config.getQuery(), this.threadName));
+        lookupService = new IndexLookupService(this.config, this.threadName);
     }
     
     @Override
@@ -201,8 +171,8 @@ public class ParallelIndexExpansion extends RebuildingVisitor {
             concurrentExecution();
         } finally {
             
-            // no need for this anymore.
-            executor.shutdown();
+            // cancel anything left running if a lookup failed
+            lookupService.cancel();
         }
         
         LookupRemark remark = new LookupRemark();
@@ -676,41 +646,69 @@ public class ParallelIndexExpansion extends RebuildingVisitor {
     }
     
     /**
-     * Executes the tasks in the todo list
+     * Executes the tasks in the todo list. The fielded regex lookups are batched into a single scan of each of the forward and reverse indexes, running
+     * alongside the other lookups.
      */
     protected void concurrentExecution() {
         
-        List<Future<JexlNode>> futures;
+        List<IndexLookupCallable> unbatched = Lists.newArrayList();
+        List<IndexLookupCallable> batched = BatchedLookupTermsFromRegex.partition(todo,
+                        callable -> callable.enforceTimeout && BatchedLookupTermsFromRegex.isBatchable(callable.lookup), unbatched);
+        
         try {
-            futures = executor.invokeAll(todo);
+            Future<Map<LookupTermsFromRegex,IndexLookupMap>> batchFuture = null;
+            if (!batched.isEmpty()) {
+                List<LookupTermsFromRegex> lookups = Lists.newArrayListWithCapacity(batched.size());
+                for (IndexLookupCallable callable : batched) {
+                    lookups.add((LookupTermsFromRegex) callable.lookup);
+                }
+                final BatchedLookupTermsFromRegex batch = new BatchedLookupTermsFromRegex(lookups);
+                batchFuture = lookupService.submit(() -> batch.lookup(config, scannerFactory, config.getMaxIndexScanTimeMillis()));
+            }
             
-            for (Future<JexlNode> future : futures) {
-                Exception sawException = null;
-                try {
-                    if (future.get() != null) {
-                        
+            List<Future<JexlNode>> futures = Lists.newArrayListWithCapacity(unbatched.size());
+            for (IndexLookupCallable callable : unbatched) {
+                futures.add(lookupService.submit(callable));
+            }
+            
+            if (batchFuture != null) {
+                Map<LookupTermsFromRegex,IndexLookupMap> results = await(batchFuture);
+                for (IndexLookupCallable callable : batched) {
+                    callable.setLookupResult(results.get(callable.lookup));
+                    try {
+                        callable.call();
+                    } catch (Exception e) {
+                        log.error(e.getMessage(), e);
+                        throw new CannotExpandUnfieldedTermFatalException(e);
                     }
-                } catch (InterruptedException e) {
-                    sawException = (Exception) e.getCause();
-                } catch (ExecutionException e) {
-                    sawException = (Exception) e.getCause();
-                } catch (Exception e) {
-                    sawException = e;
-                }
-                
-                if (null != sawException) {
-                    log.error(sawException.getMessage(), sawException);
-                    throw new CannotExpandUnfieldedTermFatalException(sawException);
                 }
             }
-        } catch (InterruptedException e) {
-            throw new CannotExpandUnfieldedTermFatalException(e.getMessage());
+            
+            for (Future<JexlNode> future : futures) {
+                await(future);
+            }
         } finally {
             todo.clear();
         }
         
     }
     
+    private <T> T await(Future<T> future) {
+        Exception sawException = null;
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotExpandUnfieldedTermFatalException(e.getMessage());
+        } catch (ExecutionException e) {
+            sawException = (Exception) e.getCause();
+        } catch (Exception e) {
+            sawException = e;
+        }
+        log.error(sawException.getMessage(), sawException);
+        throw new CannotExpandUnfieldedTermFatalException(sawException);
+    }
+    
     protected class IndexLookupCallable implements Callable<JexlNode> {
         
         protected IndexLookup lookup;
@@ -722,6 +720,7 @@ public class ParallelIndexExpansion extends RebuildingVisitor {
         private int id;
         private JexlNode newNode;
         protected boolean enforceTimeout;
+        protected IndexLookupMap lookupResult = null;
         
         public IndexLookupCallable(IndexLookup lookup, JexlNode currNode, boolean enforceTimeout, boolean ignoreComposites, boolean keepOriginalNode) {
             this.lookup = lookup;
@@ -737,6 +736,16 @@ public class ParallelIndexExpansion extends RebuildingVisitor {
             this.id = id;
         }
         
+        /**
+         * Set the result of the lookup when it has already been looked up, for example as part of a batch
+         *
+         * @param lookupResult
+         *            the field names to values found
+         */
+        public void setLookupResult(IndexLookupMap lookupResult) {
+            this.lookupResult = lookupResult;
+        }
+        
         /*
          * (non-Javadoc)
          * 
@@ -745,15 +754,17 @@ public class ParallelIndexExpansion extends RebuildingVisitor {
         @Override
         public JexlNode call() throws Exception {
             
-            IndexLookupMap fieldsToValues = null;
-            try {
-                long timeout = -1;
-                if (enforceTimeout)
-                    timeout = config.getMaxIndexScanTimeMillis();
-                fieldsToValues = lookup.lookup(config, scannerFactory, timeout);
-            } catch (Exception e) {
-                log.error(e);
-                throw e;
+            IndexLookupMap fieldsToValues = lookupResult;
+            if (fieldsToValues == null) {
+                try {
+                    long timeout = -1;
+                    if (enforceTimeout)
+                        timeout = config.getMaxIndexScanTimeMillis();
+                    fieldsToValues = lookup.lookup(config, scannerFactory, timeout);
+                } catch (Exception e) {
+                    log.error(e);
+                    throw e;
+                }
             }
             newNode = null;
             
@@ -10,6 +10,7 @@ import datawave.query.jexl.JexlNodeFactory;
 import datawave.query.jexl.LiteralRange;
 import datawave.query.jexl.lookups.IndexLookup;
 import datawave.query.jexl.lookups.IndexLookupMap;
+import datawave.query.jexl.lookups.IndexLookupService;
 import datawave.query.jexl.lookups.ShardIndexQueryTableStaticMethods;
 import datawave.query.jexl.nodes.BoundedRange;
 import datawave.query.jexl.nodes.ExceededOrThresholdMarkerJexlNode;
@@ -28,12 +29,14 @@ import org.apache.commons.jexl2.parser.ASTEQNode;
 import org.apache.commons.jexl2.parser.ASTEvaluationOnly;
 import org.apache.commons.jexl2.parser.ASTReference;
 import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.JexlNodes;
 import org.apache.commons.jexl2.parser.ParserTreeConstants;
 import org.apache.log4j.Logger;
 
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Visits an JexlNode tree, removing bounded ranges (a pair consisting of one GT or GE and one LT or LE node), and replacing them with concrete equality nodes.
@@ -55,6 +58,8 @@ public class RangeConjunctionRebuildingVisitor extends RebuildingVisitor {
     protected MetadataHelper helper;
     protected boolean expandFields;
     protected boolean expandValues;
+    protected IndexLookupService lookupService;
+    protected List<RangeLookup> rangeLookups = Lists.newArrayList();
     
     public RangeConjunctionRebuildingVisitor(ShardQueryConfiguration config, ScannerFactory scannerFactory, MetadataHelper helper, boolean expandFields,
                     boolean expandValues) throws TableNotFoundException, ExecutionException {
@@ -67,6 +72,7 @@ public class RangeConjunctionRebuildingVisitor extends RebuildingVisitor {
         costAnalysis = new CostEstimator(config, scannerFactory, helper);
         this.expandFields = expandFields;
         this.expandValues = expandValues;
+        this.lookupService = new IndexLookupService(config, "Datawave Range Expansion");
     }
     
     /**
@@ -92,7 +98,12 @@ public class RangeConjunctionRebuildingVisitor extends RebuildingVisitor {
                 throw new DatawaveFatalQueryException(qe);
             }
             
-            return (T) (script.jjtAccept(visitor, null));
+            try {
+                return (T) visitor.fillRangeLookups((JexlNode) script.jjtAccept(visitor, null));
+            } finally {
+                // cancel anything left running if a lookup failed
+                visitor.lookupService.cancel();
+            }
         } else {
             return script;
         }
@@ -124,24 +135,76 @@ public class RangeConjunctionRebuildingVisitor extends RebuildingVisitor {
             return currentNode;
         }
         
-        IndexLookup lookup = ShardIndexQueryTableStaticMethods.expandRange(range);
+        final IndexLookup lookup = ShardIndexQueryTableStaticMethods.expandRange(range);
         
-        IndexLookupMap fieldsToTerms = null;
+        // the lookups of all of the ranges run in the background, and the expansions replace their placeholders once the whole tree has been visited
+        Future<IndexLookupMap> future = lookupService.submit(() -> lookup.lookup(config, scannerFactory, config.getMaxIndexScanTimeMillis()));
+        RangeLookup rangeLookup = new RangeLookup(range, currentNode, future);
+        rangeLookups.add(rangeLookup);
         
-        try {
-            fieldsToTerms = lookup.lookup(config, scannerFactory, config.getMaxIndexScanTimeMillis());
-        } catch (IllegalRangeArgumentException e) {
-            log.error("Cannot expand "
-                            + range
-                            + " because it creates an invalid Accumulo Range. This is likely due to bad user input or failed normalization. This range will be ignored.",
-                            e);
-            return RebuildingVisitor.copy(currentNode);
+        return rangeLookup.placeholder;
+    }
+    
+    /**
+     * Replace the placeholder of each range with its expansion, in place
+     *
+     * @param node
+     *            the rebuilt tree
+     * @return the rebuilt tree with the ranges expanded
+     */
+    protected JexlNode fillRangeLookups(JexlNode node) {
+        for (RangeLookup rangeLookup : rangeLookups) {
+            JexlNode expanded = rangeLookup.expand();
+            JexlNode parent = rangeLookup.placeholder.jjtGetParent();
+            if (parent == null) {
+                // the range was the whole tree
+                node = expanded;
+            } else {
+                JexlNodes.swap(parent, rangeLookup.placeholder, expanded);
+            }
         }
+        rangeLookups.clear();
+        return node;
+    }
+    
+    /**
+     * The pending lookup of a range, and the placeholder for its expansion in the rebuilt tree
+     */
+    protected class RangeLookup {
+        protected final LiteralRange range;
+        protected final ASTReference currentNode;
+        protected final Future<IndexLookupMap> future;
+        protected final ASTReference placeholder = new ASTReference(ParserTreeConstants.JJTREFERENCE);
         
-        JexlNode orNode = JexlNodeFactory.createNodeTreeFromFieldsToValues(JexlNodeFactory.ContainerType.OR_NODE, new ASTEQNode(ParserTreeConstants.JJTEQNODE),
-                        currentNode, fieldsToTerms, expandFields, expandValues, false);
+        protected RangeLookup(LiteralRange range, ASTReference currentNode, Future<IndexLookupMap> future) {
+            this.range = range;
+            this.currentNode = currentNode;
+            this.future = future;
+        }
         
-        return orNode;
+        protected JexlNode expand() {
+            IndexLookupMap fieldsToTerms;
+            try {
+                fieldsToTerms = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DatawaveFatalQueryException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IllegalRangeArgumentException) {
+                    log.error("Cannot expand "
+                                    + range
+                                    + " because it creates an invalid Accumulo Range. This is likely due to bad user input or failed normalization. This range will be ignored.",
+                                    e.getCause());
+                    return RebuildingVisitor.copy(currentNode);
+                } else if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new DatawaveFatalQueryException(e.getCause());
+            }
+            
+            return JexlNodeFactory.createNodeTreeFromFieldsToValues(JexlNodeFactory.ContainerType.OR_NODE, new ASTEQNode(ParserTreeConstants.JJTEQNODE),
+                            currentNode, fieldsToTerms, expandFields, expandValues, false);
+        }
     }
     
 }
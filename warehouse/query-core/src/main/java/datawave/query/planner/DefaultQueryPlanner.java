@@ -9,6 +9,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.data.type.AbstractGeometryType;
 import datawave.data.type.Type;
@@ -40,7 +41,6 @@ import datawave.query.jexl.JexlNodeFactory;
 import datawave.query.jexl.functions.EvaluationPhaseFilterFunctions;
 import datawave.query.jexl.functions.QueryFunctions;
 import datawave.query.jexl.visitors.BoundedRangeDetectionVisitor;
-import datawave.query.jexl.visitors.CaseSensitivityVisitor;
 import datawave.query.jexl.visitors.ConjunctionEliminationVisitor;
 import datawave.query.jexl.visitors.DepthVisitor;
 import datawave.query.jexl.visitors.DisjunctionEliminationVisitor;
@@ -52,7 +52,6 @@ import datawave.query.jexl.visitors.ExpandMultiNormalizedTerms;
 import datawave.query.jexl.visitors.FetchDataTypesVisitor;
 import datawave.query.jexl.visitors.FieldMissingFromSchemaVisitor;
 import datawave.query.jexl.visitors.FieldToFieldComparisonVisitor;
-import datawave.query.jexl.visitors.FixNegativeNumbersVisitor;
 import datawave.query.jexl.visitors.FixUnfieldedTermsVisitor;
 import datawave.query.jexl.visitors.FixUnindexedNumericTerms;
 import datawave.query.jexl.visitors.FunctionIndexQueryExpansionVisitor;
@@ -73,7 +72,6 @@ import datawave.query.jexl.visitors.QueryOptionsFromQueryVisitor;
 import datawave.query.jexl.visitors.QueryPruningVisitor;
 import datawave.query.jexl.visitors.RangeConjunctionRebuildingVisitor;
 import datawave.query.jexl.visitors.RegexFunctionVisitor;
-import datawave.query.jexl.visitors.RewriteNegationsVisitor;
 import datawave.query.jexl.visitors.SetMembershipVisitor;
 import datawave.query.jexl.visitors.SortedUIDsRequiredVisitor;
 import datawave.query.jexl.visitors.TermCountingVisitor;
@@ -87,8 +85,11 @@ import datawave.query.planner.comparator.DefaultQueryPlanComparator;
 import datawave.query.planner.comparator.GeoWaveQueryPlanComparator;
 import datawave.query.planner.pushdown.PushDownVisitor;
 import datawave.query.planner.pushdown.rules.PushDownRule;
+import datawave.query.planner.rules.CaseSensitivityTransformRule;
+import datawave.query.planner.rules.FixNegativeNumbersTransformRule;
 import datawave.query.planner.rules.NodeTransformRule;
 import datawave.query.planner.rules.NodeTransformVisitor;
+import datawave.query.planner.rules.RewriteNegationsTransformRule;
 import datawave.query.postprocessing.tf.Function;
 import datawave.query.postprocessing.tf.TermOffsetPopulator;
 import datawave.query.tables.ScannerFactory;
@@ -115,6 +116,7 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.jexl2.parser.ASTJexlScript;
 import org.apache.commons.jexl2.parser.JexlNode;
 import org.apache.commons.jexl2.parser.ParseException;
@@ -124,9 +126,11 @@ import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -140,6 +144,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -276,6 +281,11 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
      */
     protected boolean showReducedQueryPrune = true;
     
+    /**
+     * A cache of planned query trees, shared between planners. If null, every query is planned from scratch.
+     */
+    protected QueryPlanCache queryPlanCache = null;
+    
     public DefaultQueryPlanner() {
         this(Long.MAX_VALUE);
     }
@@ -309,6 +319,7 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         setSourceLimit(other.sourceLimit);
         setDocsToCombineForEvaluation(other.getDocsToCombineForEvaluation());
         setPushdownThreshold(other.getPushdownThreshold());
+        setQueryPlanCache(other.getQueryPlanCache());
     }
     
     public void setMetadataHelper(final MetadataHelper metadataHelper) {
@@ -646,10 +657,10 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         
         stopwatch.stop();
         
+        Map<String,String> optionsMap = new HashMap<>();
         if (query.contains(QueryFunctions.QUERY_FUNCTION_NAMESPACE + ':')) {
             // only do the extra tree visit if the function is present
             stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - parse out queryOptions from options function");
-            Map<String,String> optionsMap = new HashMap<>();
             queryTree = QueryOptionsFromQueryVisitor.collect(queryTree, optionsMap);
             if (!optionsMap.isEmpty()) {
                 QueryOptionsSwitch.apply(optionsMap, config);
@@ -704,6 +715,24 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
             throw new DatawaveFatalQueryException("Found incorrectly marked bounded ranges");
         }
         
+        // everything from here on is determined by the query plan cache key, so a previously planned tree may be reused
+        String queryPlanCacheKey = null;
+        if (queryPlanCache != null) {
+            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Fetch cached query plan");
+            
+            queryPlanCacheKey = getQueryPlanCacheKey(queryTree, config, settings, optionsMap);
+            ASTJexlScript cachedQueryTree = queryPlanCache.get(queryPlanCacheKey, config);
+            
+            stopwatch.stop();
+            
+            if (cachedQueryTree != null) {
+                if (log.isDebugEnabled()) {
+                    logQuery(cachedQueryTree, "Query from the query plan cache:");
+                }
+                return cachedQueryTree;
+            }
+        }
+        
         stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - flatten");
         
         // flatten the tree
@@ -726,32 +755,14 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         }
         
         stopwatch.stop();
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Restructure negative numbers");
-        
-        queryTree = FixNegativeNumbersVisitor.fix(queryTree);
-        
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after restructuring negative numbers:");
-        }
-        
-        stopwatch.stop();
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Uppercase all field names");
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Apply rewrite rules");
         
-        // Ensure that all ASTIdentifier nodes (field names) are upper-case, as
-        // this
-        // is enforced at ingest time
-        CaseSensitivityVisitor.upperCaseIdentifiers(config, metadataHelper, queryTree);
+        // Restructure negative numbers, ensure that all ASTIdentifier nodes (field names) are upper-case, as this is enforced at ingest time, and rewrite
+        // negated equality operators, all in a single pass over the tree
+        queryTree = NodeTransformVisitor.transformInPlace(queryTree, getRewriteRules(), config, metadataHelper);
         
         if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after uppercase'ing field names:");
-        }
-        
-        stopwatch.stop();
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Rewrite negated equality operators.");
-        
-        RewriteNegationsVisitor.rewrite(queryTree);
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after rewriting negated equality operators:");
+            logQuery(queryTree, "Query after applying rewrite rules:");
         }
         
         stopwatch.stop();
@@ -945,9 +956,68 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
             stopwatch.stop();
         }
         
+        if (queryPlanCacheKey != null) {
+            queryPlanCache.put(queryPlanCacheKey, queryTree, config);
+        }
+        
         return queryTree;
     }
     
+    /**
+     * Build the key under which the plan for a query is cached. Everything which may change the plan from this point in {@link #updateQueryTree} must be part
+     * of the key: the query, the query parameters (which determine the model, data types and most other options), the date range at the granularity of a
+     * shard, the authorizations and the planner options. Extending planners with options of their own should add them to the key.
+     *
+     * @param queryTree
+     *            the query tree, after parsing and adding the date filters
+     * @param config
+     *            the query configuration
+     * @param settings
+     *            the query settings
+     * @param queryOptions
+     *            the options parsed from the query options function
+     * @return the cache key
+     */
+    protected String getQueryPlanCacheKey(ASTJexlScript queryTree, ShardQueryConfiguration config, Query settings, Map<String,String> queryOptions) {
+        StringBuilder key = new StringBuilder();
+        key.append(getClass().getName()).append('|').append(settings.getQueryLogicName()).append('\n');
+        key.append(JexlStringBuildingVisitor.buildQuery(queryTree)).append('\n');
+        key.append(new TreeMap<>(queryOptions)).append('\n');
+        
+        Map<String,String> parameters = new TreeMap<>();
+        if (settings.getParameters() != null) {
+            for (Parameter parameter : settings.getParameters()) {
+                parameters.put(parameter.getParameterName(), parameter.getParameterValue());
+            }
+        }
+        key.append(parameters).append('\n');
+        
+        key.append(config.getDatatypeFilter() == null ? null : new TreeSet<>(config.getDatatypeFilter())).append('|');
+        key.append(config.getModelTableName()).append('|').append(config.getModelName()).append('|').append(config.getMetadataTableName()).append('|');
+        key.append(config.getShardTableName()).append('|').append(config.getIndexTableName()).append('|').append(config.getReverseIndexTableName()).append('\n');
+        
+        SimpleDateFormat shardDateFormatter = config.getShardDateFormatter();
+        key.append(shardDateFormatter.format(config.getBeginDate())).append('-').append(shardDateFormatter.format(config.getEndDate())).append('\n');
+        
+        Set<String> auths = new TreeSet<>();
+        for (Authorizations authorizations : config.getAuthorizations()) {
+            auths.add(new TreeSet<>(Arrays.asList(authorizations.toString().split(","))).toString());
+        }
+        key.append(Hashing.sha256().hashString(auths.toString(), StandardCharsets.UTF_8)).append('\n');
+        
+        key.append(disableBoundedLookup).append('|').append(disableAnyFieldLookup).append('|').append(disableCompositeFields).append('|');
+        key.append(disableTestNonExistentFields).append('|').append(disableExpandIndexFunction).append('|').append(cacheDataTypes).append('|');
+        key.append(executableExpansion).append('|').append(reduceQuery).append('|').append(showReducedQueryPrune).append('|').append(pushdownThreshold).append('|');
+        // the rules are configured per query logic, which is already part of the key
+        for (PushDownRule rule : rules) {
+            key.append('|').append(rule.getClass().getName());
+        }
+        for (NodeTransformRule rule : transformRules) {
+            key.append('|').append(rule.getClass().getName());
+        }
+        return key.toString();
+    }
+    
     protected ASTJexlScript processTree(final ASTJexlScript originalQueryTree, ShardQueryConfiguration config, Query settings, MetadataHelper metadataHelper,
                     ScannerFactory scannerFactory, QueryData queryData, QueryStopwatch timers, QueryModel queryModel) throws DatawaveQueryException {
         ASTJexlScript queryTree = originalQueryTree;
@@ -2106,7 +2176,9 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         addOption(cfg, QueryOptions.CONTAINS_COMPOSITE_TERMS, Boolean.toString(config.isContainsCompositeTerms()), false);
         addOption(cfg, QueryOptions.ALLOW_FIELD_INDEX_EVALUATION, Boolean.toString(config.isAllowFieldIndexEvaluation()), false);
         addOption(cfg, QueryOptions.ALLOW_TERM_FREQUENCY_LOOKUP, Boolean.toString(config.isAllowTermFrequencyLookup()), false);
+        addOption(cfg, QueryOptions.USE_HEAP_LOGIC_ITERATORS, Boolean.toString(config.isUseHeapLogicIterators()), false);
         addOption(cfg, QueryOptions.COMPRESS_SERVER_SIDE_RESULTS, Boolean.toString(config.isCompressServerSideResults()), false);
+        addOption(cfg, QueryOptions.DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS, Boolean.toString(config.isDictionaryCompressServerSideResults()), false);
     }
     
     /**
@@ -2385,6 +2457,16 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         return Collections.unmodifiableCollection(rules);
     }
     
+    /**
+     * Get the local rewrites applied in place, in a single pass, before the query model is applied. Extending planners may add rewrites of their own to the
+     * list, as long as they reach a fixpoint (see {@link NodeTransformVisitor#transformInPlace}).
+     *
+     * @return the rewrite rules, in order
+     */
+    protected List<NodeTransformRule> getRewriteRules() {
+        return Lists.newArrayList(new FixNegativeNumbersTransformRule(), new CaseSensitivityTransformRule(), new RewriteNegationsTransformRule());
+    }
+    
     public List<NodeTransformRule> getTransformRules() {
         return Collections.unmodifiableList(transformRules);
     }
@@ -2558,6 +2640,14 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         return showReducedQueryPrune;
     }
     
+    public QueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+    
+    public void setQueryPlanCache(QueryPlanCache queryPlanCache) {
+        this.queryPlanCache = queryPlanCache;
+    }
+    
     public static int getMaxChildNodesToPrint() {
         return maxChildNodesToPrint;
     }
@@ -0,0 +1,183 @@
+package datawave.query.planner;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import datawave.data.type.DiscreteIndexType;
+import datawave.data.type.Type;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.visitors.RebuildingVisitor;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+/**
+ * A bounded cache of fully planned query trees, shared between planner instances. Dashboards and saved searches replay the same queries constantly, and for
+ * those the planner can skip the visitor passes and index expansions which produced the plan the last time.
+ * <p>
+ * The cache key is built by the planner (see {@link DefaultQueryPlanner#getQueryPlanCacheKey}) from a canonical form of the query and everything else which
+ * determines the plan. Along with the tree, a plan holds the configuration derived while planning it (indexed fields, data types, composite metadata and so
+ * on) so that it can be restored onto the configuration of the query that hits the cache. Entries expire a fixed time after they are planned, bounding how
+ * stale the index expansions within them may become, and the whole cache is evicted when the metadata tables change (see
+ * {@link datawave.query.util.MetadataHelperCacheManagementListener}).
+ * <p>
+ * New global index terms do not change the metadata, so until a plan expires it will not expand to them. For that reason no cache is configured by default,
+ * and a planner only uses one when given it through {@link DefaultQueryPlanner#setQueryPlanCache}.
+ */
+public class QueryPlanCache {
+    
+    private static final Logger log = ThreadConfigurableLogger.getLogger(QueryPlanCache.class);
+    
+    public static final long DEFAULT_MAXIMUM_SIZE = 500;
+    public static final long DEFAULT_EXPIRE_AFTER_WRITE_MINUTES = 5;
+    
+    private final Cache<String,Plan> plans;
+    
+    public QueryPlanCache() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_WRITE_MINUTES);
+    }
+    
+    public QueryPlanCache(long maximumSize, long expireAfterWriteMinutes) {
+        this.plans = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWriteMinutes, TimeUnit.MINUTES).build();
+    }
+    
+    /**
+     * Get a cached plan, restoring its configuration onto the query's configuration
+     *
+     * @param key
+     *            the cache key
+     * @param config
+     *            the configuration of the query being planned
+     * @return a copy of the planned query tree, or null if not cached
+     */
+    public ASTJexlScript get(String key, ShardQueryConfiguration config) {
+        Plan plan = plans.getIfPresent(key);
+        if (plan == null) {
+            return null;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Using cached query plan for " + key);
+        }
+        plan.restore(config);
+        return (ASTJexlScript) RebuildingVisitor.copy(plan.queryTree);
+    }
+    
+    /**
+     * Cache a plan
+     *
+     * @param key
+     *            the cache key
+     * @param queryTree
+     *            the planned query tree
+     * @param config
+     *            the configuration of the query after planning
+     */
+    public void put(String key, ASTJexlScript queryTree, ShardQueryConfiguration config) {
+        plans.put(key, new Plan((ASTJexlScript) RebuildingVisitor.copy(queryTree), config));
+    }
+    
+    /**
+     * Evict all cached plans, for example when the metadata or a query model has changed
+     */
+    public void evictAll() {
+        if (log.isDebugEnabled()) {
+            log.debug("Evicting " + plans.size() + " cached query plans");
+        }
+        plans.invalidateAll();
+    }
+    
+    public long size() {
+        return plans.size();
+    }
+    
+    /**
+     * A planned query tree and the configuration derived while planning it
+     */
+    private static class Plan {
+        private final ASTJexlScript queryTree;
+        
+        private final Set<String> indexedFields;
+        private final Set<String> reverseIndexedFields;
+        private final Multimap<String,Type<?>> queryFieldsDatatypes;
+        private final Multimap<String,Type<?>> normalizedFieldsDatatypes;
+        private final Multimap<String,String> compositeToFieldMap;
+        private final Map<String,Date> compositeTransitionDates;
+        private final Map<String,String> compositeFieldSeparators;
+        private final Map<String,DiscreteIndexType<?>> fieldToDiscreteIndexTypes;
+        private final boolean expandAllTerms;
+        private final boolean containsIndexOnlyTerms;
+        private final boolean containsCompositeTerms;
+        private final boolean sortedUIDs;
+        private final Set<String> queryTermFrequencyFields;
+        private final boolean termFrequenciesRequired;
+        
+        // the fields remapped by the query model
+        private final Set<String> projectFields;
+        private final Set<String> blacklistedFields;
+        private final Set<String> groupFields;
+        private final Set<String> uniqueFields;
+        private final Set<String> limitFields;
+        
+        private Plan(ASTJexlScript queryTree, ShardQueryConfiguration config) {
+            this.queryTree = queryTree;
+            this.indexedFields = copy(config.getIndexedFields());
+            this.reverseIndexedFields = copy(config.getReverseIndexedFields());
+            this.queryFieldsDatatypes = copy(config.getQueryFieldsDatatypes());
+            this.normalizedFieldsDatatypes = copy(config.getNormalizedFieldsDatatypes());
+            this.compositeToFieldMap = copy(config.getCompositeToFieldMap());
+            this.compositeTransitionDates = config.getCompositeTransitionDates();
+            this.compositeFieldSeparators = config.getCompositeFieldSeparators();
+            this.fieldToDiscreteIndexTypes = config.getFieldToDiscreteIndexTypes();
+            this.expandAllTerms = config.isExpandAllTerms();
+            this.containsIndexOnlyTerms = config.isContainsIndexOnlyTerms();
+            this.containsCompositeTerms = config.isContainsCompositeTerms();
+            this.sortedUIDs = config.isSortedUIDs();
+            this.queryTermFrequencyFields = copy(config.getQueryTermFrequencyFields());
+            this.termFrequenciesRequired = config.isTermFrequenciesRequired();
+            this.projectFields = copy(config.getProjectFields());
+            this.blacklistedFields = copy(config.getBlacklistedFields());
+            this.groupFields = copy(config.getGroupFields());
+            this.uniqueFields = copy(config.getUniqueFields());
+            this.limitFields = copy(config.getLimitFields());
+        }
+        
+        private void restore(ShardQueryConfiguration config) {
+            // copy the collections again as the configuration is free to modify them
+            config.setIndexedFields(copy(indexedFields));
+            config.setReverseIndexedFields(copy(reverseIndexedFields));
+            config.setQueryFieldsDatatypes(copy(queryFieldsDatatypes));
+            config.setNormalizedFieldsDatatypes(copy(normalizedFieldsDatatypes));
+            config.setCompositeToFieldMap(copy(compositeToFieldMap));
+            config.setCompositeTransitionDates(compositeTransitionDates);
+            config.setCompositeFieldSeparators(compositeFieldSeparators);
+            config.setFieldToDiscreteIndexTypes(fieldToDiscreteIndexTypes);
+            config.setExpandAllTerms(expandAllTerms);
+            config.setContainsIndexOnlyTerms(containsIndexOnlyTerms);
+            config.setContainsCompositeTerms(containsCompositeTerms);
+            config.setSortedUIDs(sortedUIDs);
+            config.setQueryTermFrequencyFields(copy(queryTermFrequencyFields));
+            config.setTermFrequenciesRequired(termFrequenciesRequired);
+            config.setProjectFields(copy(projectFields));
+            config.setBlacklistedFields(copy(blacklistedFields));
+            config.setGroupFields(copy(groupFields));
+            config.setUniqueFields(copy(uniqueFields));
+            config.setLimitFields(copy(limitFields));
+        }
+        
+        private static <T> Set<T> copy(Set<T> set) {
+            return (set == null ? null : Sets.newHashSet(set));
+        }
+        
+        private static <K,V> Multimap<K,V> copy(Multimap<K,V> multimap) {
+            return (multimap == null ? null : HashMultimap.create(multimap));
+        }
+    }
+}
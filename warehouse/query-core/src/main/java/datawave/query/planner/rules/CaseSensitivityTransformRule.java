@@ -0,0 +1,40 @@
+package datawave.query.planner.rules;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.visitors.CaseSensitivityVisitor;
+import datawave.query.util.MetadataHelper;
+import org.apache.commons.jexl2.parser.ASTAssignment;
+import org.apache.commons.jexl2.parser.ASTFunctionNode;
+import org.apache.commons.jexl2.parser.ASTIdentifier;
+import org.apache.commons.jexl2.parser.ASTMethodNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * The rule form of {@link CaseSensitivityVisitor}: upper cases identifiers as our field names are always upper case. The identifiers within a function are
+ * upper cased when the function node itself is visited, as only the function's argument descriptor knows which of them are field names. This modifies the
+ * nodes in place.
+ */
+public class CaseSensitivityTransformRule implements NodeTransformRule {
+    
+    @Override
+    public JexlNode apply(JexlNode node, ShardQueryConfiguration config, MetadataHelper helper) {
+        if (node instanceof ASTIdentifier) {
+            // don't uppercase an identifier under a ASTMethodNode, it is the method's name
+            if (!(node.jjtGetParent() instanceof ASTMethodNode) && !isWithinFunctionOrAssignment(node)) {
+                node.image = node.image.toUpperCase();
+            }
+        } else if (node instanceof ASTFunctionNode && !isWithinFunctionOrAssignment(node)) {
+            CaseSensitivityVisitor.upperCaseIdentifiers(config, helper, node);
+        }
+        return node;
+    }
+    
+    private static boolean isWithinFunctionOrAssignment(JexlNode node) {
+        for (JexlNode parent = node.jjtGetParent(); parent != null; parent = parent.jjtGetParent()) {
+            if (parent instanceof ASTFunctionNode || parent instanceof ASTAssignment) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
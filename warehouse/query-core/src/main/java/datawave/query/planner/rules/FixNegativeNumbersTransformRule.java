@@ -0,0 +1,25 @@
+package datawave.query.planner.rules;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.visitors.FixNegativeNumbersVisitor;
+import datawave.query.util.MetadataHelper;
+import org.apache.commons.jexl2.parser.ASTNumberLiteral;
+import org.apache.commons.jexl2.parser.ASTUnaryMinusNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * The rule form of {@link FixNegativeNumbersVisitor}: folds a unary minus applied to a number literal into a negative number literal.
+ */
+public class FixNegativeNumbersTransformRule implements NodeTransformRule {
+    
+    @Override
+    public JexlNode apply(JexlNode node, ShardQueryConfiguration config, MetadataHelper helper) {
+        if (node instanceof ASTUnaryMinusNode) {
+            ASTNumberLiteral literal = FixNegativeNumbersVisitor.fixNegativeNumber((ASTUnaryMinusNode) node);
+            if (literal != null) {
+                return literal;
+            }
+        }
+        return node;
+    }
+}
@@ -2,7 +2,9 @@ package datawave.query.planner.rules;
 
 import com.google.common.base.Preconditions;
 import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.exceptions.DatawaveFatalQueryException;
 import datawave.query.jexl.nodes.QueryPropertyMarker;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
 import datawave.query.jexl.visitors.RebuildingVisitor;
 import datawave.query.util.MetadataHelper;
 import org.apache.commons.jexl2.parser.ASTAndNode;
@@ -21,15 +23,28 @@ import org.apache.commons.jexl2.parser.ASTOrNode;
 import org.apache.commons.jexl2.parser.ASTReference;
 import org.apache.commons.jexl2.parser.ASTReferenceExpression;
 import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.JexlNodes;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 public class NodeTransformVisitor extends RebuildingVisitor {
     
+    /**
+     * The number of times the rules may replace a node, and then its replacement, before giving up on the rules reaching a fixpoint
+     */
+    public static final int MAX_REWRITE_PASSES = 100;
+    
     private final ShardQueryConfiguration config;
     private final List<NodeTransformRule> rules;
     private final MetadataHelper helper;
     
+    // the nodes which the rules have already left unchanged, see rewrite(JexlNode, int)
+    private final Set<JexlNode> rewritten = Collections.newSetFromMap(new IdentityHashMap<>());
+    
     public NodeTransformVisitor(ShardQueryConfiguration config, MetadataHelper helper, List<NodeTransformRule> rules) {
         Preconditions.checkNotNull(rules, "Must supply non-null rules to NodeTransformVisitor");
         this.helper = helper;
@@ -42,6 +57,85 @@ public class NodeTransformVisitor extends RebuildingVisitor {
         return visitor.apply(tree);
     }
     
+    /**
+     * Apply the rules to every node of the tree in a single traversal, modifying the tree in place instead of copying it. Children are rewritten before their
+     * parents, and a node is replaced only when a rule returns a different node (or removed when a rule returns null), so unchanged subtrees are never copied.
+     * When a node is replaced, the rules are applied again to the new nodes within the replacement until they leave it unchanged. This allows several local
+     * rewrites, each of which used to be a separate pass over the tree, to be fused into a single pass.
+     * <p>
+     * Unlike {@link #transform}, this descends into query property markers, and the rules must reach a fixpoint: once a rule has rewritten a node, applying it
+     * to the result must return the result unchanged.
+     *
+     * @param tree
+     *            the tree to rewrite
+     * @param rules
+     *            the rules to apply, in order
+     * @param config
+     *            the query configuration
+     * @param helper
+     *            the metadata helper
+     * @return the rewritten tree
+     */
+    public static ASTJexlScript transformInPlace(ASTJexlScript tree, List<NodeTransformRule> rules, ShardQueryConfiguration config, MetadataHelper helper) {
+        NodeTransformVisitor visitor = new NodeTransformVisitor(config, helper, rules);
+        visitor.rewriteChildren(tree);
+        return tree;
+    }
+    
+    private JexlNode rewrite(JexlNode node, int passes) {
+        // nodes already at a fixpoint (e.g. the original children within a replacement node) are not visited again
+        if (!rewritten.add(node)) {
+            return node;
+        }
+        
+        rewriteChildren(node);
+        
+        JexlNode replacement = node;
+        for (NodeTransformRule rule : rules) {
+            replacement = rule.apply(replacement, config, helper);
+            if (replacement == null) {
+                return null;
+            }
+        }
+        if (replacement == node) {
+            return node;
+        }
+        
+        if (passes >= MAX_REWRITE_PASSES) {
+            throw new DatawaveFatalQueryException("Node transform rules did not reach a fixpoint after " + passes + " passes on " + JexlStringBuildingVisitor.buildQuery(node));
+        }
+        replacement.jjtSetParent(node.jjtGetParent());
+        return rewrite(replacement, passes + 1);
+    }
+    
+    private void rewriteChildren(JexlNode node) {
+        // only allocated if a child is removed
+        List<JexlNode> children = null;
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            JexlNode child = node.jjtGetChild(i);
+            JexlNode replacement = rewrite(child, 0);
+            if (replacement == null) {
+                if (children == null) {
+                    children = new ArrayList<>(node.jjtGetNumChildren());
+                    for (int j = 0; j < i; j++) {
+                        children.add(node.jjtGetChild(j));
+                    }
+                }
+            } else {
+                if (replacement != child) {
+                    node.jjtAddChild(replacement, i);
+                    replacement.jjtSetParent(node);
+                }
+                if (children != null) {
+                    children.add(replacement);
+                }
+            }
+        }
+        if (children != null) {
+            JexlNodes.children(node, children.toArray(new JexlNode[0]));
+        }
+    }
+    
     @Override
     public Object visit(ASTOrNode node, Object data) {
         return applyTransforms(super.visit(node, data));
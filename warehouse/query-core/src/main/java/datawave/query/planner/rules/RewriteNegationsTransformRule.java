@@ -0,0 +1,29 @@
+package datawave.query.planner.rules;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.util.MetadataHelper;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParserTreeConstants;
+
+import static org.apache.commons.jexl2.parser.JexlNodes.children;
+import static org.apache.commons.jexl2.parser.JexlNodes.negate;
+
+/**
+ * The rule form of {@link datawave.query.jexl.visitors.RewriteNegationsVisitor}: rewrites "A != B" into "!(A == B)" and "A !~ B" into "!(A =~ B)".
+ */
+public class RewriteNegationsTransformRule implements NodeTransformRule {
+    
+    @Override
+    public JexlNode apply(JexlNode node, ShardQueryConfiguration config, MetadataHelper helper) {
+        if (node instanceof ASTNENode) {
+            return negate(children(new ASTEQNode(ParserTreeConstants.JJTEQNODE), children(node)));
+        } else if (node instanceof ASTNRNode) {
+            return negate(children(new ASTERNode(ParserTreeConstants.JJTERNODE), children(node)));
+        }
+        return node;
+    }
+}
@@ -168,6 +168,8 @@ public class PushdownScheduler extends Scheduler {
             session.setBackoffEnabled(true);
         }
         
+        session.setServerScanLimits(config.getMaxConcurrentScansPerServer(), config.getMaxConcurrentScansPerQuery());
+        
         session.setChunkIter(chunkIter);
         
         session.setTabletLocator(tl);
@@ -42,6 +42,7 @@ import com.google.common.util.concurrent.Service;
 
 import datawave.query.tables.async.Scan;
 import datawave.query.tables.async.ScannerChunk;
+import datawave.query.tables.async.ServerChunkScheduler;
 import datawave.query.tables.async.SessionArbiter;
 import datawave.query.tables.async.SpeculativeScan;
 import datawave.webservice.query.Query;
@@ -105,6 +106,11 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
     
     protected int threadCount = 5;
     
+    /**
+     * Schedules chunks by the tablet server hosting them, if per server scan limits are set.
+     */
+    protected ServerChunkScheduler serverScheduler = null;
+    
     private class BatchReaderThreadFactory implements ThreadFactory {
         
         private ThreadFactory dtf = Executors.defaultThreadFactory();
@@ -193,6 +199,26 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
         return this;
     }
     
+    /**
+     * Limit the number of scans in flight against each tablet server. Chunks are grouped by their last known location and the servers are served round robin,
+     * so that a server hosting many chunks does not hold up the scans against the other servers.
+     * 
+     * @param maxScansPerServer
+     *            maximum scans in flight against a single tablet server, or a non-positive value to schedule chunks in the order they are received
+     * @param maxScansPerQuery
+     *            maximum scans in flight for this session, or a non-positive value to use the limit derived from the number of threads
+     * @return this session
+     */
+    public BatchScannerSession setServerScanLimits(int maxScansPerServer, int maxScansPerQuery) {
+        if (maxScansPerServer > 0) {
+            int queryLimit = maxScansPerQuery > 0 ? maxScansPerQuery : (int) (threadCount * RANGE_MULTIPLIER);
+            serverScheduler = new ServerChunkScheduler(maxScansPerServer, queryLimit);
+        } else {
+            serverScheduler = null;
+        }
+        return this;
+    }
+    
     public BatchScannerSession updateIdentifier(String threadId) {
         this.threadId.append(threadId);
         return this;
@@ -277,6 +303,10 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
                 return;
             }
             
+            if (null != serverScheduler) {
+                scheduleByServer();
+            }
+            
             while (scannerBatches.hasNext())
             
             {
@@ -334,6 +364,42 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
         }
     }
     
+    /**
+     * Submit the chunks through the server scheduler, buffering chunks while their servers or this session are at their scan limits. Returns once every chunk
+     * has been submitted.
+     * 
+     * @throws InterruptedException
+     */
+    protected void scheduleByServer() throws InterruptedException {
+        while (scannerBatches.hasNext() || serverScheduler.getPendingCount() > 0) {
+            boolean progress = false;
+            while (scannerBatches.hasNext() && serverScheduler.getPendingCount() < (threadCount * QUEUE_MULTIPLIER)) {
+                for (ScannerChunk chunk : scannerBatches.next()) {
+                    serverScheduler.add(chunk);
+                }
+                progress = true;
+            }
+            
+            ScannerChunk chunk;
+            while ((chunk = serverScheduler.next()) != null) {
+                submitTask(chunk);
+                progress = true;
+            }
+            
+            if (!progress) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Parking for 10 milliseconds until a server can take additional work; " + serverScheduler.getInFlightCount() + " in flight, "
+                                    + serverScheduler.getPendingCount() + " pending");
+                }
+                Thread.sleep(10);
+                if (Thread.interrupted() || !isRunning()) {
+                    service.shutdownNow();
+                    throw new InterruptedException("Interrupted while parking");
+                }
+            }
+        }
+    }
+    
     @Override
     protected long getPollTime() {
         return 5;
@@ -349,57 +415,66 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
     protected void submitTasks(List<ScannerChunk> newChunks) {
         
         for (ScannerChunk chunk : newChunks) {
+            submitTask(chunk);
+        }
+        
+    }
+    
+    /**
+     * Submit a scan of a single chunk.
+     * 
+     * @param chunk
+     */
+    protected void submitTask(ScannerChunk chunk) {
+        AtomicInteger numChunks = serverMap.get(chunk.getLastKnownLocation());
+        if (numChunks == null) {
+            numChunks = new AtomicInteger(1);
+            serverMap.put(chunk.getLastKnownLocation(), numChunks);
+        } else
+            numChunks.incrementAndGet();
+        
+        Scan scan = null;
+        
+        if (speculativeScanning) {
             
-            AtomicInteger numChunks = serverMap.get(chunk.getLastKnownLocation());
-            if (numChunks == null) {
-                numChunks = new AtomicInteger(1);
-                serverMap.put(chunk.getLastKnownLocation(), numChunks);
-            } else
-                numChunks.incrementAndGet();
+            if (log.isTraceEnabled()) {
+                log.trace("Using speculative execution");
+            }
             
-            Scan scan = null;
+            chunk.setQueryId(settings.getId().toString());
             
-            if (speculativeScanning) {
-                
-                if (log.isTraceEnabled()) {
-                    log.trace("Using speculative execution");
-                }
-                
-                chunk.setQueryId(settings.getId().toString());
-                
-                scan = new SpeculativeScan(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, resultQueue, listenerService);
-                
-                scan.setVisitors(visitorFunctions);
-                
-                Scan childScan = new Scan(localTableName, localAuths, new ScannerChunk(chunk), delegatorReference, BatchResource.class,
-                                ((SpeculativeScan) scan).getQueue(), listenerService);
-                
-                childScan.setVisitors(visitorFunctions);
-                
-                ((SpeculativeScan) scan).addScan(childScan);
-                
-                childScan = new Scan(localTableName, localAuths, new ScannerChunk(chunk), delegatorReference, delegatedResourceInitializer,
-                                ((SpeculativeScan) scan).getQueue(), listenerService);
-                
-                childScan.setVisitors(visitorFunctions);
-                
-                ((SpeculativeScan) scan).addScan(childScan);
-                
-            } else {
-                scan = new Scan(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, resultQueue, listenerService);
-            }
+            scan = new SpeculativeScan(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, resultQueue, listenerService);
             
-            if (backoffEnabled) {
-                scan.setSessionArbiter(this);
-            }
             scan.setVisitors(visitorFunctions);
-            scan.setTimeout(scanLimitTimeout);
-            if (log.isTraceEnabled()) {
-                log.trace("Adding scanner " + chunk);
-            }
-            submitScan(scan, true);
+            
+            Scan childScan = new Scan(localTableName, localAuths, new ScannerChunk(chunk), delegatorReference, BatchResource.class,
+                            ((SpeculativeScan) scan).getQueue(), listenerService);
+            
+            childScan.setVisitors(visitorFunctions);
+            
+            ((SpeculativeScan) scan).addScan(childScan);
+            
+            childScan = new Scan(localTableName, localAuths, new ScannerChunk(chunk), delegatorReference, delegatedResourceInitializer,
+                            ((SpeculativeScan) scan).getQueue(), listenerService);
+            
+            childScan.setVisitors(visitorFunctions);
+            
+            ((SpeculativeScan) scan).addScan(childScan);
+            
+        } else {
+            scan = new Scan(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, resultQueue, listenerService);
         }
         
+        if (backoffEnabled) {
+            scan.setSessionArbiter(this);
+        }
+        scan.setVisitors(visitorFunctions);
+        scan.setTimeout(scanLimitTimeout);
+        if (log.isTraceEnabled()) {
+            log.trace("Adding scanner " + chunk);
+        }
+        submitScan(scan, true);
+        
     }
     
     /**
@@ -510,6 +585,10 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
         if (finishedScan.finished()) {
             runnableCount.decrementAndGet();
             
+            if (null != serverScheduler) {
+                serverScheduler.release(finishedScan.getScanLocation());
+            }
+            
             finishedScan.close();
             
             if (null != stats && null != finishedScan.getStats()) {
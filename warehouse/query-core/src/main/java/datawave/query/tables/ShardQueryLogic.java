@@ -69,6 +69,7 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.htrace.Trace;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
@@ -909,6 +910,11 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
             config.setCompressServerSideResults(compress);
         }
         
+        String tDictionaryCompressServerSideResults = settings.findParameter(QueryOptions.DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS).getParameterValue().trim();
+        if (org.apache.commons.lang.StringUtils.isNotBlank(tDictionaryCompressServerSideResults)) {
+            config.setDictionaryCompressServerSideResults(Boolean.parseBoolean(tDictionaryCompressServerSideResults));
+        }
+        
         // Configure index-only filter functions to be enabled if not already set to such a state
         config.setIndexOnlyFilterFunctionsEnabled(this.isIndexOnlyFilterFunctionsEnabled());
         
@@ -929,6 +935,9 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
                 String collectTimingDetailsStr = settings.findParameter(QueryOptions.COLLECT_TIMING_DETAILS).getParameterValue().trim();
                 if (org.apache.commons.lang.StringUtils.isNotBlank(collectTimingDetailsStr)) {
                     setCollectTimingDetails(Boolean.valueOf(collectTimingDetailsStr));
+                } else if (Trace.isTracing()) {
+                    // the query was picked for tracing when it was created, so collect the timing details for it on the iterator stack
+                    setCollectTimingDetails(true);
                 }
             }
         } else {
@@ -1823,6 +1832,21 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setCompressServerSideResults(compressServerSideResults);
     }
     
+    public boolean isDictionaryCompressServerSideResults() {
+        return getConfig().isDictionaryCompressServerSideResults();
+    }
+    
+    /**
+     * Compress server side results with a preset dictionary rather than GZIP, which also makes it worthwhile to compress smaller documents. Only enable this
+     * once every webserver can read the dictionary compression scheme.
+     *
+     * @param dictionaryCompressServerSideResults
+     *            whether to compress with the preset dictionary
+     */
+    public void setDictionaryCompressServerSideResults(boolean dictionaryCompressServerSideResults) {
+        getConfig().setDictionaryCompressServerSideResults(dictionaryCompressServerSideResults);
+    }
+    
     /**
      * Returns a value indicating whether index-only filter functions (e.g., #INCLUDE, #EXCLUDE) should be enabled. If true, the use of such filters can
      * potentially consume a LOT of memory.
@@ -1861,6 +1885,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         optionalParams.add(QueryOptions.REDUCED_RESPONSE);
         optionalParams.add(QueryOptions.POSTPROCESSING_CLASSES);
         optionalParams.add(QueryOptions.COMPRESS_SERVER_SIDE_RESULTS);
+        optionalParams.add(QueryOptions.DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS);
         optionalParams.add(QueryOptions.HIT_LIST);
         optionalParams.add(QueryOptions.DATE_INDEX_TIME_TRAVEL);
         optionalParams.add(QueryParameters.LIMIT_FIELDS);
@@ -1994,6 +2019,22 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setSpeculativeScanning(speculativeScanning);
     }
     
+    public int getMaxConcurrentScansPerServer() {
+        return getConfig().getMaxConcurrentScansPerServer();
+    }
+    
+    public void setMaxConcurrentScansPerServer(int maxConcurrentScansPerServer) {
+        getConfig().setMaxConcurrentScansPerServer(maxConcurrentScansPerServer);
+    }
+    
+    public int getMaxConcurrentScansPerQuery() {
+        return getConfig().getMaxConcurrentScansPerQuery();
+    }
+    
+    public void setMaxConcurrentScansPerQuery(int maxConcurrentScansPerQuery) {
+        getConfig().setMaxConcurrentScansPerQuery(maxConcurrentScansPerQuery);
+    }
+    
     public boolean getAllowShortcutEvaluation() {
         return getConfig().getAllowShortcutEvaluation();
     }
@@ -2018,6 +2059,30 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setAllowTermFrequencyLookup(allowTermFrequencyLookup);
     }
     
+    public boolean isUseHeapLogicIterators() {
+        return getConfig().isUseHeapLogicIterators();
+    }
+    
+    public void setUseHeapLogicIterators(boolean useHeapLogicIterators) {
+        getConfig().setUseHeapLogicIterators(useHeapLogicIterators);
+    }
+    
+    public boolean isOrderByIndexCounts() {
+        return getConfig().isOrderByIndexCounts();
+    }
+    
+    public void setOrderByIndexCounts(boolean orderByIndexCounts) {
+        getConfig().setOrderByIndexCounts(orderByIndexCounts);
+    }
+    
+    public double getDelayCommonTermsRatio() {
+        return getConfig().getDelayCommonTermsRatio();
+    }
+    
+    public void setDelayCommonTermsRatio(double delayCommonTermsRatio) {
+        getConfig().setDelayCommonTermsRatio(delayCommonTermsRatio);
+    }
+    
     public boolean isExpandUnfieldedNegations() {
         return getConfig().isExpandUnfieldedNegations();
     }
@@ -0,0 +1,140 @@
+package datawave.query.tables.async;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Schedules the scans of a query by the tablet server hosting each {@link ScannerChunk}.
+ * <p>
+ * Pending chunks are grouped by their last known location, and the servers are served round robin so that a server hosting many of the query's chunks does
+ * not gate the scans of the other servers. A chunk is only scheduled while the number of scans in flight against its server, and against the query, are
+ * below their limits. Each scheduled chunk must be {@link #release(String) released} once its scan completes.
+ */
+public class ServerChunkScheduler {
+    
+    /**
+     * Location used for chunks without a known location
+     */
+    private static final String UNKNOWN_LOCATION = "";
+    
+    private final int maxScansPerServer;
+    
+    private final int maxScansPerQuery;
+    
+    /**
+     * Pending chunks of each server
+     */
+    private final Map<String,Deque<ScannerChunk>> pending = new HashMap<>();
+    
+    /**
+     * Servers with pending chunks, in the order in which they will be served
+     */
+    private final Deque<String> servers = new ArrayDeque<>();
+    
+    /**
+     * Scans in flight against each server
+     */
+    private final Map<String,Integer> inFlight = new HashMap<>();
+    
+    private int pendingCount = 0;
+    
+    private int inFlightCount = 0;
+    
+    /**
+     * @param maxScansPerServer
+     *            the maximum number of scans in flight against a single tablet server
+     * @param maxScansPerQuery
+     *            the maximum number of scans in flight for the query
+     */
+    public ServerChunkScheduler(int maxScansPerServer, int maxScansPerQuery) {
+        this.maxScansPerServer = Math.max(maxScansPerServer, 1);
+        this.maxScansPerQuery = Math.max(maxScansPerQuery, 1);
+    }
+    
+    /**
+     * Add a chunk to be scheduled
+     * 
+     * @param chunk
+     *            the chunk
+     */
+    public synchronized void add(ScannerChunk chunk) {
+        String location = location(chunk.getLastKnownLocation());
+        Deque<ScannerChunk> chunks = pending.get(location);
+        if (null == chunks) {
+            chunks = new ArrayDeque<>();
+            pending.put(location, chunks);
+        }
+        if (chunks.isEmpty()) {
+            servers.addLast(location);
+        }
+        chunks.addLast(chunk);
+        pendingCount++;
+    }
+    
+    /**
+     * Take the next chunk which can be scanned, starting from the server after the one last served. The chunk is counted as in flight until it is released.
+     * 
+     * @return the chunk, or null if there are no pending chunks, or every server with pending chunks is at its limit, or the query is at its limit
+     */
+    public synchronized ScannerChunk next() {
+        if (inFlightCount >= maxScansPerQuery) {
+            return null;
+        }
+        for (int i = servers.size(); i > 0; i--) {
+            String location = servers.pollFirst();
+            Deque<ScannerChunk> chunks = pending.get(location);
+            if (getInFlight(location) < maxScansPerServer) {
+                ScannerChunk chunk = chunks.pollFirst();
+                if (!chunks.isEmpty()) {
+                    servers.addLast(location);
+                }
+                pendingCount--;
+                inFlightCount++;
+                inFlight.put(location, getInFlight(location) + 1);
+                return chunk;
+            }
+            // this server is busy, so try the next one
+            servers.addLast(location);
+        }
+        return null;
+    }
+    
+    /**
+     * Release a chunk taken from {@link #next()} once its scan completes
+     * 
+     * @param location
+     *            the last known location of the chunk
+     */
+    public synchronized void release(String location) {
+        location = location(location);
+        int count = getInFlight(location);
+        if (count <= 0) {
+            return;
+        }
+        if (count == 1) {
+            inFlight.remove(location);
+        } else {
+            inFlight.put(location, count - 1);
+        }
+        inFlightCount--;
+    }
+    
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+    
+    public synchronized int getInFlightCount() {
+        return inFlightCount;
+    }
+    
+    public synchronized int getInFlight(String location) {
+        Integer count = inFlight.get(location(location));
+        return (null == count ? 0 : count);
+    }
+    
+    private static String location(String location) {
+        return (null == location ? UNKNOWN_LOCATION : location);
+    }
+}
@@ -1,5 +1,7 @@
 package datawave.query.tables.chained;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -87,6 +89,21 @@ public abstract class ChainedQueryTable<T1,T2> extends BaseQueryLogic<T2> {
         return config;
     }
     
+    /**
+     * Close the results of the chain strategy if they hold resources of their own, such as the clones of the latter query logic
+     */
+    @Override
+    public void close() {
+        super.close();
+        if (this.iterator instanceof Closeable) {
+            try {
+                ((Closeable) this.iterator).close();
+            } catch (IOException e) {
+                log.warn("Failed to close the results of the chained query", e);
+            }
+        }
+    }
+    
     @Override
     public Set<String> getOptionalQueryParameters() {
         Set<String> params = new TreeSet<>();
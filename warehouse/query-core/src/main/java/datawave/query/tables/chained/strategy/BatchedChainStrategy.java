@@ -0,0 +1,294 @@
+package datawave.query.tables.chained.strategy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import datawave.webservice.query.Query;
+import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import datawave.webservice.query.logic.QueryLogic;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Defines the logic to collect the results from the former query logic in batches, and issue one query against the latter query logic per batch.
+ * <p>
+ * The join keys of the former results are gathered into batches of at most {@link #getBatchSize()} keys, and each batch is turned into a latter query which is
+ * run against a clone of the latter query logic. The next batch is gathered in the background while the latter query of the current batch is being read, so
+ * that neither the former results nor the terms of a latter query need to be held all at once. Join keys seen in an earlier batch are not queried again.
+ * <p>
+ * The returned iterator is {@link Closeable}, and closing it stops the gathering of batches and closes the clone of the latter query logic being read.
+ * 
+ * @param <T1>
+ *            Type of former {@link datawave.webservice.query.logic.QueryLogic}
+ * @param <T2>
+ *            Type of latter {@link datawave.webservice.query.logic.QueryLogic}
+ */
+public abstract class BatchedChainStrategy<T1,T2> implements ChainStrategy<T1,T2> {
+    protected final Logger log = Logger.getLogger(BatchedChainStrategy.class);
+    
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    
+    protected int batchSize = DEFAULT_BATCH_SIZE;
+    
+    @Override
+    public Iterator<T2> runChainedQuery(AccumuloClient client, Query initialQuery, Set<Authorizations> auths, Iterator<T1> initialQueryResults,
+                    QueryLogic<T2> latterQueryLogic) throws Exception {
+        return new BatchIterator(client, initialQuery, auths, initialQueryResults, latterQueryLogic);
+    }
+    
+    /**
+     * Get the keys of a result of the former query on which the latter query is joined
+     * 
+     * @param initialQueryResult
+     *            a result of the former query
+     * @return the join keys, which may be empty
+     */
+    protected abstract Collection<String> getJoinKeys(T1 initialQueryResult);
+    
+    /**
+     * Build the latter query for a batch of join keys
+     * 
+     * @param initialQuery
+     *            the original query
+     * @param joinKeys
+     *            the batch of join keys, none of which were in an earlier batch
+     * @param latterLogicName
+     *            the name of the latter query logic
+     * @return the latter query, or null if no query should be run for this batch
+     */
+    protected abstract Query buildLatterQuery(Query initialQuery, List<String> joinKeys, String latterLogicName);
+    
+    /**
+     * Run a latter query against a clone of the latter query logic. The clone is closed once its results have been read, or when the returned iterator is
+     * closed if it is {@link Closeable}.
+     * 
+     * @param client
+     *            the client
+     * @param latterQuery
+     *            the latter query
+     * @param auths
+     *            the authorizations
+     * @param latterQueryLogic
+     *            the latter query logic, which is cloned
+     * @return the results of the latter query
+     * @throws Exception
+     *             if the latter query could not be run
+     */
+    protected Iterator<T2> runLatterQuery(AccumuloClient client, Query latterQuery, Set<Authorizations> auths, QueryLogic<T2> latterQueryLogic)
+                    throws Exception {
+        @SuppressWarnings("unchecked")
+        final QueryLogic<T2> logic = (QueryLogic<T2>) latterQueryLogic.clone();
+        try {
+            GenericQueryConfiguration config = logic.initialize(client, latterQuery, auths);
+            logic.setupQuery(config);
+        } catch (Exception e) {
+            logic.close();
+            throw e;
+        }
+        
+        return new LatterQueryIterator(logic);
+    }
+    
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Reads the results of a clone of the latter query logic, closing the clone once they have been read
+     */
+    private class LatterQueryIterator implements Iterator<T2>, Closeable {
+        private final QueryLogic<T2> logic;
+        private final Iterator<T2> results;
+        private boolean closed = false;
+        
+        LatterQueryIterator(QueryLogic<T2> logic) {
+            this.logic = logic;
+            this.results = logic.iterator();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (!closed && results.hasNext()) {
+                return true;
+            }
+            close();
+            return false;
+        }
+        
+        @Override
+        public T2 next() {
+            return results.next();
+        }
+        
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                logic.close();
+            }
+        }
+    }
+    
+    /**
+     * Reads the latter query of each batch in turn, while gathering the next batch
+     */
+    private class BatchIterator implements Iterator<T2>, Closeable {
+        private final AccumuloClient client;
+        private final Query initialQuery;
+        private final Set<Authorizations> auths;
+        private final Iterator<T1> initialQueryResults;
+        private final QueryLogic<T2> latterQueryLogic;
+        
+        /**
+         * Join keys already batched. Only used by the gathering thread.
+         */
+        private final Set<String> seen = new HashSet<>();
+        
+        /**
+         * Join keys of a former result which did not fit in the last batch. Only used by the gathering thread.
+         */
+        private final Deque<String> pending = new ArrayDeque<>();
+        
+        private final ExecutorService gatherer;
+        private Future<List<String>> nextBatch;
+        private Iterator<T2> latterQueryResults = Collections.emptyIterator();
+        private int batchCount = 0;
+        
+        BatchIterator(AccumuloClient client, Query initialQuery, Set<Authorizations> auths, Iterator<T1> initialQueryResults,
+                        QueryLogic<T2> latterQueryLogic) {
+            this.client = client;
+            this.initialQuery = initialQuery;
+            this.auths = auths;
+            this.initialQueryResults = initialQueryResults;
+            this.latterQueryLogic = latterQueryLogic;
+            
+            ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("BatchedChainStrategy-%d").setDaemon(true).build();
+            this.gatherer = Executors.newSingleThreadExecutor(threadFactory);
+            this.nextBatch = gatherer.submit(this::gatherBatch);
+        }
+        
+        private List<String> gatherBatch() {
+            List<String> batch = new ArrayList<>(Math.max(batchSize, 1));
+            while (batch.size() < Math.max(batchSize, 1)) {
+                if (!pending.isEmpty()) {
+                    batch.add(pending.poll());
+                } else if (initialQueryResults.hasNext()) {
+                    for (String joinKey : getJoinKeys(initialQueryResults.next())) {
+                        if (seen.add(joinKey)) {
+                            pending.add(joinKey);
+                        }
+                    }
+                } else {
+                    break;
+                }
+            }
+            return batch;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (!latterQueryResults.hasNext()) {
+                if (null == nextBatch) {
+                    return false;
+                }
+                
+                List<String> batch = takeBatch();
+                if (batch.isEmpty()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Ran " + batchCount + " latter queries");
+                    }
+                    nextBatch = null;
+                    gatherer.shutdown();
+                    return false;
+                }
+                
+                // gather the next batch while this one is queried
+                nextBatch = gatherer.submit(this::gatherBatch);
+                
+                batchCount++;
+                Query latterQuery = buildLatterQuery(initialQuery, batch, latterQueryLogic.getLogicName());
+                if (null == latterQuery) {
+                    log.info("Could not compute a query to run for batch " + batchCount);
+                    continue;
+                }
+                
+                try {
+                    latterQueryResults = runLatterQuery(client, latterQuery, auths, latterQueryLogic);
+                } catch (Exception e) {
+                    gatherer.shutdownNow();
+                    nextBatch = null;
+                    throw new RuntimeException("Failed to run the latter query for batch " + batchCount, e);
+                }
+            }
+            return true;
+        }
+        
+        private List<String> takeBatch() {
+            try {
+                return nextBatch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                gatherer.shutdownNow();
+                nextBatch = null;
+                throw new RuntimeException("Interrupted while gathering the results of the former query", e);
+            } catch (ExecutionException e) {
+                gatherer.shutdownNow();
+                nextBatch = null;
+                throw new RuntimeException("Failed to gather the results of the former query", e.getCause());
+            }
+        }
+        
+        @Override
+        public T2 next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return latterQueryResults.next();
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove() is not supported by this Iterator.");
+        }
+        
+        /**
+         * Stop gathering batches, and close the latter query being read
+         */
+        @Override
+        public void close() throws IOException {
+            if (null != nextBatch) {
+                nextBatch.cancel(true);
+                nextBatch = null;
+            }
+            gatherer.shutdownNow();
+            
+            if (latterQueryResults instanceof Closeable) {
+                ((Closeable) latterQueryResults).close();
+            }
+            latterQueryResults = Collections.emptyIterator();
+        }
+    }
+}
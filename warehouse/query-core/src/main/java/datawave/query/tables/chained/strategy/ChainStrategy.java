@@ -12,7 +12,7 @@ import org.apache.accumulo.core.security.Authorizations;
 /**
  * The approach to take when converting query results into another query
  * 
- * FullChainStrategy: Parse all results from Q1 to create Q2 StreamedChainStrategy: Buffer results from Q1, and then query Q2
+ * FullChainStrategy: Parse all results from Q1 to create Q2 BatchedChainStrategy: Buffer batches of results from Q1, and query Q2 once per batch
  * 
  * 
  */
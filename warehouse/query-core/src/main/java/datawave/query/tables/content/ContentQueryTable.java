@@ -1,12 +1,19 @@
 package datawave.query.tables.content;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.protobuf.InvalidProtocolBufferException;
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.data.type.Type;
 import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
+import datawave.ingest.protobuf.Uid;
 import datawave.query.QueryParameters;
 import datawave.query.config.ContentQueryConfiguration;
 import datawave.query.Constants;
 import datawave.query.tables.ScannerFactory;
 import datawave.query.transformer.ContentQueryTransformer;
+import datawave.util.time.DateHelper;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.QueryImpl.Parameter;
@@ -25,10 +32,15 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.RegExFilter;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
@@ -46,6 +58,17 @@ import java.util.TreeSet;
  * 
  * The optional parameter content.view.name can be used to retrieve an alternate view of the document, assuming one is stored with that name. The optional
  * parameter content.view.all can be used to retrieve all documents for the parent and children Both optional parameters can be used together
+ * <p>
+ * Documents may also be identified by the value of an indexed, unique field such as a UUID:
+ * 
+ * <pre>
+ *     UUID:value [UUID:value]*
+ * </pre>
+ * 
+ * Such terms are resolved to their shard ids, datatypes and UIDs with a single batch scan of the global index (falling back on the field index of the shard
+ * for any term with too many UIDs to keep in the global index), without the planning of a full event query. The values are normalized with the type
+ * configured for their field via {@link #setUuidTypes(Map)}, or {@link LcNoDiacriticsType} by default. A term whose value has the three parts of a document
+ * identifier is always treated as one.
  */
 public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     
@@ -54,9 +77,13 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     private static final String PARENT_ONLY = "\1";
     private static final String ALL = "\u10FFFF";
     
+    private static final Type<?> DEFAULT_UUID_TYPE = new LcNoDiacriticsType();
+    
     private int queryThreads = 100;
     private ScannerFactory scannerFactory;
     private String viewName = null;
+    private String indexTableName = "shardIndex";
+    private Map<String,Type<?>> uuidTypes = new HashMap<>();
     
     public ContentQueryTable() {
         super();
@@ -64,6 +91,9 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     
     public ContentQueryTable(final ContentQueryTable contentQueryTable) {
         super(contentQueryTable);
+        this.queryThreads = contentQueryTable.queryThreads;
+        this.indexTableName = contentQueryTable.indexTableName;
+        this.uuidTypes = contentQueryTable.uuidTypes;
     }
     
     /**
@@ -111,7 +141,7 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         }
         
         // Configure ranges
-        final Collection<Range> ranges = this.createRanges(settings, end);
+        final Collection<Range> ranges = this.createRanges(settings, auths, end);
         config.setRanges(ranges);
         
         return config;
@@ -129,6 +159,12 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         
         final ContentQueryConfiguration config = (ContentQueryConfiguration) genericConfig;
         
+        // UUID terms which were not found leave nothing to scan
+        if (config.getRanges().isEmpty()) {
+            this.iterator = Collections.emptyIterator();
+            return;
+        }
+        
         try {
             final BatchScanner scanner = this.scannerFactory
                             .newScanner(config.getTableName(), config.getAuthorizations(), this.queryThreads, config.getQuery());
@@ -153,14 +189,19 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
      * 
      * @param settings the query
      * 
+     * @param auths the authorizations used to resolve UUID terms
+     * 
      * @param endKeyTerminator a string appended to each Range's end key indicating whether or not to include child content
      * 
      * @return one or more Ranges
      */
-    private Collection<Range> createRanges(final Query settings, final String endKeyTerminator) {
+    private Collection<Range> createRanges(final Query settings, final Set<Authorizations> auths, final String endKeyTerminator) throws TableNotFoundException {
         // Initialize the returned collection of ordered ranges
         final Set<Range> ranges = new TreeSet<>();
         
+        // Initialize the UUID terms to resolve against the index, keyed by field
+        final Multimap<String,String> uuids = HashMultimap.create();
+        
         // Get the query
         final String query = settings.getQuery().trim();
         
@@ -190,7 +231,11 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
                 
                 // Validate the value
                 final String[] parts = value.split("/");
-                if (parts.length != 3) {
+                if (parts.length != 3 && fieldSeparation > 0 && !value.isEmpty()) {
+                    // Collect the UUID term for lookup in the index
+                    final String field = term.substring(0, fieldSeparation);
+                    uuids.put(field, this.getUuidType(field).normalize(value));
+                } else if (parts.length != 3) {
                     throw new IllegalArgumentException("Query does not specify all needed parts: " + settings.getQuery()
                                     + ". Each space-delimited term should be of the form 'DOCUMENT:shardId/datatype/eventUID'.");
                 }
@@ -204,19 +249,15 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
                     log.debug("Received pieces: " + shardId + ", " + datatype + ", " + uid);
                     
                     // Create and add a Range
-                    final String cf = ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY;
-                    final String cq = datatype + Constants.NULL_BYTE_STRING + uid;
-                    final Key startKey = new Key(shardId, cf, cq + Constants.NULL_BYTE_STRING);
-                    final Key endKey = new Key(shardId, cf, cq + endKeyTerminator);
-                    final Range r = new Range(startKey, true, endKey, false);
-                    ranges.add(r);
-                    
-                    log.debug("Adding range: " + r);
+                    ranges.add(this.createContentRange(shardId, datatype, uid, endKeyTerminator));
                 }
             }
         }
         
-        if (ranges.isEmpty()) {
+        // Resolve the UUID terms, if any, to their documents
+        if (!uuids.isEmpty()) {
+            ranges.addAll(this.createUuidRanges(settings, auths, uuids, endKeyTerminator));
+        } else if (ranges.isEmpty()) {
             throw new IllegalArgumentException("Query does not specify all needed parts: " + settings.getQuery()
                             + ". At least one term required of the form 'DOCUMENT:shardId/datatype/eventUID'.");
         }
@@ -224,6 +265,132 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         return ranges;
     }
     
+    /*
+     * Create a Range over the content of a single document
+     * 
+     * @param shardId the document's shard
+     * 
+     * @param datatype the document's datatype
+     * 
+     * @param uid the document's UID
+     * 
+     * @param endKeyTerminator a string appended to the Range's end key indicating whether or not to include child content
+     * 
+     * @return the content Range
+     */
+    private Range createContentRange(final String shardId, final String datatype, final String uid, final String endKeyTerminator) {
+        final String cf = ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY;
+        final String cq = datatype + Constants.NULL_BYTE_STRING + uid;
+        final Key startKey = new Key(shardId, cf, cq + Constants.NULL_BYTE_STRING);
+        final Key endKey = new Key(shardId, cf, cq + endKeyTerminator);
+        final Range r = new Range(startKey, true, endKey, false);
+        
+        log.debug("Adding range: " + r);
+        return r;
+    }
+    
+    /*
+     * Resolve UUID terms to the content Ranges of their documents. All of the terms are looked up in the global index with a single batch scan, limited to
+     * the shards within the query's date range. The UIDs of any term that has too many of them to keep in the global index are then found with a single batch
+     * scan of the field index of its shards.
+     * 
+     * @param settings the query
+     * 
+     * @param auths the authorizations for the scans
+     * 
+     * @param uuids the normalized UUID values, keyed by field
+     * 
+     * @param endKeyTerminator a string appended to each Range's end key indicating whether or not to include child content
+     * 
+     * @return the content Ranges of the documents found, if any
+     */
+    private Collection<Range> createUuidRanges(final Query settings, final Set<Authorizations> auths, final Multimap<String,String> uuids,
+                    final String endKeyTerminator) throws TableNotFoundException {
+        final Set<Range> ranges = new TreeSet<>();
+        
+        // Restrict the index lookups to the shards within the date range
+        final String beginShard = (null == settings.getBeginDate()) ? Constants.EMPTY_STRING : DateHelper.format(settings.getBeginDate());
+        final String endShard = (null == settings.getEndDate()) ? Constants.MAX_UNICODE_STRING : DateHelper.format(settings.getEndDate())
+                        + Constants.MAX_UNICODE_STRING;
+        final List<Range> indexRanges = new ArrayList<>(uuids.size());
+        for (final Entry<String,String> uuid : uuids.entries()) {
+            final Key startKey = new Key(uuid.getValue(), uuid.getKey(), beginShard);
+            final Key endKey = new Key(uuid.getValue(), uuid.getKey(), endShard);
+            indexRanges.add(new Range(startKey, true, endKey, false));
+        }
+        
+        final List<Range> fieldIndexRanges = new ArrayList<>();
+        BatchScanner scanner = this.scannerFactory.newScanner(this.indexTableName, auths, this.queryThreads, settings);
+        try {
+            scanner.setRanges(indexRanges);
+            for (final Entry<Key,Value> entry : scanner) {
+                // The column qualifier contains the shard id and datatype
+                final Key key = entry.getKey();
+                final String cq = key.getColumnQualifier().toString();
+                final int separation = cq.indexOf(Constants.NULL_BYTE_STRING);
+                if (separation < 0) {
+                    continue;
+                }
+                final String shardId = cq.substring(0, separation);
+                final String datatype = cq.substring(separation + 1);
+                
+                final Uid.List uidList;
+                try {
+                    uidList = Uid.List.parseFrom(entry.getValue().get());
+                } catch (InvalidProtocolBufferException e) {
+                    log.error("Failed to parse Uid List for " + key, e);
+                    continue;
+                }
+                
+                if (uidList.getIGNORE()) {
+                    // Too many UIDs to keep in the global index, so find them in the field index instead
+                    final Text row = new Text(shardId);
+                    final Text cf = new Text(Constants.FIELD_INDEX_PREFIX + key.getColumnFamily());
+                    final Text cqPrefix = new Text(key.getRow() + Constants.NULL_BYTE_STRING + datatype + Constants.NULL_BYTE_STRING);
+                    fieldIndexRanges.add(Range.prefix(row, cf, cqPrefix));
+                } else {
+                    for (final String uid : uidList.getUIDList()) {
+                        ranges.add(this.createContentRange(shardId, datatype, uid, endKeyTerminator));
+                    }
+                }
+            }
+        } finally {
+            this.scannerFactory.close(scanner);
+        }
+        
+        if (!fieldIndexRanges.isEmpty()) {
+            scanner = this.scannerFactory.newScanner(this.getTableName(), auths, this.queryThreads, settings);
+            try {
+                scanner.setRanges(fieldIndexRanges);
+                for (final Entry<Key,Value> entry : scanner) {
+                    // The column qualifier contains the value, datatype and UID
+                    final Key key = entry.getKey();
+                    final String cq = key.getColumnQualifier().toString();
+                    final int uidSeparation = cq.lastIndexOf(Constants.NULL_BYTE_STRING);
+                    final int datatypeSeparation = cq.lastIndexOf(Constants.NULL_BYTE_STRING, uidSeparation - 1);
+                    if (datatypeSeparation < 0) {
+                        continue;
+                    }
+                    final String datatype = cq.substring(datatypeSeparation + 1, uidSeparation);
+                    final String uid = cq.substring(uidSeparation + 1);
+                    ranges.add(this.createContentRange(key.getRow().toString(), datatype, uid, endKeyTerminator));
+                }
+            } finally {
+                this.scannerFactory.close(scanner);
+            }
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Resolved " + uuids.size() + " UUIDs to " + ranges.size() + " documents");
+        }
+        return ranges;
+    }
+    
+    private Type<?> getUuidType(final String field) {
+        final Type<?> type = this.uuidTypes.get(field);
+        return (null != type) ? type : DEFAULT_UUID_TYPE;
+    }
+    
     @Override
     public AccumuloConnectionFactory.Priority getConnectionPriority() {
         return AccumuloConnectionFactory.Priority.NORMAL;
@@ -243,6 +410,28 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         return this.queryThreads;
     }
     
+    public String getIndexTableName() {
+        return this.indexTableName;
+    }
+    
+    public void setIndexTableName(String indexTableName) {
+        this.indexTableName = indexTableName;
+    }
+    
+    public Map<String,Type<?>> getUuidTypes() {
+        return this.uuidTypes;
+    }
+    
+    /**
+     * Sets the types used to normalize the values of UUID terms, keyed by field. Fields without a type are normalized with {@link LcNoDiacriticsType}.
+     * 
+     * @param uuidTypes
+     *            the types keyed by field
+     */
+    public void setUuidTypes(Map<String,Type<?>> uuidTypes) {
+        this.uuidTypes = uuidTypes;
+    }
+    
     @Override
     public Set<String> getOptionalQueryParameters() {
         Set<String> params = new TreeSet<>();
@@ -50,6 +50,10 @@ public class FacetedConfiguration {
     
     protected String facetHashTableName;
     
+    protected int numThreads = 0;
+    
+    protected int queueCapacity = 10;
+    
     /**
      * Sets whether or not we have a limited fields
      * 
@@ -163,6 +167,32 @@ public class FacetedConfiguration {
         
     }
     
+    /**
+     * Sets the number of threads used to read the facets of a query, split by day. If not positive, the facets are read by a single scheduler.
+     * 
+     * @param numThreads
+     */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+    
+    public int getNumThreads() {
+        return numThreads;
+    }
+    
+    /**
+     * Sets the number of partial results read by the facet threads that may be held before they are merged.
+     * 
+     * @param queueCapacity
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+    
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+    
     public String getFacetTableName() {
         return facetTableName;
     }
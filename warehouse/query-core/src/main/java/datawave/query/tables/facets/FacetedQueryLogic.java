@@ -2,10 +2,16 @@ package datawave.query.tables.facets;
 
 import datawave.query.QueryParameters;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import datawave.query.DocumentSerialization;
 import datawave.query.config.ShardQueryConfiguration;
@@ -19,13 +25,18 @@ import datawave.query.predicate.EmptyDocumentFilter;
 import datawave.query.Constants;
 import datawave.query.transformer.FacetedTransformer;
 import datawave.query.tables.IndexQueryLogic;
+import datawave.query.tables.ScannerFactory;
+import datawave.query.tables.ShardQueryLogic;
 import datawave.util.StringUtils;
 import datawave.query.attributes.Document;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import datawave.webservice.query.configuration.QueryData;
 import datawave.webservice.query.logic.QueryLogicTransformer;
 
 import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.security.Authorizations;
@@ -33,14 +44,23 @@ import org.apache.accumulo.core.security.Authorizations;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * 
  */
 public class FacetedQueryLogic extends IndexQueryLogic {
     
+    public static final String MAX_SPLIT_THREADS_PROPERTY = "datawave.query.faceted.split.threads";
+    public static final int DEFAULT_MAX_SPLIT_THREADS = 32;
+    
+    /** reads the splits of every faceted query, each query using no more than the number of threads it is configured with */
+    private static final ExecutorService splitExecutor = Executors.newFixedThreadPool(Integer.getInteger(MAX_SPLIT_THREADS_PROPERTY,
+                    DEFAULT_MAX_SPLIT_THREADS), new ThreadFactoryBuilder().setNameFormat("Datawave Faceted Split -%d").setDaemon(true).build());
+    
     protected FacetedConfiguration facetedConfig = null;
     
     public FacetedQueryLogic() {
@@ -130,12 +150,19 @@ public class FacetedQueryLogic extends IndexQueryLogic {
     @Override
     public void setupQuery(GenericQueryConfiguration configuration) throws Exception {
         
+        final ShardQueryConfiguration config = (ShardQueryConfiguration) configuration;
+        
+        if (facetedConfig.getNumThreads() > 0 && config.canRunQuery()) {
+            setupSplitQuery(config);
+            return;
+        }
+        
         super.setupQuery(configuration);
         
         /*
          * A few required components for document serialization and deserialization to be used later
          */
-        final Query myQuery = ((ShardQueryConfiguration) configuration).getQuery();
+        final Query myQuery = config.getQuery();
         
         final DocumentDeserializer deserializer = DocumentSerialization.getDocumentDeserializer(myQuery);
         
@@ -155,6 +182,98 @@ public class FacetedQueryLogic extends IndexQueryLogic {
         
     }
     
+    /**
+     * Read the facets of each day of the query on its own thread, summarizing the facets of each day before they are merged and grouped.
+     * 
+     * @param config
+     *            the configuration of the query
+     */
+    protected void setupSplitQuery(ShardQueryConfiguration config) {
+        final Query myQuery = config.getQuery();
+        
+        List<QueryData> splits = SplitMergedReadAhead.splitByDay(config.getQueries(), config.getShardDateFormatter());
+        
+        // the serializers, and the summaries they are used to build, are not shared between the threads
+        Supplier<Function<Entry<Key,Value>,Entry<Key,Value>>> partialMerge = () -> {
+            final DocumentDeserializer deserializer = DocumentSerialization.getDocumentDeserializer(myQuery);
+            final EmptyValueFunction filter = new EmptyValueFunction(deserializer);
+            final FacetedFunction function = new FacetedFunction(deserializer, DocumentSerialization.getDocumentSerializer(myQuery), Collections.emptyList());
+            return input -> filter.apply(input) ? function.apply(input) : null;
+        };
+        
+        List<Function<Entry<Key,Document>,Entry<Key,Document>>> functionList = Lists.newArrayList();
+        functionList.add(new FacetedGrouping(facetedConfig));
+        FacetedFunction finalMerge = new FacetedFunction(DocumentSerialization.getDocumentDeserializer(myQuery),
+                        DocumentSerialization.getDocumentSerializer(myQuery), functionList);
+        
+        this.scanner = null;
+        iterator = new SplitMergedReadAhead<>(facetedConfig.isStreaming, splits, new QueryDataReader(config, scannerFactory), partialMerge, finalMerge, null,
+                        splitExecutor, facetedConfig.getNumThreads(), facetedConfig.getQueueCapacity());
+    }
+    
+    /**
+     * Reads the shard table for a query, closing the scanner once it has been read
+     */
+    protected static class QueryDataReader implements Function<QueryData,Iterator<Entry<Key,Value>>> {
+        private final ShardQueryConfiguration config;
+        private final ScannerFactory scannerFactory;
+        
+        public QueryDataReader(ShardQueryConfiguration config, ScannerFactory scannerFactory) {
+            this.config = config;
+            this.scannerFactory = scannerFactory;
+        }
+        
+        @Override
+        public Iterator<Entry<Key,Value>> apply(QueryData queryData) {
+            final BatchScanner bs;
+            try {
+                bs = ShardQueryLogic.createBatchScanner(config, scannerFactory, queryData);
+            } catch (TableNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+            
+            final Iterator<Entry<Key,Value>> entries = bs.iterator();
+            return new ScannerIterator(entries, bs);
+        }
+        
+        private class ScannerIterator implements Iterator<Entry<Key,Value>>, Closeable {
+            private final Iterator<Entry<Key,Value>> entries;
+            private final BatchScanner bs;
+            
+            ScannerIterator(Iterator<Entry<Key,Value>> entries, BatchScanner bs) {
+                this.entries = entries;
+                this.bs = bs;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+            
+            @Override
+            public Entry<Key,Value> next() {
+                return entries.next();
+            }
+            
+            @Override
+            public void close() {
+                scannerFactory.close(bs);
+            }
+        }
+    }
+    
+    @Override
+    public void close() {
+        if (iterator instanceof SplitMergedReadAhead) {
+            try {
+                ((SplitMergedReadAhead<?,?>) iterator).close();
+            } catch (IOException e) {
+                log.warn("Failed to close the facet readers", e);
+            }
+        }
+        super.close();
+    }
+    
     protected static class EmptyValueFunction implements Predicate<Entry<Key,Value>> {
         private final EmptyDocumentFilter filter;
         private final DocumentDeserializer deserializer;
@@ -237,4 +356,20 @@ public class FacetedQueryLogic extends IndexQueryLogic {
         facetedConfig.setStreamingMode(isStreaming);
     }
     
+    /**
+     * @param numThreads
+     *            the number of threads used to read the facets of a query split by day, or zero to read them with a single scheduler
+     */
+    public void setFacetThreads(int numThreads) {
+        facetedConfig.setNumThreads(numThreads);
+    }
+    
+    /**
+     * @param queueCapacity
+     *            the number of partial facet results held before they are merged
+     */
+    public void setFacetQueueCapacity(int queueCapacity) {
+        facetedConfig.setQueueCapacity(queueCapacity);
+    }
+    
 }
@@ -0,0 +1,312 @@
+package datawave.query.tables.facets;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Iterators;
+import datawave.webservice.query.configuration.QueryData;
+import org.apache.accumulo.core.data.Range;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a set of splits in parallel, merging what is read from each split locally and merging the partial results in the calling thread.
+ * <p>
+ * Where {@link MergedReadAhead} reads a single iterator through one thread and an unbounded queue, this reads the splits with a bounded number of
+ * workers run by a shared executor. Each worker reads one split at a time, applies its own merge function to everything it reads, and offers only its final
+ * (merged) result to a bounded queue, so the memory held is bounded by the number of workers and the capacity of the queue rather than by the number of results
+ * read. The final merge is applied to the partial results as they are taken from the queue.
+ * <p>
+ * When streaming, the result of the final merge is returned after each partial result is merged. Otherwise only the result of merging every partial result is
+ * returned, once all of the splits have been read.
+ *
+ * @param <S>
+ *            the type of the splits
+ * @param <T>
+ *            the type of the results
+ */
+public class SplitMergedReadAhead<S,T> implements Iterator<T>, Closeable {
+    
+    private static final Logger log = Logger.getLogger(SplitMergedReadAhead.class);
+    
+    /** the splits which have yet to be read by a worker */
+    private final Queue<S> pending = new ConcurrentLinkedQueue<>();
+    
+    /** the work done by each worker, used to know when all of the splits have been read and to report failures */
+    private final List<Future<?>> futures = new ArrayList<>();
+    
+    /** holds the partial results of the workers */
+    protected final BlockingQueue<T> queue;
+    
+    /** the merge applied to the partial results */
+    private final Function<T,T> finalMerge;
+    
+    /** Should we return the merged result only once every split has been read */
+    protected final boolean isStreaming;
+    
+    /** buffers the next item to return to support hasNext/next */
+    protected T buffer;
+    
+    /** the result of the final merge when not streaming */
+    private T merged;
+    
+    private volatile boolean done = false;
+    
+    /**
+     * Create a SplitMergedReadAhead and start reading the splits.
+     *
+     * @param isStreaming
+     *            is this streaming?
+     * @param splits
+     *            the splits to read
+     * @param reader
+     *            reads a split, closing the returned iterator once it has been read if it is {@link Closeable}
+     * @param partialMerge
+     *            supplies the merge/transform operator for each worker, applied to each object read from its split. The last object it returns is the partial
+     *            result of the split.
+     * @param finalMerge
+     *            the merge/transform operator applied to the partial results
+     * @param filters
+     *            the filters to apply to the objects read from the splits
+     * @param executor
+     *            the executor, shared between queries, which runs the workers
+     * @param numThreads
+     *            the number of splits to read at once
+     * @param queueCapacity
+     *            the number of partial results to hold before blocking the workers
+     */
+    public SplitMergedReadAhead(boolean isStreaming, Iterable<S> splits, Function<S,Iterator<T>> reader, Supplier<Function<T,T>> partialMerge,
+                    Function<T,T> finalMerge, List<Predicate<T>> filters, ExecutorService executor, int numThreads, int queueCapacity) {
+        this.isStreaming = isStreaming;
+        this.finalMerge = finalMerge;
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+        
+        for (S split : splits) {
+            pending.add(split);
+        }
+        
+        int numWorkers = Math.min(Math.max(numThreads, 1), pending.size());
+        for (int i = 0; i < numWorkers; i++) {
+            futures.add(executor.submit(() -> {
+                S split;
+                while (!done && (split = pending.poll()) != null) {
+                    read(split, reader, partialMerge.get(), filters);
+                }
+                return null;
+            }));
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Reading " + pending.size() + " splits with " + numWorkers + " workers");
+        }
+    }
+    
+    /**
+     * Read a split, and offer its partial result to the queue
+     */
+    private void read(S split, Function<S,Iterator<T>> reader, Function<T,T> partialMerge, List<Predicate<T>> filters) throws InterruptedException,
+                    IOException {
+        Iterator<T> source = reader.apply(split);
+        try {
+            Iterator<T> iterator = source;
+            if (filters != null) {
+                for (Predicate<T> predicate : filters) {
+                    iterator = Iterators.filter(iterator, predicate);
+                }
+            }
+            
+            T partial = null;
+            while (!done && iterator.hasNext()) {
+                T result = partialMerge.apply(iterator.next());
+                if (result != null) {
+                    partial = result;
+                }
+            }
+            
+            if (done) {
+                log.trace("closed while reading a split");
+            } else if (partial != null) {
+                log.trace("adding a partial result");
+                // wait for room in the queue, giving up if the read ahead is closed while the queue is full
+                while (!queue.offer(partial, 1L, TimeUnit.SECONDS)) {
+                    if (done) {
+                        log.trace("closed before the partial result was queued");
+                        return;
+                    }
+                }
+            } else {
+                log.trace("split was empty");
+            }
+        } finally {
+            if (source instanceof Closeable) {
+                ((Closeable) source).close();
+            }
+        }
+    }
+    
+    /**
+     * Block until a partial result is available in the queue or every split has been read, merging the partial results until there is one to return. If the
+     * calling thread is interrupted, the workers are stopped and the interrupt is thrown rather than taken as the end of the results.
+     */
+    private void readFromQueue() {
+        try {
+            while (buffer == null && !done) {
+                T partial = queue.poll(1L, TimeUnit.SECONDS);
+                if (partial != null) {
+                    T result = finalMerge.apply(partial);
+                    if (isStreaming) {
+                        buffer = result;
+                    } else if (result != null) {
+                        merged = result;
+                    }
+                } else if (isFinished() && queue.isEmpty()) {
+                    checkForFailures();
+                    done = true;
+                    buffer = merged;
+                    merged = null;
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            stop();
+            throw new RuntimeException("Interrupted while reading the splits", ie);
+        }
+    }
+    
+    /**
+     * @return true if every worker has finished
+     */
+    private boolean isFinished() {
+        for (Future<?> future : futures) {
+            if (!future.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void checkForFailures() throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Failed to read a split", e.getCause());
+            }
+        }
+    }
+    
+    @Override
+    public boolean hasNext() {
+        readFromQueue();
+        return this.buffer != null;
+    }
+    
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        
+        T buf = buffer;
+        buffer = null;
+        return buf;
+    }
+    
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        stop();
+    }
+    
+    private void stop() {
+        log.trace("stopping...");
+        done = true;
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+        pending.clear();
+        queue.clear();
+        log.trace("stopped.");
+    }
+    
+    /**
+     * Group the ranges of a set of queries by day, so that each day can be read separately. The ranges are grouped by the day at the start of their start row,
+     * as the ranges of the shard table (shard, day and document ranges) each fall within a single day. Ranges which do not start with a day (e.g. ranges of
+     * other tables) are kept together.
+     *
+     * @param queries
+     *            the queries to split
+     * @param dayFormat
+     *            the format of the day in the row of a shard
+     * @return one query per day of each query, holding all of the ranges of that day
+     */
+    public static List<QueryData> splitByDay(Iterator<QueryData> queries, SimpleDateFormat dayFormat) {
+        List<QueryData> splits = new ArrayList<>();
+        while (queries.hasNext()) {
+            QueryData query = queries.next();
+            Map<String,List<Range>> days = new TreeMap<>();
+            for (Range range : query.getRanges()) {
+                days.computeIfAbsent(getDay(range, dayFormat), day -> new ArrayList<>()).add(range);
+            }
+            for (List<Range> ranges : days.values()) {
+                splits.add(new QueryData(query, ranges));
+            }
+        }
+        return splits;
+    }
+    
+    /**
+     * Get the day a range starts on
+     *
+     * @param range
+     *            the range
+     * @param dayFormat
+     *            the format of the day in the row of a shard
+     * @return the day at the start of the start row of the range, or an empty string if the row does not start with a day
+     */
+    protected static String getDay(Range range, SimpleDateFormat dayFormat) {
+        if (range.isInfiniteStartKey()) {
+            return "";
+        }
+        
+        String row = range.getStartKey().getRow().toString();
+        int length = dayFormat.toPattern().length();
+        if (row.length() < length) {
+            return "";
+        }
+        
+        String day = row.substring(0, length);
+        return parseDay(day, dayFormat) == null ? "" : day;
+    }
+    
+    private static Date parseDay(String day, SimpleDateFormat dayFormat) {
+        try {
+            return dayFormat.parse(day);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+}
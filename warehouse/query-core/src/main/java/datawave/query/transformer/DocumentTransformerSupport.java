@@ -234,7 +234,7 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
             if (logTimingDetails || log.isTraceEnabled()) {
                 StringBuilder sb = new StringBuilder();
                 sb.append("retrieved document from host:").append(host).append(" at key:").append(documentKey.toStringNoTime()).append(" stageTimers:")
-                                .append(stageTimers);
+                                .append(stageTimers).append(" stageCounts:").append(timingMetadata.getStageCounts());
                 sb.append(" sourceCount:").append(currentSourceCount).append(" nextCount:").append(currentNextCount).append(" seekCount:")
                                 .append(currentSeekCount).append(" yieldCount:").append(currentYieldCount);
                 if (log.isTraceEnabled()) {
@@ -2,6 +2,7 @@ package datawave.query.util;
 
 import java.util.ArrayList;
 
+import datawave.query.planner.QueryPlanCache;
 import datawave.webservice.common.cache.SharedCacheCoordinator;
 
 import org.apache.curator.framework.CuratorFramework;
@@ -12,7 +13,7 @@ import org.apache.log4j.Logger;
 
 /**
  * Uses the SharedCacheCoordinator to register listeners so that when an event is fired (for example, when a new model is loaded) the spring injected cache of
- * the MetadataHelpers will be evicted.
+ * the MetadataHelpers will be evicted. The query plan cache, if set, is evicted along with them as the plans depend on the metadata and models.
  *
  * Note that because the SharedCacheCoordinator uses zookeeper, this class will not work in cases where zookeeper is not running (like in unit tests). This
  * class is created by the MetadataHelperCacheListenerContext.xml which is not loaded in unit tests
@@ -24,6 +25,7 @@ public class MetadataHelperCacheManagementListener {
     private final String zookeepers;
     private final MetadataCacheManager metadataCacheManager;
     private final ArrayList<SharedCacheCoordinator> cacheCoordinators;
+    private QueryPlanCache queryPlanCache;
     
     public MetadataHelperCacheManagementListener(String zookeepers, MetadataCacheManager metadataCacheManager, String[] metadataTableNames) {
         this.zookeepers = zookeepers;
@@ -36,6 +38,10 @@ public class MetadataHelperCacheManagementListener {
         }
     }
     
+    public void setQueryPlanCache(QueryPlanCache queryPlanCache) {
+        this.queryPlanCache = queryPlanCache;
+    }
+    
     private SharedCacheCoordinator registerCacheListener(final String metadataTableName) {
         log.debug("created CacheManagement listener for table:" + metadataTableName);
         final SharedCacheCoordinator watcher = new SharedCacheCoordinator(metadataTableName, this.zookeepers, 30, 300, 10);
@@ -71,6 +77,9 @@ public class MetadataHelperCacheManagementListener {
                     if (!watcher.checkCounter(metadataTableName, newCount)) {
                         log.debug("will evictCaches for " + metadataTableName);
                         metadataCacheManager.evictCaches();
+                        if (queryPlanCache != null) {
+                            queryPlanCache.evictAll();
+                        }
                     } else {
                         log.debug("did not evictCaches for " + metadataTableName);
                     }
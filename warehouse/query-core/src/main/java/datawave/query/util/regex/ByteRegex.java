@@ -0,0 +1,502 @@
+package datawave.query.util.regex;
+
+import datawave.query.util.regex.ByteRegexParser.Alternation;
+import datawave.query.util.regex.ByteRegexParser.CharSet;
+import datawave.query.util.regex.ByteRegexParser.Concatenation;
+import datawave.query.util.regex.ByteRegexParser.Node;
+import datawave.query.util.regex.ByteRegexParser.Repeat;
+import datawave.query.util.regex.ByteRegexParser.UnsupportedRegexException;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A regex compiled to a deterministic automaton over the UTF-8 bytes of a value. Matching walks the bytes of a value in place, so a key's row or column
+ * qualifier can be matched without decoding it into a String. For a value that does not match, the automaton can also find the smallest value after it that
+ * could possibly match, which allows an iterator to seek past ranges of values that cannot match rather than scanning them.
+ * <p>
+ * Only a subset of the java regex syntax is supported (see {@link ByteRegexParser}), and {@link #compile(String)} returns null for anything else, in which
+ * case the regex should be evaluated with {@link java.util.regex.Pattern}. For the supported subset, {@link #matches(byte[], int, int)} on the UTF-8 encoding
+ * of a value is equivalent to {@code Pattern.compile(regex).matcher(value).matches()}. A compiled regex is immutable and may be shared between threads.
+ */
+public final class ByteRegex {
+    
+    private static final Logger log = Logger.getLogger(ByteRegex.class);
+    
+    // the limits beyond which a regex is left to java.util.regex
+    private static final int MAX_NFA_STATES = 10000;
+    private static final int MAX_DFA_STATES = 1000;
+    
+    // the maximum number of bytes appended to a seek target
+    private static final int MAX_SEEK_EXTENSION = 256;
+    
+    private static final int DEAD = 0;
+    private static final int START = 1;
+    
+    private final String regex;
+    private final boolean reversed;
+    
+    // transitions[(state << 8) | byte] is the next state, where every state from which no match is possible has been replaced with DEAD
+    private final int[] transitions;
+    private final boolean[] accepting;
+    
+    // the smallest byte leading to a live state from each state, or -1
+    private final int[] minLiveByte;
+    
+    private ByteRegex(String regex, boolean reversed, int[] transitions, boolean[] accepting, int[] minLiveByte) {
+        this.regex = regex;
+        this.reversed = reversed;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.minLiveByte = minLiveByte;
+    }
+    
+    /**
+     * Compile a regex
+     *
+     * @param regex
+     *            the regex
+     * @return the compiled regex, or null if the regex is not supported
+     */
+    public static ByteRegex compile(String regex) {
+        return compile(regex, false);
+    }
+    
+    /**
+     * Compile a regex
+     *
+     * @param regex
+     *            the regex
+     * @param reversed
+     *            if true, the compiled regex matches the values matched by the regex with their characters in reverse order, as held in a reverse index
+     * @return the compiled regex, or null if the regex is not supported
+     */
+    public static ByteRegex compile(String regex, boolean reversed) {
+        try {
+            Node node = ByteRegexParser.parse(regex);
+            if (reversed) {
+                node = node.reverse();
+            }
+            return new Compiler(regex, reversed).compile(node);
+        } catch (UnsupportedRegexException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to compile " + regex + " to a byte regex: " + e.getMessage());
+            }
+            return null;
+        }
+    }
+    
+    public String getRegex() {
+        return regex;
+    }
+    
+    public boolean isReversed() {
+        return reversed;
+    }
+    
+    /**
+     * @return the number of states in the automaton
+     */
+    public int getStateCount() {
+        return accepting.length;
+    }
+    
+    /**
+     * @param value
+     *            the UTF-8 bytes of a value
+     * @return true if the entire value matches the regex
+     */
+    public boolean matches(ByteSequence value) {
+        if (value.isBackedByArray()) {
+            return matches(value.getBackingArray(), value.offset(), value.length());
+        }
+        byte[] bytes = value.toArray();
+        return matches(bytes, 0, bytes.length);
+    }
+    
+    /**
+     * @param bytes
+     *            the array containing the UTF-8 bytes of a value
+     * @param offset
+     *            the offset of the value in the array
+     * @param length
+     *            the length of the value
+     * @return true if the entire value matches the regex
+     */
+    public boolean matches(byte[] bytes, int offset, int length) {
+        int state = START;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            state = transitions[(state << 8) | (bytes[i] & 0xff)];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return accepting[state];
+    }
+    
+    /**
+     * @param value
+     *            the UTF-8 bytes of a value
+     * @return the value itself if it matches, otherwise a value greater than or equal to the value, or null if no value at or after the value can match
+     * @see #nextPossibleMatch(byte[], int, int)
+     */
+    public byte[] nextPossibleMatch(ByteSequence value) {
+        if (value.isBackedByArray()) {
+            return nextPossibleMatch(value.getBackingArray(), value.offset(), value.length());
+        }
+        byte[] bytes = value.toArray();
+        return nextPossibleMatch(bytes, 0, bytes.length);
+    }
+    
+    /**
+     * Find a lower bound for the values at or after a value that could match. No value in between the given value (inclusive) and the returned value
+     * (exclusive) matches the regex, so an iterator over sorted values may seek directly to the returned value.
+     *
+     * @param bytes
+     *            the array containing the UTF-8 bytes of a value
+     * @param offset
+     *            the offset of the value in the array
+     * @param length
+     *            the length of the value
+     * @return the value itself if it matches, otherwise a value greater than or equal to the value, or null if no value at or after the value can match
+     */
+    public byte[] nextPossibleMatch(byte[] bytes, int offset, int length) {
+        // the state after each byte of the longest prefix from which a match is still possible
+        int[] states = new int[length + 1];
+        states[0] = START;
+        int live = 0;
+        while (live < length) {
+            int state = transitions[(states[live] << 8) | (bytes[offset + live] & 0xff)];
+            if (state == DEAD) {
+                break;
+            }
+            states[++live] = state;
+        }
+        
+        if (live == length) {
+            if (accepting[states[length]]) {
+                return Arrays.copyOfRange(bytes, offset, offset + length);
+            }
+            // only a longer value could match, the smallest of which starts with the value followed by the smallest live byte
+            int state = states[length];
+            byte[] prefix = Arrays.copyOfRange(bytes, offset, offset + length + 1);
+            prefix[length] = (byte) minLiveByte[state];
+            return extend(prefix, transitions[(state << 8) | minLiveByte[state]]);
+        }
+        
+        // find the last position at which a larger byte leads to a possible match
+        for (int i = live; i >= 0; i--) {
+            int state = states[i];
+            for (int b = (bytes[offset + i] & 0xff) + 1; b < 256; b++) {
+                int next = transitions[(state << 8) | b];
+                if (next != DEAD) {
+                    byte[] prefix = Arrays.copyOfRange(bytes, offset, offset + i + 1);
+                    prefix[i] = (byte) b;
+                    return extend(prefix, next);
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Extend a prefix, which ends in the given live state, with the smallest live bytes until it reaches an accepting state. Until then no value between the
+     * prefix and the extended prefix can match. If the smallest live byte loops back to the same state (e.g. {@code .*}), no accepting state would ever be
+     * reached, so the extension stops there.
+     */
+    private byte[] extend(byte[] prefix, int state) {
+        int length = prefix.length;
+        byte[] extended = prefix;
+        while (!accepting[state] && length - prefix.length < MAX_SEEK_EXTENSION) {
+            int b = minLiveByte[state];
+            int next = transitions[(state << 8) | b];
+            if (next == state) {
+                break;
+            }
+            if (length == extended.length) {
+                extended = Arrays.copyOf(extended, Math.max(16, length * 2));
+            }
+            extended[length++] = (byte) b;
+            state = next;
+        }
+        return length == extended.length ? extended : Arrays.copyOf(extended, length);
+    }
+    
+    @Override
+    public String toString() {
+        return "ByteRegex[" + regex + (reversed ? ", reversed" : "") + ", states=" + getStateCount() + "]";
+    }
+    
+    /**
+     * Builds a nondeterministic automaton over bytes from the parsed regex, and then determinizes it.
+     */
+    private static final class Compiler {
+        private final String regex;
+        private final boolean reversed;
+        
+        // the epsilon transitions and byte range transitions (lo, hi, target) of each nfa state
+        private final List<List<Integer>> epsilons = new ArrayList<>();
+        private final List<List<int[]>> ranges = new ArrayList<>();
+        
+        private Compiler(String regex, boolean reversed) {
+            this.regex = regex;
+            this.reversed = reversed;
+        }
+        
+        private int newState() throws UnsupportedRegexException {
+            if (epsilons.size() >= MAX_NFA_STATES) {
+                throw new UnsupportedRegexException("Too many nfa states for " + regex);
+            }
+            epsilons.add(new ArrayList<>(2));
+            ranges.add(new ArrayList<>(2));
+            return epsilons.size() - 1;
+        }
+        
+        private ByteRegex compile(Node node) throws UnsupportedRegexException {
+            int start = newState();
+            int end = build(node, start);
+            return determinize(start, end);
+        }
+        
+        /**
+         * Add the states for a node
+         *
+         * @return the state reached after matching the node
+         */
+        private int build(Node node, int from) throws UnsupportedRegexException {
+            if (node instanceof CharSet) {
+                int end = newState();
+                int[] codePoints = ((CharSet) node).ranges;
+                for (int i = 0; i < codePoints.length; i += 2) {
+                    addCodePoints(from, end, codePoints[i], codePoints[i + 1]);
+                }
+                return end;
+            } else if (node instanceof Concatenation) {
+                int current = from;
+                for (Node child : ((Concatenation) node).nodes) {
+                    current = build(child, current);
+                }
+                return current;
+            } else if (node instanceof Alternation) {
+                int end = newState();
+                for (Node child : ((Alternation) node).nodes) {
+                    int start = newState();
+                    epsilons.get(from).add(start);
+                    epsilons.get(build(child, start)).add(end);
+                }
+                return end;
+            } else {
+                Repeat repeat = (Repeat) node;
+                int current = from;
+                if (repeat.max == Repeat.UNBOUNDED) {
+                    // x{n,} is x{n-1} followed by x+, where x+ loops back within a single copy so that every iteration reaches the same states
+                    for (int i = 1; i < repeat.min; i++) {
+                        current = build(repeat.node, current);
+                    }
+                    int loop = newState();
+                    epsilons.get(current).add(loop);
+                    int end = build(repeat.node, loop);
+                    epsilons.get(end).add(loop);
+                    if (repeat.min == 0) {
+                        return loop;
+                    }
+                    return end;
+                }
+                for (int i = 0; i < repeat.min; i++) {
+                    current = build(repeat.node, current);
+                }
+                
+                int end = newState();
+                epsilons.get(current).add(end);
+                for (int i = repeat.min; i < repeat.max; i++) {
+                    current = build(repeat.node, current);
+                    epsilons.get(current).add(end);
+                }
+                return end;
+            }
+        }
+        
+        /**
+         * Add transitions matching the UTF-8 encodings of a range of code points
+         */
+        private void addCodePoints(int from, int to, int lo, int hi) throws UnsupportedRegexException {
+            // split the range where the length of the encoding changes
+            int[] limits = {0x7f, 0x7ff, 0xffff, ByteRegexParser.MAX_CODE_POINT};
+            for (int limit : limits) {
+                if (lo <= limit && hi > limit) {
+                    addCodePoints(from, to, lo, limit);
+                    addCodePoints(from, to, limit + 1, hi);
+                    return;
+                }
+            }
+            int length = utf8Length(lo);
+            if (length > 1) {
+                // split the range until every byte of the encodings varies over a contiguous range independent of the preceding bytes
+                for (int i = 1; i < length; i++) {
+                    int mask = (1 << (6 * i)) - 1;
+                    if ((lo & ~mask) != (hi & ~mask)) {
+                        if ((lo & mask) != 0) {
+                            addCodePoints(from, to, lo, lo | mask);
+                            addCodePoints(from, to, (lo | mask) + 1, hi);
+                            return;
+                        }
+                        if ((hi & mask) != mask) {
+                            addCodePoints(from, to, lo, (hi & ~mask) - 1);
+                            addCodePoints(from, to, hi & ~mask, hi);
+                            return;
+                        }
+                    }
+                }
+            }
+            byte[] loBytes = utf8(lo);
+            byte[] hiBytes = utf8(hi);
+            int current = from;
+            for (int i = 0; i < length; i++) {
+                int next = (i == length - 1) ? to : newState();
+                ranges.get(current).add(new int[] {loBytes[i] & 0xff, hiBytes[i] & 0xff, next});
+                current = next;
+            }
+        }
+        
+        private static int utf8Length(int codePoint) {
+            return codePoint <= 0x7f ? 1 : codePoint <= 0x7ff ? 2 : codePoint <= 0xffff ? 3 : 4;
+        }
+        
+        private static byte[] utf8(int codePoint) {
+            switch (utf8Length(codePoint)) {
+                case 1:
+                    return new byte[] {(byte) codePoint};
+                case 2:
+                    return new byte[] {(byte) (0xc0 | (codePoint >> 6)), (byte) (0x80 | (codePoint & 0x3f))};
+                case 3:
+                    return new byte[] {(byte) (0xe0 | (codePoint >> 12)), (byte) (0x80 | ((codePoint >> 6) & 0x3f)), (byte) (0x80 | (codePoint & 0x3f))};
+                default:
+                    return new byte[] {(byte) (0xf0 | (codePoint >> 18)), (byte) (0x80 | ((codePoint >> 12) & 0x3f)),
+                            (byte) (0x80 | ((codePoint >> 6) & 0x3f)), (byte) (0x80 | (codePoint & 0x3f))};
+            }
+        }
+        
+        private BitSet closure(BitSet states) {
+            BitSet closure = (BitSet) states.clone();
+            Deque<Integer> pending = new ArrayDeque<>();
+            states.stream().forEach(pending::push);
+            while (!pending.isEmpty()) {
+                for (int next : epsilons.get(pending.pop())) {
+                    if (!closure.get(next)) {
+                        closure.set(next);
+                        pending.push(next);
+                    }
+                }
+            }
+            return closure;
+        }
+        
+        /**
+         * The subset construction
+         */
+        private ByteRegex determinize(int nfaStart, int nfaEnd) throws UnsupportedRegexException {
+            List<BitSet> dfaStates = new ArrayList<>();
+            Map<BitSet,Integer> dfaStateIds = new HashMap<>();
+            List<int[]> dfaTransitions = new ArrayList<>();
+            
+            BitSet dead = new BitSet();
+            dfaStates.add(dead);
+            dfaStateIds.put(dead, DEAD);
+            BitSet start = new BitSet();
+            start.set(nfaStart);
+            start = closure(start);
+            dfaStates.add(start);
+            dfaStateIds.put(start, START);
+            
+            for (int state = 0; state < dfaStates.size(); state++) {
+                BitSet[] targets = new BitSet[256];
+                BitSet nfaStates = dfaStates.get(state);
+                for (int nfaState = nfaStates.nextSetBit(0); nfaState >= 0; nfaState = nfaStates.nextSetBit(nfaState + 1)) {
+                    for (int[] range : ranges.get(nfaState)) {
+                        for (int b = range[0]; b <= range[1]; b++) {
+                            if (targets[b] == null) {
+                                targets[b] = new BitSet();
+                            }
+                            targets[b].set(range[2]);
+                        }
+                    }
+                }
+                int[] next = new int[256];
+                for (int b = 0; b < 256; b++) {
+                    if (targets[b] == null) {
+                        next[b] = DEAD;
+                        continue;
+                    }
+                    BitSet target = closure(targets[b]);
+                    Integer id = dfaStateIds.get(target);
+                    if (id == null) {
+                        if (dfaStates.size() >= MAX_DFA_STATES) {
+                            throw new UnsupportedRegexException("Too many dfa states for " + regex);
+                        }
+                        id = dfaStates.size();
+                        dfaStates.add(target);
+                        dfaStateIds.put(target, id);
+                    }
+                    next[b] = id;
+                }
+                dfaTransitions.add(next);
+            }
+            
+            int stateCount = dfaStates.size();
+            boolean[] accepting = new boolean[stateCount];
+            for (int state = 0; state < stateCount; state++) {
+                accepting[state] = dfaStates.get(state).get(nfaEnd);
+            }
+            
+            // a state is live if an accepting state can be reached from it
+            List<List<Integer>> predecessors = new ArrayList<>(stateCount);
+            for (int state = 0; state < stateCount; state++) {
+                predecessors.add(new ArrayList<>());
+            }
+            for (int state = 0; state < stateCount; state++) {
+                for (int target : dfaTransitions.get(state)) {
+                    predecessors.get(target).add(state);
+                }
+            }
+            boolean[] live = new boolean[stateCount];
+            Deque<Integer> pending = new ArrayDeque<>();
+            for (int state = 0; state < stateCount; state++) {
+                if (accepting[state]) {
+                    live[state] = true;
+                    pending.push(state);
+                }
+            }
+            while (!pending.isEmpty()) {
+                for (int previous : predecessors.get(pending.pop())) {
+                    if (!live[previous]) {
+                        live[previous] = true;
+                        pending.push(previous);
+                    }
+                }
+            }
+            
+            int[] transitions = new int[stateCount << 8];
+            int[] minLiveByte = new int[stateCount];
+            for (int state = 0; state < stateCount; state++) {
+                int[] next = dfaTransitions.get(state);
+                minLiveByte[state] = -1;
+                for (int b = 0; b < 256; b++) {
+                    int target = live[next[b]] ? next[b] : DEAD;
+                    transitions[(state << 8) | b] = target;
+                    if (target != DEAD && minLiveByte[state] < 0) {
+                        minLiveByte[state] = b;
+                    }
+                }
+            }
+            return new ByteRegex(regex, reversed, transitions, accepting, minLiveByte);
+        }
+    }
+}
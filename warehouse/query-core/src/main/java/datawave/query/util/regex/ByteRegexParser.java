@@ -0,0 +1,495 @@
+package datawave.query.util.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses the subset of the java regex syntax supported by {@link ByteRegex} into a tree of nodes. The supported syntax is literals, escaped literals,
+ * {@code \t \n \r \f \a \e \xhh \x{h..h} \\uhhhh}, {@code \Q..\E} quoting, the dot, character classes with ranges and negation, the {@code \d \D \s \S \w \W}
+ * predefined classes, capturing and non-capturing groups, alternation, the greedy and reluctant {@code * + ? {n} {n,} {n,m}} quantifiers, and {@code ^} and
+ * {@code $} at the very start and end of the regex. Anything else (flags, back references, look arounds, boundaries, unicode properties, possessive
+ * quantifiers, class unions and intersections) is rejected with an {@link UnsupportedRegexException}, in which case the regex must be evaluated by
+ * {@link java.util.regex.Pattern}.
+ */
+final class ByteRegexParser {
+    
+    static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+    
+    // the maximum number of times a bounded repetition may repeat its node
+    private static final int MAX_REPEAT = 100;
+    
+    private final String regex;
+    private int pos = 0;
+    
+    private ByteRegexParser(String regex) {
+        this.regex = regex;
+    }
+    
+    /**
+     * Parse a regex
+     *
+     * @param regex
+     *            the regex
+     * @return the root node
+     * @throws UnsupportedRegexException
+     *             if the regex is invalid or uses syntax that is not supported
+     */
+    static Node parse(String regex) throws UnsupportedRegexException {
+        ByteRegexParser parser = new ByteRegexParser(regex);
+        Node node = parser.parseAlternation();
+        if (parser.pos < regex.length()) {
+            throw new UnsupportedRegexException("Unexpected character at " + parser.pos + " in " + regex);
+        }
+        return node;
+    }
+    
+    private boolean atEnd() {
+        return pos >= regex.length();
+    }
+    
+    private boolean peekIs(char c) {
+        return !atEnd() && regex.charAt(pos) == c;
+    }
+    
+    private int next() throws UnsupportedRegexException {
+        if (atEnd()) {
+            throw new UnsupportedRegexException("Unexpected end of " + regex);
+        }
+        int c = regex.codePointAt(pos);
+        pos += Character.charCount(c);
+        return c;
+    }
+    
+    private Node parseAlternation() throws UnsupportedRegexException {
+        List<Node> alternatives = new ArrayList<>();
+        alternatives.add(parseConcatenation());
+        while (peekIs('|')) {
+            pos++;
+            alternatives.add(parseConcatenation());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+    }
+    
+    private Node parseConcatenation() throws UnsupportedRegexException {
+        List<Node> nodes = new ArrayList<>();
+        while (!atEnd() && !peekIs('|') && !peekIs(')')) {
+            Node atom = parseAtom();
+            if (atom != null) {
+                nodes.add(parseQuantifier(atom));
+            }
+        }
+        return nodes.size() == 1 ? nodes.get(0) : new Concatenation(nodes);
+    }
+    
+    private Node parseAtom() throws UnsupportedRegexException {
+        int start = pos;
+        int c = next();
+        switch (c) {
+            case '(':
+                if (peekIs('?')) {
+                    pos++;
+                    if (!peekIs(':')) {
+                        throw new UnsupportedRegexException("Only non-capturing groups are supported: " + regex);
+                    }
+                    pos++;
+                }
+                Node group = parseAlternation();
+                if (!peekIs(')')) {
+                    throw new UnsupportedRegexException("Unclosed group in " + regex);
+                }
+                pos++;
+                return group;
+            case '.':
+                return CharSet.DOT;
+            case '[':
+                return parseClass();
+            case '\\':
+                return parseEscape(false);
+            case '^':
+                // the start anchor is implied when matching an entire value
+                if (start != 0) {
+                    throw new UnsupportedRegexException("^ is only supported at the start of " + regex);
+                }
+                return null;
+            case '$':
+                // as is the end anchor
+                if (!atEnd()) {
+                    throw new UnsupportedRegexException("$ is only supported at the end of " + regex);
+                }
+                return null;
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw new UnsupportedRegexException("Dangling quantifier at " + start + " in " + regex);
+            default:
+                return CharSet.of(c);
+        }
+    }
+    
+    private Node parseQuantifier(Node atom) throws UnsupportedRegexException {
+        if (atEnd()) {
+            return atom;
+        }
+        int min;
+        int max;
+        switch (regex.charAt(pos)) {
+            case '*':
+                min = 0;
+                max = Repeat.UNBOUNDED;
+                pos++;
+                break;
+            case '+':
+                min = 1;
+                max = Repeat.UNBOUNDED;
+                pos++;
+                break;
+            case '?':
+                min = 0;
+                max = 1;
+                pos++;
+                break;
+            case '{':
+                pos++;
+                min = parseNumber();
+                if (peekIs(',')) {
+                    pos++;
+                    max = peekIs('}') ? Repeat.UNBOUNDED : parseNumber();
+                } else {
+                    max = min;
+                }
+                if (!peekIs('}') || (max != Repeat.UNBOUNDED && max < min)) {
+                    throw new UnsupportedRegexException("Invalid repetition in " + regex);
+                }
+                pos++;
+                break;
+            default:
+                return atom;
+        }
+        if (peekIs('?')) {
+            // a reluctant quantifier matches the same set of entire values
+            pos++;
+        } else if (peekIs('+')) {
+            throw new UnsupportedRegexException("Possessive quantifiers are not supported: " + regex);
+        }
+        if (Math.max(min, max) > MAX_REPEAT) {
+            throw new UnsupportedRegexException("Repetition is too large in " + regex);
+        }
+        return new Repeat(atom, min, max);
+    }
+    
+    private int parseNumber() throws UnsupportedRegexException {
+        int start = pos;
+        while (!atEnd() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '9') {
+            pos++;
+        }
+        if (start == pos || pos - start > 4) {
+            throw new UnsupportedRegexException("Invalid repetition in " + regex);
+        }
+        return Integer.parseInt(regex.substring(start, pos));
+    }
+    
+    private Node parseEscape(boolean inClass) throws UnsupportedRegexException {
+        int c = next();
+        switch (c) {
+            case 't':
+                return CharSet.of('\t');
+            case 'n':
+                return CharSet.of('\n');
+            case 'r':
+                return CharSet.of('\r');
+            case 'f':
+                return CharSet.of('\f');
+            case 'a':
+                return CharSet.of('\u0007');
+            case 'e':
+                return CharSet.of('\u001B');
+            case 'x':
+                if (peekIs('{')) {
+                    pos++;
+                    int end = regex.indexOf('}', pos);
+                    if (end < 0) {
+                        throw new UnsupportedRegexException("Unclosed hex escape in " + regex);
+                    }
+                    int value = parseHex(pos, end);
+                    pos = end + 1;
+                    return CharSet.of(value);
+                }
+                pos += 2;
+                return CharSet.of(parseHex(pos - 2, pos));
+            case 'u':
+                pos += 4;
+                int value = parseHex(pos - 4, pos);
+                if (Character.isSurrogate((char) value)) {
+                    throw new UnsupportedRegexException("Escaped surrogates are not supported: " + regex);
+                }
+                return CharSet.of(value);
+            case 'd':
+                return CharSet.DIGIT;
+            case 'D':
+                return CharSet.DIGIT.complement();
+            case 's':
+                return CharSet.SPACE;
+            case 'S':
+                return CharSet.SPACE.complement();
+            case 'w':
+                return CharSet.WORD;
+            case 'W':
+                return CharSet.WORD.complement();
+            case 'Q':
+                if (inClass) {
+                    throw new UnsupportedRegexException("Quoting is not supported within a class: " + regex);
+                }
+                int end = regex.indexOf("\\E", pos);
+                if (end < 0) {
+                    end = regex.length();
+                }
+                List<Node> literals = new ArrayList<>();
+                while (pos < end) {
+                    literals.add(CharSet.of(next()));
+                }
+                pos = Math.min(regex.length(), end + 2);
+                return new Concatenation(literals);
+            default:
+                if (Character.isLetterOrDigit(c)) {
+                    throw new UnsupportedRegexException("Unsupported escape \\" + new String(Character.toChars(c)) + " in " + regex);
+                }
+                return CharSet.of(c);
+        }
+    }
+    
+    private int parseHex(int start, int end) throws UnsupportedRegexException {
+        if (start >= end || end > regex.length()) {
+            throw new UnsupportedRegexException("Invalid hex escape in " + regex);
+        }
+        try {
+            int value = Integer.parseInt(regex.substring(start, end), 16);
+            if (value > MAX_CODE_POINT) {
+                throw new UnsupportedRegexException("Invalid hex escape in " + regex);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new UnsupportedRegexException("Invalid hex escape in " + regex);
+        }
+    }
+    
+    private Node parseClass() throws UnsupportedRegexException {
+        boolean negated = false;
+        if (peekIs('^')) {
+            negated = true;
+            pos++;
+        }
+        if (peekIs(']')) {
+            throw new UnsupportedRegexException("Empty or ambiguous class in " + regex);
+        }
+        CharSet.Builder builder = new CharSet.Builder();
+        while (true) {
+            int c = next();
+            if (c == ']') {
+                break;
+            }
+            if (c == '[' || (c == '&' && peekIs('&'))) {
+                throw new UnsupportedRegexException("Class unions and intersections are not supported: " + regex);
+            }
+            int lo;
+            if (c == '\\') {
+                CharSet escaped = (CharSet) parseEscape(true);
+                if (!escaped.isSingle()) {
+                    if (peekIs('-')) {
+                        throw new UnsupportedRegexException("Invalid range in " + regex);
+                    }
+                    builder.add(escaped);
+                    continue;
+                }
+                lo = escaped.ranges[0];
+            } else {
+                lo = c;
+            }
+            if (peekIs('-') && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                pos++;
+                int hi = next();
+                if (hi == '\\') {
+                    CharSet escaped = (CharSet) parseEscape(true);
+                    if (!escaped.isSingle()) {
+                        throw new UnsupportedRegexException("Invalid range in " + regex);
+                    }
+                    hi = escaped.ranges[0];
+                } else if (hi == '[') {
+                    throw new UnsupportedRegexException("Invalid range in " + regex);
+                }
+                if (hi < lo) {
+                    throw new UnsupportedRegexException("Invalid range in " + regex);
+                }
+                builder.add(lo, hi);
+            } else {
+                builder.add(lo, lo);
+            }
+        }
+        CharSet set = builder.build();
+        return negated ? set.complement() : set;
+    }
+    
+    /**
+     * A node of the parsed regex
+     */
+    abstract static class Node {
+        /**
+         * @return a node matching the reverse (by code point) of every value this node matches
+         */
+        abstract Node reverse();
+    }
+    
+    /**
+     * A set of code points, held as sorted and non-overlapping inclusive ranges. Surrogates are never members as they cannot appear on their own in a valid
+     * UTF-8 value.
+     */
+    static final class CharSet extends Node {
+        static final CharSet DOT = new Builder().add('\n', '\n').add('\r', '\r').add('\u0085', '\u0085').add('\u2028', '\u2029').build()
+                        .complement();
+        static final CharSet DIGIT = new Builder().add('0', '9').build();
+        static final CharSet SPACE = new Builder().add('\t', '\r').add(' ', ' ').build();
+        static final CharSet WORD = new Builder().add('0', '9').add('A', 'Z').add('_', '_').add('a', 'z').build();
+        
+        final int[] ranges;
+        
+        private CharSet(int[] ranges) {
+            this.ranges = ranges;
+        }
+        
+        static CharSet of(int c) {
+            return new Builder().add(c, c).build();
+        }
+        
+        boolean isSingle() {
+            return ranges.length == 2 && ranges[0] == ranges[1];
+        }
+        
+        CharSet complement() {
+            Builder builder = new Builder();
+            int next = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > next) {
+                    builder.add(next, ranges[i] - 1);
+                }
+                next = ranges[i + 1] + 1;
+            }
+            if (next <= MAX_CODE_POINT) {
+                builder.add(next, MAX_CODE_POINT);
+            }
+            return builder.build();
+        }
+        
+        @Override
+        Node reverse() {
+            return this;
+        }
+        
+        static final class Builder {
+            private final List<int[]> ranges = new ArrayList<>();
+            
+            Builder add(int lo, int hi) {
+                // surrogates are excluded from every set
+                if (lo < Character.MIN_SURROGATE && hi > Character.MAX_SURROGATE) {
+                    ranges.add(new int[] {lo, Character.MIN_SURROGATE - 1});
+                    ranges.add(new int[] {Character.MAX_SURROGATE + 1, hi});
+                } else if (hi < Character.MIN_SURROGATE || lo > Character.MAX_SURROGATE) {
+                    ranges.add(new int[] {lo, hi});
+                } else if (lo < Character.MIN_SURROGATE) {
+                    ranges.add(new int[] {lo, Character.MIN_SURROGATE - 1});
+                } else if (hi > Character.MAX_SURROGATE) {
+                    ranges.add(new int[] {Character.MAX_SURROGATE + 1, hi});
+                }
+                return this;
+            }
+            
+            Builder add(CharSet set) {
+                for (int i = 0; i < set.ranges.length; i += 2) {
+                    add(set.ranges[i], set.ranges[i + 1]);
+                }
+                return this;
+            }
+            
+            CharSet build() {
+                ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+                int[] merged = new int[ranges.size() * 2];
+                int size = 0;
+                for (int[] range : ranges) {
+                    if (size > 0 && range[0] <= merged[size - 1] + 1) {
+                        merged[size - 1] = Math.max(merged[size - 1], range[1]);
+                    } else {
+                        merged[size++] = range[0];
+                        merged[size++] = range[1];
+                    }
+                }
+                return new CharSet(Arrays.copyOf(merged, size));
+            }
+        }
+    }
+    
+    static final class Concatenation extends Node {
+        final List<Node> nodes;
+        
+        Concatenation(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+        
+        @Override
+        Node reverse() {
+            List<Node> reversed = new ArrayList<>(nodes.size());
+            for (Node node : nodes) {
+                reversed.add(node.reverse());
+            }
+            Collections.reverse(reversed);
+            return new Concatenation(reversed);
+        }
+    }
+    
+    static final class Alternation extends Node {
+        final List<Node> nodes;
+        
+        Alternation(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+        
+        @Override
+        Node reverse() {
+            List<Node> reversed = new ArrayList<>(nodes.size());
+            for (Node node : nodes) {
+                reversed.add(node.reverse());
+            }
+            return new Alternation(reversed);
+        }
+    }
+    
+    static final class Repeat extends Node {
+        static final int UNBOUNDED = -1;
+        
+        final Node node;
+        final int min;
+        final int max;
+        
+        Repeat(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+        
+        @Override
+        Node reverse() {
+            return new Repeat(node.reverse(), min, max);
+        }
+    }
+    
+    /**
+     * Thrown when a regex cannot be handled by the byte regex engine
+     */
+    static final class UnsupportedRegexException extends Exception {
+        private static final long serialVersionUID = 1L;
+        
+        UnsupportedRegexException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package datawave.webservice.modification;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import datawave.data.type.Type;
+import datawave.query.util.MetadataHelper;
+import datawave.security.util.ScannerHelper;
+import datawave.util.TextUtil;
+import datawave.webservice.modification.ModificationRequestBase.MODE;
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.MultiTableBatchWriter;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * Class that handles bulk modification requests, each holding a list of {@link DefaultModificationRequest}s which are applied as they would be by the
+ * {@link MutableMetadataHandler}. <br>
+ * <br>
+ * The modifications are grouped by shard, and the shards are processed concurrently. The current entries of every event modified in a shard are fetched with
+ * one batch scan, instead of several scans per event, and the mutations of all of the shards are written through one shared writer which is flushed once per
+ * round of a shard instead of once per modification. Modifications of the same field of the same event are applied in order, in separate rounds. <br>
+ * <br>
+ * A modification whose current value does not match is skipped rather than failing the other modifications, and the request fails once all of the other
+ * modifications have been applied.
+ * 
+ * <pre>
+ * {@code
+ * 
+ * <BulkModificationRequest>
+ *   <Modifications>
+ *     <Modification>
+ *       <Events>
+ *         <Event>
+ *           <shardId>20120731_9</shardId>
+ *           <datatype>myDatatype</datatype>
+ *           <eventUid>0000-0000-0000-0000</eventUid>
+ *         </Event>
+ *       </Events>
+ *       <mode>UPDATE</mode>
+ *       <fieldName>TEST</fieldName>
+ *       <fieldValue>XYZ</fieldValue>
+ *       <oldFieldValue>ABC</oldFieldValue>
+ *       <columnVisibility>PRIVATE|PUBLIC</columnVisibility>
+ *     </Modification>
+ *   </Modifications>
+ * </BulkModificationRequest>
+ * }
+ * </pre>
+ */
+public class BulkMutableMetadataHandler extends MutableMetadataHandler {
+    
+    private Logger log = Logger.getLogger(this.getClass());
+    
+    protected static final String BULK_DESCRIPTION = "Modification service that processes a bulk list of insert, update, and delete requests of event fields for events identified by the shard id, datatype, and event uid.";
+    
+    protected long writerMaxMemory = 64L * 1024 * 1024;
+    protected long writerMaxLatency = 10000L;
+    protected int writerMaxWriteThreads = 16;
+    protected int scanThreads = 8;
+    protected int shardThreads = 8;
+    
+    public long getWriterMaxMemory() {
+        return writerMaxMemory;
+    }
+    
+    public void setWriterMaxMemory(long writerMaxMemory) {
+        this.writerMaxMemory = writerMaxMemory;
+    }
+    
+    public long getWriterMaxLatency() {
+        return writerMaxLatency;
+    }
+    
+    /**
+     * @param writerMaxLatency
+     *            the max latency of the writer in milliseconds
+     */
+    public void setWriterMaxLatency(long writerMaxLatency) {
+        this.writerMaxLatency = writerMaxLatency;
+    }
+    
+    public int getWriterMaxWriteThreads() {
+        return writerMaxWriteThreads;
+    }
+    
+    public void setWriterMaxWriteThreads(int writerMaxWriteThreads) {
+        this.writerMaxWriteThreads = writerMaxWriteThreads;
+    }
+    
+    public int getScanThreads() {
+        return scanThreads;
+    }
+    
+    public void setScanThreads(int scanThreads) {
+        this.scanThreads = scanThreads;
+    }
+    
+    public int getShardThreads() {
+        return shardThreads;
+    }
+    
+    public void setShardThreads(int shardThreads) {
+        this.shardThreads = shardThreads;
+    }
+    
+    @Override
+    public String getDescription() {
+        return BULK_DESCRIPTION;
+    }
+    
+    @Override
+    public Class<? extends ModificationRequestBase> getRequestClass() {
+        return BulkModificationRequest.class;
+    }
+    
+    // Default the insert history option to true so that the call remains backwards compatible.
+    @Override
+    public void process(AccumuloClient client, ModificationRequestBase request, Map<String,Set<String>> mutableFieldList, Set<Authorizations> userAuths,
+                    String user) throws Exception {
+        this.process(client, request, mutableFieldList, userAuths, user, false, true);
+    }
+    
+    @Override
+    public void process(AccumuloClient client, ModificationRequestBase request, Map<String,Set<String>> mutableFieldList, Set<Authorizations> userAuths,
+                    String user, boolean purgeIndex, boolean insertHistory) throws Exception {
+        
+        BulkModificationRequest bulk = BulkModificationRequest.class.cast(request);
+        
+        if (null == bulk.getModifications() || bulk.getModifications().isEmpty()) {
+            throw new IllegalArgumentException("No modifications specified");
+        }
+        
+        BulkModificationStats stats = new BulkModificationStats();
+        MetadataHelper helper = getMetadataHelper(client);
+        
+        // validate all of the modifications and look up their fields before anything is written
+        Map<String,FieldInfo> fields = new HashMap<>();
+        SortedMap<String,List<Edit>> editsByShard = new TreeMap<>();
+        for (DefaultModificationRequest mr : bulk.getModifications()) {
+            validate(mr);
+            for (EventIdentifier e : mr.getEvents()) {
+                if (insertHistory && !isFieldMutable(mutableFieldList, e.getDatatype(), mr.getFieldName()))
+                    throw new IllegalArgumentException("Field " + mr.getFieldName() + " is not mutable");
+                
+                String fieldKey = e.getDatatype() + NULL_BYTE + mr.getFieldName();
+                FieldInfo info = fields.get(fieldKey);
+                if (null == info) {
+                    info = new FieldInfo(helper, e.getDatatype(), mr.getFieldName());
+                    fields.put(fieldKey, info);
+                }
+                
+                List<Edit> edits = editsByShard.get(e.getShardId());
+                if (null == edits) {
+                    edits = new ArrayList<>();
+                    editsByShard.put(e.getShardId(), edits);
+                }
+                edits.add(new Edit(mr, e, info));
+                stats.modifications.incrementAndGet();
+            }
+        }
+        stats.shards.set(editsByShard.size());
+        
+        MultiTableBatchWriter writer = client.createMultiTableBatchWriter(new BatchWriterConfig().setMaxLatency(writerMaxLatency, TimeUnit.MILLISECONDS)
+                        .setMaxMemory(writerMaxMemory).setMaxWriteThreads(writerMaxWriteThreads));
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(shardThreads, editsByShard.size())),
+                        new ThreadFactoryBuilder().setNameFormat("BulkModification-%d").setDaemon(true).build());
+        try {
+            List<Future<Void>> futures = new ArrayList<>(editsByShard.size());
+            for (Entry<String,List<Edit>> shard : editsByShard.entrySet()) {
+                futures.add(executor.submit(() -> {
+                    processShard(writer, client, userAuths, user, shard.getKey(), shard.getValue(), purgeIndex, insertHistory, stats);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            try {
+                writer.close();
+            } finally {
+                stats.finish();
+                recordStats(stats);
+            }
+        }
+        
+        if (stats.rejected.get() > 0) {
+            throw new IllegalArgumentException("Modification request partially rejected. " + stats.rejected.get() + " of " + stats.modifications.get()
+                            + " modifications did not match the current value of their field.");
+        }
+    }
+    
+    /**
+     * Mutations are flushed by {@link #processShard} once per round of a shard rather than once per modification
+     */
+    @Override
+    protected void flush(MultiTableBatchWriter writer) {}
+    
+    /**
+     * Record the throughput of a bulk request, once it has completed
+     * 
+     * @param stats
+     */
+    protected void recordStats(BulkModificationStats stats) {
+        log.info(stats);
+    }
+    
+    protected void validate(DefaultModificationRequest mr) {
+        if (null == mr.getEvents() || mr.getEvents().isEmpty()) {
+            throw new IllegalArgumentException("No events specified for modification");
+        }
+        if (null == mr.getMode()) {
+            throw new IllegalArgumentException("mode parameter required for modification of " + mr.getFieldName());
+        }
+        if (MODE.UPDATE.equals(mr.getMode()) && null == mr.getOldFieldValue()) {
+            throw new IllegalArgumentException("oldFieldValue parameter required for update");
+        }
+        if (null == mr.getFieldValue()) {
+            throw new IllegalArgumentException("fieldValue parameter required for " + mr.getMode().name().toLowerCase());
+        }
+    }
+    
+    /**
+     * Apply the modifications of one shard. Modifications of the same field of the same event are applied in separate rounds, so that each one sees the
+     * changes of the ones before it.
+     * 
+     * @param writer
+     * @param client
+     * @param userAuths
+     * @param user
+     * @param shardId
+     * @param edits
+     *            the modifications of the shard, in request order
+     * @param purgeIndex
+     * @param insertHistory
+     * @param stats
+     * @throws Exception
+     */
+    protected void processShard(MultiTableBatchWriter writer, AccumuloClient client, Set<Authorizations> userAuths, String user, String shardId,
+                    List<Edit> edits, boolean purgeIndex, boolean insertHistory, BulkModificationStats stats) throws Exception {
+        List<Edit> remaining = edits;
+        while (!remaining.isEmpty()) {
+            Set<String> modified = new HashSet<>();
+            List<Edit> round = new ArrayList<>(remaining.size());
+            List<Edit> deferred = new ArrayList<>();
+            for (Edit edit : remaining) {
+                if (modified.add(edit.getColumnFamily() + NULL_BYTE + edit.request.getFieldName())) {
+                    round.add(edit);
+                } else {
+                    deferred.add(edit);
+                }
+            }
+            
+            Map<String,List<Pair<Key,Value>>> eventEntries = getEvents(client, userAuths, shardId, round, stats);
+            for (Edit edit : round) {
+                apply(writer, client, userAuths, user, shardId, edit, eventEntries.get(edit.getColumnFamily()), purgeIndex, insertHistory, stats);
+            }
+            writer.flush();
+            stats.rounds.incrementAndGet();
+            remaining = deferred;
+        }
+    }
+    
+    /**
+     * Fetch all of the entries of the events of a round with one batch scan
+     * 
+     * @return the entries of each event, by column family
+     */
+    protected Map<String,List<Pair<Key,Value>>> getEvents(AccumuloClient client, Set<Authorizations> userAuths, String shardId, List<Edit> round,
+                    BulkModificationStats stats) throws Exception {
+        Map<String,List<Pair<Key,Value>>> eventEntries = new HashMap<>();
+        List<Range> ranges = new ArrayList<>();
+        for (Edit edit : round) {
+            String family = edit.getColumnFamily();
+            if (!eventEntries.containsKey(family)) {
+                eventEntries.put(family, new ArrayList<>());
+                Key startKey = new Key(new Text(shardId), new Text(family));
+                ranges.add(new Range(startKey, true, startKey.followingKey(PartialKey.ROW_COLFAM), false));
+            }
+        }
+        
+        BatchScanner scanner = ScannerHelper.createBatchScanner(client, this.getEventTableName(), userAuths, scanThreads);
+        try {
+            scanner.setRanges(ranges);
+            for (Entry<Key,Value> e : scanner) {
+                List<Pair<Key,Value>> entries = eventEntries.get(e.getKey().getColumnFamily().toString());
+                if (null != entries) {
+                    entries.add(new Pair<>(e.getKey(), e.getValue()));
+                    stats.entriesScanned.incrementAndGet();
+                }
+            }
+        } finally {
+            scanner.close();
+        }
+        return eventEntries;
+    }
+    
+    /**
+     * Apply one modification to an event, given all of the current entries of the event
+     */
+    protected void apply(MultiTableBatchWriter writer, AccumuloClient client, Set<Authorizations> userAuths, String user, String shardId, Edit edit,
+                    List<Pair<Key,Value>> entries, boolean purgeIndex, boolean insertHistory, BulkModificationStats stats) throws Exception {
+        DefaultModificationRequest mr = edit.request;
+        String fieldName = mr.getFieldName();
+        MODE mode = mr.getMode();
+        boolean countHistory = insertHistory && (MODE.INSERT.equals(mode) || MODE.UPDATE.equals(mode));
+        String historyFieldName = HISTORY_PREFIX + fieldName;
+        
+        // Count the timestamps of the event, and the history entries if history is going to be inserted.
+        Map<Long,Integer> timestampCounts = new HashMap<>();
+        int valHistoryCount = 0;
+        for (Pair<Key,Value> entry : entries) {
+            Key key = entry.getFirst();
+            Integer count = timestampCounts.get(key.getTimestamp());
+            timestampCounts.put(key.getTimestamp(), null == count ? 1 : count + 1);
+            if (countHistory && matchesField(key, historyFieldName, new HashMap<>(), null, userAuths)
+                            && key.getColumnQualifier().find(mr.getFieldValue()) > -1) {
+                ++valHistoryCount;
+            }
+        }
+        long origTimestamp = getOriginalEventTimestamp(shardId, timestampCounts);
+        
+        List<Pair<Key,Value>> currentEntryList = null;
+        if (MODE.UPDATE.equals(mode) || MODE.DELETE.equals(mode)) {
+            String oldFieldValue;
+            Map<String,String> oldFieldMarkings;
+            String oldColumnVisibility;
+            if (MODE.UPDATE.equals(mode)) {
+                oldFieldValue = mr.getOldFieldValue();
+                oldFieldMarkings = mr.getOldFieldMarkings();
+                oldColumnVisibility = mr.getOldColumnVisibility();
+            } else {
+                oldFieldValue = mr.getFieldValue();
+                oldFieldMarkings = mr.getFieldMarkings();
+                oldColumnVisibility = mr.getColumnVisibility();
+            }
+            ColumnVisibility oldViz = null;
+            if (null != oldColumnVisibility) {
+                oldViz = new ColumnVisibility(oldColumnVisibility);
+            }
+            
+            // find the current values
+            Text qualifier = new Text(fieldName);
+            TextUtil.textAppend(qualifier, oldFieldValue);
+            currentEntryList = new ArrayList<>();
+            for (Pair<Key,Value> entry : entries) {
+                if (entry.getFirst().getColumnQualifier().equals(qualifier) && matchesField(entry.getFirst(), fieldName, oldFieldMarkings, oldViz, userAuths)) {
+                    currentEntryList.add(entry);
+                }
+            }
+            if (currentEntryList.isEmpty()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Modification rejected. Current value of " + fieldName + " does not match submitted value for " + edit.event);
+                }
+                stats.rejected.incrementAndGet();
+                return;
+            }
+        }
+        
+        FieldInfo info = edit.field;
+        modify(writer, client, userAuths, user, mr, shardId, edit.event.getDatatype(), edit.event.getEventUid(), currentEntryList, info.isIndexOnly,
+                        info.isIndexed, info.isReverseIndexed, info.isContent, info.dataTypes, origTimestamp + valHistoryCount, purgeIndex, insertHistory);
+        stats.applied.incrementAndGet();
+    }
+    
+    /**
+     * The index configuration of a field for a datatype, looked up once per request
+     */
+    protected class FieldInfo {
+        protected final boolean isIndexed;
+        protected final boolean isReverseIndexed;
+        protected final boolean isIndexOnly;
+        protected final boolean isContent;
+        protected final Set<Type<?>> dataTypes;
+        
+        protected FieldInfo(MetadataHelper helper, String datatype, String fieldName) throws Exception {
+            Set<String> datatypeFilter = Collections.singleton(datatype);
+            this.isIndexed = helper.isIndexed(fieldName, datatypeFilter);
+            this.isReverseIndexed = helper.isReverseIndexed(fieldName, datatypeFilter);
+            this.isIndexOnly = helper.getIndexOnlyFields(datatypeFilter).contains(fieldName);
+            this.isContent = (contentFields != null && contentFields.contains(fieldName));
+            this.dataTypes = helper.getDatatypesForField(fieldName, datatypeFilter);
+            
+            if ((isIndexed || isReverseIndexed || isIndexOnly) && (null == dataTypes || dataTypes.isEmpty()))
+                throw new IllegalStateException("Field " + fieldName + " is marked index only but has no dataTypes");
+        }
+    }
+    
+    /**
+     * A modification of one event
+     */
+    protected static class Edit {
+        protected final DefaultModificationRequest request;
+        protected final EventIdentifier event;
+        protected final FieldInfo field;
+        
+        protected Edit(DefaultModificationRequest request, EventIdentifier event, FieldInfo field) {
+            this.request = request;
+            this.event = event;
+            this.field = field;
+        }
+        
+        protected String getColumnFamily() {
+            return event.getDatatype() + NULL_BYTE + event.getEventUid();
+        }
+    }
+    
+    /**
+     * The throughput of a bulk request
+     */
+    public static class BulkModificationStats {
+        private final long start = System.currentTimeMillis();
+        private long elapsed = 0;
+        protected final AtomicLong modifications = new AtomicLong();
+        protected final AtomicLong applied = new AtomicLong();
+        protected final AtomicLong rejected = new AtomicLong();
+        protected final AtomicLong shards = new AtomicLong();
+        protected final AtomicLong rounds = new AtomicLong();
+        protected final AtomicLong entriesScanned = new AtomicLong();
+        
+        protected void finish() {
+            elapsed = Math.max(System.currentTimeMillis() - start, 1);
+        }
+        
+        public long getModifications() {
+            return modifications.get();
+        }
+        
+        public long getApplied() {
+            return applied.get();
+        }
+        
+        public long getRejected() {
+            return rejected.get();
+        }
+        
+        public long getShards() {
+            return shards.get();
+        }
+        
+        public long getRounds() {
+            return rounds.get();
+        }
+        
+        public long getEntriesScanned() {
+            return entriesScanned.get();
+        }
+        
+        public long getElapsed() {
+            return elapsed;
+        }
+        
+        /**
+         * @return the modifications applied per second
+         */
+        public double getThroughput() {
+            return elapsed == 0 ? 0 : applied.get() * 1000.0 / elapsed;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Bulk modification applied %d of %d modifications (%d rejected) across %d shards in %d rounds, scanning %d entries in %d ms"
+                            + " (%.1f modifications/s)", getApplied(), getModifications(), getRejected(), getShards(), getRounds(), getEntriesScanned(),
+                            getElapsed(), getThroughput());
+        }
+    }
+}
@@ -49,6 +49,7 @@ import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.MultiTableBatchWriter;
+import org.apache.accumulo.core.client.MutationsRejectedException;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
@@ -385,38 +386,71 @@ public class MutableMetadataHandler extends ModificationServiceConfiguration {
                         throw new IllegalArgumentException("fieldValue parameter required for insert");
                 }
                 
-                if (MODE.INSERT.equals(mode)) {
-                    String fieldValue = mr.getFieldValue();
-                    Map<String,String> fieldMarkings = mr.getFieldMarkings();
-                    String columnVisibility = mr.getColumnVisibility();
-                    ColumnVisibility colviz = null;
-                    if (null != columnVisibility) {
-                        colviz = new ColumnVisibility(columnVisibility);
-                    }
-                    insert(writer, shardId, datatype, eventUid, fieldMarkings, colviz, fieldName, fieldValue, isIndexOnly, isIndexed, isReverseIndexed,
-                                    dataTypes, user, MODE.INSERT, origTimestamp + valHistoryCount, insertHistory);
-                } else if (MODE.DELETE.equals(mode)) {
-                    delete(writer, client, userAuths, currentEntryList, isIndexOnly, isIndexed, isReverseIndexed, isContent, dataTypes, user, MODE.DELETE,
-                                    origTimestamp + valHistoryCount, purgeIndex, insertHistory);
-                } else {
-                    delete(writer, client, userAuths, currentEntryList, isIndexOnly, isIndexed, isReverseIndexed, isContent, dataTypes, user, MODE.UPDATE,
-                                    origTimestamp + valHistoryCount, purgeIndex, insertHistory);
-                    String fieldValue = mr.getFieldValue();
-                    Map<String,String> fieldMarkings = mr.getFieldMarkings();
-                    String columnVisibility = mr.getColumnVisibility();
-                    ColumnVisibility colviz = null;
-                    if (null != columnVisibility) {
-                        colviz = new ColumnVisibility(columnVisibility);
-                    }
-                    insert(writer, shardId, datatype, eventUid, fieldMarkings, colviz, fieldName, fieldValue, isIndexOnly, isIndexed, isReverseIndexed,
-                                    dataTypes, user, MODE.UPDATE, origTimestamp + valHistoryCount, insertHistory);
-                }
+                modify(writer, client, userAuths, user, mr, shardId, datatype, eventUid, currentEntryList, isIndexOnly, isIndexed, isReverseIndexed,
+                                isContent, dataTypes, origTimestamp + valHistoryCount, purgeIndex, insertHistory);
             }
         } finally {
             writer.close();
         }
     }
     
+    /**
+     * Apply a modification request to one event, once the current values of the field have been found
+     * 
+     * @param writer
+     * @param client
+     * @param userAuths
+     * @param user
+     * @param mr
+     * @param shardId
+     * @param datatype
+     * @param eventUid
+     * @param currentEntryList
+     *            the current entries of the field to be updated or deleted
+     * @param isIndexOnly
+     * @param isIndexed
+     * @param isReverseIndexed
+     * @param isContent
+     * @param dataTypes
+     * @param ts
+     *            the timestamp of the new entries
+     * @param purgeIndex
+     * @param insertHistory
+     * @throws Exception
+     */
+    protected void modify(MultiTableBatchWriter writer, AccumuloClient client, Set<Authorizations> userAuths, String user, DefaultModificationRequest mr,
+                    String shardId, String datatype, String eventUid, List<Pair<Key,Value>> currentEntryList, boolean isIndexOnly, boolean isIndexed,
+                    boolean isReverseIndexed, boolean isContent, Set<Type<?>> dataTypes, long ts, boolean purgeIndex, boolean insertHistory) throws Exception {
+        String fieldName = mr.getFieldName();
+        MODE mode = mr.getMode();
+        if (MODE.INSERT.equals(mode)) {
+            String fieldValue = mr.getFieldValue();
+            Map<String,String> fieldMarkings = mr.getFieldMarkings();
+            String columnVisibility = mr.getColumnVisibility();
+            ColumnVisibility colviz = null;
+            if (null != columnVisibility) {
+                colviz = new ColumnVisibility(columnVisibility);
+            }
+            insert(writer, shardId, datatype, eventUid, fieldMarkings, colviz, fieldName, fieldValue, isIndexOnly, isIndexed, isReverseIndexed, dataTypes,
+                            user, MODE.INSERT, ts, insertHistory);
+        } else if (MODE.DELETE.equals(mode)) {
+            delete(writer, client, userAuths, currentEntryList, isIndexOnly, isIndexed, isReverseIndexed, isContent, dataTypes, user, MODE.DELETE, ts,
+                            purgeIndex, insertHistory);
+        } else {
+            delete(writer, client, userAuths, currentEntryList, isIndexOnly, isIndexed, isReverseIndexed, isContent, dataTypes, user, MODE.UPDATE, ts,
+                            purgeIndex, insertHistory);
+            String fieldValue = mr.getFieldValue();
+            Map<String,String> fieldMarkings = mr.getFieldMarkings();
+            String columnVisibility = mr.getColumnVisibility();
+            ColumnVisibility colviz = null;
+            if (null != columnVisibility) {
+                colviz = new ColumnVisibility(columnVisibility);
+            }
+            insert(writer, shardId, datatype, eventUid, fieldMarkings, colviz, fieldName, fieldValue, isIndexOnly, isIndexed, isReverseIndexed, dataTypes,
+                            user, MODE.UPDATE, ts, insertHistory);
+        }
+    }
+    
     /**
      * Insert new field value with provided timestamp
      * 
@@ -500,7 +534,7 @@ public class MutableMetadataHandler extends ModificationServiceConfiguration {
         }
         writer.getBatchWriter(this.getEventTableName()).addMutation(e);
         writer.getBatchWriter(this.getMetadataTableName()).addMutation(m);
-        writer.flush();
+        flush(writer);
         
         if (!isIndexOnlyField && insertHistory) {
             insertHistory(writer, shardId, datatype, eventUid, viz, fieldName, fieldValue, timestamp, isIndexOnlyField, isIndexed, isReverseIndexed, dataTypes,
@@ -701,6 +735,16 @@ public class MutableMetadataHandler extends ModificationServiceConfiguration {
                 }
             }
         }
+        flush(writer);
+    }
+    
+    /**
+     * Flush the mutations written for a modification
+     * 
+     * @param writer
+     * @throws MutationsRejectedException
+     */
+    protected void flush(MultiTableBatchWriter writer) throws MutationsRejectedException {
         writer.flush();
     }
     
@@ -744,28 +788,9 @@ public class MutableMetadataHandler extends ModificationServiceConfiguration {
             }
             
             for (Entry<Key,Value> e : s) {
-                ColumnVisibility thisViz = new ColumnVisibility(e.getKey().getColumnVisibility());
-                
-                if (!e.getKey().getColumnQualifier().toString().startsWith(fieldName)) {
-                    continue;
+                if (matchesField(e.getKey(), fieldName, oldFieldMarkings, oldColumnVisibility, userAuths)) {
+                    results.add(new Pair<>(e.getKey(), e.getValue()));
                 }
-                
-                if (null != oldColumnVisibility) {
-                    // need to compare the flattened values for equivalence. It's possible for the visibility to be in a different order
-                    String oldColViz = new String(oldColumnVisibility.flatten(), "UTF-8");
-                    String thisVis = new String(thisViz.flatten(), "UTF-8");
-                    if (!oldColViz.equals(thisVis)) {
-                        log.trace("Skipping key that does not match with column visibility: " + e.getKey());
-                        continue;
-                    }
-                } else {
-                    Map<String,String> markings = markingFunctions.translateFromColumnVisibilityForAuths(e.getKey().getColumnVisibilityParsed(), userAuths);
-                    if (null != oldFieldMarkings && !oldFieldMarkings.equals(markings)) {
-                        log.trace("Skipping key that does not match with markings: " + e.getKey());
-                        continue;
-                    }
-                }
-                results.add(new Pair<>(e.getKey(), e.getValue()));
             }
         } finally {
             s.close();
@@ -773,6 +798,42 @@ public class MutableMetadataHandler extends ModificationServiceConfiguration {
         return results;
     }
     
+    /**
+     * Check whether an event key is an entry of the field to be updated/deleted
+     * 
+     * @param key
+     * @param fieldName
+     * @param oldFieldMarkings
+     * @param oldColumnVisibility
+     * @param userAuths
+     * @return true if the key is for the field, and matches the visibility or markings when they were provided
+     * @throws Exception
+     */
+    protected boolean matchesField(Key key, String fieldName, Map<String,String> oldFieldMarkings, ColumnVisibility oldColumnVisibility,
+                    Set<Authorizations> userAuths) throws Exception {
+        if (!key.getColumnQualifier().toString().startsWith(fieldName)) {
+            return false;
+        }
+        
+        if (null != oldColumnVisibility) {
+            // need to compare the flattened values for equivalence. It's possible for the visibility to be in a different order
+            ColumnVisibility thisViz = new ColumnVisibility(key.getColumnVisibility());
+            String oldColViz = new String(oldColumnVisibility.flatten(), "UTF-8");
+            String thisVis = new String(thisViz.flatten(), "UTF-8");
+            if (!oldColViz.equals(thisVis)) {
+                log.trace("Skipping key that does not match with column visibility: " + key);
+                return false;
+            }
+        } else {
+            Map<String,String> markings = markingFunctions.translateFromColumnVisibilityForAuths(key.getColumnVisibilityParsed(), userAuths);
+            if (null != oldFieldMarkings && !oldFieldMarkings.equals(markings)) {
+                log.trace("Skipping key that does not match with markings: " + key);
+                return false;
+            }
+        }
+        return true;
+    }
+    
     /**
      * Pulls the entire event and returns the most common timestamp for the event. This *assumes* the most common timestamp is the original one. If this is not
      * the case, then it needs to change. Another option could be to return the earliest timestamp, which is also an assumption.
@@ -793,9 +854,6 @@ public class MutableMetadataHandler extends ModificationServiceConfiguration {
         
         HashMap<Long,Integer> timestampCounts = new HashMap<>();
         
-        long highestOccurrenceTimestamp = 0;
-        int highestOccurrences = -1;
-        
         // Pull the entire event
         Scanner s = ScannerHelper.createScanner(client, this.getEventTableName(), userAuths);
         try {
@@ -812,24 +870,38 @@ public class MutableMetadataHandler extends ModificationServiceConfiguration {
                 }
             }
             
-            // Determine the most common timestamp
-            if (timestampCounts.isEmpty()) {
-                // if no fields exist, then use the shard date at 00:00:00
-                highestOccurrenceTimestamp = DateHelper.parse(shardId.substring(0, 8)).getTime();
-            } else {
-                for (Entry<Long,Integer> entry : timestampCounts.entrySet()) {
-                    Long ts = entry.getKey();
-                    int occurrences = entry.getValue();
-                    if (occurrences > highestOccurrences) {
-                        highestOccurrences = occurrences;
-                        highestOccurrenceTimestamp = ts;
-                    }
-                }
-            }
         } finally {
             s.close();
         }
         
+        return getOriginalEventTimestamp(shardId, timestampCounts);
+    }
+    
+    /**
+     * Determine the most common timestamp of an event
+     * 
+     * @param shardId
+     * @param timestampCounts
+     *            how often each timestamp occurs in the event
+     * @return long - highestOccurrenceTimestamp - most common timestamp in the event, or the shard date if the event has no fields
+     */
+    protected long getOriginalEventTimestamp(String shardId, Map<Long,Integer> timestampCounts) {
+        long highestOccurrenceTimestamp = 0;
+        int highestOccurrences = -1;
+        
+        if (timestampCounts.isEmpty()) {
+            // if no fields exist, then use the shard date at 00:00:00
+            highestOccurrenceTimestamp = DateHelper.parse(shardId.substring(0, 8)).getTime();
+        } else {
+            for (Entry<Long,Integer> entry : timestampCounts.entrySet()) {
+                Long ts = entry.getKey();
+                int occurrences = entry.getValue();
+                if (occurrences > highestOccurrences) {
+                    highestOccurrences = occurrences;
+                    highestOccurrenceTimestamp = ts;
+                }
+            }
+        }
         return highestOccurrenceTimestamp;
     }
     
@@ -6,6 +6,8 @@ public class ModificationConfiguration {
     
     private String tableName = null;
     private String poolName = null;
+    private int cacheFullReloadInterval = 10;
+    private long cacheRefreshSkewWindow = 300000L;
     private Map<String,ModificationServiceConfiguration> configurations = null;
     
     public String getTableName() {
@@ -24,6 +26,30 @@ public class ModificationConfiguration {
         this.poolName = poolName;
     }
     
+    /**
+     * @return the number of incremental refreshes of the mutable field cache between full reloads, which also pick up removed fields. 0 or less means every
+     *         refresh is a full reload.
+     */
+    public int getCacheFullReloadInterval() {
+        return cacheFullReloadInterval;
+    }
+    
+    public void setCacheFullReloadInterval(int cacheFullReloadInterval) {
+        this.cacheFullReloadInterval = cacheFullReloadInterval;
+    }
+    
+    /**
+     * @return how far, in milliseconds, before the latest timestamp seen an incremental refresh of the mutable field cache starts scanning. This allows for
+     *         entries written with the clocks of other servers, which may be behind, or which were not yet visible when the last refresh ran.
+     */
+    public long getCacheRefreshSkewWindow() {
+        return cacheRefreshSkewWindow;
+    }
+    
+    public void setCacheRefreshSkewWindow(long cacheRefreshSkewWindow) {
+        this.cacheRefreshSkewWindow = cacheRefreshSkewWindow;
+    }
+    
     public Map<String,ModificationServiceConfiguration> getConfigurations() {
         return configurations;
     }
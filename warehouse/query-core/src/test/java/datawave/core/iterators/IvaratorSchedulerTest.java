@@ -0,0 +1,144 @@
+package datawave.core.iterators;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class IvaratorSchedulerTest {
+    
+    private ThreadPoolExecutor executor;
+    
+    @Before
+    public void setup() {
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+    }
+    
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testQueriesShareThreads() throws Exception {
+        IvaratorScheduler scheduler = new IvaratorScheduler(executor, 0);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        
+        // hold the only thread while the tasks are queued
+        CountDownLatch latch = new CountDownLatch(1);
+        Future<?> blocker = scheduler.submit(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }, "blocker");
+        
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(scheduler.submit(() -> order.add("big"), "big"));
+        }
+        futures.add(scheduler.submit(() -> order.add("small"), "small"));
+        Assert.assertEquals(3, scheduler.getQueuedCount("big"));
+        Assert.assertEquals(1, scheduler.getQueuedCount("small"));
+        Assert.assertEquals(1, scheduler.getRunningCount("blocker"));
+        
+        latch.countDown();
+        blocker.get();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        
+        // the small query is served after one task of the big query, not after all of them
+        Assert.assertEquals(4, order.size());
+        Assert.assertEquals("small", order.get(1));
+    }
+    
+    @Test
+    public void testCancelledTasksAreDropped() throws Exception {
+        IvaratorScheduler scheduler = new IvaratorScheduler(executor, 0);
+        
+        CountDownLatch latch = new CountDownLatch(1);
+        Future<?> blocker = scheduler.submit(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }, "query");
+        Future<?> cancelled = scheduler.submit(() -> Assert.fail("cancelled task was run"), "query");
+        Future<?> next = scheduler.submit(() -> {}, "query");
+        cancelled.cancel(false);
+        
+        latch.countDown();
+        blocker.get();
+        next.get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(cancelled.isCancelled());
+    }
+    
+    @Test
+    public void testMemoryBudget() {
+        IvaratorScheduler scheduler = new IvaratorScheduler(executor, 100);
+        Object first = new Object();
+        Object second = new Object();
+        Object third = new Object();
+        
+        // within the budget
+        Assert.assertTrue(scheduler.reserve(first, 40));
+        Assert.assertTrue(scheduler.reserve(second, 40));
+        
+        // over the budget, but the third set holds less than its share of it
+        Assert.assertTrue(scheduler.reserve(third, 30));
+        Assert.assertEquals(110, scheduler.getBufferedBytes());
+        
+        // over the budget, and the first set holds more than its share of it
+        Assert.assertFalse(scheduler.reserve(first, 10));
+        scheduler.release(first);
+        Assert.assertEquals(70, scheduler.getBufferedBytes());
+        
+        // releasing twice has no effect
+        scheduler.release(first);
+        Assert.assertEquals(70, scheduler.getBufferedBytes());
+        
+        // back within the budget
+        Assert.assertTrue(scheduler.reserve(third, 10));
+        
+        // no budget
+        scheduler.setMaxBufferedBytes(0);
+        Assert.assertTrue(scheduler.reserve(third, 1000));
+    }
+    
+    @Test
+    public void testIdleLeasesExpire() throws Exception {
+        IvaratorScheduler scheduler = new IvaratorScheduler(executor, 100);
+        Object abandoned = new Object();
+        Object active = new Object();
+        
+        scheduler.reserve(abandoned, 40);
+        scheduler.reserve(active, 30);
+        Thread.sleep(50);
+        scheduler.touch(active);
+        
+        // only the set that was not used within the idle time gives back its memory
+        Assert.assertEquals(1, scheduler.expireLeases(25));
+        Assert.assertEquals(30, scheduler.getBufferedBytes());
+        Assert.assertEquals(1, scheduler.getLeaseCount());
+        
+        // a late release of the expired set does not release it twice
+        scheduler.release(abandoned);
+        Assert.assertEquals(30, scheduler.getBufferedBytes());
+        
+        scheduler.release(active);
+        Assert.assertEquals(0, scheduler.getBufferedBytes());
+        Assert.assertEquals(0, scheduler.getLeaseCount());
+    }
+}
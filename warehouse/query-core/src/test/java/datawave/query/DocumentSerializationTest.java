@@ -0,0 +1,123 @@
+package datawave.query;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map.Entry;
+import java.util.zip.Adler32;
+
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.function.deserializer.KryoDocumentDeserializer;
+import datawave.query.function.serializer.KryoDocumentSerializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class DocumentSerializationTest {
+    
+    private final Key docKey = new Key("20190101_0", "datatype\u0000uid");
+    
+    @Test
+    public void testDictionaryCompressionRoundTrip() {
+        Document document = document(50);
+        
+        Value uncompressed = new KryoDocumentSerializer(false, false).apply(Maps.immutableEntry(docKey, document)).getValue();
+        Value compressed = new KryoDocumentSerializer(false, true, true).apply(Maps.immutableEntry(docKey, document)).getValue();
+        
+        Assert.assertEquals(DocumentSerialization.NONE, uncompressed.get()[2]);
+        Assert.assertEquals(DocumentSerialization.DICTIONARY, compressed.get()[2]);
+        Assert.assertTrue(compressed.getSize() < uncompressed.getSize());
+        
+        KryoDocumentDeserializer deserializer = new KryoDocumentDeserializer();
+        assertDocument(50, deserializer.apply(Maps.immutableEntry(docKey, compressed)));
+        // the deserializer reuses its state for the next document
+        assertDocument(50, deserializer.apply(Maps.immutableEntry(docKey, uncompressed)));
+    }
+    
+    @Test
+    public void testGzipCompressionByDefault() {
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer(false, true);
+        
+        // documents up to the default minimum size are not compressed
+        Value small = serializer.apply(Maps.immutableEntry(docKey, document(50))).getValue();
+        Assert.assertEquals(DocumentSerialization.NONE, small.get()[2]);
+        
+        Value large = serializer.apply(Maps.immutableEntry(docKey, document(1000))).getValue();
+        Assert.assertEquals(DocumentSerialization.GZIP, large.get()[2]);
+        
+        KryoDocumentDeserializer deserializer = new KryoDocumentDeserializer();
+        assertDocument(50, deserializer.apply(Maps.immutableEntry(docKey, small)));
+        assertDocument(1000, deserializer.apply(Maps.immutableEntry(docKey, large)));
+    }
+    
+    @Test
+    public void testSmallDocumentNotCompressed() {
+        Value value = new KryoDocumentSerializer(false, true, true).apply(Maps.immutableEntry(docKey, document(1))).getValue();
+        
+        Assert.assertEquals(DocumentSerialization.NONE, value.get()[2]);
+        assertDocument(1, new KryoDocumentDeserializer().apply(Maps.immutableEntry(docKey, value)));
+    }
+    
+    @Test
+    public void testGzipStillReadable() throws IOException {
+        byte[] raw = new KryoDocumentSerializer(false, false).serialize(document(50));
+        byte[] body = DocumentSerialization.writeBody(raw, DocumentSerialization.GZIP);
+        Assert.assertArrayEquals(raw, read(DocumentSerialization.GZIP, body));
+    }
+    
+    @Test
+    public void testPresetDictionaryPinned() throws IOException {
+        byte[] raw = "datawave.query.attributes.Content datawave.data.type.LcNoDiacriticsType".getBytes(StandardCharsets.UTF_8);
+        byte[] body = DocumentSerialization.writeBody(raw, DocumentSerialization.DICTIONARY);
+        
+        // the zlib header carries the adler32 of the preset dictionary, which changes with any change to the dictionary
+        Assert.assertEquals(0x7546aa88, ((body[2] & 0xff) << 24) | ((body[3] & 0xff) << 16) | ((body[4] & 0xff) << 8) | (body[5] & 0xff));
+        Adler32 adler = new Adler32();
+        adler.update(("datawave.query.attributes.DateContent" + "datawave.data.type.GeometryType" + "datawave.data.type.IpAddressType"
+                        + "datawave.data.type.DateType" + "datawave.data.type.LcType" + "datawave.query.attributes.PreNormalizedAttribute"
+                        + "datawave.query.attributes.Numeric" + "datawave.data.type.NumberType" + "datawave.data.type.NoOpType"
+                        + "datawave.query.attributes.Attributes" + "datawave.query.attributes.Content" + "datawave.data.type.LcNoDiacriticsType"
+                        + "datawave.query.attributes.TypeAttribute").getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(0x7546aa88L, adler.getValue());
+        
+        // a document written with the dictionary must stay readable
+        byte[] written = {120, -7, 117, 70, -86, -120, 35, 104, -103, 2, 81, -74, 1, 0, -27, -27, 27, -112};
+        Assert.assertArrayEquals(raw, read(DocumentSerialization.DICTIONARY, written));
+    }
+    
+    private Document document(int fields) {
+        Document document = new Document();
+        for (int i = 0; i < fields; i++) {
+            document.put("FIELD_" + i, new Content("value " + i, docKey, true));
+        }
+        return document;
+    }
+    
+    private static byte[] read(int compression, byte[] body) throws IOException {
+        byte[] header = DocumentSerialization.getHeader(compression);
+        byte[] data = new byte[header.length + body.length];
+        System.arraycopy(header, 0, data, 0, header.length);
+        System.arraycopy(body, 0, data, header.length, body.length);
+        
+        InputStream in = DocumentSerialization.consumeHeader(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+        return out.toByteArray();
+    }
+    
+    private static void assertDocument(int fields, Entry<Key,Document> entry) {
+        Document document = entry.getValue();
+        for (int i = 0; i < fields; i++) {
+            Assert.assertEquals("value " + i, document.get("FIELD_" + i).getData());
+        }
+    }
+}
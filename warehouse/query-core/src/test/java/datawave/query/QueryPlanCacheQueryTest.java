@@ -0,0 +1,159 @@
+package datawave.query;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.planner.DefaultQueryPlanner;
+import datawave.query.planner.QueryPlanCache;
+import datawave.query.testframework.AbstractFunctionalQuery;
+import datawave.query.testframework.AccumuloSetup;
+import datawave.query.testframework.BaseRawData;
+import datawave.query.testframework.CitiesDataType;
+import datawave.query.testframework.CitiesDataType.CityEntry;
+import datawave.query.testframework.CitiesDataType.CityField;
+import datawave.query.testframework.DataTypeHadoopConfig;
+import datawave.query.testframework.FieldConfig;
+import datawave.query.testframework.FileType;
+import datawave.query.testframework.GenericCityFields;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static datawave.query.testframework.RawDataManager.AND_OP;
+import static datawave.query.testframework.RawDataManager.EQ_OP;
+import static datawave.query.testframework.RawDataManager.RE_OP;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs queries through a {@link DefaultQueryPlanner} with a {@link QueryPlanCache}, checking that a replayed query is answered from its cached plan.
+ */
+public class QueryPlanCacheQueryTest extends AbstractFunctionalQuery {
+    
+    @ClassRule
+    public static AccumuloSetup accumuloSetup = new AccumuloSetup();
+    
+    private static final Logger log = Logger.getLogger(QueryPlanCacheQueryTest.class);
+    
+    private CountingQueryPlanCache queryPlanCache;
+    
+    @BeforeClass
+    public static void filterSetup() throws Exception {
+        Collection<DataTypeHadoopConfig> dataTypes = new ArrayList<>();
+        FieldConfig generic = new GenericCityFields();
+        for (String idx : generic.getIndexFields()) {
+            generic.addReverseIndexField(idx);
+        }
+        dataTypes.add(new CitiesDataType(CityEntry.generic, generic));
+        dataTypes.add(new CitiesDataType(CityEntry.usa, generic));
+        
+        accumuloSetup.setData(FileType.CSV, dataTypes);
+        client = accumuloSetup.loadTables(log);
+    }
+    
+    public QueryPlanCacheQueryTest() {
+        super(CitiesDataType.getManager());
+    }
+    
+    @Before
+    public void setUpCache() {
+        queryPlanCache = new CountingQueryPlanCache();
+        ((DefaultQueryPlanner) this.logic.getQueryPlanner()).setQueryPlanCache(queryPlanCache);
+    }
+    
+    @Test
+    public void testReplayedQueryUsesCachedPlan() throws Exception {
+        log.info("------  testReplayedQueryUsesCachedPlan  ------");
+        String query = CityField.CITY.name() + RE_OP + "'ro.*'";
+        
+        ShardQueryConfiguration planned = (ShardQueryConfiguration) setupConfig(query);
+        assertEquals(0, queryPlanCache.hits);
+        assertEquals(1, queryPlanCache.puts);
+        assertEquals(1, queryPlanCache.size());
+        
+        ShardQueryConfiguration cached = (ShardQueryConfiguration) setupConfig(query);
+        assertEquals(1, queryPlanCache.hits);
+        assertEquals(1, queryPlanCache.puts);
+        
+        // the cached plan is the one planned the first time, along with the configuration derived while planning it
+        assertEquals(planned.getQueryString(), cached.getQueryString());
+        assertEquals(planned.getIndexedFields(), cached.getIndexedFields());
+        assertEquals(planned.isContainsIndexOnlyTerms(), cached.isContainsIndexOnlyTerms());
+        assertEquals(planned.isSortedUIDs(), cached.isSortedUIDs());
+        
+        // and returns the same results
+        runTest(query, query);
+        assertEquals(2, queryPlanCache.hits);
+        assertEquals(1, queryPlanCache.puts);
+    }
+    
+    @Test
+    public void testQueryParametersArePartOfThePlan() throws Exception {
+        log.info("------  testQueryParametersArePartOfThePlan  ------");
+        String query = CityField.STATE.name() + EQ_OP + "'ohio'";
+        
+        runTest(query, query);
+        assertEquals(1, queryPlanCache.puts);
+        
+        Map<String,String> options = new HashMap<>();
+        options.put(QueryParameters.DATATYPE_FILTER_SET, CityEntry.usa.getDataType());
+        String expect = query + AND_OP + BaseRawData.EVENT_DATATYPE + EQ_OP + "'" + CityEntry.usa.getDataType() + "'";
+        runTest(query, expect, options);
+        
+        // a different data type filter is a different plan
+        assertEquals(0, queryPlanCache.hits);
+        assertEquals(2, queryPlanCache.puts);
+        assertEquals(2, queryPlanCache.size());
+        
+        runTest(query, expect, options);
+        assertEquals(1, queryPlanCache.hits);
+    }
+    
+    @Test
+    public void testEvictAllReplans() throws Exception {
+        log.info("------  testEvictAllReplans  ------");
+        String query = CityField.STATE.name() + EQ_OP + "'ohio'";
+        
+        runTest(query, query);
+        queryPlanCache.evictAll();
+        runTest(query, query);
+        
+        assertEquals(0, queryPlanCache.hits);
+        assertEquals(2, queryPlanCache.puts);
+    }
+    
+    // ============================================
+    // implemented abstract methods
+    protected void testInit() {
+        this.auths = CitiesDataType.getTestAuths();
+        this.documentKey = CityField.EVENT_ID.name();
+    }
+    
+    /**
+     * Counts the plans cached and the plans found in the cache
+     */
+    private static class CountingQueryPlanCache extends QueryPlanCache {
+        private int hits;
+        private int puts;
+        
+        @Override
+        public ASTJexlScript get(String key, ShardQueryConfiguration config) {
+            ASTJexlScript queryTree = super.get(key, config);
+            if (queryTree != null) {
+                hits++;
+            }
+            return queryTree;
+        }
+        
+        @Override
+        public void put(String key, ASTJexlScript queryTree, ShardQueryConfiguration config) {
+            puts++;
+            super.put(key, queryTree, config);
+        }
+    }
+}
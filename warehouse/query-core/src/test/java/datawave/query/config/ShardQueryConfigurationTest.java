@@ -147,6 +147,11 @@ public class ShardQueryConfigurationTest {
         Assert.assertFalse(config.isContainsCompositeTerms());
         Assert.assertTrue(config.isAllowFieldIndexEvaluation());
         Assert.assertTrue(config.isAllowTermFrequencyLookup());
+        Assert.assertFalse(config.isUseHeapLogicIterators());
+        Assert.assertFalse(config.isOrderByIndexCounts());
+        Assert.assertEquals(-1.0, config.getDelayCommonTermsRatio(), 0);
+        Assert.assertEquals(-1, config.getMaxConcurrentScansPerServer());
+        Assert.assertEquals(-1, config.getMaxConcurrentScansPerQuery());
         Assert.assertEquals(DocumentSerialization.DEFAULT_RETURN_TYPE, config.getReturnType());
         Assert.assertEquals(10000, config.getEventPerDayThreshold());
         Assert.assertEquals(10, config.getShardsPerDayThreshold());
@@ -183,6 +188,7 @@ public class ShardQueryConfigurationTest {
         Assert.assertFalse(config.isExpansionLimitedToModelContents());
         Assert.assertEquals(new QueryImpl(), config.getQuery());
         Assert.assertFalse(config.isCompressServerSideResults());
+        Assert.assertFalse(config.isDictionaryCompressServerSideResults());
         Assert.assertFalse(config.isIndexOnlyFilterFunctionsEnabled());
         Assert.assertFalse(config.isCompositeFilterFunctionsEnabled());
         Assert.assertEquals(0, config.getGroupFieldsBatchSize());
@@ -438,7 +444,7 @@ public class ShardQueryConfigurationTest {
      */
     @Test
     public void testCheckForNewAdditions() throws IOException {
-        int expectedObjectCount = 178;
+        int expectedObjectCount = 184;
         ShardQueryConfiguration config = ShardQueryConfiguration.create();
         ObjectMapper mapper = new ObjectMapper();
         JsonNode root = mapper.readTree(mapper.writeValueAsString(config));
@@ -325,4 +325,34 @@ public class IndexInfoTest {
         assertEquals(expectedMerged, left.union(right));
         assertEquals(expectedMerged, right.union(left));
     }
+    
+    /**
+     * Term counts are carried through intersections and unions, so that they can be used to order the query of a shard
+     */
+    @Test
+    public void testTermCounts() {
+        IndexInfo foo = new IndexInfo(50L);
+        foo.applyNode(JexlNodeFactory.buildEQNode("FOO", "bar"));
+        foo.setTermCount("FOO", "bar");
+        
+        IndexInfo rare = new IndexInfo(2L);
+        rare.applyNode(JexlNodeFactory.buildEQNode("ID", "1234"));
+        rare.setTermCount("ID", "1234");
+        
+        IndexInfo common = new IndexInfo(5000L);
+        common.applyNode(JexlNodeFactory.buildEQNode("FOO", "baz"));
+        common.setTermCount("FOO", "baz");
+        
+        IndexInfo merged = foo.union(common).intersect(rare);
+        assertEquals(3, merged.getTermCounts().size());
+        assertEquals(Long.valueOf(50L), merged.getTermCounts().get(IndexInfo.termKey("FOO", "bar")));
+        assertEquals(Long.valueOf(2L), merged.getTermCounts().get(IndexInfo.termKey("ID", "1234")));
+        assertEquals(Long.valueOf(5000L), merged.getTermCounts().get(IndexInfo.termKey("FOO", "baz")));
+        
+        // a term found on both sides keeps its larger count
+        IndexInfo other = new IndexInfo(70L);
+        other.applyNode(JexlNodeFactory.buildEQNode("FOO", "bar"));
+        other.setTermCount("FOO", "bar");
+        assertEquals(Long.valueOf(70L), foo.intersect(other).getTermCounts().get(IndexInfo.termKey("FOO", "bar")));
+    }
 }
@@ -0,0 +1,191 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.iterator.NestedIterator;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Replays generated field index streams through the heap based logic iterators and the {@link AndIterator} and {@link OrIterator}, which must agree
+ */
+public class HeapLogicIteratorTest {
+    private static final String[] SHARDS = {"20190101_0", "20190101_1", "20190101_10", "20190102_0"};
+    private static final String[] DATATYPES = {"csv", "enwiki"};
+    
+    @Test
+    public void testKeyPrefixOrder() {
+        KeyPrefix prefix1 = new KeyPrefix();
+        KeyPrefix prefix2 = new KeyPrefix();
+        
+        // the row and column family are compared separately, not as one concatenated value
+        Key key1 = new Key("ab", "c");
+        Key key2 = new Key("a", "bc");
+        prefix1.set(key1);
+        prefix2.set(key2);
+        Assert.assertEquals(Integer.signum(key1.compareTo(key2, PartialKey.ROW_COLFAM)), Integer.signum(prefix1.compareTo(prefix2)));
+        Assert.assertEquals(new Key("ab", "c"), prefix1.toKey());
+        
+        // the qualifier is ignored
+        key1 = new Key("20190101_0", "csv\0uid1", "FOO\0bar");
+        prefix1.set(key1);
+        prefix2.set(new Key("20190101_0", "csv\0uid1", "BAR\0foo"));
+        Assert.assertEquals(0, prefix1.compareTo(prefix2));
+        
+        // a prefix can be reused for a longer key
+        StringBuilder longUid = new StringBuilder("uid1");
+        for (int i = 0; i < 100; i++) {
+            longUid.append('.').append(i);
+        }
+        key2 = new Key("20190101_0", "csv\0" + longUid);
+        prefix2.set(key2);
+        Assert.assertTrue(prefix1.compareTo(prefix2) < 0);
+        Assert.assertTrue(key1.compareTo(key2, PartialKey.ROW_COLFAM) < 0);
+        Assert.assertEquals(key2, prefix2.toKey());
+    }
+    
+    @Test
+    public void testAnd() {
+        Random random = new Random(1234);
+        for (int run = 0; run < 200; run++) {
+            List<List<Key>> includes = streams(random, 2 + random.nextInt(4));
+            List<List<Key>> excludes = streams(random, random.nextInt(3));
+            Assert.assertEquals("run " + run, drain(new AndIterator<>(itrs(includes), itrs(excludes))),
+                            drain(new HeapAndIterator(itrs(includes), itrs(excludes))));
+        }
+    }
+    
+    @Test
+    public void testAndExhaustedInclude() {
+        Random random = new Random(1234);
+        List<List<Key>> includes = streams(random, 3);
+        includes.add(Collections.emptyList());
+        Assert.assertEquals(Collections.emptyList(), drain(new HeapAndIterator(itrs(includes))));
+    }
+    
+    @Test
+    public void testAndMove() {
+        Random random = new Random(5678);
+        for (int run = 0; run < 200; run++) {
+            List<List<Key>> includes = streams(random, 2 + random.nextInt(3));
+            List<List<Key>> excludes = streams(random, random.nextInt(2));
+            long seed = random.nextLong();
+            Assert.assertEquals("run " + run, drainWithMoves(new AndIterator<>(itrs(includes), itrs(excludes)), new Random(seed)),
+                            drainWithMoves(new HeapAndIterator(itrs(includes), itrs(excludes)), new Random(seed)));
+        }
+    }
+    
+    @Test
+    public void testOr() {
+        Random random = new Random(4321);
+        for (int run = 0; run < 200; run++) {
+            List<List<Key>> includes = streams(random, 1 + random.nextInt(5));
+            Assert.assertEquals("run " + run, drain(new OrIterator<>(itrs(includes))), drain(new HeapOrIterator(itrs(includes))));
+        }
+    }
+    
+    @Test
+    public void testOrMove() {
+        Random random = new Random(8765);
+        for (int run = 0; run < 200; run++) {
+            List<List<Key>> includes = streams(random, 1 + random.nextInt(4));
+            long seed = random.nextLong();
+            Assert.assertEquals("run " + run, drainWithMoves(new OrIterator<>(itrs(includes)), new Random(seed)),
+                            drainWithMoves(new HeapOrIterator(itrs(includes)), new Random(seed)));
+        }
+    }
+    
+    // A && (B || C) && !D
+    @Test
+    public void testNested() {
+        Random random = new Random(1111);
+        for (int run = 0; run < 100; run++) {
+            List<List<Key>> a = streams(random, 1);
+            List<List<Key>> bc = streams(random, 2);
+            List<List<Key>> d = streams(random, 1);
+            
+            List<NestedIterator<Key>> includes = itrs(a);
+            includes.add(new OrIterator<>(itrs(bc)));
+            List<Key> expected = drain(new AndIterator<>(includes, itrs(d)));
+            
+            List<NestedIterator<Key>> heapIncludes = itrs(a);
+            heapIncludes.add(new HeapOrIterator(itrs(bc)));
+            Assert.assertEquals("run " + run, expected, drain(new HeapAndIterator(heapIncludes, itrs(d))));
+        }
+    }
+    
+    /**
+     * Generate sorted field index streams of (shard, datatype\0uid) keys, each with its own density so that some terms are common and some are rare
+     */
+    private List<List<Key>> streams(Random random, int count) {
+        List<List<Key>> streams = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double density = 0.05 + random.nextDouble() * 0.9;
+            TreeSet<Key> keys = new TreeSet<>();
+            for (String shard : SHARDS) {
+                for (String datatype : DATATYPES) {
+                    for (int uid = 0; uid < 50; uid++) {
+                        if (random.nextDouble() < density) {
+                            keys.add(new Key(shard, datatype + "\0uid" + uid, "FIELD" + i + "\0value"));
+                        }
+                    }
+                }
+            }
+            streams.add(new ArrayList<>(keys));
+        }
+        return streams;
+    }
+    
+    private List<NestedIterator<Key>> itrs(List<List<Key>> streams) {
+        List<NestedIterator<Key>> itrs = new ArrayList<>();
+        for (List<Key> stream : streams) {
+            itrs.add(new NegationFilterTest.Itr<>(stream));
+        }
+        return itrs;
+    }
+    
+    /**
+     * @return the (shard, datatype\0uid) of each document returned, which is all the logic iterators agree on
+     */
+    private List<Key> drain(NestedIterator<Key> iterator) {
+        List<Key> results = new ArrayList<>();
+        iterator.initialize();
+        while (iterator.hasNext()) {
+            results.add(document(iterator.next()));
+        }
+        return results;
+    }
+    
+    private List<Key> drainWithMoves(NestedIterator<Key> iterator, Random random) {
+        List<Key> results = new ArrayList<>();
+        iterator.initialize();
+        Key last = null;
+        while (iterator.hasNext()) {
+            Key next;
+            if (last != null && random.nextInt(4) == 0) {
+                // move a few documents past the last one returned
+                String uid = last.getColumnFamily().toString();
+                Key minimum = new Key(last.getRow().toString(), uid + random.nextInt(10));
+                next = iterator.move(minimum);
+                if (next == null) {
+                    break;
+                }
+            } else {
+                next = iterator.next();
+            }
+            last = document(next);
+            results.add(last);
+        }
+        return results;
+    }
+    
+    private Key document(Key key) {
+        return new Key(key.getRow(), key.getColumnFamily());
+    }
+}
@@ -67,6 +67,33 @@ public class QuerySpanTest {
         Assert.assertEquals(12, qs4.getSourceCount());
     }
     
+    @Test
+    public void testStageCountsKeptApartFromTimers() {
+        
+        QuerySpan qs1 = new QuerySpan(null);
+        qs1.addStageTimer(QuerySpan.Stage.IvaratorFill, 10);
+        qs1.addStageCount(QuerySpan.Stage.IvaratorPersistedBytes, 1000);
+        qs1.addStageCount(QuerySpan.Stage.IvaratorPersistedBytes, 500);
+        QuerySpan qs2 = new QuerySpan(null);
+        qs2.addStageTimer(QuerySpan.Stage.IvaratorFill, 5);
+        qs2.addStageCount(QuerySpan.Stage.IvaratorPersistedBytes, 100);
+        
+        Assert.assertEquals(10, qs1.getStageTimerTotal());
+        Assert.assertNull(qs1.getStageTimer(QuerySpan.Stage.IvaratorPersistedBytes.toString()));
+        Assert.assertEquals(Long.valueOf(1500), qs1.getStageCount(QuerySpan.Stage.IvaratorPersistedBytes.toString()));
+        
+        QuerySpanCollector qsc = new QuerySpanCollector();
+        qsc.addQuerySpan(qs1);
+        qsc.addQuerySpan(qs2);
+        QuerySpan qs3 = qsc.getCombinedQuerySpan(null);
+        
+        Assert.assertEquals(15, qs3.getStageTimerTotal());
+        Assert.assertEquals(1, qs3.getStageTimers().size());
+        Assert.assertEquals(Long.valueOf(15), qs3.getStageTimer(QuerySpan.Stage.IvaratorFill.toString()));
+        Assert.assertEquals(Long.valueOf(1600), qs3.getStageCount(QuerySpan.Stage.IvaratorPersistedBytes.toString()));
+        Assert.assertFalse(qsc.hasEntries());
+    }
+    
     @Test
     public void testMultiThreadedQuerySpanAcrossThreads() {
         
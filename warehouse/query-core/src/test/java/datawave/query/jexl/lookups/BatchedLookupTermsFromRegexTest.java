@@ -0,0 +1,216 @@
+package datawave.query.jexl.lookups;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.tables.ScannerFactory;
+import datawave.query.tables.ScannerSession;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class BatchedLookupTermsFromRegexTest {
+    
+    private ShardQueryConfiguration config;
+    
+    @Before
+    public void setUp() {
+        config = new ShardQueryConfiguration();
+        config.setMaxUnfieldedExpansionThreshold(10);
+        config.setMaxValueExpansionThreshold(10);
+    }
+    
+    @Test
+    public void testBatchedIntoOneScanPerIndex() {
+        LookupTermsFromRegex fooPrefix = new LookupTermsFromRegex("FOO", Collections.singleton("ba.*"), null);
+        LookupTermsFromRegex barPrefix = new LookupTermsFromRegex("BAR", Collections.singleton("ba.*"), null);
+        LookupTermsFromRegex fooSuffix = new LookupTermsFromRegex("FOO", Collections.singleton(".*ar"), null);
+        
+        TestBatch batch = new TestBatch(Arrays.asList(fooPrefix, barPrefix, fooSuffix));
+        batch.entries(config.getIndexTableName(), entry("bag", "FOO"), entry("bar", "FOO"), entry("bat", "BAR"), entry("car", "FOO"));
+        // the reverse index holds the terms reversed
+        batch.entries(config.getReverseIndexTableName(), entry("rac", "FOO"), entry("rab", "FOO"), entry("rab", "BAR"));
+        
+        Map<LookupTermsFromRegex,IndexLookupMap> results = batch.lookup(config, null, 0);
+        
+        // a single scan of each index covers the patterns of all of the lookups
+        Assert.assertEquals(Arrays.asList(config.getIndexTableName(), config.getReverseIndexTableName()), batch.tables);
+        Assert.assertEquals(Collections.singleton("ba.*"), batch.patterns.get(config.getIndexTableName()));
+        Assert.assertEquals(Collections.singleton(".*ar"), batch.patterns.get(config.getReverseIndexTableName()));
+        Assert.assertEquals(Sets.newHashSet("FOO", "BAR"), batch.fields.get(config.getIndexTableName()));
+        Assert.assertEquals(Collections.singleton("FOO"), batch.fields.get(config.getReverseIndexTableName()));
+        
+        // and each lookup only gets the terms in its fields which match its patterns
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals(Sets.newHashSet("bag", "bar"), values(results.get(fooPrefix), "FOO"));
+        Assert.assertEquals(Collections.singleton("FOO"), results.get(fooPrefix).keySet());
+        Assert.assertEquals(Collections.singleton("bat"), values(results.get(barPrefix), "BAR"));
+        Assert.assertEquals(Collections.singleton("BAR"), results.get(barPrefix).keySet());
+        Assert.assertEquals(Sets.newHashSet("car", "bar"), values(results.get(fooSuffix), "FOO"));
+        Assert.assertEquals(Collections.singleton("FOO"), results.get(fooSuffix).keySet());
+    }
+    
+    @Test
+    public void testThreshold() {
+        config.setMaxValueExpansionThreshold(2);
+        LookupTermsFromRegex foo = new LookupTermsFromRegex("FOO", Collections.singleton("ba.*"), null);
+        LookupTermsFromRegex bar = new LookupTermsFromRegex("BAR", Collections.singleton("ba.*"), null);
+        LookupTermsFromRegex baz = new LookupTermsFromRegex("BAZ", Collections.singleton("ba.*"), null);
+        
+        TestBatch batch = new TestBatch(Arrays.asList(foo, bar, baz));
+        batch.entries(config.getIndexTableName(), entry("bag", "FOO"), entry("bar", "FOO"), entry("bat", "FOO"), entry("bad", "BAR"), entry("baz", "FOO"),
+                        entry("bad", "BAZ"), entry("bag", "BAR"), entry("bah", "BAR"), entry("bay", "BAZ"), entry("bam", "BAZ"),
+                        entry("bap", "FOO"));
+        
+        Map<LookupTermsFromRegex,IndexLookupMap> results = batch.lookup(config, null, 0);
+        
+        // a lookup which exceeds its threshold stops collecting terms, without stopping the others
+        Assert.assertTrue(results.get(foo).get("FOO").isThresholdExceeded());
+        Assert.assertTrue(results.get(bar).get("BAR").isThresholdExceeded());
+        Assert.assertTrue(results.get(baz).get("BAZ").isThresholdExceeded());
+        
+        // and the scan stops once all of them have
+        Assert.assertEquals(1, batch.unread.get(config.getIndexTableName()).intValue());
+        
+        // a lookup within its threshold is complete
+        config.setMaxValueExpansionThreshold(3);
+        batch = new TestBatch(Arrays.asList(foo, bar));
+        batch.entries(config.getIndexTableName(), entry("bag", "FOO"), entry("bar", "FOO"), entry("bat", "FOO"), entry("baz", "FOO"), entry("bad", "BAR"));
+        results = batch.lookup(config, null, 0);
+        
+        Assert.assertTrue(results.get(foo).get("FOO").isThresholdExceeded());
+        Assert.assertFalse(results.get(bar).get("BAR").isThresholdExceeded());
+        Assert.assertEquals(Collections.singleton("bad"), values(results.get(bar), "BAR"));
+        Assert.assertEquals(0, batch.unread.get(config.getIndexTableName()).intValue());
+    }
+    
+    @Test
+    public void testFailedScanExceedsThreshold() {
+        config.setMaxValueExpansionThreshold(2);
+        LookupTermsFromRegex foo = new LookupTermsFromRegex("FOO", Collections.singleton("ba.*"), null);
+        LookupTermsFromRegex bar = new LookupTermsFromRegex("BAR", Collections.singleton("ba.*"), null);
+        
+        TestBatch batch = new TestBatch(Arrays.asList(foo, bar));
+        batch.entries(config.getIndexTableName(), entry("bag", "FOO"), entry("bar", "FOO"), entry("bat", "FOO"), entry("bad", "BAR"), null);
+        
+        Map<LookupTermsFromRegex,IndexLookupMap> results = batch.lookup(config, null, 0);
+        
+        // the lookup which had already exceeded its threshold is unaffected, but the other is incomplete
+        Assert.assertTrue(results.get(foo).get("FOO").isThresholdExceeded());
+        Assert.assertTrue(results.get(bar).get("BAR").isThresholdExceeded());
+    }
+    
+    @Test
+    public void testPartition() {
+        LookupTermsFromRegex foo = new LookupTermsFromRegex("FOO", Collections.singleton("ba.*"), null);
+        LookupTermsFromRegex bar = new LookupTermsFromRegex("BAR", Collections.singleton("ba.*"), null);
+        LookupTermsFromRegex unfielded = new LookupTermsFromRegex(Collections.singleton("FOO"), Collections.singleton("FOO"), Collections.singleton("ba.*"),
+                        null, true);
+        LookupTermsFromRegex extended = new LookupTermsFromRegex("FOO", Collections.singleton("ba.*"), null) {};
+        
+        Assert.assertTrue(BatchedLookupTermsFromRegex.isBatchable(foo));
+        Assert.assertFalse(BatchedLookupTermsFromRegex.isBatchable(unfielded));
+        Assert.assertFalse(BatchedLookupTermsFromRegex.isBatchable(extended));
+        Assert.assertFalse(BatchedLookupTermsFromRegex.isBatchable(null));
+        
+        List<LookupTermsFromRegex> unbatched = new ArrayList<>();
+        List<LookupTermsFromRegex> batched = BatchedLookupTermsFromRegex.partition(Arrays.asList(foo, unfielded, bar, extended),
+                        BatchedLookupTermsFromRegex::isBatchable, unbatched);
+        Assert.assertEquals(Arrays.asList(foo, bar), batched);
+        Assert.assertEquals(Arrays.asList(unfielded, extended), unbatched);
+        
+        // a lone batchable lookup falls back to being looked up on its own
+        unbatched.clear();
+        batched = BatchedLookupTermsFromRegex.partition(Arrays.asList(unfielded, foo, extended), BatchedLookupTermsFromRegex::isBatchable, unbatched);
+        Assert.assertTrue(batched.isEmpty());
+        Assert.assertEquals(Arrays.asList(unfielded, extended, foo), unbatched);
+    }
+    
+    private static Set<String> values(IndexLookupMap fieldsToValues, String field) {
+        return new HashSet<>(fieldsToValues.get(field));
+    }
+    
+    private static Entry<Key,Value> entry(String row, String field) {
+        return Maps.immutableEntry(new Key(row, field, "20190101_0\u0000datatype"), new Value(new byte[0]));
+    }
+    
+    /**
+     * Scans the given entries rather than the index, recording the scans made
+     */
+    private static class TestBatch extends BatchedLookupTermsFromRegex {
+        private final Map<String,List<Entry<Key,Value>>> entries = new HashMap<>();
+        private final List<String> tables = new ArrayList<>();
+        private final Map<String,Set<String>> patterns = new HashMap<>();
+        private final Map<String,Set<String>> fields = new HashMap<>();
+        private final Map<String,Integer> unread = new HashMap<>();
+        
+        private TestBatch(List<LookupTermsFromRegex> lookups) {
+            super(lookups);
+        }
+        
+        /**
+         * @param tableName
+         *            the index
+         * @param entries
+         *            the entries to scan, where a null entry fails the scan
+         */
+        @SafeVarargs
+        private final void entries(String tableName, Entry<Key,Value>... entries) {
+            this.entries.put(tableName, Arrays.asList(entries));
+        }
+        
+        @Override
+        protected void scan(ShardQueryConfiguration config, ScannerFactory scannerFactory, String tableName, List<Target> targets, Set<Range> ranges,
+                        boolean isReverse, long timeout) {
+            if (targets.isEmpty()) {
+                return;
+            }
+            tables.add(tableName);
+            Set<String> scanPatterns = new HashSet<>(), scanFields = new HashSet<>();
+            for (Target target : targets) {
+                scanPatterns.addAll(target.patternStrings);
+                scanFields.addAll(target.fields);
+            }
+            patterns.put(tableName, scanPatterns);
+            fields.put(tableName, scanFields);
+            
+            Iterator<Entry<Key,Value>> iter = entries.getOrDefault(tableName, Collections.emptyList()).iterator();
+            ScannerSession bs = EasyMock.createMock(ScannerSession.class);
+            EasyMock.expect(bs.hasNext()).andAnswer(iter::hasNext).anyTimes();
+            EasyMock.expect(bs.next()).andAnswer(() -> {
+                Entry<Key,Value> entry = iter.next();
+                if (entry == null) {
+                    throw new IllegalStateException("scan failed");
+                }
+                return entry;
+            }).anyTimes();
+            EasyMock.replay(bs);
+            
+            distribute(bs, targets, config.getDatatypeFilter(), isReverse);
+            
+            int remaining = 0;
+            while (iter.hasNext()) {
+                iter.next();
+                remaining++;
+            }
+            unread.put(tableName, remaining);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package datawave.query.jexl.lookups;
+
+import datawave.query.config.ShardQueryConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IndexLookupServiceTest {
+    
+    @Test
+    public void testLookupsInFlightAreBounded() throws Exception {
+        ShardQueryConfiguration config = new ShardQueryConfiguration();
+        config.setNumIndexLookupThreads(2);
+        IndexLookupService service = new IndexLookupService(config);
+        
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int lookup = i;
+            futures.add(service.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                running.decrementAndGet();
+                return lookup;
+            }));
+        }
+        
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(Integer.valueOf(i), futures.get(i).get());
+        }
+        Assert.assertTrue("Too many lookups in flight: " + maxRunning.get(), maxRunning.get() <= 2);
+    }
+    
+    @Test
+    public void testCancel() throws Exception {
+        IndexLookupService service = new IndexLookupService(new ShardQueryConfiguration());
+        CountDownLatch latch = new CountDownLatch(1);
+        Future<Boolean> future = service.submit(() -> {
+            latch.await();
+            return true;
+        });
+        
+        service.cancel();
+        Assert.assertTrue(future.isCancelled());
+    }
+    
+    @Test
+    public void testSaturatedScanPoolRunsOnCaller() throws Exception {
+        ThreadPoolExecutor executor = IndexLookupService.createScanExecutor(1, 1);
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            Future<String> running = executor.submit(() -> {
+                latch.await();
+                return Thread.currentThread().getName();
+            });
+            Future<String> queued = executor.submit(() -> Thread.currentThread().getName());
+            
+            // with the thread busy and the queue full, the scan is run by the thread submitting it
+            Future<String> rejected = executor.submit(() -> Thread.currentThread().getName());
+            Assert.assertTrue(rejected.isDone());
+            Assert.assertEquals(Thread.currentThread().getName(), rejected.get());
+            Assert.assertFalse(queued.isDone());
+            
+            latch.countDown();
+            Assert.assertNotEquals(Thread.currentThread().getName(), running.get());
+            Assert.assertNotEquals(Thread.currentThread().getName(), queued.get());
+            Assert.assertEquals(1, executor.getLargestPoolSize());
+            
+            executor.shutdown();
+            try {
+                executor.submit(() -> true);
+                Assert.fail("Expected the scan to be rejected once the pool is shut down");
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
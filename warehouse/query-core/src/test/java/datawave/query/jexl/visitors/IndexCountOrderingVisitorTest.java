@@ -0,0 +1,85 @@
+package datawave.query.jexl.visitors;
+
+import datawave.query.index.lookup.IndexInfo;
+import datawave.query.jexl.JexlASTHelper;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class IndexCountOrderingVisitorTest {
+    
+    private Map<String,Long> termCounts;
+    
+    @Before
+    public void setup() {
+        termCounts = new HashMap<>();
+        termCounts.put(IndexInfo.termKey("ID", "1234"), 2L);
+        termCounts.put(IndexInfo.termKey("FOO", "bar"), 500L);
+        termCounts.put(IndexInfo.termKey("FOO", "baz"), 40L);
+        termCounts.put(IndexInfo.termKey("COLOR", "red"), 100000L);
+        termCounts.put(IndexInfo.termKey("BODY", "word"), 100000L);
+    }
+    
+    @Test
+    public void testRarestTermFirst() throws ParseException {
+        visitAndValidate("COLOR == 'red' && FOO == 'bar' && ID == '1234'", "ID == '1234' && FOO == 'bar' && COLOR == 'red'", -1);
+    }
+    
+    // the cost of an OR is the sum of its children, and the cost of an AND is the cost of its cheapest child
+    @Test
+    public void testNestedCosts() throws ParseException {
+        visitAndValidate("COLOR == 'red' && (FOO == 'bar' || FOO == 'baz')", "(FOO == 'bar' || FOO == 'baz') && COLOR == 'red'", -1);
+        visitAndValidate("(FOO == 'bar' || ID == '1234') && FOO == 'baz'", "FOO == 'baz' && (FOO == 'bar' || ID == '1234')", -1);
+        visitAndValidate("COLOR == 'red' && ((FOO == 'bar' && ID == '1234') || FOO == 'baz')",
+                        "((ID == '1234' && FOO == 'bar') || FOO == 'baz') && COLOR == 'red'", -1);
+    }
+    
+    // terms without counts, delayed terms and negations keep their order after the terms with counts
+    @Test
+    public void testUnknownCostsLast() throws ParseException {
+        visitAndValidate("BAR == 'x' && !(COLOR == 'red') && ((_Delayed_ = true) && (FOO == 'baz')) && COLOR == 'red'",
+                        "COLOR == 'red' && BAR == 'x' && !(COLOR == 'red') && ((_Delayed_ = true) && (FOO == 'baz'))", -1);
+    }
+    
+    @Test
+    public void testDelayCommonTerms() throws ParseException {
+        visitAndValidate("COLOR == 'red' && FOO == 'bar' && ID == '1234'",
+                        "ID == '1234' && ((_Delayed_ = true) && (FOO == 'bar')) && ((_Delayed_ = true) && (COLOR == 'red'))", 100);
+        visitAndValidate("COLOR == 'red' && FOO == 'bar' && ID == '1234'", "ID == '1234' && FOO == 'bar' && ((_Delayed_ = true) && (COLOR == 'red'))", 1000);
+    }
+    
+    // only terms with counts are delayed, and the cheapest child is never delayed
+    @Test
+    public void testDelayKeepsAnchor() throws ParseException {
+        visitAndValidate("COLOR == 'red' && (FOO == 'bar' || FOO == 'baz')", "(FOO == 'bar' || FOO == 'baz') && ((_Delayed_ = true) && (COLOR == 'red'))", 100);
+        visitAndValidate("COLOR == 'red' && (FOO == 'bar' || ID == '1234') && BODY == 'word'",
+                        "(FOO == 'bar' || ID == '1234') && ((_Delayed_ = true) && (COLOR == 'red')) && BODY == 'word'", 100, Collections.singleton("BODY"));
+        visitAndValidate("COLOR == 'red' && BAR == 'x'", "COLOR == 'red' && BAR == 'x'", 100);
+    }
+    
+    private void visitAndValidate(String original, String expected, double delayRatio) throws ParseException {
+        visitAndValidate(original, expected, delayRatio, Collections.emptySet());
+    }
+    
+    private void visitAndValidate(String original, String expected, double delayRatio, Set<String> nonDelayableFields) throws ParseException {
+        // the plans of shards are flattened, as are their nodes
+        ASTJexlScript originalScript = TreeFlatteningRebuildingVisitor.flatten(JexlASTHelper.parseJexlQuery(original));
+        String originalQuery = JexlStringBuildingVisitor.buildQuery(originalScript);
+        
+        JexlNode visitedScript = IndexCountOrderingVisitor.order(originalScript, termCounts, delayRatio, nonDelayableFields);
+        
+        // Verify the order of the script is as expected, and the original script was not modified
+        String expectedQuery = JexlStringBuildingVisitor.buildQuery(TreeFlatteningRebuildingVisitor.flatten(JexlASTHelper.parseJexlQuery(expected)));
+        assertEquals(expectedQuery, JexlStringBuildingVisitor.buildQuery(visitedScript));
+        assertEquals(originalQuery, JexlStringBuildingVisitor.buildQuery(originalScript));
+    }
+}
@@ -0,0 +1,108 @@
+package datawave.query.planner;
+
+import com.google.common.collect.Sets;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.webservice.query.QueryImpl;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+public class QueryPlanCacheTest {
+    
+    @Test
+    public void testRestoresPlannedConfiguration() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache();
+        
+        ShardQueryConfiguration planned = new ShardQueryConfiguration();
+        planned.setIndexedFields(Sets.newHashSet("FOO", "BAR"));
+        planned.setProjectFields(Sets.newHashSet("FOO"));
+        planned.setSortedUIDs(false);
+        planned.setContainsIndexOnlyTerms(true);
+        ASTJexlScript queryTree = JexlASTHelper.parseJexlQuery("FOO == 'a' || BAR == 'b'");
+        cache.put("key", queryTree, planned);
+        
+        // later changes to the planned configuration must not affect the cached plan
+        planned.getIndexedFields().add("BAZ");
+        
+        ShardQueryConfiguration config = new ShardQueryConfiguration();
+        Assert.assertNull(cache.get("other", config));
+        ASTJexlScript cachedTree = cache.get("key", config);
+        Assert.assertNotNull(cachedTree);
+        Assert.assertNotSame(queryTree, cachedTree);
+        Assert.assertEquals("FOO == 'a' || BAR == 'b'", JexlStringBuildingVisitor.buildQuery(cachedTree));
+        Assert.assertEquals(Sets.newHashSet("FOO", "BAR"), config.getIndexedFields());
+        Assert.assertEquals(Sets.newHashSet("FOO"), config.getProjectFields());
+        Assert.assertFalse(config.isSortedUIDs());
+        Assert.assertTrue(config.isContainsIndexOnlyTerms());
+        
+        // each hit gets its own copy of the tree
+        Assert.assertNotSame(cachedTree, cache.get("key", new ShardQueryConfiguration()));
+    }
+    
+    @Test
+    public void testEvictAll() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache();
+        cache.put("key", JexlASTHelper.parseJexlQuery("FOO == 'a'"), new ShardQueryConfiguration());
+        Assert.assertEquals(1, cache.size());
+        
+        cache.evictAll();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(cache.get("key", new ShardQueryConfiguration()));
+    }
+    
+    @Test
+    public void testQueryPlanCacheKey() throws Exception {
+        DefaultQueryPlanner planner = new DefaultQueryPlanner();
+        ASTJexlScript queryTree = JexlASTHelper.parseJexlQuery("FOO == 'a' || BAR == 'b'");
+        String key = planner.getQueryPlanCacheKey(queryTree, config("A,B", 0), settings("f.FOO", "FOO"), Collections.emptyMap());
+        
+        // the same query later in the same shard day, with the authorizations in another order, has the same plan
+        Assert.assertEquals(key, planner.getQueryPlanCacheKey(JexlASTHelper.parseJexlQuery("FOO == 'a' || BAR == 'b'"), config("B,A", 60 * 60 * 1000L),
+                        settings("f.FOO", "FOO"), Collections.emptyMap()));
+        
+        Assert.assertNotEquals(key, planner.getQueryPlanCacheKey(JexlASTHelper.parseJexlQuery("FOO == 'a' || BAR == 'c'"), config("A,B", 0),
+                        settings("f.FOO", "FOO"), Collections.emptyMap()));
+        Assert.assertNotEquals(key, planner.getQueryPlanCacheKey(queryTree, config("A", 0), settings("f.FOO", "FOO"), Collections.emptyMap()));
+        Assert.assertNotEquals(key, planner.getQueryPlanCacheKey(queryTree, config("A,B", 24 * 60 * 60 * 1000L), settings("f.FOO", "FOO"),
+                        Collections.emptyMap()));
+        Assert.assertNotEquals(key, planner.getQueryPlanCacheKey(queryTree, config("A,B", 0), settings("f.FOO", "BAR"), Collections.emptyMap()));
+        Assert.assertNotEquals(key, planner.getQueryPlanCacheKey(queryTree, config("A,B", 0), settings("f.FOO", "FOO"),
+                        Collections.singletonMap("unique.fields", "FOO")));
+        
+        ShardQueryConfiguration config = config("A,B", 0);
+        config.setDatatypeFilter(Sets.newHashSet("csv"));
+        Assert.assertNotEquals(key, planner.getQueryPlanCacheKey(queryTree, config, settings("f.FOO", "FOO"), Collections.emptyMap()));
+        
+        DefaultQueryPlanner other = new DefaultQueryPlanner();
+        other.setDisableAnyFieldLookup(true);
+        Assert.assertNotEquals(key, other.getQueryPlanCacheKey(queryTree, config("A,B", 0), settings("f.FOO", "FOO"), Collections.emptyMap()));
+    }
+    
+    private static ShardQueryConfiguration config(String auths, long offset) throws ParseException {
+        ShardQueryConfiguration config = new ShardQueryConfiguration();
+        // the start of a shard day, plus the offset
+        long begin = config.getShardDateFormatter().parse("20200101").getTime() + offset;
+        config.setBeginDate(new Date(begin));
+        config.setEndDate(new Date(begin + 60 * 1000L));
+        config.setAuthorizations(Collections.singleton(new Authorizations(auths.split(","))));
+        return config;
+    }
+    
+    private static QueryImpl settings(String parameter, String value) {
+        QueryImpl settings = new QueryImpl();
+        settings.setQueryLogicName("EventQuery");
+        Map<String,String> parameters = new HashMap<>();
+        parameters.put(parameter, value);
+        settings.setParameters(parameters);
+        return settings;
+    }
+}
@@ -1,14 +1,19 @@
 package datawave.query.planner.rules;
 
 import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.exceptions.DatawaveFatalQueryException;
 import datawave.query.jexl.JexlASTHelper;
 import datawave.query.jexl.nodes.QueryPropertyMarker;
 import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
 import datawave.query.util.MetadataHelper;
 import datawave.query.util.MockMetadataHelper;
 import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
 import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTNENode;
 import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParserTreeConstants;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -20,6 +25,7 @@ import java.util.List;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.apache.commons.jexl2.parser.JexlNodes.children;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 public class NodeTransformVisitorTest {
@@ -51,6 +57,26 @@ public class NodeTransformVisitorTest {
             return node;
         }
     };
+    private static final NodeTransformRule regexToNotEqualsRule = new NodeTransformRule() {
+        @Override
+        public JexlNode apply(JexlNode node, ShardQueryConfiguration config, MetadataHelper helper) {
+            if (node instanceof ASTERNode && "a".equals(JexlASTHelper.getLiteralValue(node))) {
+                return children(new ASTNENode(ParserTreeConstants.JJTNENODE), children(node));
+            }
+            return node;
+        }
+    };
+    private static final NodeTransformRule flipEqualsRule = new NodeTransformRule() {
+        @Override
+        public JexlNode apply(JexlNode node, ShardQueryConfiguration config, MetadataHelper helper) {
+            if (node instanceof ASTEQNode) {
+                return children(new ASTNENode(ParserTreeConstants.JJTNENODE), children(node));
+            } else if (node instanceof ASTNENode) {
+                return children(new ASTEQNode(ParserTreeConstants.JJTEQNODE), children(node));
+            }
+            return node;
+        }
+    };
     
     @Before
     public void beforeTest() {
@@ -208,4 +234,34 @@ public class NodeTransformVisitorTest {
         testPushdown(query, expected1, newArrayList(regexPushdownRule, reverseAndRule, pullUpRule));
         testPushdown(query, expected2, newArrayList(pullUpRule, reverseAndRule, regexPushdownRule));
     }
+    
+    @Test
+    public void testTransformInPlace() throws Exception {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("foo != -1 && bar !~ 'a.*' && BAZ == 'x' && ((_Eval_ = true) && (qux == 'y'))");
+        JexlNode unchanged = script.jjtGetChild(0).jjtGetChild(2);
+        
+        List<NodeTransformRule> rules = newArrayList(new FixNegativeNumbersTransformRule(), new CaseSensitivityTransformRule(),
+                        new RewriteNegationsTransformRule());
+        ASTJexlScript result = NodeTransformVisitor.transformInPlace(script, rules, new ShardQueryConfiguration(), new MockMetadataHelper());
+        
+        assertEquals("!(FOO == -1) && !(BAR =~ 'a.*') && BAZ == 'x' && ((_Eval_ = true) && (QUX == 'y'))", JexlStringBuildingVisitor.buildQuery(result));
+        // the tree is rewritten in place, leaving unchanged nodes where they were
+        assertSame(script, result);
+        assertSame(unchanged, result.jjtGetChild(0).jjtGetChild(2));
+    }
+    
+    @Test
+    public void testTransformInPlaceFixpoint() throws Exception {
+        // the negation created by the first rule is rewritten by the second
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO =~ 'a' && FOO =~ 'b'");
+        List<NodeTransformRule> rules = newArrayList(new RewriteNegationsTransformRule(), regexToNotEqualsRule);
+        script = NodeTransformVisitor.transformInPlace(script, rules, new ShardQueryConfiguration(), new MockMetadataHelper());
+        assertEquals("!(FOO == 'a') && FOO =~ 'b'", JexlStringBuildingVisitor.buildQuery(script));
+    }
+    
+    @Test(expected = DatawaveFatalQueryException.class)
+    public void testTransformInPlaceWithoutFixpoint() throws Exception {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO == 'a'");
+        NodeTransformVisitor.transformInPlace(script, Collections.singletonList(flipEqualsRule), new ShardQueryConfiguration(), new MockMetadataHelper());
+    }
 }
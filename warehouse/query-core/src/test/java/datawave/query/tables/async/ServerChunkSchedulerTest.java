@@ -0,0 +1,95 @@
+package datawave.query.tables.async;
+
+import org.apache.accumulo.core.data.Range;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ServerChunkSchedulerTest {
+    
+    @Test
+    public void testRoundRobinAcrossServers() {
+        ServerChunkScheduler scheduler = new ServerChunkScheduler(10, 10);
+        addChunks(scheduler, "hot", 4);
+        addChunks(scheduler, "server1", 1);
+        addChunks(scheduler, "server2", 2);
+        
+        assertEquals("[hot, server1, server2, hot, server2, hot, hot]", nextLocations(scheduler).toString());
+        assertEquals(0, scheduler.getPendingCount());
+        assertEquals(7, scheduler.getInFlightCount());
+    }
+    
+    @Test
+    public void testServerLimit() {
+        ServerChunkScheduler scheduler = new ServerChunkScheduler(2, 10);
+        addChunks(scheduler, "hot", 5);
+        addChunks(scheduler, "server1", 1);
+        
+        // the hot server does not hold up the other server
+        assertEquals("[hot, server1, hot]", nextLocations(scheduler).toString());
+        assertEquals(3, scheduler.getPendingCount());
+        assertEquals(2, scheduler.getInFlight("hot"));
+        
+        scheduler.release("hot");
+        assertEquals("[hot]", nextLocations(scheduler).toString());
+        
+        scheduler.release("server1");
+        assertNull(scheduler.next());
+        assertEquals(0, scheduler.getInFlight("server1"));
+    }
+    
+    @Test
+    public void testQueryLimit() {
+        ServerChunkScheduler scheduler = new ServerChunkScheduler(2, 3);
+        addChunks(scheduler, "server1", 3);
+        addChunks(scheduler, "server2", 3);
+        
+        assertEquals("[server1, server2, server1]", nextLocations(scheduler).toString());
+        
+        // releasing a scan makes room for the query, and the next chunk comes from the next server in turn
+        scheduler.release("server1");
+        assertEquals("[server2]", nextLocations(scheduler).toString());
+        assertEquals(2, scheduler.getPendingCount());
+    }
+    
+    @Test
+    public void testUnknownLocation() {
+        ServerChunkScheduler scheduler = new ServerChunkScheduler(1, 10);
+        addChunks(scheduler, null, 2);
+        
+        assertEquals(Collections.singletonList(null), nextLocations(scheduler));
+        scheduler.release(null);
+        assertEquals(Collections.singletonList(null), nextLocations(scheduler));
+        assertEquals(1, scheduler.getInFlight(null));
+    }
+    
+    @Test
+    public void testReleaseWithoutScan() {
+        ServerChunkScheduler scheduler = new ServerChunkScheduler(1, 1);
+        scheduler.release("server1");
+        assertEquals(0, scheduler.getInFlightCount());
+        
+        addChunks(scheduler, "server1", 1);
+        assertEquals("[server1]", nextLocations(scheduler).toString());
+    }
+    
+    private static void addChunks(ServerChunkScheduler scheduler, String location, int count) {
+        for (int i = 0; i < count; i++) {
+            scheduler.add(new ScannerChunk(null, Collections.singleton(new Range("row" + i)), location));
+        }
+    }
+    
+    private static List<String> nextLocations(ServerChunkScheduler scheduler) {
+        List<String> locations = new ArrayList<>();
+        ScannerChunk chunk;
+        while ((chunk = scheduler.next()) != null) {
+            locations.add(chunk.getLastKnownLocation());
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,177 @@
+package datawave.query.tables.chained.strategy;
+
+import datawave.webservice.query.Query;
+import datawave.webservice.query.QueryImpl;
+import datawave.webservice.query.logic.QueryLogic;
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.security.Authorizations;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchedChainStrategyTest {
+    
+    private QueryLogic<String> latterQueryLogic;
+    
+    @Before
+    public void setup() {
+        latterQueryLogic = EasyMock.createMock(QueryLogic.class);
+        EasyMock.expect(latterQueryLogic.getLogicName()).andReturn("LatterQuery").anyTimes();
+        EasyMock.replay(latterQueryLogic);
+    }
+    
+    @Test
+    public void testBatches() throws Exception {
+        TestStrategy strategy = new TestStrategy(2);
+        List<String> results = read(strategy, Arrays.asList("a", "b", "c", "d", "e"));
+        
+        assertEquals(Arrays.asList("[a, b]", "[c, d]", "[e]"), strategy.latterQueries);
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), results);
+    }
+    
+    @Test
+    public void testJoinKeysDedupedAcrossBatches() throws Exception {
+        TestStrategy strategy = new TestStrategy(2);
+        List<String> results = read(strategy, Arrays.asList("a", "b", "a", "c", "b", "a,d", "c"));
+        
+        assertEquals(Arrays.asList("[a, b]", "[c, d]"), strategy.latterQueries);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), results);
+    }
+    
+    @Test
+    public void testKeysOfOneResultSplitAcrossBatches() throws Exception {
+        TestStrategy strategy = new TestStrategy(2);
+        List<String> results = read(strategy, Arrays.asList("a,b,c", "", "d"));
+        
+        assertEquals(Arrays.asList("[a, b]", "[c, d]"), strategy.latterQueries);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), results);
+    }
+    
+    @Test
+    public void testNoInitialResults() throws Exception {
+        TestStrategy strategy = new TestStrategy(2);
+        assertTrue(read(strategy, Collections.emptyList()).isEmpty());
+        assertTrue(strategy.latterQueries.isEmpty());
+    }
+    
+    @Test
+    public void testSkippedBatch() throws Exception {
+        TestStrategy strategy = new TestStrategy(1);
+        strategy.skip = "b";
+        assertEquals(Arrays.asList("a", "c"), read(strategy, Arrays.asList("a", "b", "c")));
+    }
+    
+    @Test
+    public void testFailedInitialResults() throws Exception {
+        Iterator<String> failing = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+            
+            @Override
+            public String next() {
+                throw new IllegalStateException("cannot read results");
+            }
+        };
+        
+        Iterator<String> results = new TestStrategy(2).runChainedQuery(null, new QueryImpl(), null, failing, latterQueryLogic);
+        try {
+            results.hasNext();
+            fail("Expected the failure of the former query to be thrown");
+        } catch (RuntimeException e) {
+            assertEquals("cannot read results", e.getCause().getMessage());
+        }
+    }
+    
+    @Test
+    public void testCloseClosesLatterQuery() throws Exception {
+        QueryLogic<String> clone = EasyMock.createMock(QueryLogic.class);
+        EasyMock.expect(clone.initialize(EasyMock.anyObject(), EasyMock.anyObject(), EasyMock.anyObject())).andReturn(null);
+        clone.setupQuery(null);
+        EasyMock.expect(clone.iterator()).andReturn(Arrays.asList("x", "y").iterator());
+        clone.close();
+        EasyMock.replay(clone);
+        
+        QueryLogic<String> logic = EasyMock.createMock(QueryLogic.class);
+        EasyMock.expect(logic.getLogicName()).andReturn("LatterQuery").anyTimes();
+        EasyMock.expect(logic.clone()).andReturn(clone);
+        EasyMock.replay(logic);
+        
+        TestStrategy strategy = new TestStrategy(1);
+        strategy.runLogic = true;
+        Iterator<String> results = strategy.runChainedQuery(null, new QueryImpl(), null, Arrays.asList("a", "b").iterator(), logic);
+        assertTrue(results.hasNext());
+        assertEquals("x", results.next());
+        
+        // closing part way through the first batch closes its clone of the latter logic, and no other batch is queried
+        assertTrue(results instanceof Closeable);
+        ((Closeable) results).close();
+        assertFalse(results.hasNext());
+        EasyMock.verify(clone, logic);
+    }
+    
+    private List<String> read(TestStrategy strategy, List<String> initialQueryResults) throws Exception {
+        Iterator<String> results = strategy.runChainedQuery(null, new QueryImpl(), null, initialQueryResults.iterator(), latterQueryLogic);
+        List<String> output = new ArrayList<>();
+        while (results.hasNext()) {
+            output.add(results.next());
+        }
+        assertFalse(results.hasNext());
+        return output;
+    }
+    
+    /**
+     * Joins on the comma separated keys of each former result, and returns the keys of a batch as the results of its latter query
+     */
+    private static class TestStrategy extends BatchedChainStrategy<String,String> {
+        private final List<String> latterQueries = Collections.synchronizedList(new ArrayList<>());
+        private String skip = null;
+        private boolean runLogic = false;
+        
+        TestStrategy(int batchSize) {
+            setBatchSize(batchSize);
+        }
+        
+        @Override
+        protected Collection<String> getJoinKeys(String initialQueryResult) {
+            return initialQueryResult.isEmpty() ? Collections.emptyList() : Arrays.asList(initialQueryResult.split(","));
+        }
+        
+        @Override
+        protected Query buildLatterQuery(Query initialQuery, List<String> joinKeys, String latterLogicName) {
+            assertEquals("LatterQuery", latterLogicName);
+            if (joinKeys.contains(skip)) {
+                return null;
+            }
+            Query query = new QueryImpl();
+            query.setQuery(String.join(",", joinKeys));
+            return query;
+        }
+        
+        @Override
+        protected Iterator<String> runLatterQuery(AccumuloClient client, Query latterQuery, Set<Authorizations> auths, QueryLogic<String> latterQueryLogic)
+                        throws Exception {
+            if (runLogic) {
+                return super.runLatterQuery(client, latterQuery, auths, latterQueryLogic);
+            }
+            List<String> joinKeys = Arrays.asList(latterQuery.getQuery().split(","));
+            latterQueries.add(joinKeys.toString());
+            return joinKeys.iterator();
+        }
+    }
+}
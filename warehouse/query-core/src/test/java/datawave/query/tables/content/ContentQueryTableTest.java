@@ -0,0 +1,147 @@
+package datawave.query.tables.content;
+
+import com.google.common.collect.Sets;
+import datawave.accumulo.inmemory.InMemoryAccumuloClient;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.data.type.NoOpType;
+import datawave.ingest.protobuf.Uid;
+import datawave.query.Constants;
+import datawave.util.time.DateHelper;
+import datawave.webservice.query.QueryImpl;
+import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Integration test for the resolution of UUID terms by the {@link ContentQueryTable}
+ */
+public class ContentQueryTableTest {
+    
+    private static final String SHARD = "shard";
+    private static final String SHARD_INDEX = "shardIndex";
+    private static final ColumnVisibility VIZ = new ColumnVisibility("A");
+    private static final Set<Authorizations> AUTHS = Collections.singleton(new Authorizations("A"));
+    
+    private static AccumuloClient client;
+    
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        client = new InMemoryAccumuloClient("", new InMemoryInstance());
+        client.tableOperations().create(SHARD);
+        client.tableOperations().create(SHARD_INDEX);
+        
+        BatchWriterConfig bwConfig = new BatchWriterConfig().setMaxMemory(1024L).setMaxWriteThreads(1);
+        try (BatchWriter index = client.createBatchWriter(SHARD_INDEX, bwConfig); BatchWriter shard = client.createBatchWriter(SHARD, bwConfig)) {
+            // abc-123 is kept in the global index with its uid
+            index.addMutation(indexMutation("abc-123", "UUID", "20190101_0", false, "uid1"));
+            
+            // def-456 has too many uids for the global index, so it is found in the field index
+            index.addMutation(indexMutation("def-456", "UUID", "20190101_1", true));
+            Mutation fi = new Mutation("20190101_1");
+            fi.put(Constants.FIELD_INDEX_PREFIX + "UUID", "def-456\u0000datatype\u0000uid2", VIZ, new Value(new byte[0]));
+            shard.addMutation(fi);
+            
+            // ghi-789 is outside of the query's date range
+            index.addMutation(indexMutation("ghi-789", "UUID", "20200101_0", false, "uid4"));
+            
+            shard.addMutation(contentMutation("20190101_0", "uid1", "content one"));
+            shard.addMutation(contentMutation("20190101_1", "uid2", "content two"));
+            shard.addMutation(contentMutation("20190101_1", "uid3", "content three"));
+            shard.addMutation(contentMutation("20200101_0", "uid4", "content four"));
+        }
+    }
+    
+    @Test
+    public void testUuidFromGlobalIndex() throws Exception {
+        assertEquals(Sets.newHashSet("content one"), runQuery("UUID:ABC-123"));
+    }
+    
+    @Test
+    public void testUuidFromFieldIndex() throws Exception {
+        assertEquals(Sets.newHashSet("content two"), runQuery("UUID:def-456"));
+    }
+    
+    @Test
+    public void testUuidsAndDocumentIdentifier() throws Exception {
+        assertEquals(Sets.newHashSet("content one", "content two", "content three"), runQuery("UUID:abc-123 UUID:def-456 DOCUMENT:20190101_1/datatype/uid3"));
+    }
+    
+    @Test
+    public void testUuidOutsideDateRange() throws Exception {
+        assertEquals(Collections.emptySet(), runQuery("UUID:ghi-789"));
+    }
+    
+    @Test
+    public void testConfiguredUuidType() throws Exception {
+        ContentQueryTable logic = new ContentQueryTable();
+        logic.setUuidTypes(Collections.singletonMap("UUID", new NoOpType()));
+        // the configured type does not lowercase the value, so it is not found
+        assertEquals(Collections.emptySet(), runQuery(logic, "UUID:ABC-123"));
+        assertEquals(Sets.newHashSet("content one"), runQuery(logic, "UUID:abc-123"));
+    }
+    
+    private Set<String> runQuery(String query) throws Exception {
+        return runQuery(new ContentQueryTable(), query);
+    }
+    
+    private Set<String> runQuery(ContentQueryTable logic, String query) throws Exception {
+        logic.setTableName(SHARD);
+        logic.setIndexTableName(SHARD_INDEX);
+        logic.setQueryThreads(1);
+        
+        QueryImpl settings = new QueryImpl();
+        settings.setQuery(query);
+        settings.setBeginDate(DateHelper.parse("20190101"));
+        settings.setEndDate(DateHelper.parse("20191231"));
+        settings.setQueryAuthorizations("A");
+        
+        Set<String> contents = new HashSet<>();
+        try {
+            GenericQueryConfiguration config = logic.initialize(client, settings, AUTHS);
+            logic.setupQuery(config);
+            Iterator<Entry<Key,Value>> results = logic.iterator();
+            while (results.hasNext()) {
+                contents.add(results.next().getValue().toString());
+            }
+            assertFalse(results.hasNext());
+        } finally {
+            logic.close();
+        }
+        return contents;
+    }
+    
+    private static Mutation indexMutation(String value, String field, String shard, boolean ignore, String... uids) {
+        Uid.List.Builder builder = Uid.List.newBuilder();
+        builder.setIGNORE(ignore);
+        builder.setCOUNT(ignore ? 1000 : uids.length);
+        for (String uid : uids) {
+            builder.addUID(uid);
+        }
+        Mutation mutation = new Mutation(value);
+        mutation.put(field, shard + "\u0000datatype", VIZ, new Value(builder.build().toByteArray()));
+        return mutation;
+    }
+    
+    private static Mutation contentMutation(String shard, String uid, String content) {
+        Mutation mutation = new Mutation(shard);
+        mutation.put("d", "datatype\u0000" + uid + "\u0000CONTENT", VIZ, new Value(content.getBytes()));
+        return mutation;
+    }
+}
@@ -0,0 +1,236 @@
+package datawave.query.tables.facets;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Sets;
+import datawave.query.ranges.RangeFactory;
+import datawave.webservice.query.configuration.QueryData;
+import org.apache.accumulo.core.data.Range;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SplitMergedReadAheadTest {
+    
+    private static ExecutorService executor;
+    
+    private static final List<List<Integer>> SPLITS = Arrays.asList(Arrays.asList(1, 2, 3), Collections.emptyList(), Arrays.asList(4, 5), Arrays.asList(6),
+                    Arrays.asList(7, 8, 9, 10));
+    
+    @BeforeClass
+    public static void startExecutor() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+    
+    @AfterClass
+    public static void stopExecutor() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testNonStreaming() {
+        // only the total of every split is returned
+        assertEquals(Collections.singletonList(55), read(SPLITS, false, null, 2, 1));
+    }
+    
+    @Test
+    public void testStreaming() {
+        // the running total is returned as each split is merged, in whatever order the splits finish
+        List<Integer> output = read(SPLITS, true, null, 3, 2);
+        assertEquals(4, output.size());
+        for (int i = 1; i < output.size(); i++) {
+            assertTrue(output.get(i) > output.get(i - 1));
+        }
+        assertEquals(Integer.valueOf(55), output.get(output.size() - 1));
+    }
+    
+    @Test
+    public void testWithPredicate() {
+        assertEquals(Collections.singletonList(30), read(SPLITS, false, Collections.singletonList(evenFilterPredicate), 4, 1));
+    }
+    
+    @Test
+    public void testMoreSplitsThanQueueCapacity() {
+        List<List<Integer>> splits = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            splits.add(Arrays.asList(i, 1));
+        }
+        assertEquals(Collections.singletonList(5050), read(splits, false, null, 8, 1));
+    }
+    
+    @Test
+    public void testFailedSplit() {
+        Function<List<Integer>,Iterator<Integer>> reader = split -> {
+            if (split.isEmpty()) {
+                throw new IllegalStateException("cannot read split");
+            }
+            return split.iterator();
+        };
+        
+        SplitMergedReadAhead<List<Integer>,Integer> readAhead = new SplitMergedReadAhead<>(false, SPLITS, reader, summingFunction, new Sum(), null, executor,
+                        2, 1);
+        try {
+            readAhead.hasNext();
+            fail("Expected the failure of a split to be thrown");
+        } catch (RuntimeException e) {
+            assertEquals("cannot read split", e.getCause().getMessage());
+        }
+    }
+    
+    @Test
+    public void testInterruptedReadIsAnError() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        Function<List<Integer>,Iterator<Integer>> reader = split -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return split.iterator();
+        };
+        
+        SplitMergedReadAhead<List<Integer>,Integer> readAhead = new SplitMergedReadAhead<>(false, SPLITS, reader, summingFunction, new Sum(), null, executor,
+                        2, 1);
+        try {
+            // an interrupt while waiting for the splits is not the end of the results
+            Thread.currentThread().interrupt();
+            readAhead.hasNext();
+            fail("Expected the interrupt to be thrown");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+            assertTrue(Thread.interrupted());
+        } finally {
+            latch.countDown();
+        }
+        assertFalse(readAhead.hasNext());
+    }
+    
+    @Test
+    public void testCloseReleasesBlockedWorkers() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            List<List<Integer>> splits = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                splits.add(Arrays.asList(i, 1));
+            }
+            
+            // the workers fill the queue and wait for room in it
+            SplitMergedReadAhead<List<Integer>,Integer> readAhead = new SplitMergedReadAhead<>(true, splits, List::iterator, summingFunction, new Sum(),
+                            null, workers, 2, 1);
+            assertTrue(readAhead.hasNext());
+            readAhead.close();
+            
+            // once closed, the workers give up and are free to run other work
+            Future<Boolean> next = workers.submit(() -> true);
+            assertTrue(next.get(10, TimeUnit.SECONDS));
+            Future<Boolean> other = workers.submit(() -> true);
+            assertTrue(other.get(10, TimeUnit.SECONDS));
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testSplitByDay() {
+        SimpleDateFormat dayFormat = new SimpleDateFormat("yyyyMMdd");
+        
+        // the ranges produced by the range stream: shard, day and document ranges
+        Range shard1 = RangeFactory.createShardRange("20190227_0");
+        Range shard2 = RangeFactory.createShardRange("20190227_1");
+        Range day1 = RangeFactory.createDayRange("20190228");
+        Range document = RangeFactory.createDocumentSpecificRange("20190301_0", "datatype\u0000uid");
+        Range day2 = RangeFactory.createDayRange("20190301");
+        QueryData query = new QueryData("query", Arrays.asList(shard1, shard2, day1, document, day2), Collections.emptyList());
+        
+        List<QueryData> splits = SplitMergedReadAhead.splitByDay(Collections.singleton(query).iterator(), dayFormat);
+        assertEquals(3, splits.size());
+        assertEquals(Sets.newHashSet(shard1, shard2), new HashSet<>(splits.get(0).getRanges()));
+        assertEquals(Sets.newHashSet(day1), new HashSet<>(splits.get(1).getRanges()));
+        assertEquals(Sets.newHashSet(document, day2), new HashSet<>(splits.get(2).getRanges()));
+        for (QueryData split : splits) {
+            assertEquals("query", split.getQuery());
+        }
+        
+        // ranges which do not start with a day are kept together
+        Range facet1 = new Range("value1\u0000", true, "value1\uFFFF", false);
+        Range facet2 = new Range("value2\u0000", true, "value2\uFFFF", false);
+        splits = SplitMergedReadAhead.splitByDay(Collections.singleton(new QueryData("query", Arrays.asList(facet1, facet2), Collections.emptyList()))
+                        .iterator(), dayFormat);
+        assertEquals(1, splits.size());
+        assertEquals(Sets.newHashSet(facet1, facet2), new HashSet<>(splits.get(0).getRanges()));
+    }
+    
+    @Test
+    public void testWorkersBoundedPerQuery() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        Function<List<Integer>,Iterator<Integer>> reader = split -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return split.iterator();
+        };
+        
+        // the shared executor has more threads than the query may use
+        SplitMergedReadAhead<List<Integer>,Integer> readAhead = new SplitMergedReadAhead<>(false, SPLITS, reader, summingFunction, new Sum(), null, executor,
+                        2, 1);
+        assertTrue(readAhead.hasNext());
+        assertEquals(Integer.valueOf(55), readAhead.next());
+        assertFalse(readAhead.hasNext());
+        assertTrue(maxRunning.get() <= 2);
+    }
+    
+    private List<Integer> read(List<List<Integer>> splits, boolean streaming, List<Predicate<Integer>> filters, int numThreads, int queueCapacity) {
+        final List<Integer> output = new ArrayList<>();
+        
+        SplitMergedReadAhead<List<Integer>,Integer> readAhead = new SplitMergedReadAhead<>(streaming, splits, List::iterator, summingFunction, new Sum(),
+                        filters, executor, numThreads, queueCapacity);
+        while (readAhead.hasNext()) {
+            output.add(readAhead.next());
+        }
+        assertFalse(readAhead.hasNext());
+        
+        return output;
+    }
+    
+    /**
+     * A running total, like the running summary of the facet functions
+     */
+    static class Sum implements Function<Integer,Integer> {
+        private int total = 0;
+        
+        @Override
+        public Integer apply(Integer value) {
+            total += value;
+            return total;
+        }
+    }
+    
+    static final Supplier<Function<Integer,Integer>> summingFunction = Sum::new;
+    
+    static final Predicate<Integer> evenFilterPredicate = value -> value % 2 == 0;
+}
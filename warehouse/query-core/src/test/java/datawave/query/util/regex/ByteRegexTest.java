@@ -0,0 +1,112 @@
+package datawave.query.util.regex;
+
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class ByteRegexTest {
+    private static final String[] REGEXES = new String[] {"abc", "a.*", ".*c", "a.c", "[a-c]+", "[^b]*", "(ab|c)*d?", "a{2,3}", "a+?b", "\\d+\\.\\d*", "\\w\\W\\s",
+            "\\Q.*\\E", "^(a|bc)+$", "x?(?:yz){1,2}", ".*\u00E9.*", "[\u00E0-\u4E2D]+", "\u4E2D\\u4e2d?", "[\\x{1F600}-\\x{1F64F}]a"};
+    
+    private static final String[] ALPHABET = new String[] {"a", "b", "c", "d", "1", ".", " ", "\u00E9", "\u4E2D", "\uD83D\uDE00", "\n"};
+    
+    @Test
+    public void testMatchesAsPattern() {
+        List<String> values = values();
+        for (String regex : REGEXES) {
+            Pattern pattern = Pattern.compile(regex);
+            ByteRegex byteRegex = ByteRegex.compile(regex);
+            ByteRegex reversed = ByteRegex.compile(regex, true);
+            Assert.assertNotNull(regex, byteRegex);
+            Assert.assertNotNull(regex, reversed);
+            for (String value : values) {
+                boolean expected = pattern.matcher(value).matches();
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                Assert.assertEquals(regex + " on " + value, expected, byteRegex.matches(bytes, 0, bytes.length));
+                byte[] reversedBytes = new StringBuilder(value).reverse().toString().getBytes(StandardCharsets.UTF_8);
+                Assert.assertEquals(regex + " reversed on " + value, expected, reversed.matches(reversedBytes, 0, reversedBytes.length));
+            }
+        }
+    }
+    
+    @Test
+    public void testNextPossibleMatch() {
+        List<byte[]> values = new ArrayList<>();
+        for (String value : values()) {
+            values.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        values.sort(ByteRegexTest::compare);
+        for (String regex : REGEXES) {
+            ByteRegex byteRegex = ByteRegex.compile(regex);
+            // walk backwards keeping track of the next matching value
+            byte[] nextMatch = null;
+            for (int i = values.size() - 1; i >= 0; i--) {
+                byte[] value = values.get(i);
+                byte[] next = byteRegex.nextPossibleMatch(value, 0, value.length);
+                if (byteRegex.matches(value, 0, value.length)) {
+                    Assert.assertArrayEquals(regex, value, next);
+                    nextMatch = value;
+                } else if (next == null) {
+                    Assert.assertNull(regex + " skipped a match after " + new String(value, StandardCharsets.UTF_8), nextMatch);
+                } else {
+                    Assert.assertTrue(regex + " went backwards from " + new String(value, StandardCharsets.UTF_8), compare(value, next) < 0);
+                    if (nextMatch != null) {
+                        Assert.assertTrue(regex + " skipped a match after " + new String(value, StandardCharsets.UTF_8), compare(next, nextMatch) <= 0);
+                    }
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testSeekTargets() {
+        ByteRegex byteRegex = ByteRegex.compile("foo[0-9]+bar");
+        assertNextPossibleMatch(byteRegex, "a", "foo0");
+        assertNextPossibleMatch(byteRegex, "fop", null);
+        assertNextPossibleMatch(byteRegex, "foo1", "foo10");
+        assertNextPossibleMatch(byteRegex, "foo1c", "foo2");
+        assertNextPossibleMatch(byteRegex, "foo1bar", "foo1bar");
+        assertNextPossibleMatch(byteRegex, "foo9bas", null);
+        
+        byteRegex = ByteRegex.compile("ab.*");
+        assertNextPossibleMatch(byteRegex, "aa", "ab");
+        assertNextPossibleMatch(byteRegex, "ac", null);
+    }
+    
+    @Test
+    public void testUnsupported() {
+        for (String regex : new String[] {"(a)\\1", "a(?=b)", "(?i)abc", "a*+", "\\bword", "[a-z&&[^e]]", "a|^b", "\\p{Alpha}"}) {
+            Assert.assertNull(regex, ByteRegex.compile(regex));
+        }
+    }
+    
+    private static void assertNextPossibleMatch(ByteRegex byteRegex, String value, String expected) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        byte[] next = byteRegex.nextPossibleMatch(bytes, 0, bytes.length);
+        Assert.assertEquals(expected, (next == null ? null : new String(next, StandardCharsets.UTF_8)));
+    }
+    
+    private static int compare(byte[] a, byte[] b) {
+        return WritableComparator.compareBytes(a, 0, a.length, b, 0, b.length);
+    }
+    
+    private static List<String> values() {
+        List<String> values = new ArrayList<>();
+        addValues(values, "", 4);
+        return values;
+    }
+    
+    private static void addValues(List<String> values, String prefix, int depth) {
+        values.add(prefix);
+        if (depth > 0) {
+            for (String c : ALPHABET) {
+                addValues(values, prefix + c, depth - 1);
+            }
+        }
+    }
+}
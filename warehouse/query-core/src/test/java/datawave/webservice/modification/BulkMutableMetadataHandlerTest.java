@@ -0,0 +1,229 @@
+package datawave.webservice.modification;
+
+import com.google.common.collect.Sets;
+import datawave.accumulo.inmemory.InMemoryAccumuloClient;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.ingest.protobuf.Uid;
+import datawave.marking.MarkingFunctions;
+import datawave.query.util.MetadataHelper;
+import datawave.query.util.MockMetadataHelper;
+import datawave.util.TableName;
+import datawave.webservice.modification.ModificationRequestBase.MODE;
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Applies the same modifications with the {@link MutableMetadataHandler}, one request at a time, and with the {@link BulkMutableMetadataHandler}, in one bulk
+ * request, and checks that they leave the tables the same
+ */
+public class BulkMutableMetadataHandlerTest {
+    
+    private static final String DATATYPE = "dt";
+    private static final ColumnVisibility VIZ = new ColumnVisibility("A");
+    private static final long EVENT_TS = 1546300800000L;
+    private static final Set<Authorizations> AUTHS = Collections.singleton(new Authorizations("A"));
+    private static final String[] TABLES = {TableName.SHARD, TableName.SHARD_INDEX, TableName.SHARD_RINDEX, TableName.METADATA};
+    
+    private Map<String,Set<String>> mutableFields;
+    private MockMetadataHelper helper;
+    
+    @Before
+    public void setup() {
+        mutableFields = Collections.singletonMap(DATATYPE, Sets.newHashSet("FIELD_A", "FIELD_B", "CONTENT"));
+        
+        helper = new MockMetadataHelper();
+        helper.setIndexedFields(Sets.newHashSet("FIELD_A", "CONTENT"));
+        helper.setReverseIndexFields(Sets.newHashSet("FIELD_A"));
+        helper.addNormalizers("FIELD_A", Collections.singleton(new LcNoDiacriticsType()));
+        helper.addNormalizers("CONTENT", Collections.singleton(new LcNoDiacriticsType()));
+    }
+    
+    @Test
+    public void testBulkMatchesSingleModifications() throws Exception {
+        List<DefaultModificationRequest> modifications = Arrays.asList(modification("20190101_0", "uid1", MODE.UPDATE, "FIELD_A", "def", "abc"),
+                        modification("20190101_0", "uid2", MODE.INSERT, "FIELD_B", "ghi", null),
+                        modification("20190102_0", "uid3", MODE.DELETE, "FIELD_A", "jkl", null),
+                        // a second modification of the same field of the same event sees the first
+                        modification("20190101_0", "uid1", MODE.UPDATE, "FIELD_A", "mno", "def"),
+                        modification("20190101_0", "uid2", MODE.DELETE, "CONTENT", "some text", null));
+        
+        AccumuloClient single = createClient("single");
+        MutableMetadataHandler singleHandler = configure(new MutableMetadataHandler() {
+            @Override
+            protected MetadataHelper getMetadataHelper(AccumuloClient client) {
+                return helper;
+            }
+        });
+        for (DefaultModificationRequest modification : modifications) {
+            singleHandler.process(single, modification, mutableFields, AUTHS, "user");
+        }
+        
+        AccumuloClient bulk = createClient("bulk");
+        BulkMutableMetadataHandler bulkHandler = configure(new BulkMutableMetadataHandler() {
+            @Override
+            protected MetadataHelper getMetadataHelper(AccumuloClient client) {
+                return helper;
+            }
+        });
+        bulkHandler.setShardThreads(2);
+        BulkModificationRequest request = new BulkModificationRequest();
+        request.setModifications(modifications);
+        bulkHandler.process(bulk, request, mutableFields, AUTHS, "user");
+        
+        for (String table : TABLES) {
+            assertEquals("Unexpected contents of " + table, read(single, table), read(bulk, table));
+        }
+        
+        // the modifications were applied
+        Set<String> shard = read(bulk, TableName.SHARD);
+        assertTrue(shard.contains(eventEntry("20190101_0", "uid1", "FIELD_A", "mno")));
+        assertFalse(shard.contains(eventEntry("20190101_0", "uid1", "FIELD_A", "abc")));
+        assertFalse(shard.contains(eventEntry("20190101_0", "uid1", "FIELD_A", "def")));
+        assertTrue(shard.contains(eventEntry("20190101_0", "uid2", "FIELD_B", "ghi")));
+        assertFalse(shard.contains(eventEntry("20190102_0", "uid3", "FIELD_A", "jkl")));
+        assertFalse(shard.contains("20190101_0 d dt\u0000uid2\u0000CONTENT [A] " + EVENT_TS + " some text"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkRejectsMismatchedValue() throws Exception {
+        AccumuloClient bulk = createClient("rejected");
+        BulkMutableMetadataHandler bulkHandler = configure(new BulkMutableMetadataHandler() {
+            @Override
+            protected MetadataHelper getMetadataHelper(AccumuloClient client) {
+                return helper;
+            }
+        });
+        BulkModificationRequest request = new BulkModificationRequest();
+        request.setModifications(Arrays.asList(modification("20190101_0", "uid1", MODE.UPDATE, "FIELD_A", "def", "xyz"),
+                        modification("20190101_0", "uid2", MODE.INSERT, "FIELD_B", "ghi", null)));
+        try {
+            bulkHandler.process(bulk, request, mutableFields, AUTHS, "user");
+        } finally {
+            // the modification which matched was still applied
+            Set<String> shard = read(bulk, TableName.SHARD);
+            assertTrue(shard.contains(eventEntry("20190101_0", "uid1", "FIELD_A", "abc")));
+            assertTrue(shard.contains(eventEntry("20190101_0", "uid2", "FIELD_B", "ghi")));
+        }
+    }
+    
+    private <T extends MutableMetadataHandler> T configure(T handler) {
+        handler.setEventTableName(TableName.SHARD);
+        handler.setIndexTableName(TableName.SHARD_INDEX);
+        handler.setReverseIndexTableName(TableName.SHARD_RINDEX);
+        handler.setMetadataTableName(TableName.METADATA);
+        handler.setMarkingFunctions(new MarkingFunctions.Default());
+        handler.setContentFields(Collections.singleton("CONTENT"));
+        return handler;
+    }
+    
+    private static DefaultModificationRequest modification(String shardId, String uid, MODE mode, String field, String value, String oldValue) {
+        EventIdentifier event = new EventIdentifier();
+        event.setShardId(shardId);
+        event.setDatatype(DATATYPE);
+        event.setEventUid(uid);
+        
+        DefaultModificationRequest modification = new DefaultModificationRequest();
+        modification.setEvents(Collections.singletonList(event));
+        modification.setMode(mode);
+        modification.setFieldName(field);
+        modification.setFieldValue(value);
+        modification.setColumnVisibility("A");
+        if (null != oldValue) {
+            modification.setOldFieldValue(oldValue);
+            modification.setOldColumnVisibility("A");
+        }
+        return modification;
+    }
+    
+    /**
+     * Create the tables, holding the same events
+     */
+    private static AccumuloClient createClient(String name) throws Exception {
+        AccumuloClient client = new InMemoryAccumuloClient("root", new InMemoryInstance(BulkMutableMetadataHandlerTest.class.getName() + name));
+        for (String table : TABLES) {
+            client.tableOperations().create(table);
+        }
+        
+        BatchWriterConfig config = new BatchWriterConfig().setMaxMemory(1024L).setMaxWriteThreads(1);
+        try (BatchWriter shard = client.createBatchWriter(TableName.SHARD, config);
+                        BatchWriter index = client.createBatchWriter(TableName.SHARD_INDEX, config);
+                        BatchWriter rindex = client.createBatchWriter(TableName.SHARD_RINDEX, config)) {
+            addEvent(shard, index, rindex, "20190101_0", "uid1", "abc");
+            addEvent(shard, index, rindex, "20190101_0", "uid2", "pqr");
+            addEvent(shard, index, rindex, "20190102_0", "uid3", "jkl");
+        }
+        return client;
+    }
+    
+    private static void addEvent(BatchWriter shard, BatchWriter index, BatchWriter rindex, String shardId, String uid, String value) throws Exception {
+        Value uidList = new Value(Uid.List.newBuilder().setIGNORE(false).setCOUNT(1).addUID(uid).build().toByteArray());
+        Value empty = new Value(new byte[0]);
+        
+        Mutation event = new Mutation(shardId);
+        event.put(DATATYPE + "\u0000" + uid, "FIELD_A\u0000" + value, VIZ, EVENT_TS, empty);
+        event.put(DATATYPE + "\u0000" + uid, "FIELD_C\u0000other", VIZ, EVENT_TS, empty);
+        event.put(DATATYPE + "\u0000" + uid, "CONTENT\u0000some text", VIZ, EVENT_TS, empty);
+        event.put("fi\u0000FIELD_A", value + "\u0000" + DATATYPE + "\u0000" + uid, VIZ, EVENT_TS, empty);
+        event.put("fi\u0000CONTENT", "some text\u0000" + DATATYPE + "\u0000" + uid, VIZ, EVENT_TS, empty);
+        event.put("tf", DATATYPE + "\u0000" + uid + "\u0000" + value + "\u0000FIELD_A", VIZ, EVENT_TS, empty);
+        event.put("d", DATATYPE + "\u0000" + uid + "\u0000CONTENT", VIZ, EVENT_TS, new Value("some text".getBytes()));
+        shard.addMutation(event);
+        
+        Mutation i = new Mutation(value);
+        i.put("FIELD_A", shardId + "\u0000" + DATATYPE, VIZ, EVENT_TS, uidList);
+        index.addMutation(i);
+        
+        Mutation ri = new Mutation(StringUtils.reverse(value));
+        ri.put("FIELD_A", shardId + "\u0000" + DATATYPE, VIZ, EVENT_TS, uidList);
+        rindex.addMutation(ri);
+    }
+    
+    private static String eventEntry(String shardId, String uid, String field, String value) {
+        return shardId + " " + DATATYPE + "\u0000" + uid + " " + field + "\u0000" + value + " [A] " + EVENT_TS + " ";
+    }
+    
+    /**
+     * Read the entries of a table. The time a history entry was written, and the timestamps and (uncombined) values of the metadata table, differ between
+     * runs so they are left out.
+     */
+    private static Set<String> read(AccumuloClient client, String table) throws Exception {
+        Set<String> entries = new TreeSet<>();
+        try (Scanner scanner = client.createScanner(table, new Authorizations("A"))) {
+            for (Entry<Key,Value> entry : scanner) {
+                Key key = entry.getKey();
+                String qualifier = key.getColumnQualifier().toString().replaceFirst("^(HISTORY_[^\u0000]*\u0000)[0-9]+:", "$1T:");
+                StringBuilder sb = new StringBuilder();
+                sb.append(key.getRow()).append(' ').append(key.getColumnFamily()).append(' ').append(qualifier).append(" [").append(key.getColumnVisibility())
+                                .append(']');
+                if (!TableName.METADATA.equals(table)) {
+                    sb.append(' ').append(key.getTimestamp()).append(' ').append(entry.getValue());
+                }
+                entries.add(sb.toString());
+            }
+        }
+        return entries;
+    }
+}
@@ -1,22 +1,42 @@
 package datawave.webservice.operations.remote;
 
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.annotation.Metric;
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import datawave.configuration.RefreshableScope;
 import datawave.webservice.response.LookupResponse;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.message.BasicNameValuePair;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Priority;
 import javax.enterprise.inject.Alternative;
+import javax.inject.Inject;
 import javax.interceptor.Interceptor;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RefreshableScope
 @Alternative
@@ -25,20 +45,139 @@ public class RemoteLookupService extends RemoteAccumuloService {
     
     private static final String LOOKUP_SUFFIX = "lookup/%s/%s";
     
+    @Inject
+    @ConfigProperty(name = "dw.remoteAccumuloService.lookup.batch.threads", defaultValue = "8")
+    private int batchThreads;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteAccumuloService.lookup.batch.maxRows", defaultValue = "1000")
+    private int batchMaxRows;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteAccumuloService.lookup.batch.maxBytes", defaultValue = "67108864")
+    private long batchMaxBytes;
+    
+    // the batch is written after the lookup method returns, so it is timed as it is streamed rather than with @Timed
+    @Inject
+    @Metric(name = "dw.remoteAccumuloService.batchLookup", absolute = true)
+    private Timer batchLookupTimer;
+    
     private ObjectReader lookupReader;
     
+    private ExecutorService batchExecutor;
+    
     @Override
     @PostConstruct
     public void init() {
         super.init();
         lookupReader = objectMapper.readerFor(LookupResponse.class);
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        batchExecutor = Executors.newFixedThreadPool(batchThreads, r -> {
+            Thread thread = new Thread(r, "RemoteLookupService-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Override
+    @PreDestroy
+    protected void shutdown() {
+        batchExecutor.shutdownNow();
+        super.shutdown();
+    }
+    
+    public int getBatchMaxRows() {
+        return batchMaxRows;
     }
     
     @Timed(name = "dw.remoteAccumuloService.lookup", absolute = true)
     public LookupResponse lookup(String table, String row, MultivaluedMap<String,String> params) {
+        return lookup(table, row, toNameValuePairs(params), getBearer());
+    }
+    
+    /**
+     * Looks up a batch of rows from a table. The rows are fetched in parallel on the shared batch threads, with at most one outstanding request per thread
+     * for this batch, and are written to the returned output in request order as a JSON object of the form
+     * {@code {"Responses":[{"Row":...,"Response":{...}},{"Row":...,"Error":"..."}],"Truncated":false}}. A row that fails is reported in place rather than
+     * failing the batch. Once the serialized responses would exceed the configured byte budget, the remaining rows are skipped and Truncated is set.
+     *
+     * @param table
+     *            the table to look up the rows in
+     * @param rows
+     *            the rows to look up, which the caller has limited to {@link #getBatchMaxRows()}
+     * @param params
+     *            the lookup parameters applied to every row
+     * @return the streaming response
+     */
+    public StreamingOutput lookup(String table, List<String> rows, MultivaluedMap<String,String> params) {
+        final List<NameValuePair> nvpList = toNameValuePairs(params);
+        // the response is written after the calling bean returns, so resolve the caller's credentials now
+        final String bearer = getBearer();
         
-        final List<NameValuePair> nvpList = new ArrayList<>();
-        params.forEach((k, valueList) -> valueList.forEach(v -> nvpList.add(new BasicNameValuePair(k, v))));
+        return output -> {
+            Timer.Context context = batchLookupTimer.time();
+            try {
+                writeBatch(output, table, rows, nvpList, bearer);
+            } finally {
+                context.stop();
+            }
+        };
+    }
+    
+    private void writeBatch(OutputStream output, String table, List<String> rows, List<NameValuePair> nvpList, String bearer) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(output);
+        json.writeStartObject();
+        json.writeArrayFieldStart("Responses");
+        
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        Iterator<String> remaining = rows.iterator();
+        long bytesWritten = 0;
+        boolean truncated = false;
+        try {
+            while (remaining.hasNext() || !pending.isEmpty()) {
+                while (remaining.hasNext() && pending.size() < batchThreads) {
+                    String row = remaining.next();
+                    pending.add(batchExecutor.submit(() -> lookupEntry(table, row, nvpList, bearer)));
+                }
+                
+                byte[] entry = pending.remove().get();
+                if (bytesWritten + entry.length > batchMaxBytes) {
+                    truncated = true;
+                    break;
+                }
+                bytesWritten += entry.length;
+                json.writeRawValue(new String(entry, StandardCharsets.UTF_8));
+                json.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while looking up rows in " + table);
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to write lookup response: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pending.forEach(f -> f.cancel(true));
+        }
+        
+        json.writeEndArray();
+        json.writeBooleanField("Truncated", truncated);
+        json.writeEndObject();
+        json.flush();
+    }
+    
+    private byte[] lookupEntry(String table, String row, List<NameValuePair> nvpList, String bearer) throws IOException {
+        ObjectNode entry = objectMapper.createObjectNode();
+        entry.put("Row", row);
+        try {
+            entry.set("Response", objectMapper.valueToTree(lookup(table, row, nvpList, bearer)));
+        } catch (RuntimeException e) {
+            log.warn("Batch lookup of row " + row + " in " + table + " failed: " + e.getMessage());
+            entry.put("Error", e.getMessage());
+        }
+        return objectMapper.writeValueAsBytes(entry);
+    }
+    
+    protected LookupResponse lookup(String table, String row, List<NameValuePair> nvpList, String bearer) {
         final UrlEncodedFormEntity postBody = new UrlEncodedFormEntity(nvpList::iterator);
         
         String suffix = String.format(LOOKUP_SUFFIX, table, row);
@@ -49,11 +188,17 @@ public class RemoteLookupService extends RemoteAccumuloService {
             uriBuilder -> {},
             httpPost -> {
                 httpPost.setEntity(postBody);
-                httpPost.setHeader(AUTH_HEADER_NAME, getBearer());
+                httpPost.setHeader(AUTH_HEADER_NAME, bearer);
                 httpPost.setHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
             },
             entity -> lookupReader.readValue(entity.getContent()),
-            () -> suffix + " [" + params + "]");
+            () -> suffix + " [" + nvpList + "]");
         // @formatter:on
     }
+    
+    private static List<NameValuePair> toNameValuePairs(MultivaluedMap<String,String> params) {
+        final List<NameValuePair> nvpList = new ArrayList<>();
+        params.forEach((k, valueList) -> valueList.forEach(v -> nvpList.add(new BasicNameValuePair(k, v))));
+        return nvpList;
+    }
 }
@@ -4,8 +4,11 @@ import datawave.annotation.Required;
 import datawave.interceptor.RequiredInterceptor;
 import datawave.interceptor.ResponseInterceptor;
 import datawave.webservice.operations.remote.RemoteLookupService;
+import datawave.webservice.query.exception.BadRequestQueryException;
+import datawave.webservice.query.exception.DatawaveErrorCode;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.response.LookupResponse;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
 
 import javax.annotation.security.DeclareRoles;
 import javax.annotation.security.PermitAll;
@@ -26,7 +29,9 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.util.List;
 
 @Path("/Accumulo")
 @RolesAllowed({"InternalUser", "Administrator"})
@@ -60,6 +65,38 @@ public class LookupBean {
         return lookup(table, row, formParameters);
     }
     
+    /**
+     * Looks up many rows of a table in one request. Each {@code row} form parameter names a row to look up, and the remaining form parameters apply to every
+     * row. The rows are looked up in parallel and streamed back as JSON in the order given, stopping early if the configured response size is reached.
+     *
+     * @param table
+     *            the table to look up the rows in
+     * @param formParameters
+     *            one or more {@code row} parameters, plus the lookup parameters
+     * @return the streaming lookup responses
+     * @throws QueryException
+     *             if no rows, or more than the configured maximum number of rows, are requested
+     */
+    @Path("/Lookup/{table}")
+    @Consumes("application/x-www-form-urlencoded")
+    @Produces("application/json")
+    @POST
+    public StreamingOutput batchLookupPost(@Required("table") @PathParam("table") String table, MultivaluedMap<String,String> formParameters)
+                    throws QueryException {
+        
+        MultivaluedMap<String,String> queryParameters = new MultivaluedMapImpl<>();
+        queryParameters.putAll(formParameters);
+        List<String> rows = queryParameters.remove("row");
+        if (rows == null || rows.isEmpty()) {
+            throw new BadRequestQueryException(DatawaveErrorCode.MISSING_REQUIRED_PARAMETER, "row");
+        }
+        if (rows.size() > remoteLookupService.getBatchMaxRows()) {
+            throw new BadRequestQueryException(DatawaveErrorCode.TOO_MANY_ROWS_REQUESTED, "At most " + remoteLookupService.getBatchMaxRows()
+                            + " rows may be looked up at once");
+        }
+        return remoteLookupService.lookup(table, rows, queryParameters);
+    }
+    
     @PermitAll
     public LookupResponse lookup(String table, String row, MultivaluedMap<String,String> queryParameters) throws QueryException {
         return remoteLookupService.lookup(table, row, queryParameters);
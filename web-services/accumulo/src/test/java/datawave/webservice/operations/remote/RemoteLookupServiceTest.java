@@ -0,0 +1,154 @@
+package datawave.webservice.operations.remote;
+
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import datawave.webservice.response.LookupResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RemoteLookupServiceTest {
+    
+    private final ObjectMapper mapper = new ObjectMapper();
+    private TestLookupService service;
+    private ExecutorService executor;
+    private Timer timer;
+    
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        timer = new Timer();
+        
+        service = new TestLookupService();
+        Whitebox.setInternalState(service, "batchThreads", 4);
+        Whitebox.setInternalState(service, "batchMaxBytes", Long.MAX_VALUE);
+        Whitebox.setInternalState(service, "batchLookupTimer", timer);
+        Whitebox.setInternalState(service, "batchExecutor", executor);
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testResponsesInRequestOrder() throws Exception {
+        List<String> rows = Arrays.asList("row1", "row2", "row3", "row4", "row5", "row6");
+        // the earlier rows take longest, so they complete after the later ones
+        for (int i = 0; i < rows.size(); i++) {
+            service.delays.put(rows.get(i), 50L * (rows.size() - i));
+        }
+        MultivaluedMap<String,String> params = new MultivaluedMapImpl<>();
+        params.putSingle("columnVisibility", "PUBLIC");
+        
+        JsonNode result = write(service.lookup("shard", rows, params));
+        
+        assertFalse(result.get("Truncated").asBoolean());
+        JsonNode responses = result.get("Responses");
+        assertEquals(rows.size(), responses.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i), responses.get(i).get("Row").asText());
+            assertTrue(responses.get(i).has("Response"));
+            assertFalse(responses.get(i).has("Error"));
+        }
+        
+        assertEquals(Collections.singletonList(new BasicNameValuePair("columnVisibility", "PUBLIC")), service.nvpLists.get("row1"));
+        assertEquals("Bearer test", service.bearers.get("row6"));
+        assertEquals(1, timer.getCount());
+    }
+    
+    @Test
+    public void testRowErrorReportedInPlace() throws Exception {
+        service.failures.put("row2", "Table not found");
+        
+        JsonNode responses = write(service.lookup("shard", Arrays.asList("row1", "row2", "row3"), new MultivaluedMapImpl<>())).get("Responses");
+        
+        assertEquals(3, responses.size());
+        assertEquals("row1", responses.get(0).get("Row").asText());
+        assertTrue(responses.get(0).has("Response"));
+        assertEquals("row2", responses.get(1).get("Row").asText());
+        assertEquals("Table not found", responses.get(1).get("Error").asText());
+        assertFalse(responses.get(1).has("Response"));
+        assertEquals("row3", responses.get(2).get("Row").asText());
+        assertTrue(responses.get(2).has("Response"));
+    }
+    
+    @Test
+    public void testTruncatedAtMaxBytes() throws Exception {
+        List<String> rows = Arrays.asList("row1", "row2", "row3", "row4", "row5");
+        
+        JsonNode full = write(service.lookup("shard", rows, new MultivaluedMapImpl<>()));
+        int entryLength = mapper.writeValueAsBytes(full.get("Responses").get(0)).length;
+        
+        // room for two and a half entries
+        Whitebox.setInternalState(service, "batchMaxBytes", (long) (entryLength * 5 / 2));
+        JsonNode result = write(service.lookup("shard", rows, new MultivaluedMapImpl<>()));
+        
+        assertTrue(result.get("Truncated").asBoolean());
+        JsonNode responses = result.get("Responses");
+        assertEquals(2, responses.size());
+        assertEquals("row1", responses.get(0).get("Row").asText());
+        assertEquals("row2", responses.get(1).get("Row").asText());
+    }
+    
+    private JsonNode write(StreamingOutput output) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        output.write(bytes);
+        return mapper.readTree(bytes.toByteArray());
+    }
+    
+    /**
+     * Answers each row lookup locally instead of calling the remote service
+     */
+    private static class TestLookupService extends RemoteLookupService {
+        private final Map<String,Long> delays = new ConcurrentHashMap<>();
+        private final Map<String,String> failures = new ConcurrentHashMap<>();
+        private final Map<String,List<NameValuePair>> nvpLists = new ConcurrentHashMap<>();
+        private final Map<String,String> bearers = new ConcurrentHashMap<>();
+        
+        private TestLookupService() {
+            objectMapper = new ObjectMapper();
+        }
+        
+        @Override
+        protected String getBearer() {
+            return "Bearer test";
+        }
+        
+        @Override
+        protected LookupResponse lookup(String table, String row, List<NameValuePair> nvpList, String bearer) {
+            nvpLists.put(row, nvpList);
+            bearers.put(row, bearer);
+            try {
+                Thread.sleep(delays.getOrDefault(row, 0L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            if (failures.containsKey(row)) {
+                throw new IllegalStateException(failures.get(row));
+            }
+            return new LookupResponse();
+        }
+    }
+}
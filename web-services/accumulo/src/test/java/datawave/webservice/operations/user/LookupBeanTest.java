@@ -0,0 +1,110 @@
+package datawave.webservice.operations.user;
+
+import datawave.webservice.operations.remote.RemoteLookupService;
+import datawave.webservice.query.exception.BadRequestQueryException;
+import datawave.webservice.query.exception.DatawaveErrorCode;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class LookupBeanTest {
+    
+    private LookupBean bean;
+    private RemoteLookupService remoteLookupService;
+    
+    @Before
+    public void setUp() {
+        remoteLookupService = EasyMock.createMock(RemoteLookupService.class);
+        bean = new LookupBean();
+        Whitebox.setInternalState(bean, RemoteLookupService.class, remoteLookupService);
+    }
+    
+    @Test
+    public void testBatchLookupDelegatesRows() throws Exception {
+        StreamingOutput output = o -> {};
+        Capture<MultivaluedMap<String,String>> params = Capture.newInstance();
+        expect(remoteLookupService.getBatchMaxRows()).andReturn(3).anyTimes();
+        expect(remoteLookupService.lookup(eq("shard"), eq(Arrays.asList("row1", "row2", "row3")), capture(params))).andReturn(output);
+        replay(remoteLookupService);
+        
+        MultivaluedMap<String,String> formParameters = new MultivaluedMapImpl<>();
+        formParameters.put("row", Arrays.asList("row1", "row2", "row3"));
+        formParameters.putSingle("columnVisibility", "PUBLIC");
+        
+        assertSame(output, bean.batchLookupPost("shard", formParameters));
+        
+        verify(remoteLookupService);
+        // the rows are removed from the parameters applied to each lookup, but the caller's parameters are left alone
+        assertFalse(params.getValue().containsKey("row"));
+        assertEquals(Collections.singletonList("PUBLIC"), params.getValue().get("columnVisibility"));
+        assertEquals(3, formParameters.get("row").size());
+    }
+    
+    @Test
+    public void testBatchLookupTooManyRows() throws Exception {
+        expect(remoteLookupService.getBatchMaxRows()).andReturn(2).anyTimes();
+        replay(remoteLookupService);
+        
+        MultivaluedMap<String,String> formParameters = new MultivaluedMapImpl<>();
+        formParameters.put("row", Arrays.asList("row1", "row2", "row3"));
+        
+        try {
+            bean.batchLookupPost("shard", formParameters);
+            fail("Expected the batch to be rejected");
+        } catch (BadRequestQueryException e) {
+            assertEquals(DatawaveErrorCode.TOO_MANY_ROWS_REQUESTED.getErrorCode(), e.getErrorCode());
+        }
+        verify(remoteLookupService);
+    }
+    
+    @Test
+    public void testBatchLookupAtRowLimit() throws Exception {
+        StreamingOutput output = o -> {};
+        List<String> rows = Arrays.asList("row1", "row2");
+        expect(remoteLookupService.getBatchMaxRows()).andReturn(2).anyTimes();
+        expect(remoteLookupService.lookup(eq("shard"), eq(rows), anyObject())).andReturn(output);
+        replay(remoteLookupService);
+        
+        MultivaluedMap<String,String> formParameters = new MultivaluedMapImpl<>();
+        formParameters.put("row", rows);
+        
+        assertSame(output, bean.batchLookupPost("shard", formParameters));
+        verify(remoteLookupService);
+    }
+    
+    @Test
+    public void testBatchLookupWithoutRows() throws Exception {
+        replay(remoteLookupService);
+        
+        MultivaluedMap<String,String> formParameters = new MultivaluedMapImpl<>();
+        formParameters.putSingle("columnVisibility", "PUBLIC");
+        
+        try {
+            bean.batchLookupPost("shard", formParameters);
+            fail("Expected the batch to be rejected");
+        } catch (BadRequestQueryException e) {
+            assertEquals(DatawaveErrorCode.MISSING_REQUIRED_PARAMETER.getErrorCode(), e.getErrorCode());
+        }
+        verify(remoteLookupService);
+    }
+}
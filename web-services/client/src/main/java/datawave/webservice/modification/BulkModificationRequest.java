@@ -0,0 +1,59 @@
+package datawave.webservice.modification;
+
+import java.io.Serializable;
+import java.util.List;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.xml.bind.annotation.XmlAccessOrder;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorOrder;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
+
+/**
+ * Object used as the input to the BulkMutableMetadataHandler service deployed as part of the Modification Service. This object contains a list of
+ * modifications, each of which is a {@link DefaultModificationRequest} with its own mode, field and events. The mode of this request is not used.
+ */
+@XmlRootElement(name = "BulkModificationRequest")
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlAccessorOrder(XmlAccessOrder.ALPHABETICAL)
+public class BulkModificationRequest extends ModificationRequestBase implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    @XmlElementWrapper(name = "Modifications", required = true)
+    @XmlElement(name = "Modification", required = true)
+    private List<DefaultModificationRequest> modifications = null;
+    
+    public List<DefaultModificationRequest> getModifications() {
+        return modifications;
+    }
+    
+    public void setModifications(List<DefaultModificationRequest> modifications) {
+        this.modifications = modifications;
+    }
+    
+    @Override
+    public String toString() {
+        ToStringBuilder tsb = new ToStringBuilder(this);
+        tsb.append("Modifications", modifications);
+        return tsb.toString();
+    }
+    
+    @Override
+    public MultivaluedMap<String,String> toMap() {
+        MultivaluedMap<String,String> p = new MultivaluedMapImpl<String,String>();
+        p.putAll(super.toMap());
+        if (this.modifications != null) {
+            for (DefaultModificationRequest m : modifications) {
+                p.add("Modifications", m.toString());
+            }
+        }
+        return p;
+    }
+}
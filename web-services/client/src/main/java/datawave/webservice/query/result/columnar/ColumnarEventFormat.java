@@ -0,0 +1,162 @@
+package datawave.webservice.query.result.columnar;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Constants and primitive encodings of the columnar event stream written by {@link ColumnarEventWriter} and read by {@link ColumnarEventReader}.
+ * <p>
+ * A stream starts with a header of the {@link #MAGIC} bytes, the format {@link #VERSION} and a flags byte, and is followed by any number of batches and an end
+ * marker. Each batch is framed by a marker byte, its encoded length and its stored (possibly compressed) length. Within a batch:
+ * <ul>
+ * <li>the strings added to the dictionary by this batch. The dictionary is shared by every batch of the stream, and holds the field names, column
+ * visibilities, markings, data types and tables.</li>
+ * <li>the metadata and markings of each event</li>
+ * <li>one column per field name, holding the number of values of the field in each event, followed by the visibility, markings, timestamp and value of each
+ * value</li>
+ * </ul>
+ * Counts and dictionary ids are unsigned variable length integers, timestamps are delta encoded within a column, and strings are length prefixed UTF-8.
+ * Dictionary id 0, a string length of 0 and a timestamp of 0 encode null.
+ */
+public final class ColumnarEventFormat {
+    
+    public static final String MEDIA_TYPE = "application/x-datawave-columnar";
+    
+    /**
+     * Media type parameter used to request compressed batches, e.g. <code>application/x-datawave-columnar;compression=deflate</code>
+     */
+    public static final String COMPRESSION_PARAMETER = "compression";
+    
+    public static final String DEFLATE = "deflate";
+    
+    static final byte[] MAGIC = {'D', 'W', 'C', 'E'};
+    
+    static final byte VERSION = 1;
+    
+    static final int FLAG_DEFLATE = 0x01;
+    
+    static final byte BATCH = 1;
+    
+    static final byte END = 0;
+    
+    /**
+     * Largest batch that will be read, to guard against reading a corrupt stream
+     */
+    static final int MAX_BATCH_LENGTH = Integer.MAX_VALUE - 8;
+    
+    private static final char MARKINGS_SEPARATOR = '\u0000';
+    
+    private ColumnarEventFormat() {}
+    
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+    
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+    
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+    
+    static int readVarInt(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Integer out of range: " + value);
+        }
+        return (int) value;
+    }
+    
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (null == value) {
+            writeVarInt(out, 0);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length + 1);
+            out.write(bytes);
+        }
+    }
+    
+    static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Write a nullable timestamp as the zig-zag encoded difference from the previous timestamp of its column, offset by one so that 0 encodes null
+     */
+    static void writeTimestamp(DataOutput out, Long timestamp, long previous) throws IOException {
+        if (null == timestamp) {
+            writeVarLong(out, 0);
+        } else {
+            long delta = timestamp - previous;
+            writeVarLong(out, ((delta << 1) ^ (delta >> 63)) + 1);
+        }
+    }
+    
+    static Long readTimestamp(DataInput in, long previous) throws IOException {
+        long encoded = readVarLong(in);
+        if (encoded == 0) {
+            return null;
+        }
+        long zigzag = encoded - 1;
+        return previous + ((zigzag >>> 1) ^ -(zigzag & 1));
+    }
+    
+    /**
+     * @return the markings as a single string with sorted entries, so that equal markings share a dictionary entry
+     */
+    static String encodeMarkings(Map<String,String> markings) {
+        if (null == markings) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String,String> entry : new TreeMap<>(markings).entrySet()) {
+            if (builder.length() > 0) {
+                builder.append(MARKINGS_SEPARATOR);
+            }
+            builder.append(entry.getKey()).append(MARKINGS_SEPARATOR).append(null == entry.getValue() ? "" : entry.getValue());
+        }
+        return builder.toString();
+    }
+    
+    static Map<String,String> decodeMarkings(String markings) throws IOException {
+        if (null == markings) {
+            return null;
+        }
+        Map<String,String> decoded = new TreeMap<>();
+        if (markings.isEmpty()) {
+            return decoded;
+        }
+        String[] parts = markings.split(String.valueOf(MARKINGS_SEPARATOR), -1);
+        if (parts.length % 2 != 0) {
+            throw new IOException("Malformed markings");
+        }
+        for (int i = 0; i < parts.length; i += 2) {
+            decoded.put(parts[i], parts[i + 1]);
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,178 @@
+package datawave.webservice.query.result.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import datawave.webservice.query.result.event.DefaultEvent;
+import datawave.webservice.query.result.event.DefaultField;
+import datawave.webservice.query.result.event.Metadata;
+
+/**
+ * Reads a stream written by {@link ColumnarEventWriter} back into events, one batch at a time. The values of the fields are read as strings.
+ * <p>
+ * This class is not thread safe. The underlying stream is not closed by this reader.
+ */
+public class ColumnarEventReader {
+    
+    private final DataInputStream in;
+    private final Inflater inflater;
+    
+    /**
+     * The strings of the dictionary, by id. Id 0 is null.
+     */
+    private final List<String> dictionary = new ArrayList<>();
+    
+    private boolean finished = false;
+    
+    /**
+     * @param in
+     *            the stream to read from
+     * @throws IOException
+     *             if the header of the stream could not be read, or is not a supported columnar stream
+     */
+    public ColumnarEventReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        byte[] magic = new byte[ColumnarEventFormat.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarEventFormat.MAGIC)) {
+            throw new IOException("Not a columnar event stream");
+        }
+        byte version = this.in.readByte();
+        if (version != ColumnarEventFormat.VERSION) {
+            throw new IOException("Unsupported columnar event stream version " + version);
+        }
+        int flags = this.in.readByte();
+        this.inflater = (flags & ColumnarEventFormat.FLAG_DEFLATE) != 0 ? new Inflater() : null;
+        this.dictionary.add(null);
+    }
+    
+    public boolean isCompressed() {
+        return null != inflater;
+    }
+    
+    /**
+     * Read the next batch of events
+     * 
+     * @return the events of the batch, or null at the end of the stream
+     * @throws IOException
+     *             if the batch could not be read
+     */
+    public List<DefaultEvent> readBatch() throws IOException {
+        if (finished) {
+            return null;
+        }
+        byte marker = in.readByte();
+        if (marker == ColumnarEventFormat.END) {
+            finished = true;
+            if (null != inflater) {
+                inflater.end();
+            }
+            return null;
+        } else if (marker != ColumnarEventFormat.BATCH) {
+            throw new IOException("Unexpected batch marker " + marker);
+        }
+        
+        int length = ColumnarEventFormat.readVarInt(in);
+        int storedLength = ColumnarEventFormat.readVarInt(in);
+        if (length > ColumnarEventFormat.MAX_BATCH_LENGTH || storedLength > ColumnarEventFormat.MAX_BATCH_LENGTH) {
+            throw new IOException("Batch too large: " + length);
+        }
+        byte[] stored = new byte[storedLength];
+        in.readFully(stored);
+        byte[] bytes = (null == inflater) ? stored : inflate(stored, length);
+        
+        DataInputStream batch = new DataInputStream(new ByteArrayInputStream(bytes));
+        int added = ColumnarEventFormat.readVarInt(batch);
+        for (int i = 0; i < added; i++) {
+            dictionary.add(ColumnarEventFormat.readString(batch));
+        }
+        return decodeEvents(batch);
+    }
+    
+    private List<DefaultEvent> decodeEvents(DataInputStream batch) throws IOException {
+        int eventCount = ColumnarEventFormat.readVarInt(batch);
+        List<DefaultEvent> events = new ArrayList<>(eventCount);
+        List<List<DefaultField>> fields = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            Metadata metadata = new Metadata();
+            metadata.setDataType(readId(batch));
+            metadata.setTable(readId(batch));
+            metadata.setRow(ColumnarEventFormat.readString(batch));
+            metadata.setInternalId(ColumnarEventFormat.readString(batch));
+            
+            DefaultEvent event = new DefaultEvent();
+            event.setMetadata(metadata);
+            event.setMarkings(ColumnarEventFormat.decodeMarkings(readId(batch)));
+            List<DefaultField> eventFields = new ArrayList<>();
+            event.setFields(eventFields);
+            events.add(event);
+            fields.add(eventFields);
+        }
+        
+        int columnCount = ColumnarEventFormat.readVarInt(batch);
+        for (int c = 0; c < columnCount; c++) {
+            String name = readId(batch);
+            long previousTimestamp = 0;
+            for (int i = 0; i < eventCount; i++) {
+                int valueCount = ColumnarEventFormat.readVarInt(batch);
+                for (int v = 0; v < valueCount; v++) {
+                    DefaultField field = new DefaultField();
+                    field.setName(name);
+                    field.setColumnVisibility(readId(batch));
+                    String markings = readId(batch);
+                    if (null != markings) {
+                        field.setMarkings(ColumnarEventFormat.decodeMarkings(markings));
+                    }
+                    Long timestamp = ColumnarEventFormat.readTimestamp(batch, previousTimestamp);
+                    if (null != timestamp) {
+                        field.setTimestamp(timestamp);
+                        previousTimestamp = timestamp;
+                    }
+                    String value = ColumnarEventFormat.readString(batch);
+                    if (null != value) {
+                        field.setValue(value);
+                    }
+                    fields.get(i).add(field);
+                }
+            }
+        }
+        return events;
+    }
+    
+    private String readId(DataInputStream batch) throws IOException {
+        int id = ColumnarEventFormat.readVarInt(batch);
+        if (id >= dictionary.size()) {
+            throw new IOException("Unknown dictionary id " + id);
+        }
+        return dictionary.get(id);
+    }
+    
+    private byte[] inflate(byte[] stored, int length) throws IOException {
+        inflater.reset();
+        inflater.setInput(stored);
+        byte[] bytes = new byte[length];
+        try {
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int read = inflater.inflate(bytes, offset, length - offset);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += read;
+            }
+            if (offset != length) {
+                throw new IOException("Truncated batch, expected " + length + " bytes but read " + offset);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Could not inflate batch", e);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,211 @@
+package datawave.webservice.query.result.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import datawave.webservice.query.result.event.EventBase;
+import datawave.webservice.query.result.event.FieldBase;
+import datawave.webservice.query.result.event.Metadata;
+
+/**
+ * Writes events as a stream of columnar batches, as described by {@link ColumnarEventFormat}. Each call to {@link #writeBatch(List)} writes one batch, so a
+ * page of results can be written as soon as it is available. Values are written as their string form.
+ * <p>
+ * This class is not thread safe. The underlying stream is not closed by {@link #finish()}.
+ */
+public class ColumnarEventWriter {
+    
+    private final DataOutputStream out;
+    private final Deflater deflater;
+    
+    /**
+     * The id of each string written to the stream so far
+     */
+    private final Map<String,Integer> dictionary = new HashMap<>();
+    
+    /**
+     * The strings added to the dictionary by the batch being written
+     */
+    private final List<String> added = new ArrayList<>();
+    
+    private final ByteArrayOutputStream columnBuffer = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream batchBuffer = new ByteArrayOutputStream();
+    private final byte[] deflateBuffer = new byte[8192];
+    
+    private boolean started = false;
+    private boolean finished = false;
+    
+    /**
+     * @param out
+     *            the stream to write to
+     * @param compress
+     *            whether to deflate each batch
+     */
+    public ColumnarEventWriter(OutputStream out, boolean compress) {
+        this.out = new DataOutputStream(out);
+        this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+    }
+    
+    /**
+     * Write a batch of events. An empty batch is not written.
+     * 
+     * @param events
+     *            the events
+     * @throws IOException
+     *             if the batch could not be written
+     */
+    public void writeBatch(List<? extends EventBase> events) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("The stream has already been finished");
+        }
+        writeHeader();
+        if (events.isEmpty()) {
+            return;
+        }
+        
+        columnBuffer.reset();
+        DataOutputStream columns = new DataOutputStream(columnBuffer);
+        encodeEvents(columns, events);
+        columns.flush();
+        
+        batchBuffer.reset();
+        DataOutputStream batch = new DataOutputStream(batchBuffer);
+        ColumnarEventFormat.writeVarInt(batch, added.size());
+        for (String entry : added) {
+            ColumnarEventFormat.writeString(batch, entry);
+        }
+        added.clear();
+        columnBuffer.writeTo(batch);
+        batch.flush();
+        
+        out.writeByte(ColumnarEventFormat.BATCH);
+        ColumnarEventFormat.writeVarInt(out, batchBuffer.size());
+        if (null == deflater) {
+            ColumnarEventFormat.writeVarInt(out, batchBuffer.size());
+            batchBuffer.writeTo(out);
+        } else {
+            byte[] compressed = deflate(batchBuffer.toByteArray());
+            ColumnarEventFormat.writeVarInt(out, compressed.length);
+            out.write(compressed);
+        }
+        out.flush();
+    }
+    
+    /**
+     * Write the end of the stream, and release the compressor. Further batches may not be written.
+     * 
+     * @throws IOException
+     *             if the end of the stream could not be written
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        writeHeader();
+        finished = true;
+        out.writeByte(ColumnarEventFormat.END);
+        out.flush();
+        if (null != deflater) {
+            deflater.end();
+        }
+    }
+    
+    private void writeHeader() throws IOException {
+        if (!started) {
+            started = true;
+            out.write(ColumnarEventFormat.MAGIC);
+            out.writeByte(ColumnarEventFormat.VERSION);
+            out.writeByte(null == deflater ? 0 : ColumnarEventFormat.FLAG_DEFLATE);
+        }
+    }
+    
+    private void encodeEvents(DataOutputStream columns, List<? extends EventBase> events) throws IOException {
+        ColumnarEventFormat.writeVarInt(columns, events.size());
+        
+        // the fields of each event grouped by name, in the order the names were first seen
+        Map<String,List<List<FieldBase<?>>>> fieldsByName = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            EventBase<?,?> event = events.get(i);
+            Metadata metadata = event.getMetadata();
+            writeId(columns, null == metadata ? null : metadata.getDataType());
+            writeId(columns, null == metadata ? null : metadata.getTable());
+            ColumnarEventFormat.writeString(columns, null == metadata ? null : metadata.getRow());
+            ColumnarEventFormat.writeString(columns, null == metadata ? null : metadata.getInternalId());
+            writeId(columns, ColumnarEventFormat.encodeMarkings(event.getMarkings()));
+            
+            if (null != event.getFields()) {
+                for (FieldBase<?> field : event.getFields()) {
+                    List<List<FieldBase<?>>> column = fieldsByName.get(field.getName());
+                    if (null == column) {
+                        column = new ArrayList<>(events.size());
+                        fieldsByName.put(field.getName(), column);
+                    }
+                    while (column.size() <= i) {
+                        column.add(new ArrayList<>(1));
+                    }
+                    column.get(i).add(field);
+                }
+            }
+        }
+        
+        ColumnarEventFormat.writeVarInt(columns, fieldsByName.size());
+        for (Map.Entry<String,List<List<FieldBase<?>>>> column : fieldsByName.entrySet()) {
+            writeId(columns, column.getKey());
+            long previousTimestamp = 0;
+            for (int i = 0; i < events.size(); i++) {
+                List<FieldBase<?>> values = i < column.getValue().size() ? column.getValue().get(i) : null;
+                if (null == values) {
+                    ColumnarEventFormat.writeVarInt(columns, 0);
+                    continue;
+                }
+                ColumnarEventFormat.writeVarInt(columns, values.size());
+                for (FieldBase<?> field : values) {
+                    writeId(columns, field.getColumnVisibility());
+                    writeId(columns, ColumnarEventFormat.encodeMarkings(field.getMarkings()));
+                    ColumnarEventFormat.writeTimestamp(columns, field.getTimestamp(), previousTimestamp);
+                    if (null != field.getTimestamp()) {
+                        previousTimestamp = field.getTimestamp();
+                    }
+                    ColumnarEventFormat.writeString(columns, null == field.getValueOfTypedValue() ? null : field.getValueString());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Write the dictionary id of a string, adding it to the dictionary if it has not been written before
+     */
+    private void writeId(DataOutputStream columns, String value) throws IOException {
+        if (null == value) {
+            ColumnarEventFormat.writeVarInt(columns, 0);
+            return;
+        }
+        Integer id = dictionary.get(value);
+        if (null == id) {
+            id = dictionary.size() + 1;
+            dictionary.put(value, id);
+            added.add(value);
+        }
+        ColumnarEventFormat.writeVarInt(columns, id);
+    }
+    
+    private byte[] deflate(byte[] bytes) {
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(bytes.length / 2, 64));
+        while (!deflater.finished()) {
+            int length = deflater.deflate(deflateBuffer);
+            compressed.write(deflateBuffer, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+}
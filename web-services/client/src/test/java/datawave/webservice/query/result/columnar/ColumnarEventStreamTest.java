@@ -0,0 +1,134 @@
+package datawave.webservice.query.result.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import datawave.webservice.query.result.event.DefaultEvent;
+import datawave.webservice.query.result.event.DefaultField;
+import datawave.webservice.query.result.event.Metadata;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColumnarEventStreamTest {
+    
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<DefaultEvent> page1 = Arrays.asList(event("row1", "id1", field("NAME", "A&B", 1000L, "alice"), field("AGE", "A", 1000L, "30")),
+                        event("row1", "id2", field("NAME", "A&B", 1005L, "bob"), field("NAME", "A", 999L, "robert")));
+        List<DefaultEvent> page2 = Collections.singletonList(event("row2", "id3", field("COLOR", "B", 2000L, "red"), field("AGE", "A", null, "41")));
+        
+        for (boolean compress : new boolean[] {false, true}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ColumnarEventWriter writer = new ColumnarEventWriter(out, compress);
+            writer.writeBatch(page1);
+            writer.writeBatch(page2);
+            writer.finish();
+            
+            ColumnarEventReader reader = new ColumnarEventReader(new ByteArrayInputStream(out.toByteArray()));
+            Assert.assertEquals(compress, reader.isCompressed());
+            assertEvents(page1, reader.readBatch());
+            assertEvents(page2, reader.readBatch());
+            Assert.assertNull(reader.readBatch());
+            Assert.assertNull(reader.readBatch());
+        }
+    }
+    
+    @Test
+    public void testDictionarySharedAcrossBatches() throws Exception {
+        List<DefaultEvent> page = Collections.singletonList(event("row", "id", field("NAME", "VISIBILITY", 1L, "value")));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarEventWriter writer = new ColumnarEventWriter(out, false);
+        writer.writeBatch(page);
+        int first = out.size();
+        writer.writeBatch(page);
+        int second = out.size() - first;
+        writer.finish();
+        
+        // the second batch only refers to the strings added by the first
+        Assert.assertTrue(second < first - "VISIBILITY".length());
+        
+        ColumnarEventReader reader = new ColumnarEventReader(new ByteArrayInputStream(out.toByteArray()));
+        assertEvents(page, reader.readBatch());
+        assertEvents(page, reader.readBatch());
+        Assert.assertNull(reader.readBatch());
+    }
+    
+    @Test
+    public void testEmptyStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarEventWriter writer = new ColumnarEventWriter(out, true);
+        writer.writeBatch(Collections.<DefaultEvent> emptyList());
+        writer.finish();
+        
+        ColumnarEventReader reader = new ColumnarEventReader(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertNull(reader.readBatch());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testNotColumnar() throws Exception {
+        new ColumnarEventReader(new ByteArrayInputStream("<xml/>".getBytes()));
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testWriteAfterFinish() throws Exception {
+        ColumnarEventWriter writer = new ColumnarEventWriter(new ByteArrayOutputStream(), false);
+        writer.finish();
+        writer.writeBatch(Collections.<DefaultEvent> emptyList());
+    }
+    
+    private static void assertEvents(List<DefaultEvent> expected, List<DefaultEvent> actual) {
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getMetadata(), actual.get(i).getMetadata());
+            Assert.assertEquals(expected.get(i).getMarkings(), actual.get(i).getMarkings());
+            Assert.assertEquals(sorted(expected.get(i).getFields()), sorted(actual.get(i).getFields()));
+        }
+    }
+    
+    /**
+     * The fields of an event are read back grouped by name, so compare their string forms in sorted order
+     */
+    private static List<String> sorted(List<DefaultField> fields) {
+        List<String> strings = new ArrayList<>();
+        for (DefaultField field : fields) {
+            strings.add(field.getName() + ':' + field.getColumnVisibility() + ':' + field.getMarkings() + ':' + field.getTimestamp() + ':'
+                            + field.getValueString());
+        }
+        Collections.sort(strings);
+        return strings;
+    }
+    
+    private static DefaultEvent event(String row, String internalId, DefaultField... fields) {
+        Metadata metadata = new Metadata();
+        metadata.setDataType("test");
+        metadata.setTable("shard");
+        metadata.setRow(row);
+        metadata.setInternalId(internalId);
+        
+        DefaultEvent event = new DefaultEvent();
+        event.setMetadata(metadata);
+        event.setMarkings(markings("A&B"));
+        event.setFields(Arrays.asList(fields));
+        return event;
+    }
+    
+    private static DefaultField field(String name, String visibility, Long timestamp, String value) {
+        return new DefaultField(name, visibility, markings(visibility), timestamp, value);
+    }
+    
+    private static Map<String,String> markings(String visibility) {
+        Map<String,String> markings = new HashMap<>();
+        markings.put("columnVisibility", visibility);
+        return markings;
+    }
+}
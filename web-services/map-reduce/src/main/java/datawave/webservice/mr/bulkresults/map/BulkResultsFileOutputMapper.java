@@ -21,7 +21,9 @@ import datawave.webservice.query.cache.ResultsPage;
 import datawave.webservice.query.exception.EmptyObjectException;
 import datawave.webservice.query.logic.QueryLogic;
 import datawave.webservice.query.logic.QueryLogicTransformer;
+import datawave.webservice.query.result.columnar.ColumnarEventWriter;
 import datawave.webservice.result.BaseQueryResponse;
+import datawave.webservice.result.EventQueryResponseBase;
 import datawave.webservice.util.ProtostuffMessageBodyWriter;
 
 import org.apache.accumulo.core.data.Key;
@@ -152,6 +154,9 @@ public class BulkResultsFileOutputMapper extends ApplicationContextAwareMapper<K
     
     public static Value serializeResponse(Class<? extends BaseQueryResponse> responseClass, BaseQueryResponse response, SerializationFormat format)
                     throws Exception {
+        if (format == SerializationFormat.COLUMNAR) {
+            return serializeColumnar(responseClass, response);
+        }
         Value val;
         MediaType media;
         switch (format) {
@@ -177,6 +182,20 @@ public class BulkResultsFileOutputMapper extends ApplicationContextAwareMapper<K
         return val;
     }
     
+    /**
+     * Serialize the events of a response as a complete columnar stream holding a single batch
+     */
+    private static Value serializeColumnar(Class<? extends BaseQueryResponse> responseClass, BaseQueryResponse response) throws IOException {
+        if (!(response instanceof EventQueryResponseBase)) {
+            throw new IllegalArgumentException("Columnar serialization requires an event query response, not " + responseClass.getName());
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        ColumnarEventWriter writer = new ColumnarEventWriter(baos, false);
+        writer.writeBatch(((EventQueryResponseBase) response).getEvents());
+        writer.finish();
+        return new Value(baos.toByteArray());
+    }
+    
     public static String serializeQuery(Query q) throws JAXBException {
         StringWriter writer = new StringWriter();
         JAXBContext ctx = JAXBContext.newInstance(q.getClass());
@@ -1,5 +1,5 @@
 package datawave.webservice.mr.bulkresults.map;
 
 public enum SerializationFormat {
-    JSON, PROTOBUF, XML, YAML
+    JSON, PROTOBUF, XML, YAML, COLUMNAR
 }
@@ -10,9 +10,11 @@ import datawave.webservice.result.VoidResponse;
 import datawave.webservice.results.modification.MutableFieldListResponse;
 import org.apache.accumulo.core.client.AccumuloClient;
 import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
 import org.apache.deltaspike.core.api.jmx.JmxManaged;
 import org.apache.deltaspike.core.api.jmx.MBean;
 import org.apache.hadoop.io.Text;
@@ -63,7 +65,15 @@ public class ModificationCacheBean {
     
     private Logger log = Logger.getLogger(this.getClass());
     
-    private Map<String,Set<String>> cache = new HashMap<>();
+    /**
+     * An immutable snapshot of the mutable fields by datatype, which is replaced as a whole on each refresh so that readers never see a partial update
+     */
+    private volatile Map<String,Set<String>> cache = Collections.emptyMap();
+    
+    // guards the refresh state below, so that only one refresh runs at a time
+    private final Object refreshLock = new Object();
+    private long lastModified = -1;
+    private int refreshesSinceFullReload = 0;
     
     @Inject
     private AccumuloConnectionFactory connectionFactory;
@@ -100,9 +110,89 @@ public class ModificationCacheBean {
     @GZIP
     @JmxManaged
     public VoidResponse reloadMutableFieldCache() {
-        this.clearCache();
-        log.trace("cleared cache");
         final VoidResponse resp = new VoidResponse();
+        synchronized (refreshLock) {
+            Map<String,Set<String>> fields = new HashMap<>();
+            try {
+                lastModified = scanMutableFields(null, fields);
+            } catch (Exception e) {
+                log.error("Error during initialization of ModificationCacheBean", e);
+                throw new EJBException("Error during initialization of ModificationCacheBean", e);
+            }
+            refreshesSinceFullReload = 0;
+            
+            Map<String,Set<String>> snapshot = new HashMap<>();
+            for (Entry<String,Set<String>> e : fields.entrySet()) {
+                snapshot.put(e.getKey(), Collections.unmodifiableSet(e.getValue()));
+            }
+            publish(snapshot);
+        }
+        return resp;
+    }
+    
+    /**
+     * Refresh the cache with only the mutable fields added since the last refresh, found by their timestamp. The scan starts
+     * {@link ModificationConfiguration#getCacheRefreshSkewWindow()} milliseconds before the latest timestamp seen, as entries may be written with an earlier
+     * timestamp than one already seen (e.g. by a server whose clock is behind). Readers keep using the current snapshot of the cache until the refreshed one
+     * replaces it. Fields that are no longer mutable are only removed by a full reload, which is done instead of an incremental refresh every
+     * {@link ModificationConfiguration#getCacheFullReloadInterval()} refreshes.
+     *
+     * @return datawave.webservice.result.VoidResponse
+     */
+    @JmxManaged
+    public VoidResponse refreshMutableFieldCache() {
+        synchronized (refreshLock) {
+            int fullReloadInterval = modificationConfiguration.getCacheFullReloadInterval();
+            if (lastModified < 0 || fullReloadInterval <= 0 || refreshesSinceFullReload >= fullReloadInterval) {
+                return reloadMutableFieldCache();
+            }
+            
+            Map<String,Set<String>> fields = new HashMap<>();
+            try {
+                // Entries written since the last refresh may have a timestamp at or before the latest one seen, so scan back over the skew window.
+                long since = Math.max(0L, lastModified - Math.max(0L, modificationConfiguration.getCacheRefreshSkewWindow()));
+                lastModified = Math.max(lastModified, scanMutableFields(since, fields));
+            } catch (Exception e) {
+                log.error("Error refreshing ModificationCacheBean", e);
+                throw new EJBException("Error refreshing ModificationCacheBean", e);
+            }
+            refreshesSinceFullReload++;
+            
+            // Copy on write, only replacing the field sets of the datatypes that changed
+            Map<String,Set<String>> current = cache;
+            Map<String,Set<String>> snapshot = null;
+            for (Entry<String,Set<String>> e : fields.entrySet()) {
+                Set<String> existing = current.get(e.getKey());
+                if (existing != null && existing.containsAll(e.getValue())) {
+                    continue;
+                }
+                if (snapshot == null) {
+                    snapshot = new HashMap<>(current);
+                }
+                Set<String> fieldNames = (existing == null) ? new HashSet<>() : new HashSet<>(existing);
+                fieldNames.addAll(e.getValue());
+                snapshot.put(e.getKey(), Collections.unmodifiableSet(fieldNames));
+            }
+            if (snapshot != null) {
+                publish(snapshot);
+            } else {
+                log.trace("no changes to the cache");
+            }
+        }
+        return new VoidResponse();
+    }
+    
+    /**
+     * Scan the mutable fields from the modification table
+     *
+     * @param since
+     *            if not null, only return the entries with a timestamp of at least this
+     * @param fields
+     *            the map to add the field names to, by datatype
+     * @return the latest timestamp of the entries scanned, or -1 if there were none
+     */
+    private long scanMutableFields(Long since, Map<String,Set<String>> fields) throws Exception {
+        long latest = -1;
         AccumuloClient client = null;
         BatchScanner s = null;
         try {
@@ -115,23 +205,22 @@ public class ModificationCacheBean {
                             Collections.singleton(client.securityOperations().getUserAuthorizations(client.whoami())), 8);
             s.setRanges(Collections.singleton(new Range()));
             s.fetchColumnFamily(MODIFICATION_COLUMN);
+            if (since != null) {
+                IteratorSetting setting = new IteratorSetting(50, "modificationTimestamp", TimestampFilter.class);
+                TimestampFilter.setStart(setting, since, true);
+                s.addScanIterator(setting);
+            }
             for (Entry<Key,Value> e : s) {
                 // Field name is in the row and datatype is in the colq.
                 String datatype = e.getKey().getColumnQualifier().toString();
                 log.trace("datatype = " + datatype);
                 String fieldName = e.getKey().getRow().toString();
                 log.trace("fieldname = " + fieldName);
-                if (null == cache.get(datatype))
-                    cache.put(datatype, new HashSet<>());
-                cache.get(datatype).add(fieldName);
+                if (null == fields.get(datatype))
+                    fields.put(datatype, new HashSet<>());
+                fields.get(datatype).add(fieldName);
+                latest = Math.max(latest, e.getKey().getTimestamp());
             }
-            log.trace("cache size = " + cache.size());
-            for (Entry<String,Set<String>> e : cache.entrySet()) {
-                log.trace("datatype = " + e.getKey() + ", fieldcount = " + e.getValue().size());
-            }
-        } catch (Exception e) {
-            log.error("Error during initialization of ModificationCacheBean", e);
-            throw new EJBException("Error during initialization of ModificationCacheBean", e);
         } finally {
             if (null != s)
                 s.close();
@@ -141,7 +230,15 @@ public class ModificationCacheBean {
                 log.error("Error returning connection to pool", e);
             }
         }
-        return resp;
+        return latest;
+    }
+    
+    private void publish(Map<String,Set<String>> snapshot) {
+        this.cache = Collections.unmodifiableMap(snapshot);
+        log.trace("cache size = " + snapshot.size());
+        for (Entry<String,Set<String>> e : snapshot.entrySet()) {
+            log.trace("datatype = " + e.getKey() + ", fieldcount = " + e.getValue().size());
+        }
     }
     
     @JmxManaged
@@ -159,7 +256,8 @@ public class ModificationCacheBean {
      */
     public boolean isFieldMutable(String datatype, String field) {
         log.trace("datatype = " + datatype + ", field = " + field);
-        return cache.get(datatype).contains(field);
+        Set<String> fields = cache.get(datatype);
+        return fields != null && fields.contains(field);
     }
     
     @GET
@@ -181,7 +279,7 @@ public class ModificationCacheBean {
     
     public Map<String,Set<String>> getCachedMutableFieldList() {
         log.trace("cache = " + cache);
-        return Collections.unmodifiableMap(cache);
+        return cache;
     }
     
     public ModificationConfiguration getModificationConfiguration() {
@@ -190,7 +288,10 @@ public class ModificationCacheBean {
     
     protected void clearCache() {
         log.trace("cleared the cache");
-        this.cache.clear();
+        synchronized (refreshLock) {
+            this.cache = Collections.emptyMap();
+            this.lastModified = -1;
+        }
     }
     
 }
@@ -55,9 +55,9 @@ public class ModificationCacheMessageBean implements MessageListener {
                     if (log.isTraceEnabled()) {
                         log.info("cache was:" + modificationCacheBean.listMutableFields());
                     }
-                    modificationCacheBean.reloadMutableFieldCache();
+                    modificationCacheBean.refreshMutableFieldCache();
                     if (log.isTraceEnabled()) {
-                        log.info("reloaded ModificationCache for " + tableName + ", after reload, cache is " + modificationCacheBean.listMutableFields());
+                        log.info("refreshed ModificationCache for " + tableName + ", after reload, cache is " + modificationCacheBean.listMutableFields());
                     }
                 }
             }
@@ -0,0 +1,178 @@
+package datawave.webservice.modification.cache;
+
+import datawave.accumulo.inmemory.InMemoryAccumuloClient;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.webservice.common.connection.AccumuloConnectionFactory;
+import datawave.webservice.modification.configuration.ModificationConfiguration;
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ModificationCacheBeanTest {
+    
+    private static final String TABLE_NAME = "datawave.modification";
+    private static final String POOL_NAME = "WAREHOUSE";
+    
+    private AccumuloClient client;
+    private ModificationConfiguration config;
+    private ModificationCacheBean bean;
+    
+    @Before
+    public void setUp() throws Exception {
+        client = new InMemoryAccumuloClient("root", new InMemoryInstance(ModificationCacheBeanTest.class.getName()));
+        if (client.tableOperations().exists(TABLE_NAME)) {
+            client.tableOperations().delete(TABLE_NAME);
+        }
+        client.tableOperations().create(TABLE_NAME);
+        
+        AccumuloConnectionFactory connectionFactory = EasyMock.createMock(AccumuloConnectionFactory.class);
+        Map<String,String> trackingMap = new HashMap<>();
+        EasyMock.expect(connectionFactory.getTrackingMap(EasyMock.anyObject())).andReturn(trackingMap).anyTimes();
+        EasyMock.expect(connectionFactory.getClient(EasyMock.eq(POOL_NAME), EasyMock.eq(AccumuloConnectionFactory.Priority.ADMIN), EasyMock.eq(trackingMap)))
+                        .andReturn(client).anyTimes();
+        connectionFactory.returnClient(client);
+        EasyMock.expectLastCall().anyTimes();
+        EasyMock.replay(connectionFactory);
+        
+        config = new ModificationConfiguration();
+        config.setTableName(TABLE_NAME);
+        config.setPoolName(POOL_NAME);
+        config.setCacheRefreshSkewWindow(1000L);
+        config.setCacheFullReloadInterval(10);
+        
+        bean = new ModificationCacheBean();
+        Whitebox.setInternalState(bean, AccumuloConnectionFactory.class, connectionFactory);
+        Whitebox.setInternalState(bean, ModificationConfiguration.class, config);
+    }
+    
+    @Test
+    public void testRefreshScansSkewWindow() throws Exception {
+        write("FIELD_A", "csv", 10000L);
+        bean.init();
+        assertTrue(bean.isFieldMutable("csv", "FIELD_A"));
+        
+        // written late, with timestamps before the latest one seen: only those within the skew window are found by a refresh
+        write("FIELD_B", "csv", 9000L);
+        write("FIELD_C", "csv", 8999L);
+        bean.refreshMutableFieldCache();
+        
+        assertTrue(bean.isFieldMutable("csv", "FIELD_B"));
+        assertFalse(bean.isFieldMutable("csv", "FIELD_C"));
+        
+        // the window moves with the latest timestamp seen
+        write("FIELD_D", "csv", 20000L);
+        bean.refreshMutableFieldCache();
+        write("FIELD_E", "csv", 19500L);
+        write("FIELD_F", "csv", 10500L);
+        bean.refreshMutableFieldCache();
+        
+        assertTrue(bean.isFieldMutable("csv", "FIELD_D"));
+        assertTrue(bean.isFieldMutable("csv", "FIELD_E"));
+        assertFalse(bean.isFieldMutable("csv", "FIELD_F"));
+        
+        // a full reload finds everything
+        bean.reloadMutableFieldCache();
+        assertTrue(bean.isFieldMutable("csv", "FIELD_C"));
+        assertTrue(bean.isFieldMutable("csv", "FIELD_F"));
+    }
+    
+    @Test
+    public void testRefreshCopiesOnWrite() throws Exception {
+        write("FIELD_A", "csv", 10000L);
+        write("FIELD_B", "wiki", 10000L);
+        bean.init();
+        
+        Map<String,Set<String>> before = bean.getCachedMutableFieldList();
+        
+        // nothing new, so the cache is not replaced
+        bean.refreshMutableFieldCache();
+        assertSame(before, bean.getCachedMutableFieldList());
+        
+        write("FIELD_C", "csv", 10001L);
+        bean.refreshMutableFieldCache();
+        Map<String,Set<String>> after = bean.getCachedMutableFieldList();
+        
+        // readers of the previous snapshot are unaffected, and only the changed datatype is copied
+        assertNotSame(before, after);
+        assertEquals(1, before.get("csv").size());
+        assertEquals(2, after.get("csv").size());
+        assertTrue(after.get("csv").contains("FIELD_C"));
+        assertSame(before.get("wiki"), after.get("wiki"));
+        
+        // a new datatype is added alongside the existing ones
+        write("FIELD_D", "enwiki", 10002L);
+        bean.refreshMutableFieldCache();
+        assertEquals(3, bean.getCachedMutableFieldList().size());
+        assertTrue(bean.isFieldMutable("enwiki", "FIELD_D"));
+        assertTrue(bean.isFieldMutable("csv", "FIELD_A"));
+    }
+    
+    @Test
+    public void testFullReloadInterval() throws Exception {
+        config.setCacheFullReloadInterval(2);
+        write("FIELD_A", "csv", 10000L);
+        write("FIELD_B", "csv", 10000L);
+        bean.init();
+        
+        // a removed field is only dropped by a full reload, which replaces every second incremental refresh
+        delete("FIELD_B", "csv");
+        bean.refreshMutableFieldCache();
+        assertTrue(bean.isFieldMutable("csv", "FIELD_B"));
+        bean.refreshMutableFieldCache();
+        assertTrue(bean.isFieldMutable("csv", "FIELD_B"));
+        bean.refreshMutableFieldCache();
+        assertFalse(bean.isFieldMutable("csv", "FIELD_B"));
+        assertTrue(bean.isFieldMutable("csv", "FIELD_A"));
+        
+        // without an interval every refresh is a full reload
+        config.setCacheFullReloadInterval(0);
+        delete("FIELD_A", "csv");
+        bean.refreshMutableFieldCache();
+        assertFalse(bean.isFieldMutable("csv", "FIELD_A"));
+    }
+    
+    @Test
+    public void testRefreshBeforeLoadIsFullReload() throws Exception {
+        write("FIELD_A", "csv", 10000L);
+        
+        bean.refreshMutableFieldCache();
+        assertTrue(bean.isFieldMutable("csv", "FIELD_A"));
+        
+        bean.clearCache();
+        assertFalse(bean.isFieldMutable("csv", "FIELD_A"));
+        bean.refreshMutableFieldCache();
+        assertTrue(bean.isFieldMutable("csv", "FIELD_A"));
+    }
+    
+    private void write(String field, String datatype, long timestamp) throws Exception {
+        Mutation m = new Mutation(field);
+        m.put("m", datatype, timestamp, new Value(new byte[0]));
+        try (BatchWriter writer = client.createBatchWriter(TABLE_NAME, new BatchWriterConfig())) {
+            writer.addMutation(m);
+        }
+    }
+    
+    private void delete(String field, String datatype) throws Exception {
+        Mutation m = new Mutation(field);
+        m.putDelete("m", datatype);
+        try (BatchWriter writer = client.createBatchWriter(TABLE_NAME, new BatchWriterConfig())) {
+            writer.addMutation(m);
+        }
+    }
+}
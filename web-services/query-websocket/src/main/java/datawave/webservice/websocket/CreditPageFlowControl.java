@@ -0,0 +1,56 @@
+package datawave.webservice.websocket;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Flow control where the client grants credits for the pages it is ready to receive. Each page takes one credit, and the query is paused before requesting
+ * another page once the credits run out, so no pages are held on the server while the client catches up.
+ */
+public class CreditPageFlowControl implements PageFlowControl {
+    
+    private final Semaphore credits;
+    private final long timeoutMillis;
+    private volatile boolean cancelled = false;
+    
+    /**
+     * @param credits
+     *            the initial credits
+     * @param timeoutMillis
+     *            how long to wait for the client to grant a credit
+     */
+    public CreditPageFlowControl(int credits, long timeoutMillis) {
+        this.credits = new Semaphore(Math.max(credits, 0));
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    @Override
+    public boolean awaitCredit() throws InterruptedException, TimeoutException {
+        if (cancelled) {
+            return false;
+        }
+        if (!credits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException("No credits were granted for " + timeoutMillis + " ms");
+        }
+        return !cancelled;
+    }
+    
+    @Override
+    public void grant(int pages) {
+        if (pages > 0) {
+            credits.release(pages);
+        }
+    }
+    
+    @Override
+    public void cancel() {
+        cancelled = true;
+        // wake up the query thread if it is waiting
+        credits.release();
+    }
+    
+    public int getAvailableCredits() {
+        return credits.availablePermits();
+    }
+}
@@ -0,0 +1,50 @@
+package datawave.webservice.websocket;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Controls when a page of results may be sent to a websocket client. The query thread waits on {@link #awaitCredit()} before each page is requested from the
+ * query, outside of the query's active call, so no page is produced until it may be sent.
+ */
+public interface PageFlowControl {
+    
+    /**
+     * Sends every page as soon as it is available
+     */
+    PageFlowControl UNLIMITED = new PageFlowControl() {
+        @Override
+        public boolean awaitCredit() {
+            return true;
+        }
+        
+        @Override
+        public void grant(int pages) {}
+        
+        @Override
+        public void cancel() {}
+    };
+    
+    /**
+     * Wait until a page may be sent, and take the credit for it
+     * 
+     * @return true if the page may be sent, or false if the flow was cancelled
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     * @throws TimeoutException
+     *             if the client did not grant a credit in time
+     */
+    boolean awaitCredit() throws InterruptedException, TimeoutException;
+    
+    /**
+     * Allow more pages to be sent
+     * 
+     * @param pages
+     *            the number of pages
+     */
+    void grant(int pages);
+    
+    /**
+     * Cancel the flow, releasing any wait for a credit
+     */
+    void cancel();
+}
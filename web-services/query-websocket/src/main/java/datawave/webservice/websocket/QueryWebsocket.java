@@ -4,9 +4,12 @@ import static datawave.webservice.metrics.Constants.REQUEST_LOGIN_TIME_HEADER;
 
 import java.io.IOException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.inject.Inject;
 import javax.interceptor.Interceptors;
+import javax.websocket.EncodeException;
 import javax.websocket.OnClose;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
@@ -24,8 +27,10 @@ import datawave.webservice.result.GenericResponse;
 import datawave.webservice.result.VoidResponse;
 import datawave.webservice.websocket.codec.JsonQueryMessageDecoder;
 import datawave.webservice.websocket.codec.QueryResponseMessageJsonEncoder;
+import datawave.webservice.websocket.codec.QueryResponseMessageProtobufEncoder;
 import datawave.webservice.websocket.messages.CancelMessage;
 import datawave.webservice.websocket.messages.CreateQueryMessage;
+import datawave.webservice.websocket.messages.CreditMessage;
 import datawave.webservice.websocket.messages.QueryMessage;
 import datawave.webservice.websocket.messages.QueryResponseMessage;
 import datawave.webservice.websocket.messages.QueryResponseMessage.ResponseType;
@@ -39,6 +44,11 @@ import org.slf4j.LoggerFactory;
  * {@link CancelMessage} while the query is in progress in order to cancel execution of the query. Note that if there is a problem creating the query, a
  * creation failure message is sent and the websocket is closed.
  * <p>
+ * By default each page is sent as soon as it is produced. A client that wants to control the rate of results may ask for an initial number of credits when
+ * creating the query, and then send a {@link CreditMessage} to grant more. Each page sent takes one credit, and the query is paused before fetching the next
+ * page once the credits run out. The client may also ask for pages to be sent as binary messages in the protobuf format (see
+ * {@link QueryResponseMessageProtobufEncoder}) rather than as JSON.
+ * <p>
  * Per the JSR-356 specification (section 2.1.1), since we have not configured the endpoint otherwise, there shall be one instance of this class per endpoint,
  * per peer.
  * <p>
@@ -54,6 +64,10 @@ public class QueryWebsocket {
     private static final String LOGIC_NAME = "logicName";
     private static final String ACTIVE_QUERY_FUTURE = "activeQueryFuture";
     private static final String ACTIVE_QUERY_ID = "activeQueryId";
+    private static final String FLOW_CONTROL = "flowControl";
+    
+    // how long to wait for a client to grant credits before failing the query
+    private static final long CREDIT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
     
     private Logger log = LoggerFactory.getLogger(getClass());
     
@@ -80,7 +94,10 @@ public class QueryWebsocket {
                 } else {
                     CreateQueryMessage cqm = (CreateQueryMessage) message;
                     String logicName = (String) session.getUserProperties().get(LOGIC_NAME);
-                    QueryObserver observer = new QueryObserver(log, session);
+                    PageFlowControl flowControl = (cqm.getCredits() == null) ? PageFlowControl.UNLIMITED : new CreditPageFlowControl(cqm.getCredits(),
+                                    CREDIT_TIMEOUT_MILLIS);
+                    session.getUserProperties().put(FLOW_CONTROL, flowControl);
+                    QueryObserver observer = new QueryObserver(log, session, flowControl, cqm.isProtobufPages());
                     
                     Long startTime = System.nanoTime();
                     Long loginTime = null;
@@ -99,10 +116,22 @@ public class QueryWebsocket {
                 cancelActiveQuery(session);
             }
                 break;
+            case CREDIT: {
+                PageFlowControl flowControl = (PageFlowControl) session.getUserProperties().get(FLOW_CONTROL);
+                if (flowControl != null) {
+                    flowControl.grant(((CreditMessage) message).getCredits());
+                }
+            }
+                break;
         }
     }
     
     protected void cancelActiveQuery(Session session) {
+        // Release the query thread if it is waiting for credits, so that it can see the cancellation.
+        PageFlowControl flowControl = (PageFlowControl) session.getUserProperties().get(FLOW_CONTROL);
+        if (flowControl != null) {
+            flowControl.cancel();
+        }
         Future<?> activeQuery = (Future<?>) session.getUserProperties().get(ACTIVE_QUERY_FUTURE);
         if (activeQuery != null && !activeQuery.isDone()) {
             // Attempt to cancel the async query call. This will cause the async call to return when it is between next calls.
@@ -122,10 +151,14 @@ public class QueryWebsocket {
     private static class QueryObserver implements AsyncQueryStatusObserver {
         private Logger log;
         private Session session;
+        private PageFlowControl flowControl;
+        private QueryResponseMessageProtobufEncoder protobufEncoder;
         
-        public QueryObserver(Logger log, Session session) {
+        public QueryObserver(Logger log, Session session, PageFlowControl flowControl, boolean protobufPages) {
             this.log = log;
             this.session = session;
+            this.flowControl = flowControl;
+            this.protobufEncoder = protobufPages ? new QueryResponseMessageProtobufEncoder() : null;
         }
         
         @Override
@@ -134,9 +167,37 @@ public class QueryWebsocket {
             session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.CREATED, createQueryResponse.getResult()));
         }
         
+        @Override
+        public boolean awaitReadyForResults() throws QueryException {
+            // Wait for the client to grant a credit for the next page before it is requested from the query.
+            try {
+                if (!flowControl.awaitCredit()) {
+                    log.debug("Query was cancelled while waiting for credits.");
+                    return false;
+                }
+                return true;
+            } catch (InterruptedException e) {
+                // the query thread is only interrupted when the query is cancelled
+                Thread.currentThread().interrupt();
+                log.debug("Query was interrupted while waiting for credits.");
+                return false;
+            } catch (TimeoutException e) {
+                throw new QueryException(e);
+            }
+        }
+        
         @Override
         public void queryResultsAvailable(BaseQueryResponse results) {
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.RESULTS, results));
+            QueryResponseMessage message = new QueryResponseMessage(ResponseType.RESULTS, results);
+            if (protobufEncoder != null && QueryResponseMessageProtobufEncoder.canEncode(results)) {
+                try {
+                    session.getAsyncRemote().sendBinary(protobufEncoder.encode(message));
+                } catch (EncodeException e) {
+                    throw new IllegalStateException("Unable to encode page of results", e);
+                }
+            } else {
+                session.getAsyncRemote().sendObject(message);
+            }
         }
         
         @Override
@@ -156,6 +217,7 @@ public class QueryWebsocket {
         public void queryException(QueryException ex) {
             session.getUserProperties().remove(ACTIVE_QUERY_ID);
             session.getUserProperties().remove(ACTIVE_QUERY_FUTURE);
+            session.getUserProperties().remove(FLOW_CONTROL);
             
             VoidResponse response = new VoidResponse();
             response.addException(ex);
@@ -166,6 +228,7 @@ public class QueryWebsocket {
         public void queryFinished(String queryId) {
             session.getUserProperties().remove(ACTIVE_QUERY_ID);
             session.getUserProperties().remove(ACTIVE_QUERY_FUTURE);
+            session.getUserProperties().remove(FLOW_CONTROL);
             
             session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.COMPLETED));
             try {
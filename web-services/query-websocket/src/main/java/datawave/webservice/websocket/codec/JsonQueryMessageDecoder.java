@@ -13,6 +13,7 @@ import javax.ws.rs.core.MultivaluedMap;
 
 import datawave.webservice.websocket.messages.CancelMessage;
 import datawave.webservice.websocket.messages.CreateQueryMessage;
+import datawave.webservice.websocket.messages.CreditMessage;
 import datawave.webservice.websocket.messages.QueryMessage;
 import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
 
@@ -33,8 +34,25 @@ public class JsonQueryMessageDecoder implements Decoder.Text<QueryMessage> {
         }
         if (map.size() == 1 && map.containsKey("cancel"))
             return new CancelMessage();
-        else
+        else if (map.size() == 1 && map.containsKey(CreateQueryMessage.CREDITS))
+            return new CreditMessage(parseCredits(map.getFirst(CreateQueryMessage.CREDITS)));
+        else {
+            if (map.containsKey(CreateQueryMessage.CREDITS))
+                parseCredits(map.getFirst(CreateQueryMessage.CREDITS));
             return new CreateQueryMessage(map);
+        }
+    }
+    
+    private int parseCredits(String credits) throws DecodeException {
+        try {
+            int value = Integer.parseInt(credits);
+            if (value < 0) {
+                throw new DecodeException(credits, "Credits must not be negative");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new DecodeException(credits, "Credits must be a number", e);
+        }
     }
     
     private void addValueToMap(String key, JsonParser parser, MultivaluedMap<String,String> map) {
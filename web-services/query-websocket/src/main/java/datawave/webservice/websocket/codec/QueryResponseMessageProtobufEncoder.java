@@ -0,0 +1,73 @@
+package datawave.webservice.websocket.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.websocket.EncodeException;
+import javax.websocket.Encoder;
+import javax.websocket.EndpointConfig;
+
+import datawave.webservice.result.BaseResponse;
+import datawave.webservice.websocket.messages.QueryResponseMessage;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.Message;
+import io.protostuff.ProtobufIOUtil;
+import io.protostuff.Schema;
+
+/**
+ * Encodes a {@link QueryResponseMessage} into a compact binary message. The message holds the ordinal of the response type as a byte, the message and the class
+ * name of the response as modified UTF-8 strings (see {@link DataOutputStream#writeUTF(String)}), with an empty string when there is none, followed by the
+ * response in the protobuf format.
+ * <p>
+ * Only responses which are protostuff {@link Message}s can be encoded. This encoder is not thread safe.
+ */
+public class QueryResponseMessageProtobufEncoder implements Encoder.Binary<QueryResponseMessage> {
+    private LinkedBuffer buffer;
+    private ByteArrayOutputStream bytes;
+    
+    public static boolean canEncode(BaseResponse response) {
+        return response == null || response instanceof Message;
+    }
+    
+    @Override
+    public ByteBuffer encode(QueryResponseMessage object) throws EncodeException {
+        if (buffer == null) {
+            init(null);
+        }
+        BaseResponse response = object.getBaseResponse();
+        if (!canEncode(response)) {
+            throw new EncodeException(object, "Response " + response.getClass().getName() + " cannot be encoded as protobuf");
+        }
+        
+        bytes.reset();
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(object.getResponseType().ordinal());
+            out.writeUTF(object.getMessage() == null ? "" : object.getMessage());
+            out.writeUTF(response == null ? "" : response.getClass().getName());
+            if (response != null) {
+                @SuppressWarnings("unchecked")
+                Message<Object> message = (Message<Object>) response;
+                Schema<Object> schema = message.cachedSchema();
+                ProtobufIOUtil.writeTo(out, response, schema, buffer);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new EncodeException(object, "Unable to encode response", e);
+        } finally {
+            buffer.clear();
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+    
+    @Override
+    public void init(EndpointConfig config) {
+        buffer = LinkedBuffer.allocate(4096);
+        bytes = new ByteArrayOutputStream(4096);
+    }
+    
+    @Override
+    public void destroy() {}
+}
@@ -23,18 +23,56 @@ import javax.ws.rs.core.MultivaluedMap;
  * }
  * }
  * </pre>
+ * 
+ * Two optional parameters control how pages of results are sent, and are not passed on to the query:
+ * <ul>
+ * <li>{@value #CREDITS} enables flow control, giving the number of pages the server may send before it must wait for the client to grant more with a
+ * {@link CreditMessage}. Without it, every page is sent as soon as it is available.</li>
+ * <li>{@value #PAGE_ENCODING} set to {@value #PROTOBUF_ENCODING} sends pages as binary protobuf messages instead of JSON text.</li>
+ * </ul>
  */
 public class CreateQueryMessage implements QueryMessage {
+    public static final String CREDITS = "credits";
+    public static final String PAGE_ENCODING = "pageEncoding";
+    public static final String PROTOBUF_ENCODING = "protobuf";
+    
     private MultivaluedMap<String,String> parameters;
+    private Integer credits = null;
+    private boolean protobufPages = false;
     
+    /**
+     * @param parameters
+     *            the query parameters, from which the page parameters are removed
+     */
     public CreateQueryMessage(MultivaluedMap parameters) {
         this.parameters = parameters;
+        String credits = this.parameters.getFirst(CREDITS);
+        if (credits != null) {
+            this.credits = Integer.valueOf(credits);
+            this.parameters.remove(CREDITS);
+        }
+        String pageEncoding = this.parameters.getFirst(PAGE_ENCODING);
+        if (pageEncoding != null) {
+            this.protobufPages = PROTOBUF_ENCODING.equalsIgnoreCase(pageEncoding);
+            this.parameters.remove(PAGE_ENCODING);
+        }
     }
     
     public MultivaluedMap<String,String> getParameters() {
         return parameters;
     }
     
+    /**
+     * @return the initial credits of the client, or null if the pages are not flow controlled
+     */
+    public Integer getCredits() {
+        return credits;
+    }
+    
+    public boolean isProtobufPages() {
+        return protobufPages;
+    }
+    
     @Override
     public Type getType() {
         return Type.CREATE;
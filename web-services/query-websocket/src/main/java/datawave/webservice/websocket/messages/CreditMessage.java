@@ -0,0 +1,28 @@
+package datawave.webservice.websocket.messages;
+
+/**
+ * A query message for clients to send to grant the server credits for more pages of results, when the query was created with flow control. The client should
+ * send a JSON message with a single property "credits" set to the number of additional pages it is ready to receive. For example,
+ * 
+ * <pre>
+ * <code>
+ * { "credits": 5 }
+ * </code>
+ * </pre>
+ */
+public class CreditMessage implements QueryMessage {
+    private int credits;
+    
+    public CreditMessage(int credits) {
+        this.credits = credits;
+    }
+    
+    public int getCredits() {
+        return credits;
+    }
+    
+    @Override
+    public Type getType() {
+        return Type.CREDIT;
+    }
+}
@@ -0,0 +1,96 @@
+package datawave.webservice.websocket;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CreditPageFlowControlTest {
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testInitialCredits() throws Exception {
+        CreditPageFlowControl flowControl = new CreditPageFlowControl(2, 50);
+        assertTrue(flowControl.awaitCredit());
+        assertTrue(flowControl.awaitCredit());
+        assertEquals(0, flowControl.getAvailableCredits());
+        
+        try {
+            flowControl.awaitCredit();
+            fail("Expected the wait for a credit to time out");
+        } catch (TimeoutException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testNegativeCreditsIgnored() throws Exception {
+        CreditPageFlowControl flowControl = new CreditPageFlowControl(-1, 50);
+        assertEquals(0, flowControl.getAvailableCredits());
+        
+        flowControl.grant(-5);
+        flowControl.grant(0);
+        assertEquals(0, flowControl.getAvailableCredits());
+        
+        flowControl.grant(3);
+        assertEquals(3, flowControl.getAvailableCredits());
+    }
+    
+    @Test
+    public void testGrantReleasesWait() throws Exception {
+        CreditPageFlowControl flowControl = new CreditPageFlowControl(0, TimeUnit.MINUTES.toMillis(1));
+        Future<Boolean> credit = executor.submit(flowControl::awaitCredit);
+        
+        // give the wait time to start
+        Thread.sleep(100);
+        assertFalse(credit.isDone());
+        
+        flowControl.grant(2);
+        assertTrue(credit.get(10, TimeUnit.SECONDS));
+        assertEquals(1, flowControl.getAvailableCredits());
+    }
+    
+    @Test
+    public void testCancelReleasesWait() throws Exception {
+        CreditPageFlowControl flowControl = new CreditPageFlowControl(0, TimeUnit.MINUTES.toMillis(1));
+        Future<Boolean> credit = executor.submit(flowControl::awaitCredit);
+        
+        Thread.sleep(100);
+        assertFalse(credit.isDone());
+        
+        flowControl.cancel();
+        assertFalse(credit.get(10, TimeUnit.SECONDS));
+        
+        // once cancelled, no more pages may be sent even with credits
+        flowControl.grant(1);
+        assertFalse(flowControl.awaitCredit());
+    }
+    
+    @Test
+    public void testUnlimited() throws Exception {
+        PageFlowControl.UNLIMITED.cancel();
+        assertTrue(PageFlowControl.UNLIMITED.awaitCredit());
+        assertTrue(PageFlowControl.UNLIMITED.awaitCredit());
+    }
+}
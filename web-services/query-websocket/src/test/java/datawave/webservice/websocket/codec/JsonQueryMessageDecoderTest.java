@@ -0,0 +1,79 @@
+package datawave.webservice.websocket.codec;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.websocket.DecodeException;
+
+import datawave.webservice.websocket.messages.CreateQueryMessage;
+import datawave.webservice.websocket.messages.CreditMessage;
+import datawave.webservice.websocket.messages.QueryMessage;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonQueryMessageDecoderTest {
+    
+    private final JsonQueryMessageDecoder decoder = new JsonQueryMessageDecoder();
+    
+    @Test
+    public void testCredits() throws Exception {
+        QueryMessage message = decoder.decode("{\"credits\": 5}");
+        assertEquals(QueryMessage.Type.CREDIT, message.getType());
+        assertEquals(5, ((CreditMessage) message).getCredits());
+        
+        // the credits may also be given as a string
+        assertEquals(3, ((CreditMessage) decoder.decode("{\"credits\": \"3\"}")).getCredits());
+    }
+    
+    @Test
+    public void testCancel() throws Exception {
+        assertEquals(QueryMessage.Type.CANCEL, decoder.decode("{\"cancel\": true}").getType());
+    }
+    
+    @Test
+    public void testCreate() throws Exception {
+        QueryMessage message = decoder.decode("{\"query\": \"FOO == 'bar'\", \"auths\": [\"A\", \"B\"]}");
+        assertEquals(QueryMessage.Type.CREATE, message.getType());
+        
+        CreateQueryMessage create = (CreateQueryMessage) message;
+        assertEquals(Collections.singletonList("FOO == 'bar'"), create.getParameters().get("query"));
+        assertEquals(Arrays.asList("A", "B"), create.getParameters().get("auths"));
+        assertNull(create.getCredits());
+        assertFalse(create.isProtobufPages());
+    }
+    
+    @Test
+    public void testCreateWithPageParameters() throws Exception {
+        QueryMessage message = decoder.decode("{\"query\": \"FOO == 'bar'\", \"credits\": 2, \"pageEncoding\": \"PROTOBUF\"}");
+        assertEquals(QueryMessage.Type.CREATE, message.getType());
+        
+        CreateQueryMessage create = (CreateQueryMessage) message;
+        assertEquals(Integer.valueOf(2), create.getCredits());
+        assertTrue(create.isProtobufPages());
+        // the page parameters are not passed on to the query
+        assertEquals(Collections.singleton("query"), create.getParameters().keySet());
+    }
+    
+    @Test
+    public void testInvalidCredits() throws Exception {
+        for (String json : Arrays.asList("{\"credits\": -1}", "{\"credits\": \"many\"}", "{\"query\": \"FOO == 'bar'\", \"credits\": -1}")) {
+            try {
+                decoder.decode(json);
+                fail("Expected " + json + " to be rejected");
+            } catch (DecodeException e) {
+                // expected
+            }
+        }
+    }
+    
+    @Test
+    public void testWillDecode() {
+        assertTrue(decoder.willDecode("{\"credits\": 1}"));
+        assertFalse(decoder.willDecode("credits=1"));
+    }
+}
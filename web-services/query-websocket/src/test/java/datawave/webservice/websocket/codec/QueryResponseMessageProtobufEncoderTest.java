@@ -0,0 +1,84 @@
+package datawave.webservice.websocket.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import javax.websocket.EncodeException;
+
+import datawave.webservice.result.BaseResponse;
+import datawave.webservice.result.VoidResponse;
+import datawave.webservice.websocket.messages.QueryResponseMessage;
+import datawave.webservice.websocket.messages.QueryResponseMessage.ResponseType;
+import io.protostuff.ProtobufIOUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QueryResponseMessageProtobufEncoderTest {
+    
+    private final QueryResponseMessageProtobufEncoder encoder = new QueryResponseMessageProtobufEncoder();
+    
+    @Test
+    public void testFrameWithResponse() throws Exception {
+        VoidResponse response = new VoidResponse();
+        response.addMessage("page one");
+        assertTrue(QueryResponseMessageProtobufEncoder.canEncode(response));
+        
+        DataInputStream in = frame(encoder.encode(new QueryResponseMessage(ResponseType.RESULTS, "results", response)));
+        
+        // the response type ordinal, the message and the response class name, then the protobuf response
+        assertEquals(ResponseType.RESULTS.ordinal(), in.readByte());
+        assertEquals("results", in.readUTF());
+        assertEquals(VoidResponse.class.getName(), in.readUTF());
+        
+        byte[] protobuf = new byte[in.available()];
+        in.readFully(protobuf);
+        VoidResponse decoded = new VoidResponse();
+        ProtobufIOUtil.mergeFrom(protobuf, decoded, decoded.cachedSchema());
+        assertEquals(Collections.singletonList("page one"), decoded.getMessages());
+    }
+    
+    @Test
+    public void testFrameWithoutResponse() throws Exception {
+        DataInputStream in = frame(encoder.encode(new QueryResponseMessage(ResponseType.COMPLETED)));
+        
+        assertEquals(ResponseType.COMPLETED.ordinal(), in.readByte());
+        assertEquals("", in.readUTF());
+        assertEquals("", in.readUTF());
+        assertEquals(0, in.available());
+    }
+    
+    @Test
+    public void testEncoderReused() throws Exception {
+        encoder.encode(new QueryResponseMessage(ResponseType.CREATED, "a much longer message than the next one"));
+        DataInputStream in = frame(encoder.encode(new QueryResponseMessage(ResponseType.CREATED, "id")));
+        
+        assertEquals(ResponseType.CREATED.ordinal(), in.readByte());
+        assertEquals("id", in.readUTF());
+        assertEquals("", in.readUTF());
+        assertEquals(0, in.available());
+    }
+    
+    @Test
+    public void testResponseNotProtobuf() throws Exception {
+        BaseResponse response = new BaseResponse() {};
+        assertFalse(QueryResponseMessageProtobufEncoder.canEncode(response));
+        try {
+            encoder.encode(new QueryResponseMessage(ResponseType.RESULTS, response));
+            fail("Expected the response to be rejected");
+        } catch (EncodeException e) {
+            // expected
+        }
+    }
+    
+    private static DataInputStream frame(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+}
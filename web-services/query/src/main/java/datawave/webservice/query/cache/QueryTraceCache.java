@@ -6,8 +6,10 @@ import com.google.common.collect.Multimap;
 
 import javax.annotation.PostConstruct;
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.regex.Pattern;
 
 /**
@@ -15,7 +17,8 @@ import java.util.regex.Pattern;
  */
 public class QueryTraceCache {
     private Cache<String,Multimap<String,PatternWrapper>> cache;
-    private final List<CacheListener> listeners = new ArrayList<>();
+    // listeners rarely change, so notifying them takes no lock
+    private final List<CacheListener> listeners = new CopyOnWriteArrayList<>();
     
     @PostConstruct
     private void init() {
@@ -32,10 +35,8 @@ public class QueryTraceCache {
     
     public void put(String id, Multimap<String,PatternWrapper> traceInfo) {
         cache.put(id, traceInfo);
-        synchronized (listeners) {
-            for (CacheListener listener : listeners)
-                listener.cacheEntryModified(id, traceInfo);
-        }
+        for (CacheListener listener : listeners)
+            listener.cacheEntryModified(id, traceInfo);
     }
     
     public Multimap<String,PatternWrapper> putIfAbsent(String id, Multimap<String,PatternWrapper> traceInfo) {
@@ -51,15 +52,11 @@ public class QueryTraceCache {
     }
     
     public void addListener(CacheListener listener) {
-        synchronized (listeners) {
-            listeners.add(listener);
-        }
+        listeners.add(listener);
     }
     
     public void removeListener(CacheListener listener) {
-        synchronized (listeners) {
-            listeners.remove(listener);
-        }
+        listeners.remove(listener);
     }
     
     public interface CacheListener {
@@ -69,33 +66,84 @@ public class QueryTraceCache {
     /**
      * A simple wrapper around the Pattern class that allows it to be used in hash tables with equality checking based on the string version of the pattern. We
      * do this so that we can have the more efficient pre-compiled patterns, but still store them in a hash table.
+     * <p>
+     * A pattern may also be limited to the queries of one query logic, and may trace only a random sample of the queries it matches. A null pattern matches
+     * every query.
      */
     public static class PatternWrapper implements Serializable {
         private static final long serialVersionUID = 1L;
         private final Pattern pattern;
+        private final String logicName;
+        // null when every matching query is traced, which is also what is read from a pattern serialized before sampling was added
+        private final Double sampleRate;
         
         public static PatternWrapper wrap(String regex) {
             return regex == null ? null : new PatternWrapper(regex);
         }
         
+        /**
+         * @param regex
+         *            the query regular expression, or null for all queries
+         * @param logicName
+         *            the query logic name, or null for all query logics
+         * @param sampleRate
+         *            the fraction of matching queries to trace, or null to trace all of them
+         * @return the wrapped pattern, or null if it matches every query of every logic, as with {@link #wrap(String)}
+         */
+        public static PatternWrapper wrap(String regex, String logicName, Double sampleRate) {
+            if (logicName == null && (sampleRate == null || sampleRate >= 1.0d)) {
+                return wrap(regex);
+            }
+            return new PatternWrapper(regex, logicName, sampleRate);
+        }
+        
         public PatternWrapper(String regex) {
-            pattern = Pattern.compile(regex);
+            this(regex, null, null);
+        }
+        
+        public PatternWrapper(String regex, String logicName, Double sampleRate) {
+            this.pattern = regex == null ? null : Pattern.compile(regex);
+            this.logicName = logicName;
+            this.sampleRate = (sampleRate == null || sampleRate >= 1.0d) ? null : sampleRate;
         }
         
         public boolean matches(String text) {
-            return pattern.matcher(text).matches();
+            return pattern == null || pattern.matcher(text).matches();
+        }
+        
+        public boolean appliesTo(String logicName) {
+            return this.logicName == null || this.logicName.equals(logicName);
+        }
+        
+        /**
+         * @return true if a query matching this pattern was picked by the random sample
+         */
+        public boolean isSampled() {
+            return sampleRate == null || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        }
+        
+        public String getLogicName() {
+            return logicName;
+        }
+        
+        public double getSampleRate() {
+            return sampleRate == null ? 1.0d : sampleRate;
         }
         
         @Override
         public String toString() {
-            return "PatternWrapper [pattern=" + pattern + "]";
+            return "PatternWrapper [pattern=" + pattern + ", logicName=" + logicName + ", sampleRate=" + getSampleRate() + "]";
         }
         
+        /**
+         * The sample rate is not part of the identity of a pattern, so that enabling a pattern again replaces its sample rate
+         */
         @Override
         public int hashCode() {
             final int prime = 31;
             int result = 1;
             result = prime * result + ((pattern == null) ? 0 : pattern.pattern().hashCode());
+            result = prime * result + ((logicName == null) ? 0 : logicName.hashCode());
             return result;
         }
         
@@ -111,9 +159,9 @@ public class QueryTraceCache {
             if (pattern == null) {
                 if (other.pattern != null)
                     return false;
-            } else if (!pattern.pattern().equals(other.pattern.pattern()))
+            } else if (other.pattern == null || !pattern.pattern().equals(other.pattern.pattern()))
                 return false;
-            return true;
+            return Objects.equals(logicName, other.logicName);
         }
     }
 }
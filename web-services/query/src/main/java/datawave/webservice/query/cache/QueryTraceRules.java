@@ -0,0 +1,93 @@
+package datawave.webservice.query.cache;
+
+import com.google.common.collect.Multimap;
+import datawave.webservice.query.cache.QueryTraceCache.PatternWrapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * An immutable, compiled view of the trace patterns held in the {@link QueryTraceCache}. The patterns are grouped by user when compiled, so deciding whether
+ * to trace a query takes no locks and only evaluates the patterns for the user of the query and those for all users. The sample and query logic of a pattern
+ * are checked before its regular expression, so a low sample rate skips most of the matching.
+ */
+public class QueryTraceRules {
+    
+    public static final QueryTraceRules NONE = new QueryTraceRules(Collections.emptyMap(), new PatternWrapper[0]);
+    
+    // stands in for the null pattern, which traces every query of a user
+    private static final PatternWrapper ALL_QUERIES = new PatternWrapper(null);
+    
+    private final Map<String,PatternWrapper[]> userPatterns;
+    private final PatternWrapper[] anyUserPatterns;
+    
+    private QueryTraceRules(Map<String,PatternWrapper[]> userPatterns, PatternWrapper[] anyUserPatterns) {
+        this.userPatterns = userPatterns;
+        this.anyUserPatterns = anyUserPatterns;
+    }
+    
+    /**
+     * Compile the trace patterns
+     *
+     * @param traceInfos
+     *            the patterns by user, where a null user means all users
+     * @return the compiled rules
+     */
+    public static QueryTraceRules compile(Multimap<String,PatternWrapper> traceInfos) {
+        if (traceInfos == null) {
+            return NONE;
+        }
+        Map<String,List<PatternWrapper>> byUser = new HashMap<>();
+        List<PatternWrapper> anyUser = new ArrayList<>();
+        for (Entry<String,PatternWrapper> entry : traceInfos.entries()) {
+            PatternWrapper pattern = (entry.getValue() == null) ? ALL_QUERIES : entry.getValue();
+            if (entry.getKey() == null) {
+                anyUser.add(pattern);
+            } else {
+                byUser.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(pattern);
+            }
+        }
+        if (byUser.isEmpty() && anyUser.isEmpty()) {
+            return NONE;
+        }
+        
+        Map<String,PatternWrapper[]> userPatterns = new HashMap<>();
+        for (Entry<String,List<PatternWrapper>> entry : byUser.entrySet()) {
+            userPatterns.put(entry.getKey(), entry.getValue().toArray(new PatternWrapper[0]));
+        }
+        return new QueryTraceRules(userPatterns, anyUser.toArray(new PatternWrapper[0]));
+    }
+    
+    public boolean isEmpty() {
+        return userPatterns.isEmpty() && anyUserPatterns.length == 0;
+    }
+    
+    /**
+     * Decide whether to trace a query
+     *
+     * @param queryString
+     *            the query
+     * @param user
+     *            the user that submitted the query
+     * @param logicName
+     *            the query logic of the query
+     * @return true if a pattern matched the query and picked it in its sample
+     */
+    public boolean shouldTrace(String queryString, String user, String logicName) {
+        PatternWrapper[] patterns = (user == null) ? null : userPatterns.get(user);
+        return (patterns != null && matches(patterns, queryString, logicName)) || matches(anyUserPatterns, queryString, logicName);
+    }
+    
+    private static boolean matches(PatternWrapper[] patterns, String queryString, String logicName) {
+        for (PatternWrapper pattern : patterns) {
+            if (pattern.appliesTo(logicName) && pattern.isSampled() && pattern.matches(queryString)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
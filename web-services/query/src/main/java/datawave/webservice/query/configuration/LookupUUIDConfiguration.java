@@ -19,6 +19,7 @@ public class LookupUUIDConfiguration {
     protected int batchLookupUpperLimit = LookupUUIDConstants.DEFAULT_BATCH_LOOKUP_UPPER_LIMIT;
     protected String beginDate = null;
     protected String columnVisibility;
+    protected boolean indexedContentLookup = false;
     
     /**
      * Returns the maximum number of UUIDs allowed for batch lookup. A zero or negative value is interpreted as unlimited. The default value is 100.
@@ -41,6 +42,16 @@ public class LookupUUIDConfiguration {
         return this.uuidTypes;
     }
     
+    /**
+     * Returns true if content lookups by UUID are resolved by the content query directly from the index, rather than by first running a UUID query for the
+     * matching events. The default value is false.
+     * 
+     * @return true if content lookups by UUID are resolved from the index
+     */
+    public boolean isIndexedContentLookup() {
+        return this.indexedContentLookup;
+    }
+    
     /**
      * Sets the maximum number of UUIDs allowed for batch lookup. A zero or negative value is interpreted as unlimited.
      * 
@@ -63,6 +74,17 @@ public class LookupUUIDConfiguration {
         this.uuidTypes = uuidTypes;
     }
     
+    /**
+     * Sets whether content lookups by UUID are resolved by the content query directly from the index. Only the shard table configured for the content query
+     * is searched, so this should not be enabled if the UUID query logics search other tables as well.
+     * 
+     * @param indexedContentLookup
+     *            true to resolve content lookups by UUID from the index
+     */
+    public void setIndexedContentLookup(boolean indexedContentLookup) {
+        this.indexedContentLookup = indexedContentLookup;
+    }
+    
     public MultivaluedMap<String,String> optionalParamsToMap() {
         MultivaluedMap<String,String> p = new MultivaluedMapImpl<>();
         if (this.columnVisibility != null) {
@@ -10,8 +10,13 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.enterprise.inject.Typed;
 
@@ -30,6 +35,8 @@ import org.apache.commons.collections4.functors.NOPTransformer;
 import org.apache.commons.collections4.iterators.TransformIterator;
 import org.apache.log4j.Logger;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Query Logic implementation that is configured with more than one query logic delegate. The queries are run in parallel and results are retrieved as they come
  * back from the delegates. This class restricts the delegates such that they have to return the same type of response object and two query logics with the same
@@ -50,16 +57,21 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         }
     }
     
-    private class QueryLogicHolder extends Thread {
+    private class QueryLogicHolder implements Runnable {
+        private final int index;
+        private final BaseQueryLogic<?> logic;
         private GenericQueryConfiguration config;
         private TransformIterator transformIterator;
         private Query settings;
-        private boolean started = false;
         private long maxResults;
+        private long resultCount = 0L;
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private volatile boolean finished = false;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
         
-        public QueryLogicHolder(String logicName) {
-            this.setDaemon(true);
-            this.setName(Thread.currentThread().getName() + "-CompositeQueryLogic-" + logicName + "-" + UUID.randomUUID());
+        public QueryLogicHolder(int index, BaseQueryLogic<?> logic) {
+            this.index = index;
+            this.logic = logic;
         }
         
         public GenericQueryConfiguration getConfig() {
@@ -90,55 +102,115 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
             this.settings = settings;
         }
         
-        public void run() {
-            long resultCount = 0L;
-            
-            log.trace("Starting thread: " + this.getName());
-            if (!started) {
-                startLatch.countDown();
-                started = true;
+        /**
+         * Submit this delegate to the executor, unless it is already submitted or finished
+         */
+        public void schedule() {
+            if (!finished && scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
             }
+        }
+        
+        /**
+         * Read results until the queue of this delegate is full or a slice of results has been read, then yield the thread to the other delegates. A full
+         * delegate is scheduled again when a result is taken from its queue.
+         */
+        public synchronized void run() {
+            log.trace("Running query logic " + logic.getClass().getSimpleName() + " " + index);
             try {
-                Object last = new Object();
                 if (this.getMaxResults() < 0)
                     this.setMaxResults(Long.MAX_VALUE);
-                while ((null != last) && !interrupted && transformIterator.hasNext() && (resultCount < this.getMaxResults())) {
-                    try {
-                        last = transformIterator.next();
-                        if (null != last) {
+                int read = 0;
+                while (!finished) {
+                    if (interrupted || resultCount >= this.getMaxResults() || !transformIterator.hasNext()) {
+                        finish();
+                    } else if (results.isFull(index) || read >= resultQueueCapacity) {
+                        break;
+                    } else {
+                        Object last = transformIterator.next();
+                        resultCount++;
+                        if (null == last) {
+                            finish();
+                        } else {
                             log.debug(Thread.currentThread().getName() + ": Added object to results");
-                            results.add(last);
+                            results.offer(index, last);
+                            read++;
                         }
-                    } catch (InterruptedException e) {
-                        log.warn("QueryLogic thread interrupted", e);
                     }
-                    resultCount++;
                 }
-                
-            } finally {
-                completionLatch.countDown();
-                log.trace("Finished thread: " + this.getName());
+            } catch (RuntimeException e) {
+                log.error("Query logic " + logic.getClass().getSimpleName() + " failed", e);
+                finish();
+            }
+            scheduled.set(false);
+            // a result may have been taken after the queue was found to be full, in which case the reader could not reschedule us
+            if (!results.isFull(index)) {
+                schedule();
+            }
+        }
+        
+        private synchronized void finish() {
+            if (!finished) {
+                finished = true;
+                results.finished(index);
+                log.trace("Finished query logic " + logic.getClass().getSimpleName() + " " + index);
+            }
+        }
+        
+        /**
+         * Close the delegate logic, then mark this delegate finished. The logic is closed first, without waiting for a running slice, so that a slice blocked
+         * reading from the logic is released rather than holding up the close. Marking the delegate finished then waits for that slice to exit, and no slice
+         * will run after this returns.
+         */
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
             }
+            logic.close();
+            finish();
         }
         
     }
     
     protected static final Logger log = Logger.getLogger(CompositeQueryLogic.class);
     
+    public static final int DEFAULT_EXECUTOR_THREADS = 16;
+    
     private List<BaseQueryLogic<?>> queryLogics = null;
     private QueryLogicTransformer transformer;
     private Priority p = Priority.NORMAL;
     private volatile boolean interrupted = false;
-    private CountDownLatch startLatch = null;
     private CountDownLatch completionLatch = null;
     private Map<BaseQueryLogic<?>,QueryLogicHolder> logicState = new TreeMap<>(new QueryLogicComparator());
+    private List<QueryLogicHolder> holders = new ArrayList<>();
     private CompositeQueryLogicResults results = null;
+    private int resultQueueCapacity = 0;
+    private final AtomicLong resultsTaken = new AtomicLong(0);
+    
+    /**
+     * Runs the delegates of every composite query. The logic is created per query, so one pool is shared by all instances rather than created by each.
+     */
+    private static final ThreadPoolExecutor executor = createExecutor(DEFAULT_EXECUTOR_THREADS);
+    
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(executor::shutdownNow, "CompositeQueryLogic-shutdown"));
+    }
+    
+    private int executorThreads = DEFAULT_EXECUTOR_THREADS;
     
     public CompositeQueryLogic() {}
     
     public CompositeQueryLogic(CompositeQueryLogic other) {
         super(other);
         this.queryLogics = new ArrayList<>(other.queryLogics);
+        this.executorThreads = other.executorThreads;
+    }
+    
+    private static ThreadPoolExecutor createExecutor(int threads) {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("CompositeQueryLogic-%d").setDaemon(true).build();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
     
     @Override
@@ -176,11 +248,12 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
                 logicQueryStringBuilder.append("(table=" + config.getTableName());
                 logicQueryStringBuilder.append(",query=" + config.getQueryString());
                 logicQueryStringBuilder.append(") ");
-                QueryLogicHolder holder = new QueryLogicHolder(logic.getClass().getSimpleName());
+                QueryLogicHolder holder = new QueryLogicHolder(holders.size(), logic);
                 holder.setConfig(config);
                 holder.setSettings(settings);
                 holder.setMaxResults(logic.getMaxResults());
                 logicState.put(logic, holder);
+                holders.add(holder);
             } catch (Exception e) {
                 log.info(e.getMessage() + " removing query logic " + logic.getClass().getName() + " from CompositeQuery");
                 itr.remove();
@@ -190,9 +263,10 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
                 }
             }
         }
-        startLatch = new CountDownLatch(logicState.values().size());
-        completionLatch = new CountDownLatch(logicState.values().size());
-        this.results = new CompositeQueryLogicResults(Math.min(settings.getPagesize() * 2, 1000), completionLatch);
+        completionLatch = new CountDownLatch(holders.size());
+        resultQueueCapacity = Math.min(settings.getPagesize() * 2, 1000);
+        this.results = new CompositeQueryLogicResults(holders.size(), resultQueueCapacity, completionLatch);
+        this.results.setTakeListener(this::resultTaken);
         if (log.isDebugEnabled()) {
             log.debug("CompositeQuery initialized with the following queryLogics: ");
             for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : this.logicState.entrySet()) {
@@ -231,12 +305,28 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
             TransformIterator transformIterator = entry.getKey().getTransformIterator(entry.getValue().getSettings());
             entry.getValue().setTransformIterator(transformIterator);
         }
-        for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
-            entry.getValue().start();
+        for (QueryLogicHolder holder : holders) {
+            holder.schedule();
+        }
+        log.trace("All query logics have been scheduled.");
+    }
+    
+    /**
+     * Called as each result is taken by the reader. Schedules the delegate again in case it was waiting for room in its queue, and stops the delegates once
+     * the maximum number of results has been read.
+     */
+    private void resultTaken(int delegate) {
+        holders.get(delegate).schedule();
+        if (getMaxResults() > 0 && resultsTaken.incrementAndGet() >= getMaxResults()) {
+            if (!interrupted) {
+                log.debug("Max results of " + getMaxResults() + " reached, closing the query logics");
+                interrupted = true;
+                for (QueryLogicHolder holder : holders) {
+                    holder.close();
+                }
+                results.clear();
+            }
         }
-        // Wait until all threads have started
-        startLatch.await();
-        log.trace("All threads have started.");
     }
     
     @Override
@@ -294,19 +384,11 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     @Override
     public void close() {
         this.interrupted = true;
-        for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
-            entry.getKey().close();
-            entry.getValue().interrupt();
-        }
-        for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
-            try {
-                entry.getValue().join();
-            } catch (InterruptedException e) {
-                log.error("Error joining query logic thread", e);
-                throw new RuntimeException("Error joining query logic thread", e);
-            }
+        for (QueryLogicHolder holder : holders) {
+            holder.close();
         }
         logicState.clear();
+        holders.clear();
         if (null != results)
             results.clear();
     }
@@ -319,6 +401,26 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         this.queryLogics = queryLogics;
     }
     
+    public int getExecutorThreads() {
+        return executorThreads;
+    }
+    
+    /**
+     * Set the number of threads shared by the delegates of every composite query. The pool is shared by all composite query logics, so they should be
+     * configured with the same number of threads.
+     * 
+     * @param executorThreads
+     *            the number of threads
+     */
+    public void setExecutorThreads(int executorThreads) {
+        this.executorThreads = executorThreads;
+        synchronized (executor) {
+            executor.setMaximumPoolSize(Math.max(executorThreads, executor.getCorePoolSize()));
+            executor.setCorePoolSize(executorThreads);
+            executor.setMaximumPoolSize(executorThreads);
+        }
+    }
+    
     @Override
     public boolean canRunQuery(Principal principal) {
         // user can run this composite query if they can run at least one of the configured query logics
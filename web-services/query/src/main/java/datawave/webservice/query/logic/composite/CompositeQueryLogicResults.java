@@ -1,38 +1,138 @@
 package datawave.webservice.query.logic.composite;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntConsumer;
 
+/**
+ * The results of the delegates of a composite query. Each delegate offers its results to its own bounded queue, and the results are merged by taking from the
+ * delegates in turn.
+ */
 public class CompositeQueryLogicResults implements Iterable<Object> {
     
-    private ArrayBlockingQueue<Object> results = null;
-    private CountDownLatch completionLatch = null;
+    private final List<BlockingQueue<Object>> results;
+    private final CountDownLatch completionLatch;
     
-    public CompositeQueryLogicResults(int pagesize, CountDownLatch completionLatch) {
-        this.results = new ArrayBlockingQueue<>(pagesize);
+    /**
+     * One permit for each result offered and each delegate finished, so that a reader can wait on all of the delegates at once
+     */
+    private final Semaphore available = new Semaphore(0);
+    
+    /**
+     * Called with the index of a delegate whenever a result is taken from its queue
+     */
+    private IntConsumer takeListener = null;
+    
+    /**
+     * @param delegates
+     *            the number of delegates
+     * @param pagesize
+     *            the number of results to buffer for each delegate
+     * @param completionLatch
+     *            counted down as each delegate finishes
+     */
+    public CompositeQueryLogicResults(int delegates, int pagesize, CountDownLatch completionLatch) {
+        this.results = new ArrayList<>(delegates);
+        for (int i = 0; i < delegates; i++) {
+            this.results.add(new ArrayBlockingQueue<>(Math.max(pagesize, 1)));
+        }
         this.completionLatch = completionLatch;
     }
     
-    public void add(Object object) throws InterruptedException {
-        this.results.put(object);
+    public void setTakeListener(IntConsumer takeListener) {
+        this.takeListener = takeListener;
+    }
+    
+    /**
+     * Add a result of a delegate without blocking
+     * 
+     * @param delegate
+     *            the index of the delegate
+     * @param object
+     *            the result
+     * @return false if the queue of the delegate is full
+     */
+    public boolean offer(int delegate, Object object) {
+        if (this.results.get(delegate).offer(object)) {
+            available.release();
+            return true;
+        }
+        return false;
+    }
+    
+    public boolean isFull(int delegate) {
+        return this.results.get(delegate).remainingCapacity() == 0;
+    }
+    
+    /**
+     * Mark a delegate as finished, after which it must not add any more results
+     * 
+     * @param delegate
+     *            the index of the delegate
+     */
+    public void finished(int delegate) {
+        completionLatch.countDown();
+        available.release();
     }
     
     public void clear() {
-        this.results.clear();
+        for (BlockingQueue<Object> queue : this.results) {
+            queue.clear();
+        }
     }
     
     public int size() {
-        return results.size();
+        int size = 0;
+        for (BlockingQueue<Object> queue : this.results) {
+            size += queue.size();
+        }
+        return size;
     }
     
     public boolean contains(Object o) {
-        return results.contains(o);
+        for (BlockingQueue<Object> queue : this.results) {
+            if (queue.contains(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    int getDelegateCount() {
+        return results.size();
+    }
+    
+    Semaphore getAvailable() {
+        return available;
+    }
+    
+    CountDownLatch getCompletionLatch() {
+        return completionLatch;
+    }
+    
+    /**
+     * Take a result of a delegate without blocking
+     * 
+     * @param delegate
+     *            the index of the delegate
+     * @return the result, or null if the queue of the delegate is empty
+     */
+    Object poll(int delegate) {
+        Object object = this.results.get(delegate).poll();
+        if (null != object && null != takeListener) {
+            takeListener.accept(delegate);
+        }
+        return object;
     }
     
     @Override
     public Iterator<Object> iterator() {
-        return new CompositeQueryLogicResultsIterator(this.results, this.completionLatch);
+        return new CompositeQueryLogicResultsIterator(this);
     }
     
 }
@@ -1,24 +1,29 @@
 package datawave.webservice.query.logic.composite;
 
 import java.util.Iterator;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 
+/**
+ * Merges the results of the delegates of a composite query, taking from each delegate with a result in turn so that a fast delegate cannot crowd out the
+ * others.
+ */
 public class CompositeQueryLogicResultsIterator implements Iterator<Object> {
     
     protected static final Logger log = Logger.getLogger(CompositeQueryLogicResultsIterator.class);
     
-    private ArrayBlockingQueue<Object> results = null;
+    private CompositeQueryLogicResults results = null;
     private Object nextEntry = null;
     private Object lock = new Object();
-    private CountDownLatch completionLatch = null;
     
-    public CompositeQueryLogicResultsIterator(ArrayBlockingQueue<Object> results, CountDownLatch completionLatch) {
+    /**
+     * The delegate to take from first on the next poll
+     */
+    private int nextDelegate = 0;
+    
+    public CompositeQueryLogicResultsIterator(CompositeQueryLogicResults results) {
         this.results = results;
-        this.completionLatch = completionLatch;
     }
     
     @Override
@@ -27,16 +32,31 @@ public class CompositeQueryLogicResultsIterator implements Iterator<Object> {
             if (nextEntry != null)
                 return true;
             try {
-                while (nextEntry == null && (!results.isEmpty() || completionLatch.getCount() > 0)) {
-                    nextEntry = results.poll(1, TimeUnit.SECONDS);
+                while (nextEntry == null && (results.size() > 0 || results.getCompletionLatch().getCount() > 0)) {
+                    if (results.getAvailable().tryAcquire(1, TimeUnit.SECONDS)) {
+                        nextEntry = pollNextDelegate();
+                    }
                 }
-                return true;
+                return nextEntry != null;
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
         }
     }
     
+    private Object pollNextDelegate() {
+        int delegates = results.getDelegateCount();
+        for (int i = 0; i < delegates; i++) {
+            int delegate = nextDelegate;
+            nextDelegate = (nextDelegate + 1) % delegates;
+            Object object = results.poll(delegate);
+            if (null != object) {
+                return object;
+            }
+        }
+        return null;
+    }
+    
     @Override
     public Object next() {
         Object current = null;
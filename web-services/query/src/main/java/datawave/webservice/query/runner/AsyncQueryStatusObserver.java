@@ -10,6 +10,18 @@ import datawave.webservice.result.GenericResponse;
 public interface AsyncQueryStatusObserver {
     void queryCreated(GenericResponse<String> createQueryResponse);
     
+    /**
+     * Called before each page of results is requested from the query, so that an observer which cannot keep up may hold the query until it is ready for more
+     * results. The query is not in an active call while this waits, and the time spent waiting is not part of the page call time.
+     *
+     * @return true to request the next page, or false to stop the query
+     * @throws Exception
+     *             if the observer will not take more results, which is reported through {@link #queryException(QueryException)}
+     */
+    default boolean awaitReadyForResults() throws Exception {
+        return true;
+    }
+    
     void queryResultsAvailable(BaseQueryResponse results);
     
     void queryCreateException(QueryException ex);
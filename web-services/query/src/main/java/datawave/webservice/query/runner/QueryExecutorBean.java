@@ -45,6 +45,7 @@ import datawave.webservice.query.cache.QueryCache;
 import datawave.webservice.query.cache.QueryExpirationConfiguration;
 import datawave.webservice.query.cache.QueryMetricFactory;
 import datawave.webservice.query.cache.QueryTraceCache;
+import datawave.webservice.query.cache.QueryTraceRules;
 import datawave.webservice.query.cache.ResultsPage;
 import datawave.webservice.query.cache.RunningQueryTimingImpl;
 import datawave.webservice.query.configuration.LookupUUIDConfiguration;
@@ -64,6 +65,8 @@ import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
 import datawave.webservice.query.metric.BaseQueryMetric.Prediction;
 import datawave.webservice.query.metric.QueryMetric;
 import datawave.webservice.query.metric.QueryMetricsBean;
+import datawave.webservice.query.result.columnar.ColumnarEventFormat;
+import datawave.webservice.query.result.columnar.ColumnarEventWriter;
 import datawave.webservice.query.result.event.ResponseObjectFactory;
 import datawave.webservice.query.result.logic.QueryLogicDescription;
 import datawave.webservice.query.util.GetUUIDCriteria;
@@ -75,6 +78,7 @@ import datawave.webservice.query.util.QueryUtil;
 import datawave.webservice.query.util.UIDQueryCriteria;
 import datawave.webservice.result.BaseQueryResponse;
 import datawave.webservice.result.BaseResponse;
+import datawave.webservice.result.EventQueryResponseBase;
 import datawave.webservice.result.GenericResponse;
 import datawave.webservice.result.QueryImplListResponse;
 import datawave.webservice.result.QueryLogicResponse;
@@ -244,6 +248,8 @@ public class QueryExecutorBean implements QueryExecutor {
     private AccumuloConnectionRequestBean accumuloConnectionRequestBean;
     
     private Multimap<String,PatternWrapper> traceInfos;
+    // compiled whenever traceInfos changes, and only read when deciding whether to trace a query
+    private volatile QueryTraceRules traceRules = QueryTraceRules.NONE;
     private CacheListener traceCacheListener;
     
     @Inject
@@ -272,9 +278,11 @@ public class QueryExecutorBean implements QueryExecutor {
         traceInfos = queryTraceCache.putIfAbsent("traceInfos", infos);
         if (traceInfos == null)
             traceInfos = infos;
+        traceRules = QueryTraceRules.compile(traceInfos);
         traceCacheListener = (key, traceInfo) -> {
             if ("traceInfos".equals(key)) {
                 traceInfos = traceInfo;
+                traceRules = QueryTraceRules.compile(traceInfo);
             }
         };
         queryTraceCache.addListener(traceCacheListener);
@@ -566,7 +574,7 @@ public class QueryExecutorBean implements QueryExecutor {
             // If we're supposed to trace this query, then turn tracing on and set information about the query
             // onto the span so that it is saved in the trace table.
             TraceInfo traceInfo = null;
-            boolean shouldTraceQuery = shouldTraceQuery(qp.getQuery(), qd.userid, false);
+            boolean shouldTraceQuery = shouldTraceQuery(qp.getQuery(), qd.userid, queryLogicName, false);
             if (shouldTraceQuery) {
                 TraceScope span = Trace.startSpan("query:" + q.getId());
                 long traceId = (span.getSpan() != null) ? span.getSpan().getTraceId() : -1;
@@ -711,7 +719,7 @@ public class QueryExecutorBean implements QueryExecutor {
             // If we're supposed to trace this query, then turn tracing on and set information about the query
             // onto the span so that it is saved in the trace table.
             TraceInfo traceInfo = null;
-            boolean shouldTraceQuery = shouldTraceQuery(qp.getQuery(), qd.userid, qp.isTrace());
+            boolean shouldTraceQuery = shouldTraceQuery(qp.getQuery(), qd.userid, queryLogicName, qp.isTrace());
             if (shouldTraceQuery) {
                 TraceScope scope = Trace.startSpan("query:" + q.getId());
                 long traceId = (scope.getSpan() != null) ? scope.getSpan().getTraceId() : -1;
@@ -3028,12 +3036,40 @@ public class QueryExecutorBean implements QueryExecutor {
      * @param user
      *            (optional) the user name for which to trace queries
      * @return datawave.webservice.result.VoidResponse
+     *
+     * @HTTP 200 success
+     * @HTTP 400 if neither queryRegex nor user are specified
+     * @HTTP 401 if the user does not have Administrative credentials
+     */
+    @RolesAllowed({"Administrator", "JBossAdministrator"})
+    @Override
+    public VoidResponse enableTracing(String queryRegex, String user) {
+        return enableTracing(queryRegex, user, null, null);
+    }
+    
+    /**
+     * <strong>JBossAdministrator or Administrator credentials required.</strong> Enables tracing for all queries whose query string matches a regular
+     * expression, are submitted by a named user and/or are run by a named query logic. Note that at least one of {@code queryRegex}, {@code user} or
+     * {@code logicName} must be specified. A sample rate below 1 traces only that fraction of the matching queries, picked at random, which allows low-rate
+     * tracing to stay enabled. Enabling the same regex, user and logic again replaces the sample rate.
+     * <p>
+     * All traces are stored under the query UUID.
+     *
+     * @param queryRegex
+     *            (optional) the query regular expression defining queries to trace
+     * @param user
+     *            (optional) the user name for which to trace queries
+     * @param logicName
+     *            (optional) the query logic name for which to trace queries
+     * @param sampleRate
+     *            (optional) the fraction of matching queries to trace, greater than 0 and at most 1, which is the default
+     * @return datawave.webservice.result.VoidResponse
      * @RequestHeader X-ProxiedEntitiesChain use when proxying request for user, by specifying a chain of DNs of the identities to proxy
      * @RequestHeader X-ProxiedIssuersChain required when using X-ProxiedEntitiesChain, specify one issuer DN per subject DN listed in X-ProxiedEntitiesChain
      * @ResponseHeader X-OperationTimeInMS time spent on the server performing the operation, does not account for network or result serialization
      *
      * @HTTP 200 success
-     * @HTTP 400 if neither queryRegex nor user are specified
+     * @HTTP 400 if none of queryRegex, user or logicName are specified, or the sample rate is not valid
      * @HTTP 401 if the user does not have Administrative credentials
      */
     @GET
@@ -3041,17 +3077,27 @@ public class QueryExecutorBean implements QueryExecutor {
     @Produces({"application/xml", "text/xml", "application/json", "text/yaml", "text/x-yaml", "application/x-yaml", "application/x-protobuf",
             "application/x-protostuff"})
     @RolesAllowed({"Administrator", "JBossAdministrator"})
-    @Override
-    public VoidResponse enableTracing(@QueryParam("queryRegex") String queryRegex, @QueryParam("user") String user) {
+    public VoidResponse enableTracing(@QueryParam("queryRegex") String queryRegex, @QueryParam("user") String user, @QueryParam("logicName") String logicName,
+                    @QueryParam("sampleRate") Double sampleRate) {
         VoidResponse response = new VoidResponse();
-        if (queryRegex == null && user == null) {
+        if (queryRegex == null && user == null && logicName == null) {
             BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.QUERY_REGEX_OR_USER_REQUIRED);
             response.addException(qe);
             throw new BadRequestException(qe, response);
+        } else if (sampleRate != null && (sampleRate.isNaN() || sampleRate <= 0.0d || sampleRate > 1.0d)) {
+            BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.INVALID_FORMAT, "sampleRate must be greater than 0 and at most 1");
+            response.addException(qe);
+            throw new BadRequestException(qe, response);
         } else {
-            PatternWrapper p = PatternWrapper.wrap(queryRegex);
-            if (!traceInfos.containsEntry(user, p))
+            PatternWrapper p = PatternWrapper.wrap(queryRegex, logicName, sampleRate);
+            if (!traceInfos.containsEntry(user, p)) {
+                traceInfos.put(user, p);
+            } else if (sampleRate != null) {
+                // replace the sample rate of the existing pattern
+                traceInfos.remove(user, p);
                 traceInfos.put(user, p);
+            }
+            traceRules = QueryTraceRules.compile(traceInfos);
             // Put updated map back in the cache
             queryTraceCache.put("traceInfos", traceInfos);
             return response;
@@ -3072,25 +3118,49 @@ public class QueryExecutorBean implements QueryExecutor {
      * @HTTP 400 if neither queryRegex nor user are specified
      * @HTTP 401 if the user does not have Administrative credentials
      */
+    @RolesAllowed({"Administrator", "JBossAdministrator"})
+    @Override
+    public VoidResponse disableTracing(String queryRegex, String user) {
+        return disableTracing(queryRegex, user, null);
+    }
+    
+    /**
+     * <strong>JBossAdministrator or Administrator credentials required.</strong> Disables tracing that was previously enabled using the
+     * {@link #enableTracing(String, String, String, Double)} method.
+     *
+     * @param queryRegex
+     *            (optional) the query regular expression defining queries to disable tracing
+     * @param user
+     *            (optional) the user name for which to disable query tracing
+     * @param logicName
+     *            (optional) the query logic name for which to disable query tracing
+     * @return datawave.webservice.result.VoidResponse
+     *
+     * @HTTP 200 success
+     * @HTTP 400 if none of queryRegex, user or logicName are specified
+     * @HTTP 401 if the user does not have Administrative credentials
+     */
     @GET
     @Path("/disableTracing")
     @Produces({"application/xml", "text/xml", "application/json", "text/yaml", "text/x-yaml", "application/x-yaml", "application/x-protobuf",
             "application/x-protostuff"})
     @RolesAllowed({"Administrator", "JBossAdministrator"})
-    @Override
-    public VoidResponse disableTracing(@QueryParam("queryRegex") String queryRegex, @QueryParam("user") String user) {
+    public VoidResponse disableTracing(@QueryParam("queryRegex") String queryRegex, @QueryParam("user") String user,
+                    @QueryParam("logicName") String logicName) {
         VoidResponse response = new VoidResponse();
-        if (queryRegex == null && user == null) {
+        if (queryRegex == null && user == null && logicName == null) {
             BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.QUERY_REGEX_OR_USER_REQUIRED);
             response.addException(qe);
             throw new BadRequestException(qe, response);
-        } else if (queryRegex == null) {
+        } else if (queryRegex == null && logicName == null) {
             traceInfos.removeAll(user);
             response.addMessage("All query tracing for " + user + " is disabled.  Per-query tracing is still possible.");
         } else {
-            traceInfos.remove(user, PatternWrapper.wrap(queryRegex));
-            response.addMessage("Queries for user " + user + " matching " + queryRegex + " have been disabled. Per-query tracing is still possible.");
+            traceInfos.remove(user, PatternWrapper.wrap(queryRegex, logicName, null));
+            response.addMessage("Queries for user " + user + (logicName == null ? "" : " of logic " + logicName)
+                            + (queryRegex == null ? "" : " matching " + queryRegex) + " have been disabled. Per-query tracing is still possible.");
         }
+        traceRules = QueryTraceRules.compile(traceInfos);
         
         // Put updated map back in the cache
         queryTraceCache.put("traceInfos", traceInfos);
@@ -3115,33 +3185,19 @@ public class QueryExecutorBean implements QueryExecutor {
     public VoidResponse disableAllTracing() {
         VoidResponse response = new VoidResponse();
         traceInfos.clear();
+        traceRules = QueryTraceRules.NONE;
         // Put updated map back in the cache
         queryTraceCache.put("traceInfos", traceInfos);
         response.addMessage("All user/regex traces cleared. Per-query tracing is still possible.");
         return response;
     }
     
-    private boolean shouldTraceQuery(String queryString, String user, boolean traceRequested) {
-        boolean shouldTrace = traceRequested;
-        if (!shouldTrace) {
-            // Check user-specific regexes (null regex means trace all queries for a user)
-            for (PatternWrapper regex : traceInfos.get(user)) {
-                if (regex == null || regex.matches(queryString)) {
-                    shouldTrace = true;
-                    break;
-                }
-            }
+    private boolean shouldTraceQuery(String queryString, String user, String logicName, boolean traceRequested) {
+        if (traceRequested) {
+            return true;
         }
-        if (!shouldTrace) {
-            // Check user-agnostic regexes (regex can't be null)
-            for (PatternWrapper regex : traceInfos.get(null)) {
-                if (regex.matches(queryString)) {
-                    shouldTrace = true;
-                    break;
-                }
-            }
-        }
-        return shouldTrace;
+        // the rules are compiled when the patterns change, so this only reads them
+        return traceRules.shouldTrace(queryString, user, logicName);
     }
     
     protected QueryMetricsBean getMetrics() {
@@ -3225,7 +3281,7 @@ public class QueryExecutorBean implements QueryExecutor {
         MediaType responseType = null;
         for (MediaType type : httpHeaders.getAcceptableMediaTypes()) {
             if (type.equals(MediaType.APPLICATION_XML_TYPE) || type.equals(MediaType.APPLICATION_JSON_TYPE) || type.equals(PB_MEDIA_TYPE)
-                            || type.equals(YAML_MEDIA_TYPE)) {
+                            || type.equals(YAML_MEDIA_TYPE) || isColumnar(type)) {
                 responseType = type;
                 break;
             }
@@ -3280,6 +3336,14 @@ public class QueryExecutorBean implements QueryExecutor {
                 throw new DatawaveWebApplicationException(qe, response);
             }
             s = SerializationType.YAML;
+        } else if (isColumnar(responseType)) {
+            if (!(EventQueryResponseBase.class.isAssignableFrom(responseClass))) {
+                QueryException qe = new QueryException(DatawaveErrorCode.BAD_RESPONSE_CLASS, MessageFormat.format("Response  class: {0}", responseClass));
+                response.addException(qe);
+                throw new DatawaveWebApplicationException(qe, response);
+            }
+            String compression = responseType.getParameters().get(ColumnarEventFormat.COMPRESSION_PARAMETER);
+            s = ColumnarEventFormat.DEFLATE.equalsIgnoreCase(compression) ? SerializationType.COLUMNAR_DEFLATE : SerializationType.COLUMNAR;
         } else {
             QueryException qe = new QueryException(DatawaveErrorCode.INVALID_FORMAT, MessageFormat.format("format: {0}", responseType.toString()));
             response.addException(qe);
@@ -3374,6 +3438,20 @@ public class QueryExecutorBean implements QueryExecutor {
             // Loop over each page of query results, and notify the observer about each page.
             // If we get any exception, then break out of the loop and notify the observer about the problem.
             do {
+                // Wait for the observer before starting the call, so that the query is not held in an active call and the wait is not counted in the
+                // page call time.
+                try {
+                    if (!observer.awaitReadyForResults()) {
+                        break;
+                    }
+                } catch (Exception e) {
+                    if (rq.getLogic().getCollectQueryMetrics()) {
+                        rq.getMetric().setError(e);
+                    }
+                    observer.queryException((e instanceof QueryException) ? (QueryException) e : new QueryException(e));
+                    break;
+                }
+                
                 long callStart = System.nanoTime();
                 rq.setActiveCall(true);
                 try {
@@ -3432,8 +3510,16 @@ public class QueryExecutorBean implements QueryExecutor {
         return new AsyncResult<>(queryId);
     }
     
+    /**
+     * The columnar event stream is matched on its type and subtype only, as the media type may carry a compression parameter
+     */
+    private static boolean isColumnar(MediaType type) {
+        MediaType columnar = MediaType.valueOf(ColumnarEventFormat.MEDIA_TYPE);
+        return columnar.getType().equalsIgnoreCase(type.getType()) && columnar.getSubtype().equalsIgnoreCase(type.getSubtype());
+    }
+    
     private enum SerializationType {
-        JSON, XML, PB, YAML;
+        JSON, XML, PB, YAML, COLUMNAR, COLUMNAR_DEFLATE;
     }
     
     public class ExecuteStreamingOutputResponse implements StreamingOutput {
@@ -3488,6 +3574,14 @@ public class QueryExecutorBean implements QueryExecutor {
                     TraceScope span = null;
                     List<PageMetric> pageMetrics = rq.getMetric().getPageTimes();
                     
+                    // the columnar stream shares its dictionary across pages, so one writer is used for the whole response
+                    CountingOutputStream columnarStream = null;
+                    ColumnarEventWriter columnarWriter = null;
+                    if (serializationType == SerializationType.COLUMNAR || serializationType == SerializationType.COLUMNAR_DEFLATE) {
+                        columnarStream = new CountingOutputStream(out);
+                        columnarWriter = new ColumnarEventWriter(columnarStream, serializationType == SerializationType.COLUMNAR_DEFLATE);
+                    }
+                    
                     do {
                         try {
                             long callStart = System.nanoTime();
@@ -3498,6 +3592,7 @@ public class QueryExecutorBean implements QueryExecutor {
                             CountingOutputStream countingStream = new CountingOutputStream(out);
                             
                             long serializationStart = System.nanoTime();
+                            long columnarBytes = 0;
                             switch (serializationType) {
                                 case XML:
                                     xmlSerializer.marshal(page, countingStream);
@@ -3528,13 +3623,19 @@ public class QueryExecutorBean implements QueryExecutor {
                                     YamlIOUtil.writeTo(countingStream, page, yamlSchema, buffer);
                                     buffer.clear();
                                     break;
+                                case COLUMNAR:
+                                case COLUMNAR_DEFLATE:
+                                    long columnarStart = columnarStream.getCount();
+                                    columnarWriter.writeBatch(((EventQueryResponseBase) page).getEvents());
+                                    columnarBytes = columnarStream.getCount() - columnarStart;
+                                    break;
                             }
                             countingStream.flush();
                             long serializationTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - serializationStart);
                             pm.setSerializationTime(serializationTime);
                             long pageCallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - callStart);
                             pm.setCallTime(pageCallTime);
-                            pm.setBytesWritten(countingStream.getCount());
+                            pm.setBytesWritten(countingStream.getCount() + columnarBytes);
                             sentResults = true;
                         } catch (Exception e) {
                             if (e instanceof NoResultsException || e.getCause() instanceof NoResultsException) {
@@ -3553,6 +3654,8 @@ public class QueryExecutorBean implements QueryExecutor {
                         jsonGenerator.writeEndArray();
                         jsonGenerator.writeEndObject();
                         jsonGenerator.flush();
+                    } else if (null != columnarWriter) {
+                        columnarWriter.finish();
                     }
                 }
             } catch (DatawaveWebApplicationException e) {
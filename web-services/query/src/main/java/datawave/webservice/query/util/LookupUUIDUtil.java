@@ -11,6 +11,7 @@ import java.util.Map;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.regex.Pattern;
 import javax.ejb.EJBContext;
 import javax.ejb.EJBException;
 import javax.ws.rs.core.HttpHeaders;
@@ -64,6 +65,7 @@ public class LookupUUIDUtil {
     private static final String PARAM_LUCENE_QUERY_SYNTAX = ";query.syntax:LUCENE-UUID";
     protected static final String QUOTE = "\"";
     private static final String REGEX_GROUPING_CHARS = "[()]";
+    private static final Pattern REGEX_NON_INDEXED_SYNTAX = Pattern.compile("[*?\\\\!&/\"]|[\\s][aA][nN][dD][\\s]|[\\s][nN][oO][tT][\\s]");
     private static final String REGEX_NONWORD_CHARS = "[\\W&&[^:_\\.\\s-]]";
     private static final String REGEX_OR_OPERATOR = "[\\s][oO][rR][\\s]";
     private static final String REGEX_WHITESPACE_CHARS = "\\s";
@@ -89,6 +91,8 @@ public class LookupUUIDUtil {
     
     private int maxAllowedBatchLookupUUIDs = LookupUUIDConstants.DEFAULT_BATCH_LOOKUP_UPPER_LIMIT;
     
+    private boolean indexedContentLookup = false;
+    
     private final QueryExecutor queryExecutor;
     
     private Map<String,UUIDType> uuidTypes = Collections.synchronizedMap(new HashMap<>());
@@ -151,12 +155,16 @@ public class LookupUUIDUtil {
         }
         
         this.defaultOptionalParams = this.lookupUUIDConfiguration.optionalParamsToMap();
+        
+        // Assign the flag for resolving content lookups directly from the index
+        this.indexedContentLookup = this.lookupUUIDConfiguration.isIndexedContentLookup();
     }
     
     /*
      * Create manageable batches of contentQuery strings based on the configured upper limit of UUIDS, if any. A content query term from one item in the list
-     * would look like the following example: <p> "DOCUMENT:shardId/datatype/uid" <p> <b>Note:</b> An attempt was made to concatenate multiple events into a
-     * single OR'd expression, but the ContentQueryTable only supports one term at a time.
+     * would look like the following example: <p> "DOCUMENT:shardId/datatype/uid" <p> or, if indexed content lookup is enabled, "UUIDType:UUID" for the
+     * ContentQueryTable to resolve from the index. <p> <b>Note:</b> An attempt was made to concatenate multiple events into a single OR'd expression, but the
+     * ContentQueryTable only supports one term at a time.
      * 
      * @param eventResponse a specialized response for optimizing content lookup based on internal event IDs
      * 
@@ -174,7 +182,7 @@ public class LookupUUIDUtil {
         int eventCounter = 0;
         
         // Break apart into separate terms
-        final String[] uuidTypeValuePairs = rawQueryString.split(REGEX_WHITESPACE_CHARS);
+        final String[] uuidTypeValuePairs = rawQueryString.replaceAll(REGEX_GROUPING_CHARS, SPACE).split(REGEX_WHITESPACE_CHARS);
         for (final String potentialUUIDTerm : uuidTypeValuePairs) {
             // Double-check for the expected type/value delimiter (i.e., event:shardID/datatype/uid)
             if (potentialUUIDTerm.contains(UUID_TERM_DELIMITER)) {
@@ -188,7 +196,19 @@ public class LookupUUIDUtil {
                     uuid = null;
                 }
                 
-                if (EVENT_TYPE_NAME.equalsIgnoreCase(uuidType) && (null != uuid)) {
+                // Get the content query term
+                final String contentTerm;
+                if (null == uuid) {
+                    contentTerm = null;
+                } else if (EVENT_TYPE_NAME.equalsIgnoreCase(uuidType)) {
+                    contentTerm = DOCUMENT_FIELD_NAME + uuid;
+                } else if (this.indexedContentLookup && this.uuidTypes.containsKey(uuidType)) {
+                    contentTerm = this.uuidTypes.get(uuidType).getFieldName() + UUID_TERM_DELIMITER + uuid;
+                } else {
+                    contentTerm = null;
+                }
+                
+                if (null != contentTerm) {
                     // Conditionally initialize a new query string and the event counter
                     if ((null == contentQuery) || (!multiTermExpressionsSupported)
                                     || ((this.maxAllowedBatchLookupUUIDs > 0) && (eventCounter > this.maxAllowedBatchLookupUUIDs))) {
@@ -202,8 +222,7 @@ public class LookupUUIDUtil {
                     }
                     
                     // Append the content query criteria
-                    contentQuery.append(DOCUMENT_FIELD_NAME);
-                    contentQuery.append(uuid);
+                    contentQuery.append(contentTerm);
                 }
             }
         }
@@ -300,8 +319,9 @@ public class LookupUUIDUtil {
         final AbstractUUIDLookupCriteria validatedCriteria = this.validateLookupCriteria(unvalidatedCriteria, true);
         final HttpHeaders headers = validatedCriteria.getStreamingOutputHeaders();
         
-        // If the criteria is intended for content lookup and contains only UIDQuery "event" types, allow
-        // for optimized content lookup by skipping the UUID lookup query and assigning a "dummy" EventQueryResponseBase.
+        // If the criteria is intended for content lookup and contains only UIDQuery "event" types (or UUIDs that the
+        // ContentQuery can resolve from the index), allow for optimized content lookup by skipping the UUID lookup
+        // query and assigning a "dummy" EventQueryResponseBase.
         if (validatedCriteria.isContentLookup() && validatedCriteria.isAllEventLookup()) {
             response = (T) new AllEventMockResponse(validatedCriteria);
         }
@@ -775,6 +795,11 @@ public class LookupUUIDUtil {
             // Initialize the counter for validating against the maximum number of allowed UUIDs
             int uuidPairCount = 0;
             int eventTypeCountForContentLookup = 0;
+            int indexedTypeCountForContentLookup = 0;
+            
+            // Only simple disjunctions of UUIDs without wildcards can be resolved by the ContentQuery from the index
+            final boolean indexable = this.indexedContentLookup && criteria.isContentLookup() && (null != unvalidatedQuery)
+                            && !REGEX_NON_INDEXED_SYNTAX.matcher(unvalidatedQuery).find();
             
             // Reformat the query into a tokenizable series of UUID type/value pairs
             String tokenizablePairs;
@@ -807,6 +832,10 @@ public class LookupUUIDUtil {
                     if (criteria.isContentLookup() && EVENT_TYPE_NAME.equals(uuidType.getFieldName())) {
                         eventTypeCountForContentLookup++;
                     }
+                    // Increment the counter for UUID types that can be resolved from the index in the case of content lookups
+                    else if (indexable) {
+                        indexedTypeCountForContentLookup++;
+                    }
                 }
             }
             
@@ -827,8 +856,10 @@ public class LookupUUIDUtil {
                 throw new DatawaveWebApplicationException(new IllegalArgumentException(message), errorReponse);
             }
             
-            // Set the flag if we know we're dealing with an all-event UID lookup that has not exceeded the max page size
-            if ((eventTypeCountForContentLookup > 0) && (uuidPairCount == eventTypeCountForContentLookup)
+            // Set the flag if we know we're dealing with an all-event UID lookup, or a lookup of UUIDs that can all be resolved
+            // from the index, that has not exceeded the max page size
+            if ((uuidPairCount > 0)
+                            && ((uuidPairCount == eventTypeCountForContentLookup) || (uuidPairCount == indexedTypeCountForContentLookup))
                             && (uuidPairCount <= Integer.parseInt(criteria.getQueryParameters().getFirst(QueryParameters.QUERY_PAGESIZE)))) {
                 criteria.setAllEventLookup(true);
             }
@@ -0,0 +1,76 @@
+package datawave.webservice.query.cache;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import datawave.webservice.query.cache.QueryTraceCache.PatternWrapper;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QueryTraceRulesTest {
+    
+    @Test
+    public void testNoPatterns() {
+        QueryTraceRules rules = QueryTraceRules.compile(HashMultimap.create());
+        assertTrue(rules.isEmpty());
+        assertFalse(rules.shouldTrace("FOO == 'bar'", "user", "EventQuery"));
+    }
+    
+    @Test
+    public void testUserAndRegexPatterns() {
+        Multimap<String,PatternWrapper> traceInfos = HashMultimap.create();
+        traceInfos.put("user1", null);
+        traceInfos.put("user2", PatternWrapper.wrap(".*SECRET.*"));
+        traceInfos.put(null, PatternWrapper.wrap("FOO == .*"));
+        QueryTraceRules rules = QueryTraceRules.compile(traceInfos);
+        
+        assertTrue(rules.shouldTrace("BAR == 'baz'", "user1", "EventQuery"));
+        assertTrue(rules.shouldTrace("SECRET == 'baz'", "user2", "EventQuery"));
+        assertFalse(rules.shouldTrace("BAR == 'baz'", "user2", "EventQuery"));
+        assertTrue(rules.shouldTrace("FOO == 'baz'", "user3", "EventQuery"));
+        assertFalse(rules.shouldTrace("BAR == 'baz'", "user3", "EventQuery"));
+    }
+    
+    @Test
+    public void testLogicPatterns() {
+        Multimap<String,PatternWrapper> traceInfos = HashMultimap.create();
+        traceInfos.put(null, PatternWrapper.wrap(null, "EventQuery", null));
+        traceInfos.put("user1", PatternWrapper.wrap(".*SECRET.*", "LuceneQuery", null));
+        QueryTraceRules rules = QueryTraceRules.compile(traceInfos);
+        
+        assertTrue(rules.shouldTrace("BAR == 'baz'", "user2", "EventQuery"));
+        assertFalse(rules.shouldTrace("BAR == 'baz'", "user2", "LuceneQuery"));
+        assertTrue(rules.shouldTrace("SECRET:baz", "user1", "LuceneQuery"));
+        assertFalse(rules.shouldTrace("SECRET:baz", "user2", "LuceneQuery"));
+    }
+    
+    @Test
+    public void testSampling() {
+        Multimap<String,PatternWrapper> traceInfos = HashMultimap.create();
+        traceInfos.put(null, PatternWrapper.wrap(null, "EventQuery", 0.1d));
+        QueryTraceRules rules = QueryTraceRules.compile(traceInfos);
+        
+        int traced = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (rules.shouldTrace("BAR == 'baz'", "user", "EventQuery")) {
+                traced++;
+            }
+        }
+        assertTrue("traced " + traced, traced > 500 && traced < 1500);
+        assertFalse(rules.shouldTrace("BAR == 'baz'", "user", "LuceneQuery"));
+    }
+    
+    @Test
+    public void testSampleRateNotPartOfIdentity() {
+        PatternWrapper sampled = PatternWrapper.wrap("FOO.*", "EventQuery", 0.5d);
+        PatternWrapper all = PatternWrapper.wrap("FOO.*", "EventQuery", null);
+        assertEquals(sampled, all);
+        assertEquals(sampled.hashCode(), all.hashCode());
+        assertEquals(0.5d, sampled.getSampleRate(), 0.0d);
+        assertEquals(1.0d, all.getSampleRate(), 0.0d);
+        assertFalse(sampled.equals(PatternWrapper.wrap("FOO.*")));
+        assertEquals(PatternWrapper.wrap("FOO.*"), PatternWrapper.wrap("FOO.*", null, null));
+    }
+}
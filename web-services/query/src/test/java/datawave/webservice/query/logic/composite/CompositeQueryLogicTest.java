@@ -772,6 +772,99 @@ public class CompositeQueryLogicTest {
         
     }
     
+    @Test
+    // the delegates wait for room in their queues when the results are not read
+    public void testQueryLogicWithSmallPages() throws Exception {
+        List<BaseQueryLogic<?>> logics = new ArrayList<>();
+        TestQueryLogic logic1 = new TestQueryLogic();
+        TestQueryLogic2 logic2 = new TestQueryLogic2();
+        logics.add(logic1);
+        logics.add(logic2);
+        
+        logic1.getData().put(key1, value1);
+        logic1.getData().put(key2, value2);
+        logic2.getData().put(key3, value3);
+        logic2.getData().put(key4, value4);
+        logic1.getData().put(key5, value5);
+        logic1.getData().put(key6, value6);
+        logic2.getData().put(key7, value7);
+        logic2.getData().put(key8, value8);
+        
+        QueryImpl settings = new QueryImpl();
+        settings.setPagesize(1);
+        settings.setQueryAuthorizations(auths.serialize());
+        settings.setQuery("FOO == 'BAR'");
+        settings.setParameters(new HashSet<>());
+        settings.setId(UUID.randomUUID());
+        
+        CompositeQueryLogic c = new CompositeQueryLogic();
+        c.setExecutorThreads(1);
+        c.setQueryLogics(logics);
+        c.initialize(null, settings, Collections.singleton(auths));
+        c.setupQuery(null);
+        TransformIterator iter = c.getTransformIterator(settings);
+        
+        // give the delegates time to fill their queues
+        Thread.sleep(100);
+        
+        List<Object> results = new ArrayList<>();
+        while (iter.hasNext()) {
+            Object o = iter.next();
+            if (null == o)
+                break;
+            Assert.assertTrue(o instanceof TestQueryResponse);
+            results.add(o);
+        }
+        Assert.assertEquals(8, results.size());
+        c.close();
+        // the pool is shared by every composite logic
+        c.setExecutorThreads(CompositeQueryLogic.DEFAULT_EXECUTOR_THREADS);
+    }
+    
+    @Test
+    // the delegates are closed once the composite logic has returned its max results
+    public void testQueryLogicWithCompositeMaxResults() throws Exception {
+        List<BaseQueryLogic<?>> logics = new ArrayList<>();
+        TestQueryLogic logic1 = new TestQueryLogic();
+        TestQueryLogic2 logic2 = new TestQueryLogic2();
+        logics.add(logic1);
+        logics.add(logic2);
+        
+        logic1.getData().put(key1, value1);
+        logic1.getData().put(key2, value2);
+        logic2.getData().put(key3, value3);
+        logic2.getData().put(key4, value4);
+        logic1.getData().put(key5, value5);
+        logic1.getData().put(key6, value6);
+        logic2.getData().put(key7, value7);
+        logic2.getData().put(key8, value8);
+        
+        QueryImpl settings = new QueryImpl();
+        settings.setPagesize(100);
+        settings.setQueryAuthorizations(auths.serialize());
+        settings.setQuery("FOO == 'BAR'");
+        settings.setParameters(new HashSet<>());
+        settings.setId(UUID.randomUUID());
+        
+        CompositeQueryLogic c = new CompositeQueryLogic();
+        c.setMaxResults(3);
+        c.setQueryLogics(logics);
+        c.initialize(null, settings, Collections.singleton(auths));
+        c.setupQuery(null);
+        TransformIterator iter = c.getTransformIterator(settings);
+        
+        List<Object> results = new ArrayList<>();
+        while (iter.hasNext()) {
+            Object o = iter.next();
+            if (null == o)
+                break;
+            Assert.assertTrue(o instanceof TestQueryResponse);
+            results.add(o);
+        }
+        Assert.assertEquals(3, results.size());
+        c.close();
+    }
+    
     @Test
     public void testCanRunQueryLogic() throws Exception {
         List<BaseQueryLogic<?>> logics = new ArrayList<>();
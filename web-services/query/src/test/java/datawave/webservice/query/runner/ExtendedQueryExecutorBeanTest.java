@@ -1,5 +1,6 @@
 package datawave.webservice.query.runner;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import datawave.marking.ColumnVisibilitySecurityMarking;
@@ -30,6 +31,7 @@ import datawave.webservice.query.cache.QueryMetricFactoryImpl;
 import datawave.webservice.query.cache.QueryTraceCache;
 import datawave.webservice.query.cache.QueryTraceCache.CacheListener;
 import datawave.webservice.query.cache.QueryTraceCache.PatternWrapper;
+import datawave.webservice.query.cache.QueryTraceRules;
 import datawave.webservice.query.cache.ResultsPage;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
 import datawave.webservice.query.configuration.LookupUUIDConfiguration;
@@ -771,8 +773,6 @@ public class ExtendedQueryExecutorBeanTest {
         this.connectionRequestBean.requestBegin(queryId.toString());
         expect(this.connectionFactory.getClient("connPool1", Priority.NORMAL, null)).andReturn(this.client);
         this.connectionRequestBean.requestEnd(queryId.toString());
-        expect(this.traceInfos.get(userSid)).andReturn(new ArrayList<>(0));
-        expect(this.traceInfos.get(null)).andReturn(Arrays.asList(PatternWrapper.wrap("NONMATCHING_REGEX")));
         expect(this.qlCache.add(queryId.toString(), userSid, this.queryLogic1, this.client)).andReturn(true);
         expect(this.queryLogic1.getCollectQueryMetrics()).andReturn(true);
         expect(this.principal.getPrimaryUser()).andReturn(dwUser);
@@ -856,6 +856,7 @@ public class ExtendedQueryExecutorBeanTest {
         setInternalState(subject, AuditBean.class, auditor);
         setInternalState(subject, QueryMetricsBean.class, metrics);
         setInternalState(subject, Multimap.class, traceInfos);
+        setInternalState(subject, QueryTraceRules.class, traceRules(null, PatternWrapper.wrap("NONMATCHING_REGEX")));
         setInternalState(subject, SecurityMarking.class, new ColumnVisibilitySecurityMarking());
         setInternalState(subject, QueryParameters.class, new QueryParametersImpl());
         setInternalState(subject, QueryMetricFactory.class, new QueryMetricFactoryImpl());
@@ -949,8 +950,6 @@ public class ExtendedQueryExecutorBeanTest {
         expect(this.queryLogic1.getConnPoolName()).andReturn("connPool1");
         expect(this.connectionFactory.getTrackingMap(isA(StackTraceElement[].class))).andReturn(null);
         expect(this.connectionFactory.getClient("connPool1", Priority.NORMAL, null)).andReturn(this.client);
-        expect(this.traceInfos.get(userSid)).andReturn(new ArrayList<>(0));
-        expect(this.traceInfos.get(null)).andReturn(Arrays.asList(PatternWrapper.wrap("NONMATCHING_REGEX")));
         expect(this.qlCache.add(queryId.toString(), userSid, this.queryLogic1, this.client)).andReturn(true);
         expect(this.queryLogic1.getCollectQueryMetrics()).andReturn(true);
         expect(this.query.getOwner()).andReturn(userSid).anyTimes();
@@ -1034,6 +1033,7 @@ public class ExtendedQueryExecutorBeanTest {
         setInternalState(subject, AuditBean.class, auditor);
         setInternalState(subject, QueryMetricsBean.class, metrics);
         setInternalState(subject, Multimap.class, traceInfos);
+        setInternalState(subject, QueryTraceRules.class, traceRules(null, PatternWrapper.wrap("NONMATCHING_REGEX")));
         setInternalState(subject, SecurityMarking.class, new ColumnVisibilitySecurityMarking());
         setInternalState(subject, QueryParameters.class, new QueryParametersImpl());
         setInternalState(subject, QueryMetricFactory.class, new QueryMetricFactoryImpl());
@@ -1121,7 +1121,6 @@ public class ExtendedQueryExecutorBeanTest {
         this.connectionRequestBean.requestBegin(queryId.toString());
         expect(this.connectionFactory.getClient("connPool1", Priority.NORMAL, null)).andReturn(this.client);
         this.connectionRequestBean.requestEnd(queryId.toString());
-        expect(this.traceInfos.get(userSid)).andReturn(Arrays.asList(PatternWrapper.wrap(query)));
         expect(this.qlCache.add(queryId.toString(), userSid, this.queryLogic1, this.client)).andThrow(
                         new IllegalStateException("INTENTIONALLY THROWN TEST EXCEPTION: PROBLEM ADDING QUERY LOGIC TO CACHE"));
         this.queryLogic1.close();
@@ -1145,6 +1144,7 @@ public class ExtendedQueryExecutorBeanTest {
         setInternalState(subject, QueryExpirationConfiguration.class, queryExpirationConf);
         setInternalState(subject, AuditBean.class, auditor);
         setInternalState(subject, Multimap.class, traceInfos);
+        setInternalState(subject, QueryTraceRules.class, traceRules(userSid, PatternWrapper.wrap(query)));
         setInternalState(subject, SecurityMarking.class, marking);
         setInternalState(subject, QueryMetricFactory.class, new QueryMetricFactoryImpl());
         setInternalState(connectionRequestBean, EJBContext.class, context);
@@ -1238,8 +1238,6 @@ public class ExtendedQueryExecutorBeanTest {
         expect(this.queryLogic1.getAuditType(this.query)).andReturn(AuditType.NONE);
         expect(this.queryLogic1.getConnectionPriority()).andReturn(Priority.NORMAL);
         expect(this.connectionFactory.getTrackingMap(isA(StackTraceElement[].class))).andReturn(null);
-        expect(this.traceInfos.get(userSid)).andReturn(new ArrayList<>(0));
-        expect(this.traceInfos.get(null)).andReturn(Arrays.asList(PatternWrapper.wrap("NONMATCHING_REGEX")));
         expect(this.qlCache.add(queryId.toString(), userSid, this.queryLogic1, this.client)).andReturn(true);
         expect(this.queryLogic1.getCollectQueryMetrics()).andReturn(true);
         expect(this.query.getOwner()).andReturn(userSid).anyTimes();
@@ -1340,6 +1338,7 @@ public class ExtendedQueryExecutorBeanTest {
             setInternalState(subject, AuditBean.class, auditor);
             setInternalState(subject, QueryMetricsBean.class, metrics);
             setInternalState(subject, Multimap.class, traceInfos);
+            setInternalState(subject, QueryTraceRules.class, traceRules(null, PatternWrapper.wrap("NONMATCHING_REGEX")));
             setInternalState(subject, SecurityMarking.class, new ColumnVisibilitySecurityMarking());
             setInternalState(subject, QueryParameters.class, new QueryParametersImpl());
             setInternalState(subject, QueryMetricFactory.class, new QueryMetricFactoryImpl());
@@ -1688,8 +1687,6 @@ public class ExtendedQueryExecutorBeanTest {
         expect(this.query.getId()).andReturn(queryId).times(3);
         expect(this.queryLogicFactory.getQueryLogic(queryLogicName, principal)).andReturn((QueryLogic) this.queryLogic1);
         expect(this.queryLogic1.getMaxPageSize()).andReturn(100).times(2);
-        expect(this.traceInfos.get(userSid)).andReturn(new ArrayList<>(0));
-        expect(this.traceInfos.get(null)).andReturn(Arrays.asList(PatternWrapper.wrap(query)));
         PowerMock.mockStaticPartial(Trace.class, "start");
         expect(Trace.startSpan("query:define")).andReturn(this.traceScope);
         expect(this.queryLogic1.getConnectionPriority()).andThrow(ILLEGAL_STATE_EXCEPTION);
@@ -1707,6 +1704,7 @@ public class ExtendedQueryExecutorBeanTest {
             setInternalState(subject, QueryLogicFactory.class, queryLogicFactory);
             setInternalState(subject, QueryExpirationConfiguration.class, queryExpirationConf);
             setInternalState(subject, Multimap.class, traceInfos);
+            setInternalState(subject, QueryTraceRules.class, traceRules(null, PatternWrapper.wrap(query)));
             setInternalState(subject, SecurityMarking.class, new ColumnVisibilitySecurityMarking());
             setInternalState(subject, QueryParameters.class, new QueryParametersImpl());
             setInternalState(subject, QueryMetricFactory.class, new QueryMetricFactoryImpl());
@@ -1746,6 +1744,8 @@ public class ExtendedQueryExecutorBeanTest {
         this.traceCache.put("traceInfos", this.traceInfos);
         expectLastCall().times(2);
         expect(this.traceInfos.remove(eq(user), notNull())).andReturn(true);
+        // the trace rules are compiled after each change
+        expect(this.traceInfos.entries()).andReturn(Collections.emptyList()).times(2);
         
         // Run the test
         PowerMock.replayAll();
@@ -2107,6 +2107,7 @@ public class ExtendedQueryExecutorBeanTest {
         expect(traceInfos.containsEntry(user, PatternWrapper.wrap(queryRegex))).andReturn(false);
         expect(traceInfos.put(user, PatternWrapper.wrap(queryRegex))).andReturn(true);
         traceCache.put("traceInfos", traceInfos);
+        expect(traceInfos.entries()).andReturn(Collections.emptyList());
         
         // Run the test
         PowerMock.replayAll();
@@ -4205,6 +4206,12 @@ public class ExtendedQueryExecutorBeanTest {
                         result1.getMessage());
     }
     
+    private static QueryTraceRules traceRules(String user, PatternWrapper pattern) {
+        Multimap<String,PatternWrapper> traceInfos = HashMultimap.create();
+        traceInfos.put(user, pattern);
+        return QueryTraceRules.compile(traceInfos);
+    }
+    
     public class TestQuery extends QueryImpl {
         private static final long serialVersionUID = -1514300746858409155L;
         
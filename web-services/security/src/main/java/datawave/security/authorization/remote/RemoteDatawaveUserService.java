@@ -1,9 +1,17 @@
 package datawave.security.authorization.remote;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
 import com.codahale.metrics.annotation.Metric;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import datawave.configuration.RefreshableScope;
 import datawave.security.authorization.AuthorizationException;
 import datawave.security.authorization.CachedDatawaveUserService;
@@ -22,6 +30,8 @@ import org.apache.http.util.EntityUtils;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Priority;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
 import javax.interceptor.Interceptor;
@@ -30,12 +40,25 @@ import java.net.URISyntaxException;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * A {@link CachedDatawaveUserService} that delegates all methods to a remote authorization microservice.
+ * <p>
+ * Looked up users may also be kept in a size-bounded local cache, keyed by the proxied entity chain, so that bursts of requests from the same caller don't each
+ * wait on the remote service. The cache is off unless {@code dw.remoteDatawaveUserService.cache.maxSize} is set above 0. Concurrent lookups of the same chain
+ * share one remote call, and entries that are used after the refresh interval are reloaded in the background while the cached users continue to be returned.
+ * Only entries that go unused until they expire are reloaded on the request path.
+ * <p>
+ * While the cache is on, a change to a user's roles or authorizations made at the authorization service can take up to
+ * {@code dw.remoteDatawaveUserService.cache.expireAfterSeconds} to be seen by this server, or until the next refresh for users in active use. Reloading or
+ * evicting users through this service takes effect immediately on this server only. It discards every cached user, and the users of any lookup still in flight
+ * are not returned to lookups made after it.
  */
 @RefreshableScope
 @Alternative
@@ -91,6 +114,18 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @ConfigProperty(name = "dw.remoteDatawaveUserService.unavailableRetryDelayMS", defaultValue = "2000")
     private int unavailableRetryDelay;
     
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveUserService.cache.maxSize", defaultValue = "0")
+    private long cacheMaxSize;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveUserService.cache.expireAfterSeconds", defaultValue = "300")
+    private long cacheExpireAfterSeconds;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveUserService.cache.refreshAfterSeconds", defaultValue = "240")
+    private long cacheRefreshAfterSeconds;
+    
     @Inject
     @Metric(name = "dw.remoteDatawaveUserService.retries", absolute = true)
     private Counter retryCounter;
@@ -99,9 +134,75 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Metric(name = "dw.remoteDatawaveUserService.failures", absolute = true)
     private Counter failureCounter;
     
+    @Inject
+    @Metric(name = "dw.remoteDatawaveUserService.cache.hits", absolute = true)
+    private Counter cacheHitCounter;
+    
+    @Inject
+    @Metric(name = "dw.remoteDatawaveUserService.cache.misses", absolute = true)
+    private Counter cacheMissCounter;
+    
+    @Inject
+    @Metric(name = "dw.remoteDatawaveUserService.cache.refreshes", absolute = true)
+    private Counter cacheRefreshCounter;
+    
+    @Inject
+    @Metric(name = "dw.remoteDatawaveUserService.cache.load", absolute = true)
+    private Timer cacheLoadTimer;
+    
+    @Resource
+    private ManagedExecutorService refreshExecutor;
+    
+    private LoadingCache<List<SubjectIssuerDNPair>,CachedUsers> userCache;
+    
+    // incremented whenever cached users are invalidated, so that users loaded before then are not used afterwards
+    private final AtomicLong cacheGeneration = new AtomicLong();
+    
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.lookup", absolute = true)
     public Collection<DatawaveUser> lookup(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
+        if (userCache == null) {
+            return remoteLookup(dns);
+        }
+        
+        List<SubjectIssuerDNPair> key = ImmutableList.copyOf(dns);
+        long generation = cacheGeneration.get();
+        CachedUsers cached = userCache.getIfPresent(key);
+        if (cached != null && cached.generation >= generation) {
+            cacheHitCounter.inc();
+            return cached.users;
+        }
+        
+        cacheMissCounter.inc();
+        try {
+            // a lookup that was in flight when the users were invalidated is discarded here, and the users are loaded again
+            while (cached == null || cached.generation < generation) {
+                if (cached != null) {
+                    userCache.asMap().remove(key, cached);
+                }
+                cached = userCache.get(key);
+            }
+            return cached.users;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof AuthorizationException) {
+                throw (AuthorizationException) e.getCause();
+            }
+            throw new AuthorizationException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    private CachedUsers timedRemoteLookup(List<SubjectIssuerDNPair> dns) throws AuthorizationException {
+        // read before the remote call, so that an invalidation during the call marks its users as stale
+        long generation = cacheGeneration.get();
+        Timer.Context context = cacheLoadTimer.time();
+        try {
+            return new CachedUsers(generation, remoteLookup(dns));
+        } finally {
+            context.stop();
+        }
+    }
+    
+    protected Collection<DatawaveUser> remoteLookup(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
         final String enttiesHeader = "<" + dns.stream().map(SubjectIssuerDNPair::subjectDN).collect(Collectors.joining("><")) + ">";
         final String issuersHeader = "<" + dns.stream().map(SubjectIssuerDNPair::issuerDN).collect(Collectors.joining("><")) + ">";
         // @formatter:off
@@ -123,7 +224,7 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     public Collection<DatawaveUser> reload(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
         Base64.Encoder encoder = Base64.getEncoder();
         // @formatter:off
-        return executeGetMethodWithAuthorizationException("admin/reloadUsers",
+        Collection<DatawaveUser> result = executeGetMethodWithAuthorizationException("admin/reloadUsers",
                 // We need to base64 encode each parameter as a work-around since DNs contain
                 // commas, which are used as a separator for a multi-valued parameter.
                 uriBuilder -> dns.stream()
@@ -134,6 +235,18 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
                 entity -> datawaveUserListReader.readValue(entity.getContent()),
                 () -> "reload " + dns);
         // @formatter:on
+        invalidateCachedUsers();
+        return result;
+    }
+    
+    /**
+     * Discards every cached user. Loads that are still in flight can't be told apart by user, so the users they return are discarded as well.
+     */
+    private void invalidateCachedUsers() {
+        if (userCache != null) {
+            cacheGeneration.incrementAndGet();
+            userCache.invalidateAll();
+        }
     }
     
     @Override
@@ -176,36 +289,42 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Timed(name = "dw.remoteDatawaveUserService.evict", absolute = true)
     public String evict(String name) {
         // @formatter:off
-        return executeGetMethodWithRuntimeException("admin/evictUser",
+        String result = executeGetMethodWithRuntimeException("admin/evictUser",
                 uriBuilder -> uriBuilder.addParameter("username", name),
                 httpGet -> httpGet.addHeader(HttpHeaders.ACCEPT, ContentType.TEXT_PLAIN.getMimeType()),
                 EntityUtils::toString,
                 () -> "evict " + name);
         // @formatter:on
+        invalidateCachedUsers();
+        return result;
     }
     
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.evictMatching", absolute = true)
     public String evictMatching(String substring) {
         // @formatter:off
-        return executeGetMethodWithRuntimeException("admin/evictUsersMatching",
+        String result = executeGetMethodWithRuntimeException("admin/evictUsersMatching",
                 uriBuilder -> uriBuilder.addParameter("substring", substring),
                 httpGet -> httpGet.addHeader(HttpHeaders.ACCEPT, ContentType.TEXT_PLAIN.getMimeType()),
                 EntityUtils::toString,
                 () -> "evict users matching " + substring);
         // @formatter:on
+        invalidateCachedUsers();
+        return result;
     }
     
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.evictAll", absolute = true)
     public String evictAll() {
         // @formatter:off
-        return executeGetMethodWithRuntimeException("admin/evictAll",
+        String result = executeGetMethodWithRuntimeException("admin/evictAll",
                 b -> {},
                 httpGet -> httpGet.addHeader(HttpHeaders.ACCEPT, ContentType.TEXT_PLAIN.getMimeType()),
                 EntityUtils::toString,
                 () -> "evict all users");
         // @formatter:on
+        invalidateCachedUsers();
+        return result;
     }
     
     protected <T> T executeGetMethodWithRuntimeException(String uriSuffix, Consumer<URIBuilder> uriCustomizer, Consumer<HttpGet> requestCustomizer,
@@ -238,6 +357,29 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
         datawaveUserReader = objectMapper.readerFor(DatawaveUser.class);
         datawaveUserListReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(Collection.class, DatawaveUser.class));
         datawaveUserInfoListReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(Collection.class, DatawaveUserInfo.class));
+        initUserCache();
+    }
+    
+    protected void initUserCache() {
+        if (cacheMaxSize > 0) {
+            CacheBuilder<Object,Object> builder = CacheBuilder.newBuilder().maximumSize(cacheMaxSize)
+                            .expireAfterWrite(cacheExpireAfterSeconds, TimeUnit.SECONDS);
+            if (cacheRefreshAfterSeconds > 0 && cacheRefreshAfterSeconds < cacheExpireAfterSeconds) {
+                builder.refreshAfterWrite(cacheRefreshAfterSeconds, TimeUnit.SECONDS);
+            }
+            userCache = builder.build(CacheLoader.asyncReloading(new CacheLoader<List<SubjectIssuerDNPair>,CachedUsers>() {
+                @Override
+                public CachedUsers load(List<SubjectIssuerDNPair> dns) throws AuthorizationException {
+                    return timedRemoteLookup(dns);
+                }
+                
+                @Override
+                public ListenableFuture<CachedUsers> reload(List<SubjectIssuerDNPair> dns, CachedUsers users) throws AuthorizationException {
+                    cacheRefreshCounter.inc();
+                    return Futures.immediateFuture(timedRemoteLookup(dns));
+                }
+            }, refreshExecutor));
+        }
     }
     
     @Override
@@ -299,4 +441,17 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     protected Counter retryCounter() {
         return retryCounter;
     }
+    
+    /**
+     * The users of a proxied entity chain, with the cache generation at which their lookup started
+     */
+    private static class CachedUsers {
+        private final long generation;
+        private final Collection<DatawaveUser> users;
+        
+        private CachedUsers(long generation, Collection<DatawaveUser> users) {
+            this.generation = generation;
+            this.users = users;
+        }
+    }
 }
@@ -0,0 +1,223 @@
+package datawave.security.cache;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import datawave.security.authorization.AuthorizationException;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import datawave.security.authorization.remote.RemoteDatawaveUserService;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import javax.enterprise.concurrent.ManagedExecutorService;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the local user cache of the {@link RemoteDatawaveUserService}, which is flushed through the {@link CredentialsCacheBean}
+ */
+public class RemoteDatawaveUserServiceCacheTest {
+    
+    private static final List<SubjectIssuerDNPair> DNS = Collections.singletonList(SubjectIssuerDNPair.of("user1", "issuer1"));
+    
+    private TestUserService service;
+    private ExecutorService executor;
+    
+    @Before
+    public void setUp() {
+        service = new TestUserService();
+        executor = Executors.newFixedThreadPool(2);
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testCacheOffByDefault() throws Exception {
+        ConfigProperty maxSize = RemoteDatawaveUserService.class.getDeclaredField("cacheMaxSize").getAnnotation(ConfigProperty.class);
+        assertEquals("0", maxSize.defaultValue());
+        
+        service.initUserCache(0L);
+        
+        service.lookup(DNS);
+        service.lookup(DNS);
+        
+        assertEquals(2, service.remoteLookups.get());
+        assertEquals(0, service.hits.getCount());
+        assertEquals(0, service.misses.getCount());
+    }
+    
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        service.initUserCache(10L);
+        
+        Collection<DatawaveUser> first = service.lookup(DNS);
+        Collection<DatawaveUser> second = service.lookup(DNS);
+        service.lookup(Collections.singletonList(SubjectIssuerDNPair.of("user2", "issuer2")));
+        
+        assertSame(first, second);
+        assertEquals(2, service.remoteLookups.get());
+        assertEquals(1, service.hits.getCount());
+        assertEquals(2, service.misses.getCount());
+        assertEquals(2, service.loads.getCount());
+    }
+    
+    @Test
+    public void testConcurrentLookupsShareOneLoad() throws Exception {
+        service.initUserCache(10L);
+        service.block();
+        
+        Future<Collection<DatawaveUser>> first = executor.submit(() -> service.lookup(DNS));
+        assertTrue("Lookup did not start", service.started.await(10, TimeUnit.SECONDS));
+        Future<Collection<DatawaveUser>> second = executor.submit(() -> service.lookup(DNS));
+        // give the second lookup time to wait on the first
+        Thread.sleep(200);
+        assertFalse(second.isDone());
+        
+        service.release.countDown();
+        
+        assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, service.remoteLookups.get());
+        assertEquals(2, service.misses.getCount());
+    }
+    
+    @Test
+    public void testEvictInvalidates() throws Exception {
+        service.initUserCache(10L);
+        
+        Collection<DatawaveUser> before = service.lookup(DNS);
+        service.evict("user1");
+        Collection<DatawaveUser> after = service.lookup(DNS);
+        
+        assertEquals(2, service.remoteLookups.get());
+        assertNotSame(before, after);
+        assertEquals(0, service.hits.getCount());
+        
+        service.evictMatching("user");
+        service.lookup(DNS);
+        service.evictAll();
+        service.lookup(DNS);
+        assertEquals(4, service.remoteLookups.get());
+    }
+    
+    @Test
+    public void testReloadInvalidates() throws Exception {
+        service.initUserCache(10L);
+        
+        service.lookup(DNS);
+        service.reload(DNS);
+        service.lookup(DNS);
+        
+        assertEquals(2, service.remoteLookups.get());
+        assertEquals(0, service.hits.getCount());
+    }
+    
+    @Test
+    public void testEvictDuringLoad() throws Exception {
+        service.initUserCache(10L);
+        service.block();
+        
+        Future<Collection<DatawaveUser>> inFlight = executor.submit(() -> service.lookup(DNS));
+        assertTrue("Lookup did not start", service.started.await(10, TimeUnit.SECONDS));
+        
+        // the lookup started before the eviction, but must not be returned to lookups made after it
+        service.evict("user1");
+        service.release.countDown();
+        Collection<DatawaveUser> stale = inFlight.get(10, TimeUnit.SECONDS);
+        
+        Collection<DatawaveUser> fresh = service.lookup(DNS);
+        assertNotSame(stale, fresh);
+        assertEquals(2, service.remoteLookups.get());
+        
+        // the users loaded after the eviction are cached
+        assertSame(fresh, service.lookup(DNS));
+        assertEquals(2, service.remoteLookups.get());
+        assertEquals(1, service.hits.getCount());
+    }
+    
+    /**
+     * Answers lookups locally, optionally holding the first one until released
+     */
+    private static class TestUserService extends RemoteDatawaveUserService {
+        private final AtomicInteger remoteLookups = new AtomicInteger();
+        private final Counter hits = new Counter();
+        private final Counter misses = new Counter();
+        private final Timer loads = new Timer();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile CountDownLatch release = new CountDownLatch(0);
+        
+        private void initUserCache(long maxSize) {
+            Whitebox.setInternalState(this, "cacheMaxSize", maxSize);
+            Whitebox.setInternalState(this, "cacheExpireAfterSeconds", 300L);
+            Whitebox.setInternalState(this, "cacheRefreshAfterSeconds", 240L);
+            Whitebox.setInternalState(this, "cacheHitCounter", hits);
+            Whitebox.setInternalState(this, "cacheMissCounter", misses);
+            Whitebox.setInternalState(this, "cacheRefreshCounter", new Counter());
+            Whitebox.setInternalState(this, "cacheLoadTimer", loads);
+            Whitebox.setInternalState(this, "failureCounter", new Counter());
+            Whitebox.setInternalState(this, "refreshExecutor", Proxy.newProxyInstance(getClass().getClassLoader(),
+                            new Class<?>[] {ManagedExecutorService.class}, (proxy, method, args) -> {
+                                if ("execute".equals(method.getName())) {
+                                    ((Runnable) args[0]).run();
+                                    return null;
+                                }
+                                throw new UnsupportedOperationException(method.getName());
+                            }));
+            initUserCache();
+        }
+        
+        private void block() {
+            release = new CountDownLatch(1);
+        }
+        
+        @Override
+        protected Collection<DatawaveUser> remoteLookup(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
+            remoteLookups.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AuthorizationException(e.getMessage(), e);
+            }
+            SubjectIssuerDNPair dn = dns.iterator().next();
+            return Collections.singletonList(new DatawaveUser(dn, UserType.USER, null, null, null, -1));
+        }
+        
+        @Override
+        protected <T> T executeGetMethodWithRuntimeException(String uriSuffix, Consumer<URIBuilder> uriCustomizer, Consumer<HttpGet> requestCustomizer,
+                        IOFunction<T> resultConverter, Supplier<String> errorSupplier) {
+            return null;
+        }
+        
+        @Override
+        protected <T> T executeGetMethodWithAuthorizationException(String uriSuffix, Consumer<URIBuilder> uriCustomizer, Consumer<HttpGet> requestCustomizer,
+                        IOFunction<T> resultConverter, Supplier<String> errorSupplier) {
+            return null;
+        }
+    }
+}